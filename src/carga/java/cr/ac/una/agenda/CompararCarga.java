@@ -0,0 +1,55 @@
+package cr.ac.una.agenda;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Compara dos corridas de GeneradorCarga (por ejemplo hilos de plataforma contra
+ * hilos virtuales) endpoint por endpoint: rendimiento, p50/p95/p99 y errores.
+ * Solo informa; no falla por diferencias, porque dependen de la máquina y la carga.
+ *
+ * Uso: CompararCarga base.json nuevo.json
+ */
+public final class CompararCarga {
+
+    private static final String[] LATENCIAS = {"p50Ms", "p95Ms", "p99Ms"};
+
+    private CompararCarga() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Uso: CompararCarga base.json nuevo.json");
+        }
+        ObjectMapper json = new ObjectMapper();
+        JsonNode base = json.readTree(new File(args[0]));
+        JsonNode nuevo = json.readTree(new File(args[1]));
+
+        System.out.printf("%-28s %-10s %12s %12s %9s%n", "endpoint", "medida", "base", "nuevo", "cambio");
+        for (Map.Entry<String, JsonNode> e : nuevo.properties()) {
+            JsonNode b = base.get(e.getKey());
+            if (b == null) {
+                System.out.printf("%-28s %-10s %12s %12s %9s%n", e.getKey(), "", "-", "-", "nuevo");
+                continue;
+            }
+            imprimir(e.getKey(), "req/s", b, e.getValue(), "porSegundo");
+            for (String medida : LATENCIAS) {
+                if (e.getValue().has(medida)) {
+                    imprimir("", medida.replace("Ms", " ms"), b, e.getValue(), medida);
+                }
+            }
+            imprimir("", "errores", b, e.getValue(), "errores");
+        }
+    }
+
+    private static void imprimir(String endpoint, String etiqueta, JsonNode base, JsonNode nuevo, String campo) {
+        double antes = base.path(campo).asDouble();
+        double ahora = nuevo.path(campo).asDouble();
+        String cambio = antes == 0 ? "-" : String.format("%+8.1f%%", (ahora - antes) / antes * 100.0);
+        System.out.printf("%-28s %-10s %12.1f %12.1f %9s%n", endpoint, etiqueta, antes, ahora, cambio);
+    }
+}
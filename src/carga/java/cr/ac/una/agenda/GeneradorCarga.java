@@ -0,0 +1,340 @@
+package cr.ac.una.agenda;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de carga contra la app levantada con el perfil "carga" (ver pom.xml).
+ * Crea usuarios con su configuración y tareas del día, y luego ejecuta una mezcla de
+ * CRUD, planificar y replanificar desde varios hilos (modelo cerrado: cada hilo manda
+ * la siguiente petición al recibir la respuesta).
+ * Al terminar reporta por endpoint: peticiones, errores, rendimiento y p50/p95/p99,
+ * y opcionalmente los guarda en JSON para compararlos con CompararCarga.
+ *
+ * Uso: GeneradorCarga url usuarios tareasPorUsuario concurrencia calentamientoSeg duracionSeg [resultado.json]
+ */
+public final class GeneradorCarga {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String[] CLIMAS = {"SOLEADO", "NUBLADO", "LLUVIOSO", "VENTOSO"};
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+    // Usuarios alejados de los datos reales por si se apunta a una base compartida
+    private static final long PRIMER_USUARIO = 900_000L;
+
+    private final String url;
+    private final HttpClient http;
+    private final LocalDate fecha = LocalDate.now();
+    private final Map<String, Medicion> mediciones = new ConcurrentHashMap<>();
+    // Las peticiones anteriores a este instante (datos y calentamiento) no se miden
+    private volatile long inicioMedicion = Long.MAX_VALUE;
+
+    private GeneradorCarga(String url) {
+        this.url = url;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 6) {
+            throw new IllegalArgumentException(
+                    "Uso: GeneradorCarga url usuarios tareasPorUsuario concurrencia calentamientoSeg duracionSeg"
+                            + " [resultado.json]");
+        }
+        String url = args[0];
+        int usuarios = Integer.parseInt(args[1]);
+        int tareas = Integer.parseInt(args[2]);
+        int concurrencia = Integer.parseInt(args[3]);
+        int calentamiento = Integer.parseInt(args[4]);
+        int duracion = Integer.parseInt(args[5]);
+
+        GeneradorCarga generador = new GeneradorCarga(url);
+        ExecutorService hilos = Executors.newFixedThreadPool(concurrencia);
+        try {
+            List<Usuario> datos = generador.preparar(hilos, usuarios, tareas);
+            System.out.printf("Datos: %d usuarios, %d tareas cada uno (fecha %s)%n", usuarios, tareas, generador.fecha);
+            generador.ejecutar(hilos, datos, concurrencia, calentamiento, duracion);
+            Map<String, Map<String, Object>> resumen = generador.reportar(duracion);
+            if (args.length > 6 && !args[6].isBlank()) {
+                File destino = new File(args[6]);
+                JSON.writerWithDefaultPrettyPrinter().writeValue(destino, resumen);
+                System.out.println("Resultado guardado en " + destino);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    /* ===== Preparación de datos ===== */
+
+    private List<Usuario> preparar(ExecutorService hilos, int usuarios, int tareas) throws Exception {
+        List<Future<Usuario>> pendientes = new ArrayList<>();
+        for (int i = 0; i < usuarios; i++) {
+            long usuarioId = PRIMER_USUARIO + i;
+            pendientes.add(hilos.submit(() -> crearUsuario(usuarioId, tareas)));
+        }
+        List<Usuario> datos = new ArrayList<>();
+        for (Future<Usuario> f : pendientes) {
+            datos.add(f.get());
+        }
+        return datos;
+    }
+
+    private Usuario crearUsuario(long usuarioId, int tareas) throws IOException, InterruptedException {
+        ObjectNode config = JSON.createObjectNode()
+                .put("usuarioId", usuarioId)
+                .put("horaInicio", "08:00:00")
+                .put("minutosDisponibles", 480);
+        llamar("configuracion.crear", "POST", "/api/configuracion", config);
+
+        Usuario usuario = new Usuario(usuarioId);
+        Long anterior = null;
+        for (int i = 0; i < tareas; i++) {
+            // Cadenas cortas de dependencias: cada tercera tarea depende de la anterior
+            Long dependeDe = i % 3 == 0 ? null : anterior;
+            JsonNode creada = llamar("tareas.crear", "POST", "/api/tareas", tarea(usuarioId, i, dependeDe));
+            anterior = creada.get("id").asLong();
+            usuario.tareas.add(anterior);
+        }
+        return usuario;
+    }
+
+    private ObjectNode tarea(long usuarioId, int n, Long dependeDe) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        ObjectNode t = JSON.createObjectNode()
+                .put("usuarioId", usuarioId)
+                .put("nombre", "Tarea de carga " + n)
+                .put("fecha", fecha.toString())
+                .put("duracionMinutos", 15 + r.nextInt(8) * 15)
+                .put("prioridad", PRIORIDADES[r.nextInt(PRIORIDADES.length)])
+                .put("estado", "PENDIENTE");
+        if (dependeDe != null) {
+            t.put("dependeDeId", dependeDe);
+        }
+        if (r.nextInt(4) == 0) {
+            t.put("climaPermitido", CLIMAS[r.nextInt(CLIMAS.length)]);
+        }
+        return t;
+    }
+
+    /* ===== Carga ===== */
+
+    private void ejecutar(ExecutorService hilos, List<Usuario> datos, int concurrencia,
+                          int calentamiento, int duracion) throws Exception {
+        inicioMedicion = System.nanoTime() + TimeUnit.SECONDS.toNanos(calentamiento);
+        long fin = inicioMedicion + TimeUnit.SECONDS.toNanos(duracion);
+
+        List<Future<?>> trabajadores = new ArrayList<>();
+        for (int i = 0; i < concurrencia; i++) {
+            trabajadores.add(hilos.submit(() -> {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                while (System.nanoTime() < fin) {
+                    Usuario usuario = datos.get(r.nextInt(datos.size()));
+                    try {
+                        operacion(usuario, r);
+                    } catch (IOException e) {
+                        // Ya quedó contada como error del endpoint
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+                return null;
+            }));
+        }
+        System.out.printf("Calentando %ds y midiendo %ds con %d hilos...%n", calentamiento, duracion, concurrencia);
+        for (Future<?> t : trabajadores) {
+            t.get();
+        }
+    }
+
+    // Mezcla: 35% planificar/replanificar, 35% lecturas, 30% escrituras
+    private void operacion(Usuario u, ThreadLocalRandom r) throws IOException, InterruptedException {
+        int dado = r.nextInt(100);
+        if (dado < 25) {
+            llamar("agenda.planificar", "POST", "/api/agenda/planificar", plan(u, r));
+        } else if (dado < 35) {
+            llamar("agenda.replanificar", "POST", "/api/agenda/replanificar", plan(u, r));
+        } else if (dado < 55) {
+            llamar("tareas.por-fecha", "GET",
+                    "/api/tareas/por-fecha?usuarioId=" + u.id + "&fecha=" + fecha, null);
+        } else if (dado < 65) {
+            llamar("tareas.obtener", "GET", "/api/tareas/" + u.cualquiera(r), null);
+        } else if (dado < 70) {
+            llamar("configuracion.por-usuario", "GET", "/api/configuracion/por-usuario?usuarioId=" + u.id, null);
+        } else if (dado < 80) {
+            JsonNode creada = llamar("tareas.crear", "POST", "/api/tareas", tarea(u.id, r.nextInt(1000), null));
+            u.creadas.add(creada.get("id").asLong());
+        } else if (dado < 88) {
+            long id = u.cualquiera(r);
+            llamar("tareas.actualizar", "PUT", "/api/tareas/" + id, tarea(u.id, r.nextInt(1000), null));
+        } else if (dado < 95) {
+            String estado = r.nextBoolean() ? "PENDIENTE" : "PLANIFICADA";
+            llamar("tareas.estado", "PATCH", "/api/tareas/" + u.cualquiera(r) + "/estado?nuevo=" + estado, null);
+        } else {
+            // Solo se borran tareas creadas durante la carga, que no tienen dependientes
+            Long id = u.creadas.poll();
+            if (id != null) {
+                llamar("tareas.eliminar", "DELETE", "/api/tareas/" + id, null);
+            }
+        }
+    }
+
+    private ObjectNode plan(Usuario u, ThreadLocalRandom r) {
+        return JSON.createObjectNode()
+                .put("usuarioId", u.id)
+                .put("fecha", fecha.toString())
+                .put("climaDia", CLIMAS[r.nextInt(CLIMAS.length)]);
+    }
+
+    /* ===== HTTP y medición ===== */
+
+    private JsonNode llamar(String endpoint, String metodo, String ruta, JsonNode cuerpo)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(url + ruta))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+        if (cuerpo != null) {
+            peticion.header("Content-Type", "application/json")
+                    .method(metodo, HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(cuerpo)));
+        } else {
+            peticion.method(metodo, HttpRequest.BodyPublishers.noBody());
+        }
+
+        long inicio = System.nanoTime();
+        Medicion medicion = inicio >= inicioMedicion
+                ? mediciones.computeIfAbsent(endpoint, k -> new Medicion()) : null;
+        HttpResponse<byte[]> respuesta;
+        try {
+            respuesta = http.send(peticion.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            if (medicion != null) {
+                medicion.error();
+            }
+            throw e;
+        }
+        long nanos = System.nanoTime() - inicio;
+        boolean ok = respuesta.statusCode() < 400;
+        if (medicion != null) {
+            if (ok) {
+                medicion.registrar(nanos);
+            } else {
+                medicion.error();
+            }
+        }
+        if (!ok) {
+            throw new IOException(endpoint + " respondió " + respuesta.statusCode());
+        }
+        byte[] body = respuesta.body();
+        return body.length == 0 ? null : JSON.readTree(body);
+    }
+
+    private Map<String, Map<String, Object>> reportar(int duracion) {
+        Map<String, Map<String, Object>> resumen = new LinkedHashMap<>();
+        System.out.printf("%n%-28s %10s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "peticiones", "errores", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        long total = 0;
+        long errores = 0;
+        for (Map.Entry<String, Medicion> e : new TreeMap<>(mediciones).entrySet()) {
+            long[] lat = e.getValue().ordenadas();
+            long err = e.getValue().errores.get();
+            total += lat.length;
+            errores += err;
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("peticiones", lat.length);
+            fila.put("errores", err);
+            fila.put("porSegundo", (double) lat.length / duracion);
+            fila.put("p50Ms", ms(percentil(lat, 50)));
+            fila.put("p95Ms", ms(percentil(lat, 95)));
+            fila.put("p99Ms", ms(percentil(lat, 99)));
+            fila.put("maxMs", ms(lat.length == 0 ? 0 : lat[lat.length - 1]));
+            resumen.put(e.getKey(), fila);
+            System.out.printf("%-28s %10d %8d %10.1f %9.1f %9.1f %9.1f %9.1f%n", e.getKey(), lat.length, err,
+                    fila.get("porSegundo"), fila.get("p50Ms"), fila.get("p95Ms"), fila.get("p99Ms"), fila.get("maxMs"));
+        }
+        System.out.printf("%-28s %10d %8d %10.1f%n", "TOTAL", total, errores, (double) total / duracion);
+        Map<String, Object> totales = new LinkedHashMap<>();
+        totales.put("peticiones", total);
+        totales.put("errores", errores);
+        totales.put("porSegundo", (double) total / duracion);
+        resumen.put("TOTAL", totales);
+        return resumen;
+    }
+
+    // Percentil por rango más cercano
+    static long percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int rango = (int) Math.ceil(p / 100.0 * ordenadas.length);
+        return ordenadas[Math.max(0, Math.min(ordenadas.length - 1, rango - 1))];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /** Latencias exitosas y errores de un endpoint. */
+    private static final class Medicion {
+        private long[] latencias = new long[1024];
+        private int cantidad;
+        private final AtomicLong errores = new AtomicLong();
+
+        synchronized void registrar(long nanos) {
+            if (cantidad == latencias.length) {
+                latencias = Arrays.copyOf(latencias, cantidad * 2);
+            }
+            latencias[cantidad++] = nanos;
+        }
+
+        void error() {
+            errores.incrementAndGet();
+        }
+
+        synchronized long[] ordenadas() {
+            long[] copia = Arrays.copyOf(latencias, cantidad);
+            Arrays.sort(copia);
+            return copia;
+        }
+    }
+
+    /** Usuario de prueba con sus tareas iniciales y las creadas durante la carga. */
+    private static final class Usuario {
+        private final long id;
+        private final List<Long> tareas = new ArrayList<>();
+        private final ConcurrentLinkedQueue<Long> creadas = new ConcurrentLinkedQueue<>();
+
+        Usuario(long id) {
+            this.id = id;
+        }
+
+        long cualquiera(ThreadLocalRandom r) {
+            return tareas.get(r.nextInt(tareas.size()));
+        }
+    }
+}
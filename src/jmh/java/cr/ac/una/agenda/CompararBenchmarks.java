@@ -0,0 +1,90 @@
+package cr.ac.una.agenda;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compara dos resultados de JMH en JSON (-rf json) y marca las regresiones:
+ * un benchmark empeora si su tiempo sube más que el umbral y la diferencia es mayor
+ * que la suma de los márgenes de error de ambas corridas.
+ * Falla (excepción, y por lo tanto el build) si hay alguna regresión.
+ *
+ * Uso: CompararBenchmarks base.json nuevo.json [umbralPorcentaje]
+ */
+public final class CompararBenchmarks {
+
+    private CompararBenchmarks() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Uso: CompararBenchmarks base.json nuevo.json [umbralPorcentaje]");
+        }
+        double umbral = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> base = leer(new File(args[0]));
+        Map<String, JsonNode> nuevo = leer(new File(args[1]));
+
+        int regresiones = 0;
+        System.out.printf("%-75s %14s %14s %9s%n", "benchmark", "base", "nuevo", "cambio");
+        for (Map.Entry<String, JsonNode> e : nuevo.entrySet()) {
+            JsonNode n = e.getValue().get("primaryMetric");
+            JsonNode b = base.containsKey(e.getKey()) ? base.get(e.getKey()).get("primaryMetric") : null;
+            if (b == null) {
+                System.out.printf("%-75s %14s %14.3f %9s%n", e.getKey(), "-", n.get("score").asDouble(), "nuevo");
+                continue;
+            }
+            double antes = b.get("score").asDouble();
+            double ahora = n.get("score").asDouble();
+            double error = error(b) + error(n);
+            // En AverageTime/SampleTime más es peor; en Throughput menos es peor
+            boolean menosEsMejor = !n.get("scoreUnit").asText().contains("/s");
+            double cambio = (ahora - antes) / antes * 100.0;
+            double empeora = menosEsMejor ? cambio : -cambio;
+            boolean regresion = empeora > umbral && Math.abs(ahora - antes) > error;
+            if (regresion) {
+                regresiones++;
+            }
+            System.out.printf("%-75s %14.3f %14.3f %+8.1f%% %s%n", e.getKey(), antes, ahora, cambio,
+                    regresion ? "REGRESION" : "");
+        }
+        System.out.printf("%nRegresiones (umbral %.1f%%): %d%n", umbral, regresiones);
+        if (regresiones > 0) {
+            throw new IllegalStateException(regresiones + " benchmark(s) empeoraron más de " + umbral + "%");
+        }
+    }
+
+    /** Resultados por "benchmark[param=valor,...]". */
+    private static Map<String, JsonNode> leer(File archivo) throws IOException {
+        Map<String, JsonNode> resultados = new LinkedHashMap<>();
+        for (JsonNode r : new ObjectMapper().readTree(archivo)) {
+            StringBuilder clave = new StringBuilder(r.get("benchmark").asText()
+                    .replace("cr.ac.una.agenda.service.", ""));
+            JsonNode params = r.get("params");
+            if (params != null) {
+                clave.append('[');
+                Iterator<Map.Entry<String, JsonNode>> campos = params.properties().iterator();
+                while (campos.hasNext()) {
+                    Map.Entry<String, JsonNode> p = campos.next();
+                    clave.append(p.getKey()).append('=').append(p.getValue().asText());
+                    if (campos.hasNext()) {
+                        clave.append(',');
+                    }
+                }
+                clave.append(']');
+            }
+            resultados.put(clave.toString(), r);
+        }
+        return resultados;
+    }
+
+    private static double error(JsonNode metrica) {
+        double error = metrica.path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
@@ -0,0 +1,177 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.configuration.PrologProperties;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.AristaTarea;
+import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
+import cr.ac.una.agenda.repository.TareaPlanificable;
+import cr.ac.una.agenda.repository.TareaRepository;
+import cr.ac.una.agenda.repository.VersionGrafoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Datos y servicios armados a mano (sin Spring ni BD) para los benchmarks.
+ */
+final class DatosBenchmark {
+
+    static final LocalDate FECHA = LocalDate.of(2025, 10, 26);
+
+    private DatosBenchmark() {
+    }
+
+    /**
+     * n tareas del usuario 1 con prioridades, duraciones y climas variados;
+     * una de cada tres depende de la anterior.
+     */
+    static List<TareaPlanificable> filas(int n) {
+        Tarea.Prioridad[] prioridades = Tarea.Prioridad.values();
+        List<TareaPlanificable> filas = new ArrayList<>(n);
+        for (long i = 1; i <= n; i++) {
+            filas.add(new Fila(i, 1L, FECHA, "Tarea " + i,
+                    prioridades[(int) (i % prioridades.length)],
+                    Tarea.Estado.PENDIENTE,
+                    15 + (int) (i % 4) * 15,
+                    i % 5 == 0 ? Tarea.Clima.LLUVIOSO : null,
+                    i % 3 == 0 ? i - 1 : null));
+        }
+        return filas;
+    }
+
+    /** Request completo (tareas y dependencias) como el que se envía a PrologAPI. */
+    static PlanRequest request(AgendaService agenda, int n) {
+        List<TareaPlanificable> filas = filas(n);
+        PlanRequest request = new PlanRequest();
+        request.setUsuarioId(1L);
+        request.setFecha(FECHA);
+        request.setClimaDia("soleado");
+        request.setMinutosDisponibles(480);
+        request.setHoraInicio("08:00");
+        request.setTasks(agenda.construirTasks(filas));
+        request.setDeps(agenda.construirDeps(filas));
+        return request;
+    }
+
+    /** AgendaService con el motor Java y colaboradores en memoria. */
+    static AgendaService agenda(TareaRepository repo) {
+        PrologProperties prolog = new PrologProperties();
+        return new AgendaService(
+                WebClient.builder(),
+                new ResilienciaProlog(prolog),
+                repo,
+                new ConfiguracionCache(sinSoporte(ConfiguracionAgendaRepository.class),
+                        1000, Duration.ofMinutes(1), Duration.ofSeconds(1)),
+                new TareaService(repo, evento -> { }, new GrafoDependencias(repo, versionesEnMemoria(),
+                        Duration.ofMinutes(1), Duration.ofSeconds(1), 10_000),
+                        EstadosDiferidos.desactivados(), sinSoporte(PlatformTransactionManager.class)),
+                new PlanCache(1000, Duration.ofMinutes(1)),
+                new MetricasPlan(new SimpleMeterRegistry()),
+                evento -> { },
+                Schedulers.immediate(),
+                List.of(new PlanificadorJava(true)),
+                PlanificadorJava.NOMBRE,
+                8,
+                500);
+    }
+
+    /**
+     * Repositorio en memoria: responde findById y findAristasByUsuarioId desde el mapa,
+     * que es lo que usa la validación de ciclos.
+     */
+    static TareaRepository repositorioEnMemoria(Map<Long, Tarea> tareas) {
+        return (TareaRepository) Proxy.newProxyInstance(TareaRepository.class.getClassLoader(),
+                new Class<?>[]{TareaRepository.class}, (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "findById":
+                            return Optional.ofNullable(tareas.get((Long) args[0]));
+                        case "findAristasByUsuarioId":
+                            return tareas.values().stream()
+                                    .filter(t -> t.getUsuarioId().equals(args[0]))
+                                    .map(t -> (AristaTarea) new Arista(t.getId(), t.getDependeDeId()))
+                                    .collect(Collectors.toList());
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "TareaRepository en memoria";
+                        default:
+                            throw new UnsupportedOperationException(metodo.getName());
+                    }
+                });
+    }
+
+    /** Versión del grafo en memoria (una sola para todos los usuarios). */
+    static VersionGrafoRepository versionesEnMemoria() {
+        AtomicLong version = new AtomicLong();
+        return (VersionGrafoRepository) Proxy.newProxyInstance(VersionGrafoRepository.class.getClassLoader(),
+                new Class<?>[]{VersionGrafoRepository.class}, (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "findVersionByUsuarioId":
+                            return version.get();
+                        case "incrementar":
+                            version.incrementAndGet();
+                            return 1;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "VersionGrafoRepository en memoria";
+                        default:
+                            throw new UnsupportedOperationException(metodo.getName());
+                    }
+                });
+    }
+
+    /** Implementación que falla en cualquier método; para colaboradores que el benchmark no usa. */
+    @SuppressWarnings("unchecked")
+    static <T> T sinSoporte(Class<T> tipo) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+            throw new UnsupportedOperationException(metodo.getName());
+        });
+    }
+
+    static Tarea tarea(long id, Long dependeDe) {
+        Tarea t = new Tarea();
+        t.setId(id);
+        t.setUsuarioId(1L);
+        t.setNombre("Tarea " + id);
+        t.setFecha(FECHA);
+        t.setDuracionMinutos(30);
+        t.setDependeDeId(dependeDe);
+        return t;
+    }
+
+    @lombok.Value
+    private static class Fila implements TareaPlanificable {
+        Long id;
+        Long usuarioId;
+        LocalDate fecha;
+        String nombre;
+        Tarea.Prioridad prioridad;
+        Tarea.Estado estado;
+        Integer duracionMinutos;
+        Tarea.Clima climaPermitido;
+        Long dependeDeId;
+    }
+
+    @lombok.Value
+    private static class Arista implements AristaTarea {
+        Long id;
+        Long dependeDeId;
+    }
+}
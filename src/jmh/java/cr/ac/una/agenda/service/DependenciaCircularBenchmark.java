@@ -0,0 +1,88 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * validarDependenciaCircular sobre una cadena 1 <- 2 <- ... <- profundidad guardada en
+ * un repositorio en memoria. Mide el recorrido completo sin ciclo, el que detecta un ciclo
+ * y la primera validación del usuario (que además carga el grafo).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DependenciaCircularBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int profundidad;
+
+    private TareaRepository repo;
+    private TareaService service;
+    private Tarea sinCiclo;
+    private Tarea conCiclo;
+
+    @Setup
+    public void preparar() {
+        Map<Long, Tarea> tareas = new HashMap<>();
+        for (long i = 1; i <= profundidad; i++) {
+            tareas.put(i, DatosBenchmark.tarea(i, i == 1 ? null : i - 1));
+        }
+        repo = DatosBenchmark.repositorioEnMemoria(tareas);
+        service = nuevoServicio();
+        // Tarea nueva que depende de la más profunda: recorre toda la cadena
+        sinCiclo = DatosBenchmark.tarea(profundidad + 1L, (long) profundidad);
+        // La raíz pasaría a depender de la más profunda: ciclo
+        conCiclo = DatosBenchmark.tarea(1L, (long) profundidad);
+        service.validarDependenciaCircular(sinCiclo);
+    }
+
+    @Benchmark
+    public Tarea cadenaSinCiclo() {
+        service.validarDependenciaCircular(sinCiclo);
+        return sinCiclo;
+    }
+
+    @Benchmark
+    public boolean cadenaConCiclo() {
+        try {
+            service.validarDependenciaCircular(conCiclo);
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    @Benchmark
+    public Tarea primeraValidacionConCargaDelGrafo() {
+        TareaService nuevo = nuevoServicio();
+        nuevo.validarDependenciaCircular(sinCiclo);
+        return sinCiclo;
+    }
+
+    private TareaService nuevoServicio() {
+        GrafoDependencias grafo = new GrafoDependencias(repo, DatosBenchmark.versionesEnMemoria(), Duration.ofMinutes(1),
+                Duration.ofSeconds(1), 10_000);
+        return new TareaService(repo, evento -> { }, grafo, EstadosDiferidos.desactivados(),
+                DatosBenchmark.sinSoporte(PlatformTransactionManager.class));
+    }
+}
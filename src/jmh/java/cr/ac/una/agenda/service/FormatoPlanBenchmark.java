@@ -0,0 +1,86 @@
+package cr.ac.una.agenda.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de codificar y decodificar el intercambio con PrologAPI en cada formato
+ * (JSON o Smile, con o sin gzip). Los bytes en la red de cada combinación se
+ * imprimen al preparar el estado, antes de las iteraciones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatoPlanBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int tareas;
+
+    @Param({"json", "smile"})
+    String formato;
+
+    @Param({"false", "true"})
+    boolean gzip;
+
+    private final FormatoPlan codificacion = new FormatoPlan(new ObjectMapper().findAndRegisterModules());
+    private boolean binario;
+    private PlanRequest request;
+    private PlanResponse response;
+    private byte[] requestBytes;
+    private byte[] responseBytes;
+
+    @Setup
+    public void preparar() {
+        AgendaService agenda = DatosBenchmark.agenda(DatosBenchmark.sinSoporte(TareaRepository.class));
+        binario = "smile".equals(formato);
+        request = DatosBenchmark.request(agenda, tareas);
+        response = new PlanificadorJava(true).planificar(request);
+        requestBytes = codificar(request);
+        responseBytes = codificar(response);
+        System.out.printf("%n[bytes] tareas=%d formato=%s gzip=%s request=%d response=%d%n",
+                tareas, formato, gzip, requestBytes.length, responseBytes.length);
+    }
+
+    @Benchmark
+    public byte[] codificarRequest() {
+        return codificar(request);
+    }
+
+    @Benchmark
+    public PlanRequest decodificarRequest() {
+        return codificacion.decodificar(requestBytes, PlanRequest.class, binario, gzip);
+    }
+
+    @Benchmark
+    public byte[] codificarResponse() {
+        return codificar(response);
+    }
+
+    @Benchmark
+    public PlanResponse decodificarResponse() {
+        return codificacion.decodificar(responseBytes, PlanResponse.class, binario, gzip);
+    }
+
+    private byte[] codificar(Object valor) {
+        byte[] datos = codificacion.codificar(valor, binario);
+        return gzip ? FormatoPlan.comprimir(datos) : datos;
+    }
+}
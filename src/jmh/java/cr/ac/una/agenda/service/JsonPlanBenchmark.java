@@ -0,0 +1,71 @@
+package cr.ac.una.agenda.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * (De)serialización JSON de PlanRequest y PlanResponse, como en la llamada a PrologAPI.
+ * El PlanResponse es el que produce el motor Java para el mismo request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPlanBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int tareas;
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private PlanRequest request;
+    private PlanResponse response;
+    private byte[] requestJson;
+    private byte[] responseJson;
+
+    @Setup
+    public void preparar() throws IOException {
+        AgendaService agenda = DatosBenchmark.agenda(DatosBenchmark.sinSoporte(TareaRepository.class));
+        request = DatosBenchmark.request(agenda, tareas);
+        response = new PlanificadorJava(true).planificar(request);
+        requestJson = mapper.writeValueAsBytes(request);
+        responseJson = mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializarRequest() throws IOException {
+        return mapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public PlanRequest deserializarRequest() throws IOException {
+        return mapper.readValue(requestJson, PlanRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializarResponse() throws IOException {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public PlanResponse deserializarResponse() throws IOException {
+        return mapper.readValue(responseJson, PlanResponse.class);
+    }
+}
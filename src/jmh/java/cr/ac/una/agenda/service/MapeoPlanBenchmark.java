@@ -0,0 +1,81 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.DepDTO;
+import cr.ac.una.agenda.dto.DiagnosticoDTO;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.dto.TaskDTO;
+import cr.ac.una.agenda.repository.TareaPlanificable;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Armado del request para el planificador (tareas y dependencias), diagnóstico y sugerencias
+ * de un plan imposible.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapeoPlanBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int tareas;
+
+    private AgendaService agenda;
+    private List<TareaPlanificable> filas;
+    private List<TaskDTO> tasks;
+    private List<DepDTO> deps;
+    private PlanResponse imposible;
+
+    @Setup
+    public void preparar() {
+        agenda = DatosBenchmark.agenda(DatosBenchmark.sinSoporte(TareaRepository.class));
+        filas = DatosBenchmark.filas(tareas);
+        tasks = agenda.construirTasks(filas);
+        deps = agenda.construirDeps(filas);
+        imposible = new PlanResponse();
+        imposible.setPosible(false);
+        imposible.setNoProgramadas(tasks);
+        imposible.setDiagnostico(DiagnosticoPlan.diagnosticar(tasks, deps, 480));
+    }
+
+    @Benchmark
+    public TaskDTO tareaToTaskDTO() {
+        return agenda.tareaToTaskDTO(filas.get(tareas / 2));
+    }
+
+    @Benchmark
+    public List<TaskDTO> construirTasks() {
+        return agenda.construirTasks(filas);
+    }
+
+    @Benchmark
+    public List<DepDTO> construirDeps() {
+        return agenda.construirDeps(filas);
+    }
+
+    @Benchmark
+    public DiagnosticoDTO diagnosticar() {
+        return DiagnosticoPlan.diagnosticar(tasks, deps, 480);
+    }
+
+    @Benchmark
+    public String generarSugerencias() {
+        return agenda.generarSugerencias(imposible);
+    }
+}
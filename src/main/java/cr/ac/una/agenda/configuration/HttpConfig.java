@@ -1,16 +1,29 @@
 package cr.ac.una.agenda.configuration;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
 
 @Configuration
+@EnableConfigurationProperties(PrologProperties.class)
 public class HttpConfig {
+    /**
+     * Builder balanceado por Eureka con límites de conexión y de respuesta,
+     * para que una instancia colgada no retenga la llamada indefinidamente.
+     * Con agenda.prolog.formato.comprimir pide y descomprime respuestas gzip.
+     */
     @Bean
     @LoadBalanced
-    public WebClient.Builder lbWebClientBuilder() {
-
-        return WebClient.builder();
+    public WebClient.Builder lbWebClientBuilder(PrologProperties prolog) {
+        HttpClient http = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) prolog.getTimeoutConexion().toMillis())
+                .responseTimeout(prolog.getTimeoutRespuesta())
+                .compress(prolog.getFormato().isComprimir());
+        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(http));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package cr.ac.una.agenda.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Parámetros del cliente de PrologAPI (prefijo "agenda.prolog"):
+ * plazos, reintentos, cortacircuito, solicitudes de cobertura y formato de intercambio.
+ */
+@Data
+@ConfigurationProperties(prefix = "agenda.prolog")
+public class PrologProperties {
+
+    /** URL base; "PROLOGAPI" es el nombre registrado en Eureka. */
+    private String url = "http://PROLOGAPI";
+
+    /** Tiempo máximo para abrir la conexión con una instancia. */
+    private Duration timeoutConexion = Duration.ofSeconds(2);
+    /** Tiempo máximo de espera de la respuesta HTTP (nivel del conector). */
+    private Duration timeoutRespuesta = Duration.ofSeconds(10);
+    /** Tiempo máximo de cada intento individual. */
+    private Duration timeoutIntento = Duration.ofSeconds(5);
+    /** Plazo total de la llamada, incluidos reintentos y esperas. */
+    private Duration plazo = Duration.ofSeconds(12);
+
+    /** Reintentos máximos por llamada (solo errores de red, timeouts y 5xx). */
+    private int reintentos = 2;
+    /** Espera base entre reintentos (crece exponencialmente con jitter). */
+    private Duration esperaReintento = Duration.ofMillis(100);
+    /** Reintentos que gana cada llamada: 0.2 = como mucho un reintento por cada 5 llamadas. */
+    private double presupuestoReintentos = 0.2;
+    /** Reintentos acumulables como máximo (también es el saldo inicial). */
+    private int presupuestoMaximo = 10;
+
+    /** Llamadas simultáneas máximas hacia PrologAPI (0 = sin límite). */
+    private int concurrenciaMaxima = 0;
+    /** Espera máxima por un cupo cuando se alcanzó el límite; luego se responde 503. */
+    private Duration esperaPermiso = Duration.ofSeconds(2);
+
+    private Circuito circuito = new Circuito();
+    private Cobertura cobertura = new Cobertura();
+    private Formato formato = new Formato();
+
+    @Data
+    public static class Circuito {
+        /** Cantidad de llamadas recientes que se evalúan. */
+        private int ventana = 20;
+        /** Llamadas mínimas en la ventana antes de poder abrir el circuito. */
+        private int minimoLlamadas = 10;
+        /** Proporción de fallos en la ventana que abre el circuito. */
+        private double umbralFallos = 0.5;
+        /** Tiempo que el circuito queda abierto antes de probar de nuevo. */
+        private Duration abierto = Duration.ofSeconds(30);
+        /** Llamadas de prueba en semiabierto; si todas salen bien se cierra. */
+        private int sondas = 3;
+    }
+
+    @Data
+    public static class Cobertura {
+        /** Envía una segunda solicitud si la primera tarda más que el percentil. */
+        private boolean activa = false;
+        /** Percentil de latencia reciente a partir del cual se envía la segunda solicitud. */
+        private double percentil = 0.95;
+        /** Espera mínima antes de enviar la segunda solicitud. */
+        private Duration minimo = Duration.ofMillis(50);
+        /** Latencias medidas necesarias antes de empezar a cubrir. */
+        private int muestrasMinimas = 20;
+    }
+
+    @Data
+    public static class Formato {
+        /** Envía y pide Smile (JSON binario); si PrologAPI responde 415 se vuelve a JSON plano. */
+        private boolean binario = false;
+        /** Comprime con gzip las solicitudes y acepta respuestas comprimidas. */
+        private boolean comprimir = false;
+        /** Tamaño mínimo de la solicitud para comprimirla. */
+        private DataSize comprimirDesde = DataSize.ofKilobytes(8);
+        /** Tiempo que se usa JSON plano tras un rechazo antes de volver a intentar el formato compacto. */
+        private Duration reintentarNegociacion = Duration.ofMinutes(10);
+    }
+}
@@ -0,0 +1,35 @@
+package cr.ac.una.agenda.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Scheduler acotado para el acceso bloqueante a JPA desde los endpoints reactivos.
+ * Limita cuántas consultas corren a la vez y cuántas pueden quedar en cola.
+ * Con hilos virtuales (spring.threads.virtual.enabled=true sobre Java 21) cada tarea
+ * corre en su propio hilo virtual; el pool de conexiones es el que acota las consultas.
+ */
+@Configuration
+public class ReactorConfig {
+
+    @Bean(name = "jpaScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler jpaScheduler(@Value("${agenda.reactivo.jpa-hilos:20}") int hilos,
+                                  @Value("${agenda.reactivo.jpa-cola:1000}") int cola) {
+        return Schedulers.newBoundedElastic(hilos, cola, "agenda-jpa");
+    }
+
+    @Bean(name = "jpaScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler jpaSchedulerVirtual() {
+        SimpleAsyncTaskExecutor hilos = new SimpleAsyncTaskExecutor("agenda-jpa-");
+        hilos.setVirtualThreads(true);
+        return Schedulers.fromExecutor(hilos);
+    }
+}
@@ -1,10 +1,22 @@
 package cr.ac.una.agenda.controller;
 
+import cr.ac.una.agenda.dto.PlanLoteItem;
+import cr.ac.una.agenda.dto.PlanLoteResultado;
 import cr.ac.una.agenda.dto.PlanRequest;
 import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.dto.ReplanIncrementalRequest;
+import cr.ac.una.agenda.dto.ReplanIncrementalResponse;
 import cr.ac.una.agenda.service.AgendaService;
+import cr.ac.una.agenda.service.PlanCache;
+import cr.ac.una.agenda.service.ResilienciaProlog;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
@@ -14,6 +26,12 @@ public class AgendaController {
     @Autowired
     AgendaService  agendaService;
 
+    @Autowired
+    PlanCache planCache;
+
+    @Autowired
+    ResilienciaProlog resilienciaProlog;
+
     @GetMapping("/prolog")
     public Integer prolog(){
         return agendaService.sum(1,19);
@@ -28,4 +46,39 @@ public class AgendaController {
     public PlanResponse replanificar(@RequestBody PlanRequest request) {
         return agendaService.replanificar(request);
     }
+
+    // Replanifica solo lo que queda del día y devuelve la diferencia con el plan anterior
+    @PostMapping("/agenda/replanificar/incremental")
+    public ReplanIncrementalResponse replanificarIncremental(@RequestBody ReplanIncrementalRequest request) {
+        return agendaService.replanificarIncremental(request);
+    }
+
+    // Variantes no bloqueantes: liberan el hilo del servidor mientras se resuelve el plan
+    @PostMapping("/agenda/reactivo/planificar")
+    public Mono<PlanResponse> planificarReactivo(@RequestBody PlanRequest request) {
+        return agendaService.generarPlanReactivo(request);
+    }
+
+    @PostMapping("/agenda/reactivo/replanificar")
+    public Mono<PlanResponse> replanificarReactivo(@RequestBody PlanRequest request) {
+        return agendaService.replanificarReactivo(request);
+    }
+
+    // Planifica muchos (usuarioId, fecha, climaDia) y emite cada resultado como una línea NDJSON
+    @PostMapping(value = "/agenda/lote/planificar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PlanLoteResultado> planificarLote(@RequestBody List<PlanLoteItem> items) {
+        return agendaService.planificarLote(items);
+    }
+
+    // Aciertos, fallos, desalojos e invalidaciones del caché de planes
+    @GetMapping("/agenda/cache/estadisticas")
+    public Map<String, Object> estadisticasCache() {
+        return planCache.estadisticas();
+    }
+
+    // Estado del cortacircuito, reintentos disponibles y latencia reciente de PrologAPI
+    @GetMapping("/agenda/prolog/estado")
+    public Map<String, Object> estadoProlog() {
+        return resilienciaProlog.estadisticas();
+    }
 }
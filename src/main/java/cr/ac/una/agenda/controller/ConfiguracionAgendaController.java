@@ -1,10 +1,17 @@
 package cr.ac.una.agenda.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cr.ac.una.agenda.dto.PaginaDTO;
 import cr.ac.una.agenda.entity.ConfiguracionAgenda;
 import cr.ac.una.agenda.service.ConfiguracionAgendaService;
+import cr.ac.una.agenda.service.VersionesAgenda;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST para la configuración de la agenda.
@@ -16,19 +23,38 @@ import java.util.List;
 public class ConfiguracionAgendaController {
 
     private final ConfiguracionAgendaService service;
+    private final ObjectMapper mapper;
 
-    public ConfiguracionAgendaController(ConfiguracionAgendaService service) {
+    public ConfiguracionAgendaController(ConfiguracionAgendaService service, ObjectMapper mapper) {
         this.service = service;
+        this.mapper = mapper;
     }
 
     /* =======================
        CRUD BÁSICO
        ======================= */
 
-    /** Obtiene todas las configuraciones registradas. */
+    /**
+     * Obtiene como máximo PaginaDTO.LIMITE_MAXIMO configuraciones; si hay más, el encabezado
+     * Link apunta a la página siguiente de /api/configuracion/pagina.
+     */
     @GetMapping
-    public List<ConfiguracionAgenda> listar() {
-        return service.listar();
+    public ResponseEntity<List<ConfiguracionAgenda>> listar() {
+        return Paginacion.primeraPagina(service.listarPagina(null, PaginaDTO.LIMITE_MAXIMO),
+                Paginacion.siguiente("/api/configuracion/pagina"));
+    }
+
+    /** Obtiene una página de configuraciones por cursor (despuesDe = siguienteCursor de la anterior). */
+    @GetMapping("/pagina")
+    public PaginaDTO<ConfiguracionAgenda> listarPagina(@RequestParam(required = false) Long despuesDe,
+                                                       @RequestParam(required = false) Integer limite) {
+        return service.listarPagina(despuesDe, limite);
+    }
+
+    /** Exporta todas las configuraciones como NDJSON, escribiéndolas a medida que se leen. */
+    @GetMapping(value = "/stream", produces = Ndjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportar() {
+        return Ndjson.respuesta(out -> service.exportar(c -> Ndjson.escribir(mapper, out, c)));
     }
 
     /** Obtiene una configuración por su ID. */
@@ -60,9 +86,22 @@ public class ConfiguracionAgendaController {
        CONSULTA POR USUARIO
        ======================= */
 
-    /** Busca la configuración asociada a un usuario específico. */
+    /**
+     * Busca la configuración asociada a un usuario específico.
+     * Con If-None-Match y la configuración sin cambios responde 304 sin cuerpo.
+     */
     @GetMapping("/por-usuario")
-    public ConfiguracionAgenda obtenerPorUsuario(@RequestParam Long usuarioId) {
-        return service.obtenerPorUsuario(usuarioId);
+    public ConfiguracionAgenda obtenerPorUsuario(@RequestParam Long usuarioId, WebRequest request) {
+        ConfiguracionAgenda configuracion = service.obtenerPorUsuario(usuarioId);
+        if (request.checkNotModified(VersionesAgenda.etagConfiguracion(configuracion))) {
+            return null;
+        }
+        return configuracion;
+    }
+
+    /** Estadísticas del caché de configuraciones por usuario. */
+    @GetMapping("/cache/estadisticas")
+    public Map<String, Object> estadisticasCache() {
+        return service.estadisticasCache();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
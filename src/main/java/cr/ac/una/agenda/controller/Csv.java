@@ -0,0 +1,93 @@
+package cr.ac.una.agenda.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lectura de CSV con encabezado (RFC 4180): separador coma, campos entre comillas
+ * con comillas dobles escapadas y saltos de línea dentro de comillas.
+ */
+final class Csv {
+
+    static final String MEDIA_TYPE = "text/csv";
+
+    private Csv() {
+    }
+
+    /**
+     * Devuelve una fila por registro, con los valores indexados por el nombre de la columna.
+     * Las celdas vacías se omiten; las líneas en blanco y los registros sin valores se ignoran.
+     */
+    static List<Map<String, String>> leer(String texto) {
+        List<List<String>> registros = registros(texto);
+        if (registros.isEmpty()) {
+            return List.of();
+        }
+        List<String> columnas = registros.get(0);
+        List<Map<String, String>> filas = new ArrayList<>(registros.size() - 1);
+        for (List<String> registro : registros.subList(1, registros.size())) {
+            Map<String, String> fila = new LinkedHashMap<>();
+            for (int c = 0; c < columnas.size() && c < registro.size(); c++) {
+                String valor = registro.get(c).trim();
+                if (!valor.isEmpty()) {
+                    fila.put(columnas.get(c).trim(), valor);
+                }
+            }
+            // Registros sin ningún valor (",,,") se ignoran, como las líneas en blanco
+            if (!fila.isEmpty()) {
+                filas.add(fila);
+            }
+        }
+        return filas;
+    }
+
+    private static List<List<String>> registros(String texto) {
+        List<List<String>> registros = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean comillas = false;
+        boolean vacio = true;
+        // Quitar BOM de UTF-8 si lo hay
+        int i = !texto.isEmpty() && texto.charAt(0) == '\uFEFF' ? 1 : 0;
+        for (; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (comillas) {
+                if (c == '"' && i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    comillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                comillas = true;
+                vacio = false;
+            } else if (c == ',') {
+                actual.add(campo.toString());
+                campo.setLength(0);
+                vacio = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < texto.length() && texto.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                if (!vacio || campo.length() > 0) {
+                    actual.add(campo.toString());
+                    registros.add(actual);
+                }
+                actual = new ArrayList<>();
+                campo.setLength(0);
+                vacio = true;
+            } else {
+                campo.append(c);
+            }
+        }
+        if (!vacio || campo.length() > 0) {
+            actual.add(campo.toString());
+            registros.add(actual);
+        }
+        return registros;
+    }
+}
@@ -0,0 +1,36 @@
+package cr.ac.una.agenda.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Escritura de respuestas NDJSON (un objeto JSON por línea).
+ */
+final class Ndjson {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private Ndjson() {
+    }
+
+    /** Respuesta con el tipo NDJSON (un StreamingResponseBody solo no lo envía). */
+    static ResponseEntity<StreamingResponseBody> respuesta(StreamingResponseBody cuerpo) {
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(MEDIA_TYPE)).body(cuerpo);
+    }
+
+    /** Escribe el objeto como una línea JSON. */
+    static void escribir(ObjectMapper mapper, OutputStream out, Object fila) {
+        try {
+            out.write(mapper.writeValueAsBytes(fila));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cr.ac.una.agenda.controller;
+
+import cr.ac.una.agenda.dto.PaginaDTO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Respuesta de los listados sin cursor (GET /api/tareas, /por-estado, ...): devuelven como
+ * máximo PaginaDTO.LIMITE_MAXIMO filas y, si hay más, el encabezado Link (rel="next") con la
+ * URL de la página siguiente en la API por cursor.
+ */
+final class Paginacion {
+
+    private Paginacion() {
+    }
+
+    /** URL de la API por cursor en "ruta", con páginas del mismo tamaño que el listado. */
+    static UriComponentsBuilder siguiente(String ruta) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path(ruta)
+                .queryParam("limite", PaginaDTO.LIMITE_MAXIMO);
+    }
+
+    static <T> ResponseEntity<List<T>> primeraPagina(PaginaDTO<T> pagina, UriComponentsBuilder siguiente) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            String url = siguiente.queryParam("despuesDe", pagina.getSiguienteCursor()).toUriString();
+            respuesta.header(HttpHeaders.LINK, "<" + url + ">; rel=\"next\"");
+        }
+        return respuesta.body(pagina.getItems());
+    }
+}
@@ -0,0 +1,47 @@
+package cr.ac.una.agenda.controller;
+
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.service.PlanificadorJava;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sustituto de PrologAPI para el perfil "carga": expone el mismo /api/plan,
+ * resuelve con el motor java y agrega una latencia configurable.
+ * La espera no ocupa hilos del servidor, así no compite con la app medida.
+ */
+@RestController
+@Profile("carga")
+public class PrologSimuladoController {
+
+    private final PlanificadorJava planificador;
+    private final Duration latencia;
+    private final Duration variacion;
+
+    public PrologSimuladoController(PlanificadorJava planificador,
+                                    @Value("${agenda.carga.latencia-prolog:30ms}") Duration latencia,
+                                    @Value("${agenda.carga.variacion-prolog:0ms}") Duration variacion) {
+        this.planificador = planificador;
+        this.latencia = latencia;
+        this.variacion = variacion;
+    }
+
+    @PostMapping("/api/plan")
+    public Mono<PlanResponse> plan(@RequestBody PlanRequest request) {
+        return Mono.delay(espera()).map(x -> planificador.planificar(request));
+    }
+
+    // Latencia base más una variación uniforme en [0, variacion]
+    private Duration espera() {
+        long extra = variacion.toMillis() > 0 ? ThreadLocalRandom.current().nextLong(variacion.toMillis() + 1) : 0;
+        return latencia.plusMillis(extra);
+    }
+}
@@ -1,12 +1,31 @@
 package cr.ac.una.agenda.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import cr.ac.una.agenda.dto.EventoAgenda;
+import cr.ac.una.agenda.dto.ImportacionResultado;
+import cr.ac.una.agenda.dto.PaginaDTO;
+import cr.ac.una.agenda.dto.TareaImportada;
+import cr.ac.una.agenda.dto.TareaParcial;
 import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.service.CanalAgenda;
+import cr.ac.una.agenda.service.ImportacionTareas;
 import cr.ac.una.agenda.service.TareaService;
+import cr.ac.una.agenda.service.VersionesAgenda;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/tareas")
@@ -14,16 +33,28 @@ import java.util.List;
 public class TareaController {
 
     private final TareaService service;
+    private final ImportacionTareas importacion;
+    private final CanalAgenda canal;
+    private final VersionesAgenda versiones;
+    private final ObjectMapper mapper;
 
-    public TareaController(TareaService service) {
+    public TareaController(TareaService service, ImportacionTareas importacion, CanalAgenda canal,
+                           VersionesAgenda versiones, ObjectMapper mapper) {
         this.service = service;
+        this.importacion = importacion;
+        this.canal = canal;
+        this.versiones = versiones;
+        this.mapper = mapper;
     }
 
     /* ===== CRUD básico ===== */
 
+    // Como máximo PaginaDTO.LIMITE_MAXIMO tareas (por id); si hay más, el encabezado Link
+    // apunta a la página siguiente de /api/tareas/pagina
     @GetMapping
-    public List<Tarea> listar() {
-        return service.listar();
+    public ResponseEntity<List<Tarea>> listar() {
+        return Paginacion.primeraPagina(service.listarPagina(null, PaginaDTO.LIMITE_MAXIMO, null, null),
+                Paginacion.siguiente("/api/tareas/pagina"));
     }
 
     @GetMapping("/{id}")
@@ -41,31 +72,122 @@ public class TareaController {
         return service.actualizar(id, tarea);
     }
 
+    // Solo los campos enviados (un null borra el valor): {"version": 3, "nota": "..."}
+    // Con una versión vieja responde 409
+    @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    public Tarea actualizarParcial(@PathVariable Long id, @RequestBody ObjectNode cuerpo) {
+        TareaParcial cambios = mapper.convertValue(cuerpo, TareaParcial.class);
+        cuerpo.fieldNames().forEachRemaining(cambios.getCampos()::add);
+        return service.actualizarParcial(id, cambios);
+    }
+
+    // Elimina la tarea y sus dependientes; devuelve los ids eliminados
     @DeleteMapping("/{id}")
-    public void eliminar(@PathVariable Long id) {
-        service.eliminar(id);
+    public List<Long> eliminar(@PathVariable Long id) {
+        return service.eliminar(id);
     }
 
     /* ===== Consultas útiles ===== */
 
     // /api/tareas/por-fecha?usuarioId=99&fecha=2025-10-26
+    // Con If-None-Match y el día sin cambios responde 304 sin leer las tareas
     @GetMapping("/por-fecha")
     public List<Tarea> listarPorUsuarioYFecha(
             @RequestParam Long usuarioId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            WebRequest request) {
+        if (request.checkNotModified(versiones.etagDia(usuarioId, fecha))) {
+            return null;
+        }
         return service.listarPorUsuarioYFecha(usuarioId, fecha);
     }
 
-    // /api/tareas/por-estado?estado=PENDIENTE
+    // Cambios del mismo día en vivo (SSE) en lugar de repetir /por-fecha:
+    // /api/tareas/por-fecha/eventos?usuarioId=99&fecha=2025-10-26
+    // Al reconectar, EventSource envía Last-Event-ID y se reenvía lo que faltó
+    @GetMapping(value = "/por-fecha/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<EventoAgenda>> eventosPorUsuarioYFecha(
+            @RequestParam Long usuarioId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoId) {
+        return canal.suscribir(usuarioId, fecha, ultimoId);
+    }
+
+    // /api/tareas/por-estado?estado=PENDIENTE (acotado como GET /api/tareas)
     @GetMapping("/por-estado")
-    public List<Tarea> listarPorEstado(@RequestParam Tarea.Estado estado) {
-        return service.listarPorEstado(estado);
+    public ResponseEntity<List<Tarea>> listarPorEstado(@RequestParam Tarea.Estado estado) {
+        return Paginacion.primeraPagina(service.listarPagina(null, PaginaDTO.LIMITE_MAXIMO, estado, null),
+                Paginacion.siguiente("/api/tareas/pagina").queryParam("estado", estado));
     }
 
-    // /api/tareas/por-prioridad?prioridad=ALTA
+    // /api/tareas/por-prioridad?prioridad=ALTA (acotado como GET /api/tareas)
     @GetMapping("/por-prioridad")
-    public List<Tarea> listarPorPrioridad(@RequestParam Tarea.Prioridad prioridad) {
-        return service.listarPorPrioridad(prioridad);
+    public ResponseEntity<List<Tarea>> listarPorPrioridad(@RequestParam Tarea.Prioridad prioridad) {
+        return Paginacion.primeraPagina(service.listarPagina(null, PaginaDTO.LIMITE_MAXIMO, null, prioridad),
+                Paginacion.siguiente("/api/tareas/pagina").queryParam("prioridad", prioridad));
+    }
+
+    /* ===== Paginación por cursor y exportación ===== */
+
+    // /api/tareas/pagina?despuesDe=0&limite=100&estado=PENDIENTE&prioridad=ALTA
+    // (para la siguiente página se envía despuesDe=siguienteCursor)
+    @GetMapping("/pagina")
+    public PaginaDTO<Tarea> listarPagina(@RequestParam(required = false) Long despuesDe,
+                                         @RequestParam(required = false) Integer limite,
+                                         @RequestParam(required = false) Tarea.Estado estado,
+                                         @RequestParam(required = false) Tarea.Prioridad prioridad) {
+        return service.listarPagina(despuesDe, limite, estado, prioridad);
+    }
+
+    // Todas las tareas como NDJSON, escritas a medida que se leen: /api/tareas/stream?estado=PENDIENTE
+    @GetMapping(value = "/stream", produces = Ndjson.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(required = false) Tarea.Estado estado,
+                                                          @RequestParam(required = false) Tarea.Prioridad prioridad) {
+        return Ndjson.respuesta(out -> service.exportar(estado, prioridad, t -> Ndjson.escribir(mapper, out, t)));
+    }
+
+    /* ===== Importación masiva ===== */
+
+    // Arreglo JSON de filas; cada fila informa su id o su error: POST /api/tareas/importar
+    @PostMapping(value = "/importar", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ImportacionResultado importar(@RequestBody List<TareaImportada> filas) {
+        return importacion.importar(filas);
+    }
+
+    // Lo mismo en CSV con encabezado (ref,usuarioId,nombre,fecha,duracionMinutos,...)
+    @PostMapping(value = "/importar", consumes = Csv.MEDIA_TYPE)
+    public ImportacionResultado importarCsv(@RequestBody String csv) {
+        List<TareaImportada> filas = new ArrayList<>();
+        for (Map<String, String> fila : Csv.leer(csv)) {
+            filas.add(aTareaImportada(fila));
+        }
+        return importacion.importar(filas);
+    }
+
+    /* ===== Grafo de dependencias ===== */
+
+    // Tareas que dependen (directa o indirectamente) de esta: /api/tareas/5/dependientes
+    @GetMapping("/{id}/dependientes")
+    public List<Long> dependientes(@PathVariable Long id) {
+        return service.dependientes(id);
+    }
+
+    // Tareas de las que depende (directa o indirectamente): /api/tareas/5/depende-de
+    @GetMapping("/{id}/depende-de")
+    public List<Long> dependeDe(@PathVariable Long id) {
+        return service.dependeDe(id);
+    }
+
+    // Compara el índice en memoria con la BD y lo corrige: /api/tareas/grafo/verificar?usuarioId=99
+    @GetMapping("/grafo/verificar")
+    public List<String> verificarGrafo(@RequestParam Long usuarioId) {
+        return service.verificarGrafo(usuarioId);
+    }
+
+    // Recarga el índice del usuario desde la BD: /api/tareas/grafo/reconstruir?usuarioId=99
+    @PostMapping("/grafo/reconstruir")
+    public void reconstruirGrafo(@RequestParam Long usuarioId) {
+        service.reconstruirGrafo(usuarioId);
     }
 
     /* ===== Helpers ===== */
@@ -75,4 +197,17 @@ public class TareaController {
     public Tarea cambiarEstado(@PathVariable Long id, @RequestParam Tarea.Estado nuevo) {
         return service.cambiarEstado(id, nuevo);
     }
+
+    // Un valor inválido en el CSV marca solo esa fila como fallida
+    private TareaImportada aTareaImportada(Map<String, String> fila) {
+        try {
+            return mapper.convertValue(fila, TareaImportada.class);
+        } catch (IllegalArgumentException e) {
+            TareaImportada invalida = new TareaImportada();
+            invalida.setRef(fila.get("ref"));
+            String detalle = e.getCause() instanceof JsonProcessingException j ? j.getOriginalMessage() : e.getMessage();
+            invalida.setErrorLectura("Valor inválido en la fila: " + detalle);
+            return invalida;
+        }
+    }
 }
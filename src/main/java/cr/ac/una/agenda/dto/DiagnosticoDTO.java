@@ -0,0 +1,25 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Qué hace posible un plan que no lo fue: las tareas a posponer con la menor pérdida de prioridad.
+ * Solo considera las tareas que pasaron la poda; las podadas van en noProgramadas con su motivo.
+ */
+
+@Data
+public class DiagnosticoDTO {
+    private int minutosDisponibles;
+    /** Minutos de todas las tareas programables. */
+    private int minutosRequeridos;
+    /** Minutos que faltan para que quepan todas (0 si ya caben). */
+    private int minutosExcedidos;
+    /** Tareas a posponer; sin ellas el resto cabe respetando dependencias. */
+    private List<TaskDTO> posponer = new ArrayList<>();
+    /** Suma de las prioridades de las tareas a posponer (ALTA = 3, MEDIA = 2, BAJA = 1). */
+    private int prioridadPerdida;
+    /** Minutos libres que quedan después de posponerlas. */
+    private int minutosSobrantes;
+}
@@ -0,0 +1,25 @@
+package cr.ac.una.agenda.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import cr.ac.una.agenda.entity.Tarea;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Datos de un evento del canal de un día (SSE); el tipo va en el campo "event".
+ * Solo se incluye lo que aplica a cada tipo.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EventoAgenda {
+    private Long usuarioId;
+    private LocalDate fecha;
+    /** Tareas afectadas. */
+    private List<Long> ids;
+    /** Tarea tal como quedó (cambios de una sola tarea). */
+    private Tarea tarea;
+    /** Plan generado (PlanResponse o ReplanIncrementalResponse). */
+    private Object plan;
+}
@@ -0,0 +1,37 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+
+/**
+ * Resultado de una fila de la importación: el id asignado o el error que la impidió
+ */
+
+@Data
+public class ImportacionFila {
+    private int fila;
+    private String ref;
+    private boolean exito;
+    private Long id;
+    private String error;
+
+    public static ImportacionFila exito(int fila, String ref, Long id) {
+        ImportacionFila r = desde(fila, ref);
+        r.setExito(true);
+        r.setId(id);
+        return r;
+    }
+
+    public static ImportacionFila fallo(int fila, String ref, String error) {
+        ImportacionFila r = desde(fila, ref);
+        r.setExito(false);
+        r.setError(error);
+        return r;
+    }
+
+    private static ImportacionFila desde(int fila, String ref) {
+        ImportacionFila r = new ImportacionFila();
+        r.setFila(fila);
+        r.setRef(ref);
+        return r;
+    }
+}
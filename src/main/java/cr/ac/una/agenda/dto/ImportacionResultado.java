@@ -0,0 +1,17 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Respuesta de /api/tareas/importar: totales y el resultado de cada fila, en el orden recibido
+ */
+
+@Data
+public class ImportacionResultado {
+    private int recibidas;
+    private int creadas;
+    private int fallidas;
+    private List<ImportacionFila> filas;
+}
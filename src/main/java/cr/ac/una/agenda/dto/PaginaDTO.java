@@ -0,0 +1,40 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de resultados paginados por cursor (keyset).
+ * Para pedir la siguiente página se envía siguienteCursor como despuesDe;
+ * si es null no hay más resultados.
+ */
+
+@Data
+public class PaginaDTO<T> {
+    private List<T> items;
+    private Long siguienteCursor;
+
+    public static final int LIMITE_POR_DEFECTO = 100;
+    public static final int LIMITE_MAXIMO = 1000;
+
+    /** Limita el tamaño de página pedido al rango [1, LIMITE_MAXIMO]. */
+    public static int normalizarLimite(Integer limite) {
+        if (limite == null) {
+            return LIMITE_POR_DEFECTO;
+        }
+        return Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    /**
+     * Arma la página a partir de una consulta que pidió limite + 1 filas:
+     * si vino la fila extra, hay más resultados y el cursor es el id de la última incluida.
+     */
+    public static <T> PaginaDTO<T> de(List<T> filas, int limite, Function<T, Long> id) {
+        PaginaDTO<T> pagina = new PaginaDTO<>();
+        boolean hayMas = filas.size() > limite;
+        pagina.setItems(hayMas ? filas.subList(0, limite) : filas);
+        pagina.setSiguienteCursor(hayMas ? id.apply(filas.get(limite - 1)) : null);
+        return pagina;
+    }
+}
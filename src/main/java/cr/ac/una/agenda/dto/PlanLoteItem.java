@@ -0,0 +1,15 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * Un día a planificar dentro de /api/agenda/lote/planificar
+ */
+
+@Data
+public class PlanLoteItem {
+    private Long usuarioId;
+    private LocalDate fecha;
+    private String climaDia;
+}
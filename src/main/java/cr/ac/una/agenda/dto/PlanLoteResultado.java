@@ -0,0 +1,38 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * Resultado de un ítem del lote: el plan generado o el error que lo impidió
+ */
+
+@Data
+public class PlanLoteResultado {
+    private Long usuarioId;
+    private LocalDate fecha;
+    private boolean exito;
+    private PlanResponse plan;
+    private String error;
+
+    public static PlanLoteResultado exito(PlanLoteItem item, PlanResponse plan) {
+        PlanLoteResultado r = desde(item);
+        r.setExito(true);
+        r.setPlan(plan);
+        return r;
+    }
+
+    public static PlanLoteResultado fallo(PlanLoteItem item, Throwable error) {
+        PlanLoteResultado r = desde(item);
+        r.setExito(false);
+        r.setError(error.getMessage());
+        return r;
+    }
+
+    private static PlanLoteResultado desde(PlanLoteItem item) {
+        PlanLoteResultado r = new PlanLoteResultado();
+        r.setUsuarioId(item.getUsuarioId());
+        r.setFecha(item.getFecha());
+        return r;
+    }
+}
@@ -1,5 +1,6 @@
 package cr.ac.una.agenda.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import java.time.LocalDate;
 import java.util.List;
@@ -18,4 +19,8 @@ public class PlanRequest {
 
     private List<TaskDTO> tasks;
     private List<DepDTO> deps;
-}
\ No newline at end of file
+
+    /** Motor de planificación ("prolog" o "java" si está habilitado); si es null se usa el configurado. No se envía a PrologAPI. */
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String motor;
+}
\ No newline at end of file
@@ -16,6 +16,7 @@ public class PlanResponse {
     private List<SlotDTO> tareasPlan;
     private List<TaskDTO> noProgramadas;
     private String sugerencias; // Sugerencias cuando el plan no es posible
+    private DiagnosticoDTO diagnostico; // Qué posponer para que el plan sea posible
 }
 
 
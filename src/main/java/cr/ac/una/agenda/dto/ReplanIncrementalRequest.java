@@ -0,0 +1,25 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Request de /api/agenda/replanificar/incremental: el plan vigente y la hora actual
+ */
+
+@Data
+public class ReplanIncrementalRequest {
+    private Long usuarioId;
+    private LocalDate fecha;
+    private String climaDia;
+    /** Hora actual ("HH:mm"); si es null se usa la hora del servidor. */
+    private String horaActual;
+    /** Si vienen null se toman de la configuración del usuario. */
+    private Integer minutosDisponibles;
+    private String horaInicio;
+    /** Slots del plan que se está siguiendo. */
+    private List<SlotDTO> planAnterior;
+    /** Motor de planificación ("prolog" o "java" si está habilitado); si es null se usa el configurado. */
+    private String motor;
+}
@@ -0,0 +1,30 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Diferencia entre el plan anterior y el replanificado desde la hora actual
+ */
+
+@Data
+public class ReplanIncrementalResponse {
+    private boolean posible;
+    /** false si el plan anterior seguía siendo válido y no se llamó al planificador. */
+    private boolean resuelto;
+    /** Inicio de la ventana replanificada ("HH:mm"). */
+    private String desde;
+    private int minutosRestantes;
+    /** Slots ya iniciados o de tareas completadas; no se tocan. */
+    private List<SlotDTO> conservadas = new ArrayList<>();
+    /** Cantidad de slots futuros que quedaron igual. */
+    private int sinCambios;
+    private List<SlotMovidoDTO> movidas = new ArrayList<>();
+    private List<SlotDTO> agregadas = new ArrayList<>();
+    private List<SlotDTO> eliminadas = new ArrayList<>();
+    private List<TaskDTO> noProgramadas = new ArrayList<>();
+    private String sugerencias;
+    /** Qué posponer para que quepa lo que falta en la ventana (solo si no es posible). */
+    private DiagnosticoDTO diagnostico;
+}
@@ -0,0 +1,17 @@
+package cr.ac.una.agenda.dto;
+
+import lombok.Data;
+
+/**
+ * Tarea que sigue en el plan pero cambió de horario
+ */
+
+@Data
+public class SlotMovidoDTO {
+    private Long id;
+    private String nombre;
+    private String inicioAnterior;
+    private String finAnterior;
+    private String inicio;
+    private String fin;
+}
@@ -0,0 +1,34 @@
+package cr.ac.una.agenda.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import cr.ac.una.agenda.entity.Tarea;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Fila del endpoint /api/tareas/importar (JSON o CSV con estas mismas columnas).
+ * "ref" es una clave libre de la fila para que otras filas del mismo lote dependan
+ * de ella con "dependeDeRef"; para depender de una tarea ya existente se usa "dependeDeId".
+ */
+
+@Data
+public class TareaImportada {
+    private String ref;
+    private Long usuarioId;
+    private String nombre;
+    private LocalDate fecha;
+    private Integer duracionMinutos;
+    private LocalTime horaDeseada;
+    private Tarea.Prioridad prioridad;
+    private Tarea.Estado estado;
+    private Long dependeDeId;
+    private String dependeDeRef;
+    private Tarea.Clima climaPermitido;
+    private String nota;
+
+    /** Error al leer la fila (CSV con valores inválidos); la fila se reporta como fallida. */
+    @JsonIgnore
+    private String errorLectura;
+}
@@ -0,0 +1,38 @@
+package cr.ac.una.agenda.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import cr.ac.una.agenda.entity.Tarea;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Cambios parciales de una tarea (PATCH /api/tareas/{id}).
+ * Solo se aplican los campos presentes en el cuerpo; un null presente borra el valor.
+ * Si viene "version" y no coincide con la actual se responde 409.
+ */
+@Data
+public class TareaParcial {
+    private Long version;
+    private Long usuarioId;
+    private String nombre;
+    private LocalDate fecha;
+    private Integer duracionMinutos;
+    private LocalTime horaDeseada;
+    private Tarea.Prioridad prioridad;
+    private Tarea.Estado estado;
+    private Long dependeDeId;
+    private Tarea.Clima climaPermitido;
+    private String nota;
+
+    /** Nombres de los campos presentes en el cuerpo. */
+    @JsonIgnore
+    private Set<String> campos = new HashSet<>();
+
+    public boolean tiene(String campo) {
+        return campos.contains(campo);
+    }
+}
@@ -1,5 +1,6 @@
 package cr.ac.una.agenda.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import java.util.List;
 
@@ -14,4 +15,8 @@ public class TaskDTO {
     private int prioridad;
     private int dur;
     private List<String> climas;
+
+    /** Por qué se podó antes de planificar (solo en noProgramadas); no se envía a PrologAPI. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String motivo;
 }
@@ -12,7 +12,10 @@ import java.time.LocalTime;
  */
 @Entity
 @Data
-@Table(name = "configuracion_agenda")
+@Table(name = "configuracion_agenda", indexes = {
+        // Validación de las copias en caché (ConfiguracionCache): se resuelve solo con el índice
+        @Index(name = "idx_configuracion_usuario_version", columnList = "usuario_id, version")
+})
 public class ConfiguracionAgenda {
 
     @Id
@@ -34,4 +37,12 @@ public class ConfiguracionAgenda {
     /** Observación o nota opcional. */
     @Column(length = 300)
     private String nota;
-}
\ No newline at end of file
+
+    /**
+     * Versión de la fila: cada escritura la sube. Las cachés de cada instancia la comparan
+     * con la de la BD para ver escrituras hechas en otra instancia.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+}
\ No newline at end of file
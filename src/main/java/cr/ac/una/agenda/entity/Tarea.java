@@ -4,6 +4,7 @@ package cr.ac.una.agenda.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -14,7 +15,14 @@ import java.time.LocalTime;
  */
 @Entity
 @Data
-@Table(name = "tareas")
+// Los UPDATE solo llevan las columnas que cambiaron
+@DynamicUpdate
+@Table(name = "tareas", indexes = {
+        // Consultas de planificación: tareas de un usuario, un día y ciertos estados
+        @Index(name = "idx_tareas_usuario_fecha_estado", columnList = "usuario_id, fecha, estado"),
+        // Búsqueda de dependientes (cascada de borrado)
+        @Index(name = "idx_tareas_depende_de", columnList = "depende_de_id")
+})
 public class Tarea {
 
     @Id
@@ -63,6 +71,14 @@ public class Tarea {
     @Column(length = 300)
     private String nota;
 
+    /**
+     * Versión para bloqueo optimista: cada escritura la sube y una edición
+     * con una versión vieja se rechaza con 409. Si el cliente no la envía no se compara.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // ----- Enums -----
     public enum Prioridad { ALTA, MEDIA, BAJA }
     public enum Estado { PENDIENTE, PLANIFICADA, COMPLETADA }
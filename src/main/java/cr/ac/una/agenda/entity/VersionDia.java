@@ -0,0 +1,39 @@
+package cr.ac.una.agenda.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Versión de las tareas de un día (usuarioId, fecha): cambia con cada escritura del día.
+ * Sirve para responder GET condicionales (ETag) sin leer las tareas.
+ * Se actualiza por JDBC (ver VersionesAgenda); la entidad solo define la tabla.
+ */
+@Entity
+@Data
+@Table(name = "version_dia")
+@IdClass(VersionDia.Clave.class)
+public class VersionDia {
+
+    @Id
+    @Column(name = "usuario_id")
+    private Long usuarioId;
+
+    @Id
+    private LocalDate fecha;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private Long usuarioId;
+        private LocalDate fecha;
+    }
+}
@@ -0,0 +1,23 @@
+package cr.ac.una.agenda.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Versión del grafo de dependencias de un usuario: sube cada vez que cambia alguna
+ * arista (dependeDeId) o se eliminan tareas, y no con los cambios de estado.
+ * Sirve para saber si el grafo en memoria de una instancia sigue al día con la BD.
+ * Se actualiza con VersionGrafoRepository.incrementar; la entidad solo define la tabla.
+ */
+@Entity
+@Data
+@Table(name = "version_grafo")
+public class VersionGrafo {
+
+    @Id
+    @Column(name = "usuario_id")
+    private Long usuarioId;
+
+    @Column(nullable = false)
+    private Long version;
+}
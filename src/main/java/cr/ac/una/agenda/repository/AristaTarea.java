@@ -0,0 +1,10 @@
+package cr.ac.una.agenda.repository;
+
+/**
+ * Proyección mínima de una tarea para el grafo de dependencias: su id y el id del que depende.
+ */
+public interface AristaTarea {
+    Long getId();
+
+    Long getDependeDeId();
+}
@@ -1,17 +1,44 @@
 package cr.ac.una.agenda.repository;
 
 import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Repositorio JPA para la entidad ConfiguracionAgenda.
  * Permite operaciones CRUD y búsqueda por usuario.
  */
-public interface ConfiguracionAgendaRepository extends JpaRepository<ConfiguracionAgenda, Long> {
+public interface ConfiguracionAgendaRepository extends JpaRepository<ConfiguracionAgenda, Long>,
+        RecorridoConfiguraciones {
     /**
      * Busca la configuración de un usuario específico (si existe).
      */
     Optional<ConfiguracionAgenda> findByUsuarioId(Long usuarioId);
+
+    /**
+     * Busca en una sola consulta las configuraciones de varios usuarios.
+     */
+    List<ConfiguracionAgenda> findByUsuarioIdIn(Collection<Long> usuarioIds);
+
+    /**
+     * Versión de la configuración del usuario, o null si no tiene (solo lee el índice).
+     */
+    @Query("select c.version from ConfiguracionAgenda c where c.usuarioId = :usuarioId")
+    Long findVersionByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Versiones de las configuraciones de varios usuarios, en una sola consulta.
+     */
+    List<VersionConfiguracion> findVersionesByUsuarioIdIn(Collection<Long> usuarioIds);
+
+    /**
+     * Página por cursor: configuraciones con id mayor a "despuesDe", ordenadas por id.
+     */
+    List<ConfiguracionAgenda> findByIdGreaterThanOrderByIdAsc(Long despuesDe, Limit limite);
 }
@@ -0,0 +1,14 @@
+package cr.ac.una.agenda.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección de una tarea con el día al que pertenece (usuarioId, fecha).
+ */
+public interface DiaTarea {
+    Long getId();
+
+    Long getUsuarioId();
+
+    LocalDate getFecha();
+}
@@ -0,0 +1,12 @@
+package cr.ac.una.agenda.repository;
+
+import cr.ac.una.agenda.entity.Tarea;
+
+/**
+ * Proyección mínima de una tarea con su estado, para revisar las dependencias hacia tareas de otro día.
+ */
+public interface EstadoTarea {
+    Long getId();
+
+    Tarea.Estado getEstado();
+}
@@ -0,0 +1,17 @@
+package cr.ac.una.agenda.repository;
+
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+
+import java.util.stream.Stream;
+
+/**
+ * Recorrido completo de configuraciones con un cursor de solo avance (ver RecorridoTareasImpl).
+ */
+public interface RecorridoConfiguraciones {
+
+    /**
+     * Recorre todas las configuraciones ordenadas por id, sin cargarlas todas en memoria.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    Stream<ConfiguracionAgenda> streamTodas();
+}
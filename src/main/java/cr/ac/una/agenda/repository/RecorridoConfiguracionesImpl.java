@@ -0,0 +1,33 @@
+package cr.ac.una.agenda.repository;
+
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.stream.Stream;
+
+/**
+ * Mismo fetch size configurable que RecorridoTareasImpl.
+ */
+class RecorridoConfiguracionesImpl implements RecorridoConfiguraciones {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int fetchSize;
+
+    RecorridoConfiguracionesImpl(@Value("${agenda.exportacion.fetch-size:500}") int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Stream<ConfiguracionAgenda> streamTodas() {
+        return entityManager.createQuery("select c from ConfiguracionAgenda c order by c.id",
+                        ConfiguracionAgenda.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,18 @@
+package cr.ac.una.agenda.repository;
+
+import cr.ac.una.agenda.entity.Tarea;
+
+import java.util.stream.Stream;
+
+/**
+ * Recorrido completo de tareas con un cursor de solo avance (ver RecorridoTareasImpl).
+ */
+public interface RecorridoTareas {
+
+    /**
+     * Recorre las tareas ordenadas por id, filtrando opcionalmente por estado y prioridad
+     * (null = sin filtro), sin cargar todo en memoria.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    Stream<Tarea> streamTodas(Tarea.Estado estado, Tarea.Prioridad prioridad);
+}
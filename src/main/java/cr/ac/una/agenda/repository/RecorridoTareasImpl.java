@@ -0,0 +1,39 @@
+package cr.ac.una.agenda.repository;
+
+import cr.ac.una.agenda.entity.Tarea;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.stream.Stream;
+
+/**
+ * El fetch size sale de la configuración porque depende del driver: uno positivo lee por
+ * bloques de ese tamaño en H2 y, con useCursorFetch=true en la URL, también en MySQL
+ * (sin esa opción Connector/J trae todo el resultado a memoria).
+ */
+class RecorridoTareasImpl implements RecorridoTareas {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int fetchSize;
+
+    RecorridoTareasImpl(@Value("${agenda.exportacion.fetch-size:500}") int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Stream<Tarea> streamTodas(Tarea.Estado estado, Tarea.Prioridad prioridad) {
+        return entityManager.createQuery("select t from Tarea t " +
+                        "where (:estado is null or t.estado = :estado) " +
+                        "and (:prioridad is null or t.prioridad = :prioridad) " +
+                        "order by t.id", Tarea.class)
+                .setParameter("estado", estado)
+                .setParameter("prioridad", prioridad)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
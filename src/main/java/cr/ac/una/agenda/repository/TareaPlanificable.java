@@ -0,0 +1,29 @@
+package cr.ac.una.agenda.repository;
+
+import cr.ac.una.agenda.entity.Tarea;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección de solo lectura con las columnas que usa la planificación.
+ * No es una entidad: no entra al contexto de persistencia ni tiene dirty checking.
+ */
+public interface TareaPlanificable {
+    Long getId();
+
+    Long getUsuarioId();
+
+    LocalDate getFecha();
+
+    String getNombre();
+
+    Tarea.Prioridad getPrioridad();
+
+    Tarea.Estado getEstado();
+
+    Integer getDuracionMinutos();
+
+    Tarea.Clima getClimaPermitido();
+
+    Long getDependeDeId();
+}
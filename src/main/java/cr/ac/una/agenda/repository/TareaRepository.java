@@ -1,21 +1,42 @@
 package cr.ac.una.agenda.repository;
 
 import cr.ac.una.agenda.entity.Tarea;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Repositorio JPA para la entidad Tarea.
  * Permite operaciones CRUD automáticas y consultas personalizadas.
  */
-public interface TareaRepository extends JpaRepository<Tarea, Long> {
+public interface TareaRepository extends JpaRepository<Tarea, Long>, RecorridoTareas {
     /**
      * Obtiene todas las tareas de un usuario para una fecha específica.
      */
     List<Tarea> findByUsuarioIdAndFecha(Long usuarioId, LocalDate fecha);
 
+    /**
+     * Tareas del día con los estados indicados, solo con las columnas de planificación
+     * (filtra el estado en SQL y usa el índice usuario_id, fecha, estado).
+     */
+    List<TareaPlanificable> findPlanificablesByUsuarioIdAndFechaAndEstadoIn(Long usuarioId,
+                                                                           LocalDate fecha,
+                                                                           Collection<Tarea.Estado> estados);
+
+    /**
+     * Igual que la anterior pero para varios usuarios y fechas en una sola consulta
+     * (planificación por lote).
+     */
+    List<TareaPlanificable> findPlanificablesByUsuarioIdInAndFechaInAndEstadoIn(Collection<Long> usuarioIds,
+                                                                               Collection<LocalDate> fechas,
+                                                                               Collection<Tarea.Estado> estados);
+
     /**
      * Lista todas las tareas por estado.
      */
@@ -30,4 +51,57 @@ public interface TareaRepository extends JpaRepository<Tarea, Long> {
      * Lista todas las tareas que dependen de otra tarea específica.
      */
     List<Tarea> findByDependeDeId(Long dependeDeId);
+
+    /**
+     * Obtiene solo (id, dependeDeId) de las tareas de un usuario, para armar su grafo de dependencias.
+     */
+    List<AristaTarea> findAristasByUsuarioId(Long usuarioId);
+
+    /**
+     * Ids de la tarea y de todas las que dependen de ella, directa o indirectamente,
+     * resueltos en una sola consulta recursiva. UNION descarta repetidos, así que
+     * termina aunque haya ciclos en los datos.
+     */
+    @Query(value = "WITH RECURSIVE subarbol (id) AS (" +
+            "SELECT id FROM tareas WHERE id = :id " +
+            "UNION " +
+            "SELECT t.id FROM tareas t JOIN subarbol s ON t.depende_de_id = s.id) " +
+            "SELECT id FROM subarbol", nativeQuery = true)
+    List<Long> findIdsSubarbol(@Param("id") Long id);
+
+    /**
+     * Día (usuarioId, fecha) de cada una de las tareas indicadas.
+     */
+    List<DiaTarea> findDiasByIdIn(Collection<Long> ids);
+
+    /**
+     * Estado de cada una de las tareas indicadas (las que no existen no vienen).
+     */
+    List<EstadoTarea> findEstadosByIdIn(Collection<Long> ids);
+
+    /**
+     * Cambia de estado, en una sola sentencia, las tareas indicadas del día (usuarioId, fecha)
+     * que sigan en el estado actual esperado, subiendo su versión. Devuelve cuántas filas cambiaron.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Tarea t set t.estado = :nuevo, t.version = t.version + 1 " +
+            "where t.usuarioId = :usuarioId and t.fecha = :fecha and t.id in :ids and t.estado = :actual")
+    int actualizarEstado(@Param("usuarioId") Long usuarioId,
+                         @Param("fecha") LocalDate fecha,
+                         @Param("ids") Collection<Long> ids,
+                         @Param("actual") Tarea.Estado actual,
+                         @Param("nuevo") Tarea.Estado nuevo);
+
+    /**
+     * Página por cursor: tareas con id mayor a "despuesDe", ordenadas por id,
+     * filtrando opcionalmente por estado y prioridad (null = sin filtro).
+     */
+    @Query("select t from Tarea t where t.id > :despuesDe " +
+            "and (:estado is null or t.estado = :estado) " +
+            "and (:prioridad is null or t.prioridad = :prioridad) " +
+            "order by t.id")
+    List<Tarea> findPagina(@Param("despuesDe") Long despuesDe,
+                           @Param("estado") Tarea.Estado estado,
+                           @Param("prioridad") Tarea.Prioridad prioridad,
+                           Limit limite);
 }
@@ -0,0 +1,10 @@
+package cr.ac.una.agenda.repository;
+
+/**
+ * Proyección mínima de una configuración para validar las copias en caché: usuario y versión.
+ */
+public interface VersionConfiguracion {
+    Long getUsuarioId();
+
+    Long getVersion();
+}
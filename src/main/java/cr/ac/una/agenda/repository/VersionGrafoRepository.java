@@ -0,0 +1,31 @@
+package cr.ac.una.agenda.repository;
+
+import cr.ac.una.agenda.entity.VersionGrafo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Versión del grafo de dependencias por usuario (ver GrafoDependencias).
+ */
+public interface VersionGrafoRepository extends JpaRepository<VersionGrafo, Long> {
+    /**
+     * Versión actual del grafo del usuario, o null si nunca cambió (lectura por clave primaria).
+     */
+    @Query("select v.version from VersionGrafo v where v.usuarioId = :usuarioId")
+    Long findVersionByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Sube en uno la versión del grafo del usuario (la primera vez queda en 1).
+     * Va en su propia transacción: se llama después de confirmar la escritura que la motiva,
+     * también desde los avisos posteriores a un commit.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "insert into version_grafo (usuario_id, version) values (:usuarioId, 1) " +
+            "on duplicate key update version = version + 1", nativeQuery = true)
+    int incrementar(@Param("usuarioId") Long usuarioId);
+}
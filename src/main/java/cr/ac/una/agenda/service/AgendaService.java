@@ -1,125 +1,622 @@
 package cr.ac.una.agenda.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import cr.ac.una.agenda.dto.*;
 import cr.ac.una.agenda.entity.ConfiguracionAgenda;
 import cr.ac.una.agenda.entity.Tarea;
-import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
+import cr.ac.una.agenda.repository.EstadoTarea;
+import cr.ac.una.agenda.repository.TareaPlanificable;
 import cr.ac.una.agenda.repository.TareaRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class AgendaService {
+    /** Estados que entran a la planificación (se filtran en SQL). */
+    private static final List<Tarea.Estado> ESTADOS_PLANIFICABLES =
+            List.of(Tarea.Estado.PENDIENTE, Tarea.Estado.PLANIFICADA);
+    /** Tope de minutos disponibles que acepta un request: un día completo. */
+    private static final int MINUTOS_DIA = 24 * 60;
+
     private final WebClient client;
+    private final ResilienciaProlog resiliencia;
     private final TareaRepository tareaRepository;
-    private final ConfiguracionAgendaRepository configuracionRepository;
+    private final ConfiguracionCache configuracionCache;
     private final TareaService tareaService;
-
-    public AgendaService(WebClient.Builder builder, TareaRepository tareaRepository,
-                         ConfiguracionAgendaRepository configuracionRepository,
-                         TareaService tareaService) {
+    private final Map<String, Planificador> planificadores = new HashMap<>();
+    private final String planificadorPorDefecto;
+    private final PlanCache planCache;
+    private final MetricasPlan metricas;
+    private final ApplicationEventPublisher eventos;
+    private final Scheduler jpaScheduler;
+    private final int loteParalelismo;
+    private final int loteTamanoConsulta;
+    /** Requests equivalentes en curso: comparten una sola lectura, resolución y actualización. */
+    private final VueloUnico<ClaveVuelo, PlanResponse> vuelos = new VueloUnico<>();
+
+    public AgendaService(WebClient.Builder builder, ResilienciaProlog resiliencia,
+                         TareaRepository tareaRepository,
+                         ConfiguracionCache configuracionCache,
+                         TareaService tareaService,
+                         PlanCache planCache,
+                         MetricasPlan metricas,
+                         ApplicationEventPublisher eventos,
+                         Scheduler jpaScheduler,
+                         List<Planificador> planificadores,
+                         @Value("${agenda.planificador:prolog}") String planificadorPorDefecto,
+                         @Value("${agenda.lote.paralelismo:8}") int loteParalelismo,
+                         @Value("${agenda.lote.tamano-consulta:500}") int loteTamanoConsulta) {
         // Nota: "http://app-b" es el NOMBRE de la app registrada en Eureka
         this.client = builder.baseUrl("http://PROLOGAPI").build();
+        this.resiliencia = resiliencia;
         this.tareaRepository = tareaRepository;
-        this.configuracionRepository = configuracionRepository;
+        this.configuracionCache = configuracionCache;
         this.tareaService = tareaService;
+        this.planCache = planCache;
+        this.metricas = metricas;
+        this.eventos = eventos;
+        this.jpaScheduler = jpaScheduler;
+        for (Planificador p : planificadores) {
+            this.planificadores.put(p.getNombre(), p);
+        }
+        this.planificadorPorDefecto = planificadorPorDefecto;
+        this.loteParalelismo = loteParalelismo;
+        this.loteTamanoConsulta = loteTamanoConsulta;
+        seleccionarPlanificador(planificadorPorDefecto);
     }
 
     public Integer sum(int a, int b) {
-        return client.get()
-                .uri(uri -> uri.path("/api/sum").queryParam("a", a).queryParam("b", b).build())
-                .retrieve()
-                .bodyToMono(Integer.class)
+        return resiliencia.ejecutar(() -> client.get()
+                        .uri(uri -> uri.path("/api/sum").queryParam("a", a).queryParam("b", b).build())
+                        .retrieve()
+                        .bodyToMono(Integer.class))
                 .block(); // bloqueante (simple)
     }
 
     /**
-     * Genera un plan optimizado para el día llamando a PrologAPI
+     * Genera un plan optimizado para el día con el planificador elegido
+     * (PrologAPI por defecto, o el motor nativo en Java).
+     * Las llamadas concurrentes con un request equivalente reciben el mismo resultado.
      */
     public PlanResponse generarPlan(PlanRequest request) {
+        return metricas.medir("planificar",
+                () -> vuelos.ejecutar(claveVuelo("planificar", request), () -> resolverPlan(request)));
+    }
+
+    private PlanResponse resolverPlan(PlanRequest request) {
+        PlanPreparado preparado = prepararPlan(request);
+        if (preparado.getEnCache() != null) {
+            return preparado.getEnCache();
+        }
+
+        // Resolver con el planificador elegido
+        PlanResponse response = resolverPodado(preparado, request);
+        return completarPlan(preparado, request, response);
+    }
+
+    /**
+     * Variante no bloqueante de generarPlan: el acceso a JPA corre en el scheduler
+     * acotado de JPA y la llamada al planificador se compone sin bloquear hilos del servidor.
+     */
+    public Mono<PlanResponse> generarPlanReactivo(PlanRequest request) {
+        return metricas.medirReactivo("planificar", () -> vuelos.compartir(claveVuelo("planificar", request),
+                () -> Mono.fromCallable(() -> prepararPlan(request))
+                        .subscribeOn(jpaScheduler)
+                        .flatMap(preparado -> preparado.getEnCache() != null
+                                ? Mono.just(preparado.getEnCache())
+                                : resolverPodadoReactivo(preparado, request)
+                                        .publishOn(jpaScheduler)
+                                        .map(response -> completarPlan(preparado, request, response)))));
+    }
+
+    /**
+     * Replanifica el día considerando solo tareas PENDIENTES y PLANIFICADAS,
+     * excluyendo las que ya están COMPLETADAS o CANCELADAS.
+     * Permite ajustar el tiempo disponible restante y la hora actual.
+     */
+    public PlanResponse replanificar(PlanRequest request) {
+        return metricas.medir("replanificar",
+                () -> vuelos.ejecutar(claveVuelo("replanificar", request), () -> resolverReplan(request)));
+    }
+
+    private PlanResponse resolverReplan(PlanRequest request) {
+        PlanPreparado preparado = prepararReplan(request);
+
+        // Resolver con el planificador elegido
+        PlanResponse response = resolverPodado(preparado, request);
+        return completarPlan(preparado, request, response);
+    }
+
+    /**
+     * Variante no bloqueante de replanificar (ver generarPlanReactivo).
+     */
+    public Mono<PlanResponse> replanificarReactivo(PlanRequest request) {
+        return metricas.medirReactivo("replanificar", () -> vuelos.compartir(claveVuelo("replanificar", request),
+                () -> Mono.fromCallable(() -> prepararReplan(request))
+                        .subscribeOn(jpaScheduler)
+                        .flatMap(preparado -> resolverPodadoReactivo(preparado, request)
+                                .publishOn(jpaScheduler)
+                                .map(response -> completarPlan(preparado, request, response)))));
+    }
+
+    /**
+     * Replanificación incremental desde la hora actual. Se conservan los slots de tareas
+     * completadas y los que están en curso (empezaron y aún no terminan); las tareas cuyo
+     * slot ya pasó sin completarse vuelven a planificarse y los slots de tareas eliminadas
+     * se descartan. Solo se resuelve la ventana que queda del día con las tareas que faltan,
+     * moviendo lo menos posible lo que ya estaba planificado.
+     * Si el plan anterior sigue siendo válido no se llama al planificador.
+     * Devuelve la diferencia con el plan anterior en lugar del plan completo.
+     */
+    public ReplanIncrementalResponse replanificarIncremental(ReplanIncrementalRequest entrada) {
+        return metricas.medir("replanificar_incremental", () -> resolverReplanIncremental(entrada));
+    }
+
+    private ReplanIncrementalResponse resolverReplanIncremental(ReplanIncrementalRequest entrada) {
+        PlanRequest request = new PlanRequest();
+        request.setUsuarioId(entrada.getUsuarioId());
+        request.setFecha(entrada.getFecha());
+        request.setClimaDia(entrada.getClimaDia());
+        request.setMinutosDisponibles(entrada.getMinutosDisponibles());
+        request.setHoraInicio(entrada.getHoraInicio());
+        request.setMotor(entrada.getMotor());
+        validarRequest(request);
+        completarConfiguracion(request);
+
+        // Ventana del día en minutos desde la medianoche
+        int inicioDia = ReplanIncremental.minutos(request.getHoraInicio());
+        int finDia = inicioDia + request.getMinutosDisponibles();
+        LocalTime reloj = LocalTime.now();
+        int ahora = entrada.getHoraActual() != null
+                ? ReplanIncremental.minutos(entrada.getHoraActual())
+                : reloj.getHour() * 60 + reloj.getMinute();
+        ahora = Math.min(Math.max(ahora, inicioDia), finDia);
+
+        // Todas las tareas del día, incluidas las completadas
+        tareaService.escribirEstadosPendientes(request.getUsuarioId());
+        Map<Long, TareaPlanificable> tareas = new LinkedHashMap<>();
+        for (TareaPlanificable t : tareaRepository.findPlanificablesByUsuarioIdAndFechaAndEstadoIn(
+                request.getUsuarioId(), request.getFecha(), List.of(Tarea.Estado.values()))) {
+            tareas.put(t.getId(), t);
+        }
+
+        // Conservar lo completado y lo que está en curso; la ventana empieza cuando termina lo en curso.
+        // El resto del plan anterior (futuro, ya pasado sin completar o de tareas eliminadas) se
+        // compara con el nuevo: lo pasado vuelve a planificarse y lo eliminado sale como eliminada
+        ReplanIncrementalResponse respuesta = new ReplanIncrementalResponse();
+        Set<Long> resueltas = new HashSet<>();
+        List<SlotDTO> futuras = new ArrayList<>();
+        int desde = ahora;
+        List<SlotDTO> anterior = entrada.getPlanAnterior() != null ? entrada.getPlanAnterior() : List.of();
+        for (SlotDTO slot : anterior) {
+            TareaPlanificable t = tareas.get(slot.getId());
+            int inicio = ReplanIncremental.minutos(slot.getInicio());
+            int fin = ReplanIncremental.minutos(slot.getFin());
+            if (t != null && t.getEstado() == Tarea.Estado.COMPLETADA) {
+                respuesta.getConservadas().add(slot);
+                resueltas.add(slot.getId());
+            } else if (t != null && inicio <= ahora && ahora < fin) {
+                respuesta.getConservadas().add(slot);
+                resueltas.add(slot.getId());
+                desde = Math.max(desde, Math.min(fin, finDia));
+            } else {
+                futuras.add(slot);
+            }
+        }
+        futuras.sort(Comparator.comparingInt(s -> ReplanIncremental.minutos(s.getInicio())));
+        for (TareaPlanificable t : tareas.values()) {
+            if (t.getEstado() == Tarea.Estado.COMPLETADA) {
+                resueltas.add(t.getId());
+            }
+        }
+
+        // Lo que falta: pendientes y planificadas que no se conservan
+        List<TareaPlanificable> restantes = tareas.values().stream()
+                .filter(t -> !resueltas.contains(t.getId()))
+                .collect(Collectors.toList());
+        respuesta.setDesde(ReplanIncremental.hora(desde));
+        respuesta.setMinutosRestantes(finDia - desde);
+
+        // Poda sobre la ventana restante; las dependencias ya resueltas quedan satisfechas
+        request.setHoraInicio(ReplanIncremental.hora(desde));
+        request.setMinutosDisponibles(finDia - desde);
+        List<TaskDTO> podadas = podar(request, restantes, estadosDependencias(tareas.values()));
+        Set<Long> candidatas = request.getTasks().stream().map(TaskDTO::getId).collect(Collectors.toSet());
+        List<TareaPlanificable> programables = restantes.stream()
+                .filter(t -> candidatas.contains(t.getId()))
+                .collect(Collectors.toList());
+
+        List<SlotDTO> nuevas;
+        boolean llamadaEvitada = false;
+        if (planSigueValido(futuras, programables, request.getClimaDia(), desde, finDia)) {
+            nuevas = futuras;
+        } else if (programables.isEmpty()) {
+            // No queda nada que el planificador pueda programar
+            nuevas = List.of();
+            llamadaEvitada = true;
+        } else {
+            // Resolver solo la ventana restante con las tareas que pasaron la poda
+            PlanResponse plan = resolver(motorDe(request), request);
+
+            Map<Long, Integer> duracion = new HashMap<>();
+            Map<Long, Long> padre = new HashMap<>();
+            for (TareaPlanificable t : programables) {
+                duracion.put(t.getId(), t.getDuracionMinutos());
+                if (t.getDependeDeId() != null && candidatas.contains(t.getDependeDeId())) {
+                    padre.put(t.getId(), t.getDependeDeId());
+                }
+            }
+            nuevas = ReplanIncremental.estabilizar(futuras,
+                    plan.getTareasPlan() != null ? plan.getTareasPlan() : List.of(),
+                    duracion, padre, desde, finDia);
+            respuesta.setResuelto(true);
+        }
+        metricas.registrarPoda(motorDe(request), motivos(podadas), llamadaEvitada);
+        ReplanIncremental.comparar(futuras, nuevas, respuesta);
+
+        // Tareas que quedaron fuera de la ventana
+        Set<Long> planificadas = nuevas.stream().map(SlotDTO::getId).collect(Collectors.toSet());
+        List<TareaPlanificable> fuera = restantes.stream()
+                .filter(t -> !planificadas.contains(t.getId()))
+                .collect(Collectors.toList());
+        Map<Long, TaskDTO> podadasPorId = podadas.stream()
+                .collect(Collectors.toMap(TaskDTO::getId, Function.identity()));
+        respuesta.setNoProgramadas(fuera.stream()
+                .map(t -> podadasPorId.containsKey(t.getId()) ? podadasPorId.get(t.getId()) : tareaToTaskDTO(t))
+                .collect(Collectors.toList()));
+        respuesta.setPosible(fuera.isEmpty());
+
+        // Solo cambian de estado las tareas que entran o salen del plan
+        tareaService.cambiarEstadoMasivo(request.getUsuarioId(), request.getFecha(),
+                fuera.stream()
+                        .filter(t -> t.getEstado() == Tarea.Estado.PLANIFICADA)
+                        .map(TareaPlanificable::getId)
+                        .collect(Collectors.toList()),
+                Tarea.Estado.PLANIFICADA, Tarea.Estado.PENDIENTE);
+        tareaService.cambiarEstadoMasivo(request.getUsuarioId(), request.getFecha(), planificadas,
+                Tarea.Estado.PENDIENTE, Tarea.Estado.PLANIFICADA);
+
+        if (!respuesta.isPosible()) {
+            PlanResponse ventana = new PlanResponse();
+            ventana.setMinutosDisponibles(finDia - desde);
+            ventana.setTareasPlan(nuevas);
+            ventana.setNoProgramadas(respuesta.getNoProgramadas());
+            ventana.setDiagnostico(DiagnosticoPlan.diagnosticar(request.getTasks(), request.getDeps(), finDia - desde));
+            respuesta.setDiagnostico(ventana.getDiagnostico());
+            respuesta.setSugerencias(generarSugerencias(ventana));
+        }
+        eventos.publishEvent(new PlanGeneradoEvent(request.getUsuarioId(), request.getFecha(), respuesta));
+        return respuesta;
+    }
+
+    /**
+     * El plan anterior sirve tal cual si tiene exactamente las tareas que faltan, con su
+     * duración y clima actuales, sin traslapes, dentro de la ventana y respetando dependencias.
+     */
+    private boolean planSigueValido(List<SlotDTO> futuras, List<TareaPlanificable> restantes,
+                                    String climaDia, int desde, int hasta) {
+        Map<Long, SlotDTO> porId = new HashMap<>();
+        for (SlotDTO s : futuras) {
+            porId.put(s.getId(), s);
+        }
+        if (porId.size() != futuras.size() || futuras.size() != restantes.size()) {
+            return false;
+        }
+
+        int cursor = desde;
+        for (SlotDTO s : futuras) {
+            int inicio = ReplanIncremental.minutos(s.getInicio());
+            int fin = ReplanIncremental.minutos(s.getFin());
+            if (inicio < cursor || fin > hasta) {
+                return false;
+            }
+            cursor = fin;
+        }
+
+        for (TareaPlanificable t : restantes) {
+            SlotDTO s = porId.get(t.getId());
+            if (s == null) {
+                return false;
+            }
+            int inicio = ReplanIncremental.minutos(s.getInicio());
+            if (ReplanIncremental.minutos(s.getFin()) - inicio != t.getDuracionMinutos()) {
+                return false;
+            }
+            if (t.getClimaPermitido() != null && !t.getClimaPermitido().name().equalsIgnoreCase(climaDia.trim())) {
+                return false;
+            }
+            SlotDTO padre = t.getDependeDeId() != null ? porId.get(t.getDependeDeId()) : null;
+            if (padre != null && ReplanIncremental.minutos(padre.getFin()) > inicio) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Valida el request, completa la configuración, carga las tareas del día
+     * y busca el plan en caché. Hace todo el acceso a BD previo a resolver.
+     */
+    private PlanPreparado prepararPlan(PlanRequest request) {
         // Validar entrada
         validarRequest(request);
 
         // Obtener configuración del usuario
-        if (request.getMinutosDisponibles() == null || request.getHoraInicio() == null) {
-            ConfiguracionAgenda config = configuracionRepository
-                    .findByUsuarioId(request.getUsuarioId())
-                    .orElseThrow(() -> new IllegalArgumentException(
-                            "No existe configuración para el usuario " + request.getUsuarioId()));
+        completarConfiguracion(request);
 
-            if (request.getMinutosDisponibles() == null) {
-                request.setMinutosDisponibles(config.getMinutosDisponibles());
+        // Obtener tareas del día (solo pendientes y planificadas), con los cambios diferidos ya escritos
+        tareaService.escribirEstadosPendientes(request.getUsuarioId());
+        List<TareaPlanificable> tareas = tareaRepository.findPlanificablesByUsuarioIdAndFechaAndEstadoIn(
+                request.getUsuarioId(),
+                request.getFecha(),
+                ESTADOS_PLANIFICABLES);
+
+        return prepararConTareas(request, tareas, this::estadosDependencias);
+    }
+
+    /**
+     * Arma el request para el planificador a partir de las tareas ya cargadas
+     * y busca el plan en caché. Si no está, poda el request (ver PodaPlan).
+     * La clave se calcula con todas las tareas, así las podadas también la cambian.
+     */
+    private PlanPreparado prepararConTareas(PlanRequest request, List<TareaPlanificable> tareas,
+                                            Function<List<TareaPlanificable>, Map<Long, Tarea.Estado>> estados) {
+        // Construir request para PrologAPI
+        request.setTasks(construirTasks(tareas));
+        request.setDeps(construirDeps(tareas));
+
+        // Reutilizar el plan si nada cambió desde la última vez
+        String motor = motorDe(request);
+        PlanCache.ClavePlan clave = PlanCache.ClavePlan.de(request, motor);
+        PlanResponse enCache = planCache.obtener(clave);
+        List<TaskDTO> podadas = enCache == null ? podar(request, tareas, estados.apply(tareas)) : List.of();
+        return new PlanPreparado(request.getUsuarioId(), request.getFecha(), tareas, motor, clave,
+                enCache, podadas);
+    }
+
+    /**
+     * Planifica muchos (usuarioId, fecha) en una sola llamada. Las tareas y configuraciones
+     * se cargan por grupos con consultas de conjunto, los planificadores se llaman con
+     * paralelismo acotado y cada resultado se emite apenas está listo.
+     * Un ítem que falla se reporta con su error sin detener a los demás; si fallan las
+     * consultas de un grupo, cada ítem del grupo se reporta con ese error y el lote sigue.
+     */
+    public Flux<PlanLoteResultado> planificarLote(List<PlanLoteItem> items) {
+        return Flux.fromIterable(items)
+                .buffer(loteTamanoConsulta)
+                .concatMap(grupo -> Mono.fromCallable(() -> prepararLote(grupo))
+                        .subscribeOn(jpaScheduler)
+                        .onErrorResume(e -> Mono.just(falloGrupo(grupo, e)))
+                        .flatMapIterable(preparados -> preparados))
+                .flatMap(this::resolverItemLote, loteParalelismo);
+    }
+
+    /**
+     * Prepara un grupo del lote con a lo sumo tres consultas: configuraciones de los usuarios
+     * que no estén en caché, tareas planificables de todos los (usuario, fecha) del grupo
+     * y estado de las tareas de otros días de las que dependen.
+     */
+    private List<ItemLotePreparado> prepararLote(List<PlanLoteItem> grupo) {
+        Set<Long> usuarios = new HashSet<>();
+        Set<LocalDate> fechas = new HashSet<>();
+        for (PlanLoteItem item : grupo) {
+            if (item.getUsuarioId() != null && item.getFecha() != null) {
+                usuarios.add(item.getUsuarioId());
+                fechas.add(item.getFecha());
             }
-            if (request.getHoraInicio() == null) {
-                request.setHoraInicio(config.getHoraInicio().toString());
+        }
+
+        // Configuraciones desde el caché; solo las que faltan se cargan en una consulta
+        Map<Long, ConfiguracionAgenda> configuraciones = usuarios.isEmpty()
+                ? Map.of() : configuracionCache.obtenerTodas(usuarios);
+        Map<Long, Map<LocalDate, List<TareaPlanificable>>> tareasPorDia = new HashMap<>();
+        Map<Long, Tarea.Estado> estados = Map.of();
+        if (!usuarios.isEmpty()) {
+            usuarios.forEach(tareaService::escribirEstadosPendientes);
+            List<TareaPlanificable> cargadas = tareaRepository.findPlanificablesByUsuarioIdInAndFechaInAndEstadoIn(
+                    usuarios, fechas, ESTADOS_PLANIFICABLES);
+            for (TareaPlanificable t : cargadas) {
+                tareasPorDia.computeIfAbsent(t.getUsuarioId(), u -> new HashMap<>())
+                        .computeIfAbsent(t.getFecha(), f -> new ArrayList<>())
+                        .add(t);
+            }
+            estados = estadosDependencias(cargadas);
+        }
+        Map<Long, Tarea.Estado> estadosGrupo = estados;
+
+        List<ItemLotePreparado> preparados = new ArrayList<>(grupo.size());
+        for (PlanLoteItem item : grupo) {
+            PlanRequest request = new PlanRequest();
+            request.setUsuarioId(item.getUsuarioId());
+            request.setFecha(item.getFecha());
+            request.setClimaDia(item.getClimaDia());
+            try {
+                validarRequest(request);
+                aplicarConfiguracion(request, configuraciones.get(item.getUsuarioId()));
+                List<TareaPlanificable> tareas = tareasPorDia
+                        .getOrDefault(item.getUsuarioId(), Map.of())
+                        .getOrDefault(item.getFecha(), List.of());
+                preparados.add(new ItemLotePreparado(item, request,
+                        prepararConTareas(request, tareas, t -> estadosGrupo), null));
+            } catch (Exception e) {
+                preparados.add(new ItemLotePreparado(item, request, null, e));
             }
         }
+        return preparados;
+    }
 
-        // Obtener tareas del día (solo pendientes y planificadas)
-        List<Tarea> tareas = tareaRepository.findByUsuarioIdAndFecha(
-                        request.getUsuarioId(),
-                        request.getFecha()
-                ).stream()
-                .filter(t -> t.getEstado() == Tarea.Estado.PENDIENTE ||
-                        t.getEstado() == Tarea.Estado.PLANIFICADA)
+    private static List<ItemLotePreparado> falloGrupo(List<PlanLoteItem> grupo, Throwable error) {
+        Exception causa = error instanceof Exception ? (Exception) error : new RuntimeException(error);
+        return grupo.stream()
+                .map(item -> new ItemLotePreparado(item, null, null, causa))
                 .collect(Collectors.toList());
+    }
 
-        // Transformar tareas a TaskDTO
-        List<TaskDTO> tasks = tareas.stream()
-                .map(this::tareaToTaskDTO)
-                .collect(Collectors.toList());
+    private Mono<PlanLoteResultado> resolverItemLote(ItemLotePreparado item) {
+        if (item.getError() != null) {
+            return Mono.just(PlanLoteResultado.fallo(item.getItem(), item.getError()));
+        }
+        PlanPreparado preparado = item.getPreparado();
+        Mono<PlanResponse> plan = preparado.getEnCache() != null
+                ? Mono.just(preparado.getEnCache())
+                : resolverPodadoReactivo(preparado, item.getRequest())
+                        .publishOn(jpaScheduler)
+                        .map(response -> completarPlan(preparado, item.getRequest(), response));
+        return plan
+                .map(response -> PlanLoteResultado.exito(item.getItem(), response))
+                .onErrorResume(e -> Mono.just(PlanLoteResultado.fallo(item.getItem(), e)));
+    }
 
-        // Construir dependencias
-        List<DepDTO> deps = tareas.stream()
-                .filter(t -> t.getDependeDeId() != null)
-                .map(t -> {
-                    DepDTO dep = new DepDTO();
-                    dep.setTarea(t.getId());
-                    dep.setDependeDe(t.getDependeDeId());
-                    return dep;
-                })
+    /**
+     * Igual que prepararPlan pero sin caché y devolviendo a PENDIENTE
+     * las tareas PLANIFICADAS antes de volver a resolver.
+     */
+    private PlanPreparado prepararReplan(PlanRequest request) {
+        // Validar entrada
+        validarRequest(request);
+
+        // Obtener configuración del usuario si no se proporciona
+        completarConfiguracion(request);
+
+        // Obtener SOLO tareas PENDIENTES (excluyendo COMPLETADAS y CANCELADAS)
+        // Esto permite replanificar solo lo que queda por hacer
+        tareaService.escribirEstadosPendientes(request.getUsuarioId());
+        List<TareaPlanificable> tareasPendientes = tareaRepository.findPlanificablesByUsuarioIdAndFechaAndEstadoIn(
+                request.getUsuarioId(),
+                request.getFecha(),
+                ESTADOS_PLANIFICABLES);
+
+        // Resetear estados PLANIFICADAS a PENDIENTE antes de replanificar (una sola sentencia)
+        List<Long> idsPlanificadas = tareasPendientes.stream()
+                .filter(t -> t.getEstado() == Tarea.Estado.PLANIFICADA)
+                .map(TareaPlanificable::getId)
                 .collect(Collectors.toList());
+        tareaService.cambiarEstadoMasivo(request.getUsuarioId(), request.getFecha(), idsPlanificadas,
+                Tarea.Estado.PLANIFICADA, Tarea.Estado.PENDIENTE);
 
-        // Construir request para PrologAPI
-        request.setTasks(tasks);
-        request.setDeps(deps);
+        // Construir request para PrologAPI (solo tareas pendientes que pasan la poda)
+        List<TaskDTO> podadas = podar(request, tareasPendientes, estadosDependencias(tareasPendientes));
+
+        return new PlanPreparado(request.getUsuarioId(), request.getFecha(), tareasPendientes,
+                motorDe(request), null, null, podadas);
+    }
 
-        // Llamar a PrologAPI
-        PlanResponse response = llamarPrologAPI(request);
+    /**
+     * Actualiza estados, agrega diagnóstico y sugerencias y guarda el plan en caché (si aplica).
+     * El request es el ya podado que se envió al motor.
+     */
+    private PlanResponse completarPlan(PlanPreparado preparado, PlanRequest request, PlanResponse response) {
+        metricas.registrarPlan(response);
 
         // Si el plan es posible, actualizar estados de las tareas planificadas
         if (response.isPosible() && response.getTareasPlan() != null) {
-            actualizarEstadosTareasPlanificadas(response);
+            actualizarEstadosTareasPlanificadas(preparado, response);
         }
 
-        // Agregar sugerencias si el plan no es posible
+        // Agregar diagnóstico y sugerencias si el plan no es posible
         if (!response.isPosible()) {
-            response.setSugerencias(generarSugerencias(response, tareas));
+            response.setDiagnostico(DiagnosticoPlan.diagnosticar(request.getTasks(), request.getDeps(),
+                    request.getMinutosDisponibles()));
+            response.setSugerencias(generarSugerencias(response));
         }
 
+        // Se guarda después de actualizar estados, que invalidan las entradas del día
+        if (preparado.getClave() != null) {
+            planCache.guardar(preparado.getClave(), response);
+        }
+        eventos.publishEvent(new PlanGeneradoEvent(preparado.getUsuarioId(), preparado.getFecha(), response));
         return response;
     }
 
     /**
-     * Replanifica el día considerando solo tareas PENDIENTES y PLANIFICADAS,
-     * excluyendo las que ya están COMPLETADAS o CANCELADAS.
-     * Permite ajustar el tiempo disponible restante y la hora actual.
+     * Poda las tareas que ningún motor podría programar y deja en el request solo las
+     * candidatas, con las dependencias entre ellas (las demás ya están satisfechas).
+     * Devuelve las podadas con su motivo.
      */
-    public PlanResponse replanificar(PlanRequest request) {
-        // Validar entrada
-        validarRequest(request);
+    private List<TaskDTO> podar(PlanRequest request, List<TareaPlanificable> tareas,
+                                Map<Long, Tarea.Estado> estados) {
+        PodaPlan.Resultado poda = PodaPlan.podar(tareas, request.getClimaDia(),
+                request.getMinutosDisponibles(), estados);
+        Set<Long> candidatas = poda.getCandidatas().stream()
+                .map(TareaPlanificable::getId)
+                .collect(Collectors.toSet());
+        request.setTasks(construirTasks(poda.getCandidatas()));
+        request.setDeps(construirDeps(poda.getCandidatas()).stream()
+                .filter(d -> candidatas.contains(d.getDependeDe()))
+                .collect(Collectors.toList()));
+
+        List<TaskDTO> podadas = new ArrayList<>(poda.getMotivos().size());
+        for (TareaPlanificable t : tareas) {
+            String motivo = poda.getMotivos().get(t.getId());
+            if (motivo != null) {
+                TaskDTO dto = tareaToTaskDTO(t);
+                dto.setMotivo(motivo);
+                podadas.add(dto);
+            }
+        }
+        return podadas;
+    }
 
-        // Obtener configuración del usuario si no se proporciona
+    /**
+     * Estado de las tareas de las que dependen las indicadas: las cargadas se toman de la
+     * lista y solo las demás (de otros días o completadas) se consultan.
+     */
+    private Map<Long, Tarea.Estado> estadosDependencias(Collection<TareaPlanificable> tareas) {
+        Map<Long, Tarea.Estado> estados = new HashMap<>();
+        for (TareaPlanificable t : tareas) {
+            estados.put(t.getId(), t.getEstado());
+        }
+        Set<Long> faltan = tareas.stream()
+                .map(TareaPlanificable::getDependeDeId)
+                .filter(Objects::nonNull)
+                .filter(id -> !estados.containsKey(id))
+                .collect(Collectors.toSet());
+        if (!faltan.isEmpty()) {
+            for (EstadoTarea e : tareaRepository.findEstadosByIdIn(faltan)) {
+                estados.put(e.getId(), e.getEstado());
+            }
+        }
+        return estados;
+    }
+
+    /**
+     * Completa minutosDisponibles y horaInicio con la configuración del usuario si no vienen
+     */
+    private void completarConfiguracion(PlanRequest request) {
+        if (request.getMinutosDisponibles() == null || request.getHoraInicio() == null) {
+            aplicarConfiguracion(request, configuracionCache
+                    .obtener(request.getUsuarioId())
+                    .orElse(null));
+        }
+    }
+
+    /**
+     * Completa el request con una configuración ya cargada (null si el usuario no tiene)
+     */
+    private void aplicarConfiguracion(PlanRequest request, ConfiguracionAgenda config) {
         if (request.getMinutosDisponibles() == null || request.getHoraInicio() == null) {
-            ConfiguracionAgenda config = configuracionRepository
-                    .findByUsuarioId(request.getUsuarioId())
-                    .orElseThrow(() -> new IllegalArgumentException(
-                            "No existe configuración para el usuario " + request.getUsuarioId()));
+            if (config == null) {
+                throw new IllegalArgumentException(
+                        "No existe configuración para el usuario " + request.getUsuarioId());
+            }
 
             if (request.getMinutosDisponibles() == null) {
                 request.setMinutosDisponibles(config.getMinutosDisponibles());
@@ -128,32 +625,22 @@ public class AgendaService {
                 request.setHoraInicio(config.getHoraInicio().toString());
             }
         }
+    }
 
-        // Obtener SOLO tareas PENDIENTES (excluyendo COMPLETADAS y CANCELADAS)
-        // Esto permite replanificar solo lo que queda por hacer
-        List<Tarea> tareasPendientes = tareaRepository.findByUsuarioIdAndFecha(
-                        request.getUsuarioId(),
-                        request.getFecha()
-                ).stream()
-                .filter(t -> t.getEstado() == Tarea.Estado.PENDIENTE ||
-                        t.getEstado() == Tarea.Estado.PLANIFICADA)
-                .collect(Collectors.toList());
-
-        // Resetear estados PLANIFICADAS a PENDIENTE antes de replanificar
-        tareasPendientes.stream()
-                .filter(t -> t.getEstado() == Tarea.Estado.PLANIFICADA)
-                .forEach(t -> {
-                    t.setEstado(Tarea.Estado.PENDIENTE);
-                    tareaService.actualizar(t.getId(), t);
-                });
-
-        // Transformar tareas a TaskDTO
-        List<TaskDTO> tasks = tareasPendientes.stream()
+    /**
+     * Transforma tareas a TaskDTO
+     */
+    List<TaskDTO> construirTasks(List<TareaPlanificable> tareas) {
+        return tareas.stream()
                 .map(this::tareaToTaskDTO)
                 .collect(Collectors.toList());
+    }
 
-        // Construir dependencias (solo de tareas pendientes)
-        List<DepDTO> deps = tareasPendientes.stream()
+    /**
+     * Construye las dependencias de las tareas que dependen de otra
+     */
+    List<DepDTO> construirDeps(List<TareaPlanificable> tareas) {
+        return tareas.stream()
                 .filter(t -> t.getDependeDeId() != null)
                 .map(t -> {
                     DepDTO dep = new DepDTO();
@@ -162,32 +649,13 @@ public class AgendaService {
                     return dep;
                 })
                 .collect(Collectors.toList());
-
-        // Construir request para PrologAPI
-        request.setTasks(tasks);
-        request.setDeps(deps);
-
-        // Llamar a PrologAPI
-        PlanResponse response = llamarPrologAPI(request);
-
-        // Si el plan es posible, actualizar estados de las tareas planificadas
-        if (response.isPosible() && response.getTareasPlan() != null) {
-            actualizarEstadosTareasPlanificadas(response);
-        }
-
-        // Agregar sugerencias si el plan no es posible
-        if (!response.isPosible()) {
-            response.setSugerencias(generarSugerencias(response, tareasPendientes));
-        }
-
-        return response;
     }
 
     /**
-     * Convierte una entidad Tarea a TaskDTO
+     * Convierte una tarea (proyección de planificación) a TaskDTO
      */
 
-    private TaskDTO tareaToTaskDTO(Tarea tarea) {
+    TaskDTO tareaToTaskDTO(TareaPlanificable tarea) {
         TaskDTO dto = new TaskDTO();
         dto.setId(tarea.getId());
         dto.setNombre(tarea.getNombre());
@@ -220,19 +688,105 @@ public class AgendaService {
     }
 
     /**
-     * Llama al endpoint /api/plan de PrologAPI
+     * Motor indicado en el request o, si no viene, el configurado
+     */
+    private String motorDe(PlanRequest request) {
+        String motor = request.getMotor() != null && !request.getMotor().isBlank()
+                ? request.getMotor()
+                : planificadorPorDefecto;
+        return motor.trim().toLowerCase();
+    }
+
+    /**
+     * Clave de agrupación: solo los campos que el cliente envía (las tareas se leen de BD),
+     * normalizados para que "Soleado" y "soleado " cuenten como el mismo request.
+     */
+    private ClaveVuelo claveVuelo(String operacion, PlanRequest request) {
+        return new ClaveVuelo(operacion,
+                request.getUsuarioId(),
+                request.getFecha(),
+                request.getClimaDia() != null ? request.getClimaDia().trim().toLowerCase() : null,
+                request.getMinutosDisponibles(),
+                request.getHoraInicio() != null ? request.getHoraInicio().trim() : null,
+                motorDe(request));
+    }
+
+    /**
+     * Llama al motor elegido midiendo la duración y las llamadas en curso
+     */
+    private PlanResponse resolver(String motor, PlanRequest request) {
+        Planificador planificador = seleccionarPlanificador(motor);
+        return metricas.medirPlanificador(planificador.getNombre(), () -> planificador.planificar(request));
+    }
+
+    private Mono<PlanResponse> resolverReactivo(String motor, PlanRequest request) {
+        Planificador planificador = seleccionarPlanificador(motor);
+        return metricas.medirPlanificadorReactivo(planificador.getNombre(),
+                () -> planificador.planificarReactivo(request));
+    }
+
+    /**
+     * Resuelve el request ya podado y agrega las podadas a noProgramadas. Si la poda no dejó
+     * tareas, responde sin llamar al motor.
      */
-    private PlanResponse llamarPrologAPI(PlanRequest request) {
-        try {
-            return client.post()
-                    .uri("/api/plan")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(PlanResponse.class)
-                    .block();
-        } catch (Exception e) {
-            throw new RuntimeException("Error al llamar a PrologAPI: " + e.getMessage(), e);
+    private PlanResponse resolverPodado(PlanPreparado preparado, PlanRequest request) {
+        if (request.getTasks().isEmpty()) {
+            return sinCandidatas(preparado, request);
+        }
+        metricas.registrarPoda(preparado.getMotor(), motivos(preparado.getPodadas()), false);
+        return agregarPodadas(resolver(preparado.getMotor(), request), preparado.getPodadas());
+    }
+
+    private Mono<PlanResponse> resolverPodadoReactivo(PlanPreparado preparado, PlanRequest request) {
+        if (request.getTasks().isEmpty()) {
+            return Mono.fromSupplier(() -> sinCandidatas(preparado, request));
+        }
+        metricas.registrarPoda(preparado.getMotor(), motivos(preparado.getPodadas()), false);
+        return resolverReactivo(preparado.getMotor(), request)
+                .map(response -> agregarPodadas(response, preparado.getPodadas()));
+    }
+
+    /** Plan vacío de un día sin tareas programables; solo es posible si no hubo podadas. */
+    private PlanResponse sinCandidatas(PlanPreparado preparado, PlanRequest request) {
+        metricas.registrarPoda(preparado.getMotor(), motivos(preparado.getPodadas()), true);
+        PlanResponse response = new PlanResponse();
+        response.setPosible(preparado.getPodadas().isEmpty());
+        response.setMinutosDisponibles(request.getMinutosDisponibles());
+        response.setMinutosSobrantes(request.getMinutosDisponibles());
+        response.setTareasPlan(new ArrayList<>());
+        response.setNoProgramadas(new ArrayList<>(preparado.getPodadas()));
+        return response;
+    }
+
+    private PlanResponse agregarPodadas(PlanResponse response, List<TaskDTO> podadas) {
+        if (podadas.isEmpty()) {
+            return response;
+        }
+        List<TaskDTO> noProgramadas = new ArrayList<>();
+        if (response.getNoProgramadas() != null) {
+            noProgramadas.addAll(response.getNoProgramadas());
         }
+        noProgramadas.addAll(podadas);
+        response.setNoProgramadas(noProgramadas);
+        response.setPosible(false);
+        return response;
+    }
+
+    private static List<String> motivos(List<TaskDTO> podadas) {
+        return podadas.stream().map(TaskDTO::getMotivo).collect(Collectors.toList());
+    }
+
+    private Planificador seleccionarPlanificador(String nombre) {
+        Planificador planificador = planificadores.get(nombre.trim().toLowerCase());
+        if (planificador == null) {
+            throw new IllegalArgumentException("Planificador desconocido: " + nombre
+                    + " (disponibles: " + planificadores.keySet() + ")");
+        }
+        if (!planificador.isHabilitado()) {
+            throw new IllegalArgumentException("Planificador experimental no habilitado: " + planificador.getNombre()
+                    + " (agenda.planificador." + planificador.getNombre() + ".habilitado=true)");
+        }
+        return planificador;
     }
 
     /**
@@ -248,76 +802,116 @@ public class AgendaService {
         if (request.getClimaDia() == null || request.getClimaDia().isBlank()) {
             throw new IllegalArgumentException("El clima del día es obligatorio");
         }
+        Integer minutos = request.getMinutosDisponibles();
+        if (minutos != null && (minutos < 0 || minutos > MINUTOS_DIA)) {
+            throw new IllegalArgumentException("Los minutos disponibles deben estar entre 0 y " + MINUTOS_DIA);
+        }
     }
 
     /**
-     * Actualiza los estados de las tareas planificadas después de generar un plan exitoso
+     * Actualiza los estados de las tareas planificadas después de generar un plan exitoso.
+     * Solo pasan a PLANIFICADA las que siguen en PENDIENTE, en una sola sentencia.
      */
-    private void actualizarEstadosTareasPlanificadas(PlanResponse response) {
+    private void actualizarEstadosTareasPlanificadas(PlanPreparado preparado, PlanResponse response) {
         if (response.getTareasPlan() == null || response.getTareasPlan().isEmpty()) {
             return;
         }
 
-        // Crear un mapa de IDs planificados para búsqueda rápida
-        java.util.Set<Long> idsPlanificados = new java.util.HashSet<>();
+        // Crear un conjunto de IDs planificados
+        Set<Long> idsPlanificados = new HashSet<>();
         for (SlotDTO slot : response.getTareasPlan()) {
             idsPlanificados.add(slot.getId());
         }
 
-        // Obtener todas las tareas del día que fueron planificadas
-        for (Long id : idsPlanificados) {
-            try {
-                Tarea tarea = tareaService.obtener(id);
-                if (tarea != null && tarea.getEstado() == Tarea.Estado.PENDIENTE) {
-                    // Actualizar solo las que están en PENDIENTE
-                    tarea.setEstado(Tarea.Estado.PLANIFICADA);
-                    tareaService.actualizar(id, tarea);
-                }
-            } catch (Exception e) {
-                // Log error pero continuar con las demás
-                System.err.println("Error actualizando estado de tarea " + id + ": " + e.getMessage());
-            }
-        }
+        tareaService.cambiarEstadoMasivo(preparado.getUsuarioId(), preparado.getFecha(), idsPlanificados,
+                Tarea.Estado.PENDIENTE, Tarea.Estado.PLANIFICADA);
     }
 
     /**
-     * Genera sugerencias cuando el plan no es posible
+     * Genera sugerencias cuando el plan no es posible, a partir del diagnóstico
+     * (con el tiempo disponible real) y de los motivos de las tareas podadas
      */
-    private String generarSugerencias(PlanResponse response, List<Tarea> tareas) {
+    String generarSugerencias(PlanResponse response) {
         StringBuilder sugerencias = new StringBuilder();
         sugerencias.append("No se pudo generar un plan completo. Sugerencias:\n\n");
 
-        // 1. Revisar duración total vs tiempo disponible
-        int duracionTotal = tareas.stream()
-                .mapToInt(Tarea::getDuracionMinutos)
-                .sum();
-        int tiempoDisponible = 480; // 8 horas por defecto
-        if (duracionTotal > tiempoDisponible) {
-            sugerencias.append("• Reducir la duración de las tareas o eliminar algunas. ");
-            sugerencias.append(String.format("Duración total: %d min > Tiempo disponible: %d min\n",
-                    duracionTotal, tiempoDisponible));
+        // 1. Tareas a posponer con la menor pérdida de prioridad
+        DiagnosticoDTO diagnostico = response.getDiagnostico();
+        int tiempoDisponible = diagnostico != null
+                ? diagnostico.getMinutosDisponibles()
+                : response.getMinutosDisponibles();
+        if (diagnostico != null && !diagnostico.getPosponer().isEmpty()) {
+            sugerencias.append(String.format("• Las tareas suman %d min y hay %d min disponibles. ",
+                    diagnostico.getMinutosRequeridos(), tiempoDisponible));
+            sugerencias.append("Posponer estas tareas hace posible el plan perdiendo la menor prioridad: ");
+            sugerencias.append(diagnostico.getPosponer().stream()
+                    .map(TaskDTO::getNombre)
+                    .collect(Collectors.joining(", ")));
+            sugerencias.append('\n');
         }
 
-        // 2. Revisar incompatibilidades de clima
-        long tareasConClima = tareas.stream()
-                .filter(t -> t.getClimaPermitido() != null)
-                .count();
-        if (tareasConClima > 0) {
-            sugerencias.append("• Verificar que el clima del día permita realizar todas las tareas.\n");
+        // 2. Tareas que se podaron antes de planificar
+        Map<String, Long> podadas = response.getNoProgramadas() == null ? Map.of()
+                : response.getNoProgramadas().stream()
+                        .filter(t -> t.getMotivo() != null)
+                        .collect(Collectors.groupingBy(TaskDTO::getMotivo, Collectors.counting()));
+        if (podadas.containsKey(PodaPlan.CLIMA)) {
+            sugerencias.append(String.format("• %d tarea(s) no se pueden hacer con el clima del día; "
+                    + "muévalas a un día con el clima que requieren.\n", podadas.get(PodaPlan.CLIMA)));
         }
-
-        // 3. Revisar dependencias bloqueadas
-        long tareasConDependencias = tareas.stream()
-                .filter(t -> t.getDependeDeId() != null)
-                .count();
-        if (tareasConDependencias > 0) {
-            sugerencias.append("• Algunas tareas dependientes podrían no completarse. ");
-            sugerencias.append("Considerar marcar las tareas padre como COMPLETADAS primero.\n");
+        if (podadas.containsKey(PodaPlan.DEPENDENCIA)) {
+            sugerencias.append(String.format("• %d tarea(s) dependen de una tarea que no se puede programar "
+                    + "o que ya no existe; revise sus dependencias.\n", podadas.get(PodaPlan.DEPENDENCIA)));
+        }
+        if (podadas.containsKey(PodaPlan.DURACION)) {
+            sugerencias.append(String.format("• %d tarea(s), junto con las tareas de las que dependen, "
+                    + "duran más que los %d min disponibles.\n", podadas.get(PodaPlan.DURACION), tiempoDisponible));
         }
 
-        // 4. Sugerencia general
+        // 3. Sugerencia general
         sugerencias.append("• Intente reducir prioridades de algunas tareas o postponerlas para otro día.\n");
 
         return sugerencias.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Resultado de la fase previa a resolver: tareas cargadas, motor, clave de caché
+     * (null en replanificación) y el plan en caché si lo hubo.
+     */
+    @lombok.Value
+    private static class PlanPreparado {
+        Long usuarioId;
+        LocalDate fecha;
+        List<TareaPlanificable> tareas;
+        String motor;
+        PlanCache.ClavePlan clave;
+        PlanResponse enCache;
+        /** Tareas que la poda sacó del request, con su motivo. */
+        List<TaskDTO> podadas;
+    }
+
+    /**
+     * Identifica un request de planificación en curso (ver claveVuelo).
+     */
+    @lombok.Value
+    private static class ClaveVuelo {
+        String operacion;
+        Long usuarioId;
+        LocalDate fecha;
+        String clima;
+        Integer minutos;
+        String horaInicio;
+        String motor;
+    }
+
+    /**
+     * Ítem de un lote ya preparado, o el error que impidió prepararlo.
+     */
+    @lombok.Value
+    private static class ItemLotePreparado {
+        PlanLoteItem item;
+        PlanRequest request;
+        PlanPreparado preparado;
+        Exception error;
+    }
+}
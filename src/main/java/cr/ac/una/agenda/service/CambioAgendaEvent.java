@@ -0,0 +1,50 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.Tarea;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evento que se publica cada vez que cambian las tareas o la configuración
+ * de un usuario, para que los cachés y vistas derivadas se invaliden
+ * y los suscriptores del día (CanalAgenda) reciban el cambio.
+ */
+@Value
+public class CambioAgendaEvent {
+
+    public enum Tipo {
+        CREADA, ACTUALIZADA, ELIMINADA, ESTADO, CONFIGURACION
+    }
+
+    /** Usuario afectado. */
+    Long usuarioId;
+    /** Día afectado; null si el cambio afecta todos los días del usuario (configuración). */
+    LocalDate fecha;
+    Tipo tipo;
+    /** Tareas afectadas en ese día (vacío para configuración). */
+    List<Long> ids;
+    /** Tarea tal como quedó, si el cambio es de una sola tarea; null en los demás casos. */
+    Tarea tarea;
+    /** Cambio de estado confirmado pero aún sin escribir en la BD (ver EstadosDiferidos). */
+    boolean diferido;
+
+    public static CambioAgendaEvent deTarea(Tipo tipo, Long usuarioId, LocalDate fecha, Tarea tarea) {
+        return new CambioAgendaEvent(usuarioId, fecha, tipo, List.of(tarea.getId()), tarea, false);
+    }
+
+    public static CambioAgendaEvent deTareas(Tipo tipo, Long usuarioId, LocalDate fecha, Collection<Long> ids) {
+        return new CambioAgendaEvent(usuarioId, fecha, tipo, List.copyOf(ids), null, false);
+    }
+
+    public static CambioAgendaEvent deEstadoDiferido(Tarea tarea) {
+        return new CambioAgendaEvent(tarea.getUsuarioId(), tarea.getFecha(), Tipo.ESTADO,
+                List.of(tarea.getId()), tarea, true);
+    }
+
+    public static CambioAgendaEvent deConfiguracion(Long usuarioId) {
+        return new CambioAgendaEvent(usuarioId, null, Tipo.CONFIGURACION, List.of(), null, false);
+    }
+}
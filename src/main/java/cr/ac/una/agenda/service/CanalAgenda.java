@@ -0,0 +1,308 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.EventoAgenda;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Canal de eventos (SSE) por día (usuarioId, fecha): cambios de tareas y planes generados.
+ * <ul>
+ *   <li>Cada conexión tiene su propio buffer acotado; si el cliente no lo vacía a tiempo
+ *       la conexión se cierra y el cliente se reconecta con Last-Event-ID.</li>
+ *   <li>Cada día guarda sus últimos eventos para reenviar lo que faltó al reconectar. Si ya
+ *       no están (u otro nodo emitió el id) se envía "reiniciar" para que el cliente recargue.</li>
+ *   <li>Un solo hilo envía los latidos a todas las conexiones y libera los días sin suscriptores.</li>
+ * </ul>
+ * Los eventos se emiten tras confirmar la transacción que los originó.
+ */
+@Component
+public class CanalAgenda implements MeterBinder {
+
+    static final String CONECTADO = "conectado";
+    static final String REINICIAR = "reiniciar";
+    static final String PLAN = "plan";
+    /** Espacio extra del buffer de cada conexión, además del historial reenviado. */
+    private static final int HOLGURA_BUFFER = 32;
+
+    private final int maximoConexiones;
+    private final int historial;
+    private final long retencionNanos;
+    /** Prefijo de los ids de evento: distingue este nodo y este arranque. */
+    private final String nodo = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong secuencia = new AtomicLong();
+    private final Map<ClaveDia, Dia> dias = new ConcurrentHashMap<>();
+    private final AtomicInteger conexiones = new AtomicInteger();
+    private final AtomicLong emitidos = new AtomicLong();
+    private final AtomicLong cortadas = new AtomicLong();
+    private final ScheduledExecutorService hilo;
+
+    public CanalAgenda(@Value("${agenda.eventos.maximo-conexiones:10000}") int maximoConexiones,
+                       @Value("${agenda.eventos.latido:15s}") Duration latido,
+                       @Value("${agenda.eventos.historial:100}") int historial,
+                       @Value("${agenda.eventos.retencion:10m}") Duration retencion) {
+        this.maximoConexiones = maximoConexiones;
+        this.historial = historial;
+        this.retencionNanos = retencion.toNanos();
+        this.hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "agenda-eventos-latido");
+            t.setDaemon(true);
+            return t;
+        });
+        hilo.scheduleWithFixedDelay(this::latir, latido.toMillis(), latido.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Abre una suscripción al día. Sin ultimoId el primer evento es "conectado" (marca la posición);
+     * con ultimoId se reenvían los eventos posteriores o, si no se puede, "reiniciar".
+     * Lanza CanalSaturadoException (503) si el nodo ya tiene el máximo de conexiones.
+     */
+    public Flux<ServerSentEvent<EventoAgenda>> suscribir(Long usuarioId, LocalDate fecha, String ultimoId) {
+        if (conexiones.incrementAndGet() > maximoConexiones) {
+            conexiones.decrementAndGet();
+            throw new CanalSaturadoException("Se alcanzó el máximo de suscripciones de este nodo");
+        }
+        ClaveDia clave = new ClaveDia(usuarioId, fecha);
+        Sinks.Many<ServerSentEvent<EventoAgenda>> propio = Sinks.many().unicast()
+                .onBackpressureBuffer(Queues.<ServerSentEvent<EventoAgenda>>get(historial + HOLGURA_BUFFER).get());
+        Dia dia = registrar(clave, propio, ultimoId);
+        return propio.asFlux().doFinally(s -> {
+            synchronized (dia) {
+                dia.suscriptores.remove(propio);
+                dia.ultimoUso = System.nanoTime();
+            }
+            conexiones.decrementAndGet();
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAgenda(CambioAgendaEvent evento) {
+        String tipo = evento.getTipo().name().toLowerCase(Locale.ROOT);
+        if (evento.getFecha() != null) {
+            emitir(new ClaveDia(evento.getUsuarioId(), evento.getFecha()), tipo, datos(evento, evento.getFecha()));
+            return;
+        }
+        // Configuración: afecta todos los días abiertos del usuario
+        for (ClaveDia clave : new ArrayList<>(dias.keySet())) {
+            if (clave.getUsuarioId().equals(evento.getUsuarioId())) {
+                emitir(clave, tipo, datos(evento, clave.getFecha()));
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alGenerarPlan(PlanGeneradoEvent evento) {
+        EventoAgenda datos = new EventoAgenda();
+        datos.setUsuarioId(evento.getUsuarioId());
+        datos.setFecha(evento.getFecha());
+        datos.setPlan(evento.getPlan());
+        emitir(new ClaveDia(evento.getUsuarioId(), evento.getFecha()), PLAN, datos);
+    }
+
+    @PreDestroy
+    public void detener() {
+        hilo.shutdownNow();
+        for (Dia dia : dias.values()) {
+            List<Sinks.Many<ServerSentEvent<EventoAgenda>>> abiertas;
+            synchronized (dia) {
+                abiertas = new ArrayList<>(dia.suscriptores);
+                dia.suscriptores.clear();
+            }
+            // Fuera del recorrido: completar dispara el doFinally que quita la conexión del día
+            abiertas.forEach(Sinks.Many::tryEmitComplete);
+        }
+    }
+
+    /** Conexiones abiertas en este nodo. */
+    public int conexiones() {
+        return conexiones.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("agenda.eventos.conexiones", conexiones, AtomicInteger::get)
+                .description("Suscripciones SSE abiertas en este nodo")
+                .register(registry);
+        Gauge.builder("agenda.eventos.dias", dias, Map::size)
+                .description("Días con suscriptores o historial reciente")
+                .register(registry);
+        FunctionCounter.builder("agenda.eventos.emitidos", emitidos, AtomicLong::get)
+                .description("Eventos publicados en los canales")
+                .register(registry);
+        FunctionCounter.builder("agenda.eventos.cortadas", cortadas, AtomicLong::get)
+                .description("Conexiones cerradas por no consumir sus eventos a tiempo")
+                .register(registry);
+    }
+
+    /* ===== Suscripción y reenvío ===== */
+
+    private Dia registrar(ClaveDia clave, Sinks.Many<ServerSentEvent<EventoAgenda>> propio, String ultimoId) {
+        while (true) {
+            Dia dia = dias.computeIfAbsent(clave, c -> new Dia(secuencia.get()));
+            synchronized (dia) {
+                // Lo liberó la limpieza entre computeIfAbsent y el bloqueo: se crea otro
+                if (dia.liberado) {
+                    continue;
+                }
+                long desde = ultimoId != null ? secuenciaDe(ultimoId) : -1;
+                if (ultimoId == null) {
+                    propio.tryEmitNext(marca(CONECTADO, clave));
+                } else if (desde < dia.completoDesde) {
+                    propio.tryEmitNext(marca(REINICIAR, clave));
+                } else {
+                    for (Emitido e : dia.recientes) {
+                        if (e.getSecuencia() > desde) {
+                            propio.tryEmitNext(e.getEvento());
+                        }
+                    }
+                }
+                dia.suscriptores.add(propio);
+                dia.ultimoUso = System.nanoTime();
+                return dia;
+            }
+        }
+    }
+
+    /** Secuencia del id si lo emitió este nodo en este arranque; si no, -1 (no se puede reanudar). */
+    private long secuenciaDe(String id) {
+        int guion = id.lastIndexOf('-');
+        if (guion < 0 || !id.substring(0, guion).equals(nodo)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(id.substring(guion + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Evento sin cambios que solo fija la posición desde la que reanudar. */
+    private ServerSentEvent<EventoAgenda> marca(String tipo, ClaveDia clave) {
+        EventoAgenda datos = new EventoAgenda();
+        datos.setUsuarioId(clave.getUsuarioId());
+        datos.setFecha(clave.getFecha());
+        return ServerSentEvent.<EventoAgenda>builder(datos)
+                .id(nodo + "-" + secuencia.get())
+                .event(tipo)
+                .build();
+    }
+
+    /* ===== Emisión ===== */
+
+    private void emitir(ClaveDia clave, String tipo, EventoAgenda datos) {
+        Dia dia = dias.get(clave);
+        if (dia == null) {
+            // Nadie escucha este día ni lo hizo hace poco
+            return;
+        }
+        synchronized (dia) {
+            if (dia.liberado) {
+                return;
+            }
+            long n = secuencia.incrementAndGet();
+            ServerSentEvent<EventoAgenda> evento = ServerSentEvent.builder(datos)
+                    .id(nodo + "-" + n)
+                    .event(tipo)
+                    .build();
+            dia.recientes.addLast(new Emitido(n, evento));
+            if (dia.recientes.size() > historial) {
+                dia.completoDesde = dia.recientes.removeFirst().getSecuencia();
+            }
+            enviar(dia, evento);
+            emitidos.incrementAndGet();
+        }
+    }
+
+    // Llamar con el día bloqueado: las emisiones a cada conexión quedan serializadas
+    private void enviar(Dia dia, ServerSentEvent<EventoAgenda> evento) {
+        List<Sinks.Many<ServerSentEvent<EventoAgenda>>> llenas = new ArrayList<>();
+        dia.suscriptores.removeIf(s -> {
+            Sinks.EmitResult resultado = s.tryEmitNext(evento);
+            if (resultado == Sinks.EmitResult.FAIL_OVERFLOW) {
+                llenas.add(s);
+            }
+            return resultado.isFailure();
+        });
+        // Buffer lleno: se cierra (después de recorrer el conjunto) y el cliente reanuda desde su último id
+        for (Sinks.Many<ServerSentEvent<EventoAgenda>> s : llenas) {
+            s.tryEmitComplete();
+            cortadas.incrementAndGet();
+        }
+    }
+
+    private void latir() {
+        ServerSentEvent<EventoAgenda> latido = ServerSentEvent.<EventoAgenda>builder().comment("latido").build();
+        long ahora = System.nanoTime();
+        dias.forEach((clave, dia) -> {
+            synchronized (dia) {
+                if (!dia.suscriptores.isEmpty()) {
+                    enviar(dia, latido);
+                } else if (ahora - dia.ultimoUso > retencionNanos) {
+                    dia.liberado = true;
+                    dias.remove(clave, dia);
+                }
+            }
+        });
+    }
+
+    private static EventoAgenda datos(CambioAgendaEvent evento, LocalDate fecha) {
+        EventoAgenda datos = new EventoAgenda();
+        datos.setUsuarioId(evento.getUsuarioId());
+        datos.setFecha(fecha);
+        datos.setIds(evento.getIds());
+        datos.setTarea(evento.getTarea());
+        return datos;
+    }
+
+    @lombok.Value
+    private static class ClaveDia {
+        Long usuarioId;
+        LocalDate fecha;
+    }
+
+    @lombok.Value
+    private static class Emitido {
+        long secuencia;
+        ServerSentEvent<EventoAgenda> evento;
+    }
+
+    /** Suscriptores e historial de un día; todo se accede con el día bloqueado. */
+    private static final class Dia {
+        final Set<Sinks.Many<ServerSentEvent<EventoAgenda>>> suscriptores = new HashSet<>();
+        final Deque<Emitido> recientes = new ArrayDeque<>();
+        /** Se conservan todos los eventos del día con secuencia mayor a este valor. */
+        long completoDesde;
+        long ultimoUso = System.nanoTime();
+        boolean liberado;
+
+        Dia(long completoDesde) {
+            this.completoDesde = completoDesde;
+        }
+    }
+}
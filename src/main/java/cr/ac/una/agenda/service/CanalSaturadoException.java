@@ -0,0 +1,16 @@
+package cr.ac.una.agenda.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Este nodo ya tiene el máximo de suscripciones abiertas al canal de eventos.
+ * Se responde 503 para que el cliente reintente (posiblemente en otra instancia).
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CanalSaturadoException extends RuntimeException {
+
+    public CanalSaturadoException(String mensaje) {
+        super(mensaje);
+    }
+}
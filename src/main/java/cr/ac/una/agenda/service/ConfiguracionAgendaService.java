@@ -1,13 +1,27 @@
 package cr.ac.una.agenda.service;
 
 // Importa la entidad y el repositorio asociados a la configuración de agenda.
+import cr.ac.una.agenda.dto.PaginaDTO;
 import cr.ac.una.agenda.entity.ConfiguracionAgenda;
 import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
 
+// EntityManager para separar filas ya enviadas durante la exportación.
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+// Publicador de eventos para avisar a los cachés cuando cambia una configuración.
+import org.springframework.context.ApplicationEventPublisher;
+// Conflicto de versión al guardar (otra instancia escribió la misma configuración).
+import org.springframework.dao.OptimisticLockingFailureException;
 // Anotación que marca esta clase como un "Service" de Spring (componente de lógica de negocio).
 import org.springframework.stereotype.Service;
+// Limit para la paginación por cursor y transacciones de solo lectura para la exportación.
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Servicio que gestiona la lógica de negocio para la configuración de la agenda.
@@ -18,10 +32,20 @@ public class ConfiguracionAgendaService {
 
     // Inyección del repositorio para acceder a la base de datos.
     private final ConfiguracionAgendaRepository repo;
+    // Publicador de eventos de Spring (invalida los planes en caché del usuario).
+    private final ApplicationEventPublisher eventos;
+    // Caché de configuraciones por usuario (se actualiza en cada escritura).
+    private final ConfiguracionCache cache;
+    // Contexto de persistencia actual (solo se usa al exportar).
+    @PersistenceContext
+    private EntityManager entityManager;
 
     // Constructor que inyecta automáticamente el repositorio cuando Spring crea el bean.
-    public ConfiguracionAgendaService(ConfiguracionAgendaRepository repo) {
+    public ConfiguracionAgendaService(ConfiguracionAgendaRepository repo, ApplicationEventPublisher eventos,
+                                      ConfiguracionCache cache) {
         this.repo = repo;
+        this.eventos = eventos;
+        this.cache = cache;
     }
 
     /* =======================
@@ -38,6 +62,8 @@ public class ConfiguracionAgendaService {
             throw new IllegalArgumentException("Debe indicar la hora de inicio del día.");
         if (c.getMinutosDisponibles() == null || c.getMinutosDisponibles() <= 0)
             throw new IllegalArgumentException("Los minutos disponibles deben ser mayores a 0.");
+        if (c.getMinutosDisponibles() > 24 * 60)
+            throw new IllegalArgumentException("Los minutos disponibles no pueden superar un día (1440).");
     }
 
     /* =======================
@@ -45,10 +71,26 @@ public class ConfiguracionAgendaService {
        ======================= */
 
     /**
-     * Devuelve todas las configuraciones almacenadas en la base de datos.
+     * Devuelve una página de configuraciones con id mayor a "despuesDe" (paginación por cursor).
      */
-    public List<ConfiguracionAgenda> listar() {
-        return repo.findAll();
+    public PaginaDTO<ConfiguracionAgenda> listarPagina(Long despuesDe, Integer limite) {
+        int tam = PaginaDTO.normalizarLimite(limite);
+        List<ConfiguracionAgenda> filas = repo.findByIdGreaterThanOrderByIdAsc(
+                despuesDe != null ? despuesDe : 0L, Limit.of(tam + 1));
+        return PaginaDTO.de(filas, tam, ConfiguracionAgenda::getId);
+    }
+
+    /**
+     * Entrega las configuraciones una por una mientras se leen de la BD, con memoria constante.
+     */
+    @Transactional(readOnly = true)
+    public void exportar(Consumer<ConfiguracionAgenda> destino) {
+        try (Stream<ConfiguracionAgenda> filas = repo.streamTodas()) {
+            filas.forEach(c -> {
+                destino.accept(c);
+                entityManager.detach(c);
+            });
+        }
     }
 
     /**
@@ -70,10 +112,15 @@ public class ConfiguracionAgendaService {
         repo.findByUsuarioId(c.getUsuarioId()).ifPresent(conf -> {
             throw new IllegalArgumentException("El usuario ya tiene una configuración registrada.");
         });
-        // Se asegura de que el ID sea nulo (nuevo registro)
+        // Se asegura de que el ID y la versión sean nulos (nuevo registro)
         c.setId(null);
+        c.setVersion(null);
         // Guarda en la base de datos
-        return repo.save(c);
+        ConfiguracionAgenda guardada = repo.save(c);
+        // Escritura inmediata en el caché (reemplaza una posible entrada negativa)
+        cache.guardar(guardada);
+        notificarCambio(guardada.getUsuarioId());
+        return guardada;
     }
 
     /**
@@ -88,15 +135,27 @@ public class ConfiguracionAgendaService {
         actual.setHoraInicio(c.getHoraInicio());
         actual.setMinutosDisponibles(c.getMinutosDisponibles());
         actual.setNota(c.getNota());
-        // Guarda los cambios
-        return repo.save(actual);
+        // Guarda los cambios (el UPDATE lleva "where version = ?": otra instancia pudo escribir antes)
+        ConfiguracionAgenda guardada;
+        try {
+            guardada = repo.save(actual);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ConflictoVersionException("La configuración " + id + " cambió mientras se guardaba; vuelva a leerla", e);
+        }
+        cache.guardar(guardada);
+        notificarCambio(guardada.getUsuarioId());
+        return guardada;
     }
 
     /**
      * Elimina una configuración según su ID.
      */
     public void eliminar(Long id) {
-        repo.deleteById(id);
+        repo.findById(id).ifPresent(c -> {
+            repo.delete(c);
+            cache.evictar(c.getUsuarioId());
+            notificarCambio(c.getUsuarioId());
+        });
     }
 
     /* =======================
@@ -104,13 +163,27 @@ public class ConfiguracionAgendaService {
        ======================= */
 
     /**
-     * Devuelve la configuración de un usuario específico.
+     * Devuelve la configuración de un usuario específico (desde el caché si está).
      * Si no se encuentra, lanza una excepción indicando el problema.
      */
     public ConfiguracionAgenda obtenerPorUsuario(Long usuarioId) {
-        return repo.findByUsuarioId(usuarioId)
+        return cache.obtener(usuarioId)
                 .orElseThrow(() -> new IllegalArgumentException(
                         "No existe configuración para el usuario con ID " + usuarioId));
     }
+
+    /**
+     * Estadísticas del caché de configuraciones (aciertos, fallos, entradas).
+     */
+    public Map<String, Object> estadisticasCache() {
+        return cache.estadisticas();
+    }
+
+    /**
+     * La configuración afecta todos los días del usuario, por eso el evento va sin fecha.
+     */
+    private void notificarCambio(Long usuarioId) {
+        eventos.publishEvent(CambioAgendaEvent.deConfiguracion(usuarioId));
+    }
 }
 
@@ -0,0 +1,164 @@
+package cr.ac.una.agenda.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
+import cr.ac.una.agenda.repository.VersionConfiguracion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Caché acotado de ConfiguracionAgenda por usuarioId.
+ * <ul>
+ *   <li>Las escrituras de ConfiguracionAgendaService de esta instancia actualizan o eliminan
+ *       la entrada al instante.</li>
+ *   <li>Las de otra instancia no llegan aquí: antes de usar una copia se compara su versión con
+ *       la de la fila (una lectura del índice usuario_id, version) y se recarga si no coincide
+ *       o si la fila ya no existe. "ttl" solo acota cuánto ocupa en memoria.</li>
+ *   <li>Las búsquedas sin resultado se recuerdan "ttlNegativo" sin validar, para que un usuario
+ *       desconocido no golpee la BD en cada petición; una configuración creada en otra
+ *       instancia tarda a lo sumo ese tiempo en verse.</li>
+ * </ul>
+ * Se guardan copias, nunca las entidades administradas por JPA.
+ */
+@Component
+public class ConfiguracionCache implements MeterBinder {
+
+    private final ConfiguracionAgendaRepository repo;
+    private final Cache<Long, Optional<ConfiguracionAgenda>> cache;
+
+    public ConfiguracionCache(ConfiguracionAgendaRepository repo,
+                              @Value("${agenda.config-cache.maximo:50000}") long maximo,
+                              @Value("${agenda.config-cache.ttl:30m}") Duration ttl,
+                              @Value("${agenda.config-cache.ttl-negativo:30s}") Duration ttlNegativo) {
+        this.repo = repo;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximo)
+                .expireAfter(new Expiry<Long, Optional<ConfiguracionAgenda>>() {
+                    @Override
+                    public long expireAfterCreate(Long usuarioId, Optional<ConfiguracionAgenda> valor, long ahora) {
+                        return (valor.isPresent() ? ttl : ttlNegativo).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long usuarioId, Optional<ConfiguracionAgenda> valor,
+                                                  long ahora, long restante) {
+                        return expireAfterCreate(usuarioId, valor, ahora);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long usuarioId, Optional<ConfiguracionAgenda> valor,
+                                                long ahora, long restante) {
+                        return restante;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "configuraciones");
+    }
+
+    /** Configuración del usuario (desde el caché si sigue vigente, o desde la BD). */
+    public Optional<ConfiguracionAgenda> obtener(Long usuarioId) {
+        // asMap() no cuenta aciertos ni fallos: los cuenta el get de abajo
+        Optional<ConfiguracionAgenda> enCache = cache.asMap().get(usuarioId);
+        if (enCache != null && enCache.isPresent()
+                && !Objects.equals(enCache.get().getVersion(), repo.findVersionByUsuarioId(usuarioId))) {
+            cache.asMap().remove(usuarioId, enCache);
+        }
+        return cache.get(usuarioId, id -> repo.findByUsuarioId(id).map(this::copiar));
+    }
+
+    /**
+     * Configuraciones de varios usuarios; las que faltan en caché se cargan en una sola consulta.
+     * Los usuarios sin configuración no aparecen en el mapa devuelto.
+     */
+    public Map<Long, ConfiguracionAgenda> obtenerTodas(Collection<Long> usuarioIds) {
+        descartarVencidas(usuarioIds);
+        Map<Long, Optional<ConfiguracionAgenda>> encontradas = cache.getAll(usuarioIds, faltantes -> {
+            Map<Long, Optional<ConfiguracionAgenda>> cargadas = new HashMap<>();
+            for (Long id : faltantes) {
+                cargadas.put(id, Optional.empty());
+            }
+            for (ConfiguracionAgenda c : repo.findByUsuarioIdIn(cargadas.keySet())) {
+                cargadas.put(c.getUsuarioId(), Optional.of(copiar(c)));
+            }
+            return cargadas;
+        });
+        Map<Long, ConfiguracionAgenda> resultado = new HashMap<>();
+        encontradas.forEach((id, c) -> c.ifPresent(conf -> resultado.put(id, conf)));
+        return resultado;
+    }
+
+    // Compara en una sola consulta las versiones de las copias presentes con las de la BD
+    private void descartarVencidas(Collection<Long> usuarioIds) {
+        Map<Long, ConfiguracionAgenda> presentes = new HashMap<>();
+        for (Long id : usuarioIds) {
+            Optional<ConfiguracionAgenda> enCache = cache.asMap().get(id);
+            if (enCache != null && enCache.isPresent()) {
+                presentes.put(id, enCache.get());
+            }
+        }
+        if (presentes.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> versiones = new HashMap<>();
+        for (VersionConfiguracion v : repo.findVersionesByUsuarioIdIn(presentes.keySet())) {
+            versiones.put(v.getUsuarioId(), v.getVersion());
+        }
+        presentes.forEach((id, c) -> {
+            if (!Objects.equals(c.getVersion(), versiones.get(id))) {
+                cache.asMap().remove(id, Optional.of(c));
+            }
+        });
+    }
+
+    /** Escritura inmediata tras crear o actualizar. */
+    public void guardar(ConfiguracionAgenda c) {
+        cache.put(c.getUsuarioId(), Optional.of(copiar(c)));
+    }
+
+    /** Eliminación inmediata tras borrar la configuración. */
+    public void evictar(Long usuarioId) {
+        cache.invalidate(usuarioId);
+    }
+
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("entradas", cache.estimatedSize());
+        datos.put("aciertos", stats.hitCount());
+        datos.put("fallos", stats.missCount());
+        datos.put("tasaAciertos", stats.hitRate());
+        datos.put("desalojos", stats.evictionCount());
+        return datos;
+    }
+
+    private ConfiguracionAgenda copiar(ConfiguracionAgenda c) {
+        ConfiguracionAgenda copia = new ConfiguracionAgenda();
+        copia.setId(c.getId());
+        copia.setUsuarioId(c.getUsuarioId());
+        copia.setHoraInicio(c.getHoraInicio());
+        copia.setMinutosDisponibles(c.getMinutosDisponibles());
+        copia.setNota(c.getNota());
+        copia.setVersion(c.getVersion());
+        return copia;
+    }
+}
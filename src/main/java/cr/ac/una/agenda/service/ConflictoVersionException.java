@@ -0,0 +1,16 @@
+package cr.ac.una.agenda.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * La tarea cambió desde que el cliente la leyó (su versión ya no coincide).
+ * Se responde 409 para que el cliente vuelva a leerla y decida.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConflictoVersionException extends RuntimeException {
+
+    public ConflictoVersionException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
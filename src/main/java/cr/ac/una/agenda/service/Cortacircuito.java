@@ -0,0 +1,120 @@
+package cr.ac.una.agenda.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Cortacircuito por conteo: evalúa las últimas "ventana" llamadas y se abre cuando la
+ * proporción de fallos supera el umbral. Abierto rechaza todo; pasado el tiempo de espera
+ * queda semiabierto y deja pasar hasta "sondas" llamadas de prueba: si todas salen bien
+ * se cierra, y con el primer fallo vuelve a abrirse.
+ * Cada llamada permitida debe cerrarse con registrarExito, registrarFallo o descartar.
+ */
+final class Cortacircuito {
+
+    enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final int minimoLlamadas;
+    private final double umbralFallos;
+    private final long abiertoNanos;
+    private final int sondas;
+    private final LongSupplier reloj;
+
+    private final boolean[] ventana;
+    private int siguiente;
+    private int llamadas;
+    private int fallos;
+
+    private Estado estado = Estado.CERRADO;
+    private long abiertoDesde;
+    private int sondasEnCurso;
+    private int sondasExitosas;
+
+    Cortacircuito(int ventana, int minimoLlamadas, double umbralFallos, long abiertoNanos, int sondas,
+                  LongSupplier reloj) {
+        this.ventana = new boolean[Math.max(ventana, 1)];
+        this.minimoLlamadas = Math.max(minimoLlamadas, 1);
+        this.umbralFallos = umbralFallos;
+        this.abiertoNanos = abiertoNanos;
+        this.sondas = Math.max(sondas, 1);
+        this.reloj = reloj;
+    }
+
+    /** Indica si la llamada puede hacerse; en semiabierto reserva una sonda. */
+    synchronized boolean permitir() {
+        if (estado == Estado.ABIERTO) {
+            if (reloj.getAsLong() - abiertoDesde < abiertoNanos) {
+                return false;
+            }
+            estado = Estado.SEMIABIERTO;
+            sondasEnCurso = 0;
+            sondasExitosas = 0;
+        }
+        if (estado == Estado.SEMIABIERTO) {
+            if (sondasEnCurso >= sondas) {
+                return false;
+            }
+            sondasEnCurso++;
+        }
+        return true;
+    }
+
+    synchronized void registrarExito() {
+        if (estado == Estado.SEMIABIERTO) {
+            sondasEnCurso = Math.max(sondasEnCurso - 1, 0);
+            if (++sondasExitosas >= sondas) {
+                cerrar();
+            }
+        } else if (estado == Estado.CERRADO) {
+            anotar(false);
+        }
+    }
+
+    synchronized void registrarFallo() {
+        if (estado == Estado.SEMIABIERTO) {
+            abrir();
+        } else if (estado == Estado.CERRADO) {
+            anotar(true);
+            if (llamadas >= minimoLlamadas && fallos >= umbralFallos * llamadas) {
+                abrir();
+            }
+        }
+    }
+
+    /** Libera la sonda de una llamada cancelada sin resultado. */
+    synchronized void descartar() {
+        if (estado == Estado.SEMIABIERTO) {
+            sondasEnCurso = Math.max(sondasEnCurso - 1, 0);
+        }
+    }
+
+    synchronized Estado estado() {
+        return estado;
+    }
+
+    private void anotar(boolean fallo) {
+        if (llamadas == ventana.length) {
+            if (ventana[siguiente]) {
+                fallos--;
+            }
+        } else {
+            llamadas++;
+        }
+        ventana[siguiente] = fallo;
+        if (fallo) {
+            fallos++;
+        }
+        siguiente = (siguiente + 1) % ventana.length;
+    }
+
+    private void abrir() {
+        estado = Estado.ABIERTO;
+        abiertoDesde = reloj.getAsLong();
+    }
+
+    private void cerrar() {
+        estado = Estado.CERRADO;
+        siguiente = 0;
+        llamadas = 0;
+        fallos = 0;
+    }
+}
@@ -0,0 +1,14 @@
+package cr.ac.una.agenda.service;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Un día de la agenda de un usuario; clave para agrupar tareas o cambios por día.
+ */
+@Value
+class DiaAgenda {
+    Long usuarioId;
+    LocalDate fecha;
+}
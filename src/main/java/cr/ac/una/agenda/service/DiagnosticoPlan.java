@@ -0,0 +1,83 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.DepDTO;
+import cr.ac.una.agenda.dto.DiagnosticoDTO;
+import cr.ac.una.agenda.dto.TaskDTO;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diagnóstico exacto de un plan que no cabe: el subconjunto de tareas a posponer con la
+ * menor pérdida de prioridad, con la misma mochila con dependencias que PlanificadorJava
+ * (posponer una tarea obliga a posponer las que dependen de ella).
+ * Corre en O(n * minutosDisponibles), sin llamar a ningún motor.
+ */
+final class DiagnosticoPlan {
+
+    private DiagnosticoPlan() {
+    }
+
+    /**
+     * @param tasks   tareas ya podadas (sin ciclos ni dependencias hacia tareas podadas)
+     * @param deps    dependencias entre esas tareas
+     * @param minutos minutos disponibles reales
+     */
+    static DiagnosticoDTO diagnosticar(List<TaskDTO> tasks, List<DepDTO> deps, int minutos) {
+        int n = tasks.size();
+        int requeridos = 0;
+        for (TaskDTO t : tasks) {
+            requeridos += Math.max(t.getDur(), 0);
+        }
+
+        DiagnosticoDTO diagnostico = new DiagnosticoDTO();
+        diagnostico.setMinutosDisponibles(minutos);
+        diagnostico.setMinutosRequeridos(requeridos);
+        diagnostico.setMinutosExcedidos(Math.max(requeridos - minutos, 0));
+        if (requeridos <= minutos) {
+            diagnostico.setMinutosSobrantes(minutos - requeridos);
+            return diagnostico;
+        }
+
+        Map<Long, Integer> indicePorId = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            indicePorId.put(tasks.get(i).getId(), i);
+        }
+        int[] padre = new int[n];
+        Arrays.fill(padre, -1);
+        if (deps != null) {
+            for (DepDTO dep : deps) {
+                Integer hija = indicePorId.get(dep.getTarea());
+                Integer madre = indicePorId.get(dep.getDependeDe());
+                if (hija != null && madre != null) {
+                    padre[hija] = madre;
+                }
+            }
+        }
+        int[] peso = new int[n];
+        long[] valor = new long[n];
+        for (int i = 0; i < n; i++) {
+            peso[i] = Math.max(tasks.get(i).getDur(), 0);
+            // Mismo criterio que PlanificadorJava: la prioridad domina y, a igual prioridad,
+            // se pospone la menor cantidad de tareas
+            valor[i] = (long) tasks.get(i).getPrioridad() * (n + 1) + 1;
+        }
+
+        boolean[] conservar = MochilaDependencias.resolver(peso, valor, padre, minutos);
+        int usados = 0;
+        int perdida = 0;
+        for (int i = 0; i < n; i++) {
+            if (conservar[i]) {
+                usados += peso[i];
+            } else {
+                diagnostico.getPosponer().add(tasks.get(i));
+                perdida += tasks.get(i).getPrioridad();
+            }
+        }
+        diagnostico.setPrioridadPerdida(perdida);
+        diagnostico.setMinutosSobrantes(minutos - usados);
+        return diagnostico;
+    }
+}
@@ -0,0 +1,495 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.Tarea;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Escritura diferida (write-behind) de los cambios de estado de tareas.
+ * <ul>
+ *   <li>Cada cambio se anota en un diario local (append + fsync) antes de confirmarse,
+ *       así sobrevive a una caída; al arrancar se recupera lo que quedó sin escribir.
+ *       Los escritores concurrentes comparten el fsync: uno fuerza el diario por todos
+ *       los que anotaron antes que él y el resto espera ese mismo fsync.</li>
+ *   <li>Los cambios repetidos sobre la misma tarea se combinan: solo se escribe el último.</li>
+ *   <li>Se vuelcan a la BD en un UPDATE por lotes (JDBC) cada "intervalo" o al
+ *       juntarse "lote" cambios; tras volcar, el diario se compacta.</li>
+ * </ul>
+ * Las lecturas del mismo usuario ven sus cambios pendientes (ver TareaService) y cualquier
+ * otra escritura o planificación del usuario vuelca antes sus pendientes.
+ */
+@Component
+public class EstadosDiferidos implements MeterBinder {
+
+    private static final String ACTUALIZAR = "update tareas set estado = ?, version = version + 1 where id = ?";
+
+    private final boolean activo;
+    private final Duration intervalo;
+    private final int lote;
+    private final Path diario;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaccion;
+
+    private final Map<Long, Pendiente> pendientes = new ConcurrentHashMap<>();
+    // Diario y mapa cambian juntos: lo confirmado siempre está en el diario
+    private final ReentrantLock candadoDiario = new ReentrantLock();
+    // Un solo volcado a la vez, para no escribir un valor viejo después de uno nuevo
+    private final ReentrantLock candadoVolcado = new ReentrantLock();
+    private final AtomicBoolean volcadoProgramado = new AtomicBoolean();
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong combinados = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+    // fsync compartido: "anotados" cuenta las escrituras al diario (bajo candadoDiario) y
+    // "durables" hasta cuál ya se forzó; a lo sumo un hilo fuerza a la vez
+    private final ReentrantLock candadoFsync = new ReentrantLock();
+    private final Condition fsyncTerminado = candadoFsync.newCondition();
+    private long anotados;
+    private long durables;
+    private boolean forzando;
+    private final ScheduledExecutorService hilo;
+    private FileChannel canal;
+
+    public EstadosDiferidos(JdbcTemplate jdbc, PlatformTransactionManager transacciones,
+                            @Value("${agenda.estados-diferidos.activo:false}") boolean activo,
+                            @Value("${agenda.estados-diferidos.intervalo:200ms}") Duration intervalo,
+                            @Value("${agenda.estados-diferidos.lote:500}") int lote,
+                            @Value("${agenda.estados-diferidos.diario:${user.home}/agenda/estados-diferidos.log}") String diario) {
+        this.activo = activo;
+        this.intervalo = intervalo;
+        this.lote = lote;
+        this.diario = Paths.get(diario);
+        this.jdbc = jdbc;
+        // Siempre en su propia transacción, aunque se llame desde una de solo lectura
+        this.transaccion = activo ? new TransactionTemplate(transacciones) : null;
+        if (activo) {
+            this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        this.hilo = activo ? Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "agenda-estados-diferidos");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+        if (activo) {
+            abrirDiario();
+        }
+    }
+
+    /** Sin escritura diferida (pruebas y benchmarks). */
+    static EstadosDiferidos desactivados() {
+        return new EstadosDiferidos(null, null, false, Duration.ZERO, 1, "");
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    /**
+     * Anota el cambio (durable al volver) y lo deja pendiente de escritura, junto con una copia
+     * de la tarea tal como queda (ver {@link #tarea(Long)}).
+     * Si falla el fsync se lanza la excepción, pero el cambio ya quedó pendiente.
+     */
+    public void registrar(Tarea tarea, Tarea.Estado nuevo) {
+        Tarea copia = copiar(tarea);
+        copia.setEstado(nuevo);
+        Pendiente pendiente = new Pendiente(tarea.getId(), tarea.getUsuarioId(), tarea.getFecha(), nuevo, copia);
+        long numero;
+        candadoDiario.lock();
+        try {
+            anotar(List.of(pendiente));
+            numero = ++anotados;
+            if (pendientes.put(pendiente.getId(), pendiente) != null) {
+                combinados.incrementAndGet();
+            }
+        } finally {
+            candadoDiario.unlock();
+        }
+        esperarFsync(numero);
+        if (pendientes.size() >= lote && volcadoProgramado.compareAndSet(false, true)) {
+            hilo.execute(this::volcarProgramado);
+        }
+    }
+
+    /** Estado pendiente de la tarea, o null si no tiene cambios sin escribir. */
+    public Tarea.Estado pendiente(Long id) {
+        Pendiente p = activo ? pendientes.get(id) : null;
+        return p != null ? p.getEstado() : null;
+    }
+
+    /**
+     * Copia de la tarea con su cambio pendiente, o null si no tiene o si el cambio se recuperó
+     * del diario (solo guarda el estado). Sirve de lectura sin ir a la BD: cualquier otra
+     * escritura de la tarea vuelca antes su cambio pendiente.
+     */
+    public Tarea tarea(Long id) {
+        Pendiente p = activo ? pendientes.get(id) : null;
+        return p != null && p.getTarea() != null ? copiar(p.getTarea()) : null;
+    }
+
+    /** Usuario de la tarea si tiene un cambio pendiente, o null. */
+    public Long usuarioPendiente(Long id) {
+        Pendiente p = activo ? pendientes.get(id) : null;
+        return p != null ? p.getUsuarioId() : null;
+    }
+
+    /**
+     * Huella de los cambios pendientes del día (usuarioId, fecha), o null si no tiene.
+     * Forma parte del ETag del día mientras esos cambios no estén en la BD.
+     */
+    public String huella(Long usuarioId, LocalDate fecha) {
+        if (!activo || pendientes.isEmpty()) {
+            return null;
+        }
+        List<String> lineas = new ArrayList<>();
+        for (Pendiente p : pendientes.values()) {
+            if (p.getUsuarioId().equals(usuarioId) && p.getFecha().equals(fecha)) {
+                lineas.add(p.linea());
+            }
+        }
+        if (lineas.isEmpty()) {
+            return null;
+        }
+        Collections.sort(lineas);
+        return VersionesAgenda.resumen(String.join("\n", lineas));
+    }
+
+    /** Vuelca ya los cambios pendientes del usuario (antes de otra escritura o de planificar). */
+    public void volcar(Long usuarioId) {
+        if (activo && pendientes.values().stream().anyMatch(p -> p.getUsuarioId().equals(usuarioId))) {
+            volcarSi(p -> p.getUsuarioId().equals(usuarioId));
+        }
+    }
+
+    /** Vuelca ya todos los cambios pendientes (consultas que filtran por estado). */
+    public void volcarTodo() {
+        if (activo && !pendientes.isEmpty()) {
+            volcarSi(p -> true);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (activo) {
+            long ms = intervalo.toMillis();
+            // Lo recuperado del diario se escribe en el primer volcado
+            hilo.scheduleWithFixedDelay(this::volcarProgramado, 0, ms, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void detener() throws IOException, InterruptedException {
+        if (!activo) {
+            return;
+        }
+        hilo.shutdown();
+        hilo.awaitTermination(5, TimeUnit.SECONDS);
+        try {
+            volcarTodo();
+        } finally {
+            canal.close();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("agenda.estados.diferidos.pendientes", pendientes, Map::size)
+                .description("Cambios de estado confirmados y aún sin escribir en la BD")
+                .register(registry);
+        FunctionCounter.builder("agenda.estados.diferidos.escritos", escritos, AtomicLong::get)
+                .description("Cambios de estado escritos por lotes")
+                .register(registry);
+        FunctionCounter.builder("agenda.estados.diferidos.combinados", combinados, AtomicLong::get)
+                .description("Cambios que reemplazaron a otro pendiente de la misma tarea")
+                .register(registry);
+        FunctionCounter.builder("agenda.estados.diferidos.fallos", fallos, AtomicLong::get)
+                .description("Volcados fallidos (se reintentan en el siguiente intervalo)")
+                .register(registry);
+        FunctionCounter.builder("agenda.estados.diferidos.fsyncs", fsyncs, AtomicLong::get)
+                .description("fsync del diario (cada uno cubre a todos los cambios anotados antes)")
+                .register(registry);
+    }
+
+    private void volcarProgramado() {
+        volcadoProgramado.set(false);
+        try {
+            volcarTodo();
+        } catch (RuntimeException e) {
+            // Los cambios siguen pendientes y en el diario
+            fallos.incrementAndGet();
+        }
+    }
+
+    private void volcarSi(Predicate<Pendiente> filtro) {
+        candadoVolcado.lock();
+        try {
+            List<Pendiente> cambios = new ArrayList<>();
+            for (Pendiente p : pendientes.values()) {
+                if (filtro.test(p)) {
+                    cambios.add(p);
+                }
+            }
+            if (cambios.isEmpty()) {
+                return;
+            }
+            // Las versiones de los días (ETag) cambian en la misma transacción que los estados
+            Set<DiaAgenda> dias = new LinkedHashSet<>();
+            for (Pendiente p : cambios) {
+                dias.add(new DiaAgenda(p.getUsuarioId(), p.getFecha()));
+            }
+            transaccion.executeWithoutResult(estado -> {
+                jdbc.batchUpdate(ACTUALIZAR, cambios, lote, (ps, p) -> {
+                    ps.setString(1, p.getEstado().name());
+                    ps.setLong(2, p.getId());
+                });
+                jdbc.batchUpdate(VersionesAgenda.INCREMENTAR, dias.stream()
+                        .map(d -> VersionesAgenda.argumentos(d.getUsuarioId(), d.getFecha()))
+                        .collect(Collectors.toList()));
+            });
+            // Solo se quitan los que no cambiaron mientras se escribían
+            for (Pendiente p : cambios) {
+                pendientes.remove(p.getId(), p);
+            }
+            escritos.addAndGet(cambios.size());
+            compactar();
+        } finally {
+            candadoVolcado.unlock();
+        }
+    }
+
+    /* ===== Diario ===== */
+
+    private void abrirDiario() {
+        try {
+            Files.createDirectories(diario.toAbsolutePath().getParent());
+            if (Files.exists(diario)) {
+                recuperar();
+                // Sin la posible línea incompleta, para que lo siguiente no quede pegado a ella
+                reescribir();
+            }
+            canal = FileChannel.open(diario, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario de estados " + diario, e);
+        }
+    }
+
+    // Una línea por cambio; una línea incompleta al final (caída a mitad de escritura) se ignora
+    private void recuperar() throws IOException {
+        try (BufferedReader lector = Files.newBufferedReader(diario, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                Pendiente p = Pendiente.leer(linea);
+                if (p == null) {
+                    break;
+                }
+                pendientes.put(p.getId(), p);
+            }
+        }
+    }
+
+    private void anotar(List<Pendiente> cambios) {
+        StringBuilder texto = new StringBuilder();
+        for (Pendiente p : cambios) {
+            texto.append(p.linea()).append('\n');
+        }
+        try {
+            ByteBuffer datos = ByteBuffer.wrap(texto.toString().getBytes(StandardCharsets.UTF_8));
+            while (datos.hasRemaining()) {
+                canal.write(datos);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el diario de estados", e);
+        }
+    }
+
+    /*
+     * Vuelve cuando la escritura número "numero" ya está forzada a disco. Si nadie está
+     * forzando, este hilo fuerza por todas las anotadas hasta ahora; si no, espera ese fsync
+     * y, si no lo cubrió, el siguiente.
+     */
+    private void esperarFsync(long numero) {
+        candadoFsync.lock();
+        try {
+            while (durables < numero) {
+                if (forzando) {
+                    fsyncTerminado.awaitUninterruptibly();
+                    continue;
+                }
+                forzando = true;
+                long hasta = 0;
+                candadoFsync.unlock();
+                try {
+                    hasta = forzar();
+                } finally {
+                    candadoFsync.lock();
+                    forzando = false;
+                    durables = Math.max(durables, hasta);
+                    fsyncTerminado.signalAll();
+                }
+            }
+        } finally {
+            candadoFsync.unlock();
+        }
+    }
+
+    // Fuerza el diario y devuelve hasta qué escritura quedó en disco
+    private long forzar() {
+        FileChannel cerrado = null;
+        while (true) {
+            FileChannel actual;
+            long hasta;
+            candadoDiario.lock();
+            try {
+                actual = canal;
+                hasta = anotados;
+            } finally {
+                candadoDiario.unlock();
+            }
+            if (actual == cerrado) {
+                // Sigue cerrado: compactar() no pudo reabrirlo
+                throw new UncheckedIOException("No se pudo escribir el diario de estados",
+                        new ClosedChannelException());
+            }
+            try {
+                actual.force(false);
+                fsyncs.incrementAndGet();
+                return hasta;
+            } catch (ClosedChannelException e) {
+                // compactar() reemplazó el diario (forzando lo pendiente): se fuerza el nuevo
+                cerrado = actual;
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escribir el diario de estados", e);
+            }
+        }
+    }
+
+    /*
+     * Reescribe el diario con lo que sigue pendiente (vacío si ya se escribió todo).
+     * Se hace tras cada volcado: una línea ya escrita que quedara en el diario se
+     * repetiría al recuperar y pisaría un estado más nuevo guardado por otra vía.
+     */
+    private void compactar() {
+        candadoDiario.lock();
+        try {
+            if (pendientes.isEmpty()) {
+                canal.truncate(0);
+                canal.force(true);
+            } else {
+                canal.close();
+                reescribir();
+                canal = FileChannel.open(diario, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo compactar el diario de estados", e);
+        } finally {
+            candadoDiario.unlock();
+        }
+    }
+
+    // Reemplaza el diario (de forma atómica) por los cambios pendientes actuales
+    private void reescribir() throws IOException {
+        Path temporal = diario.resolveSibling(diario.getFileName() + ".tmp");
+        StringBuilder texto = new StringBuilder();
+        for (Pendiente p : pendientes.values()) {
+            texto.append(p.linea()).append('\n');
+        }
+        try (FileChannel nuevo = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer datos = ByteBuffer.wrap(texto.toString().getBytes(StandardCharsets.UTF_8));
+            while (datos.hasRemaining()) {
+                nuevo.write(datos);
+            }
+            nuevo.force(true);
+        }
+        Files.move(temporal, diario, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Tarea copiar(Tarea tarea) {
+        Tarea copia = new Tarea();
+        copia.setId(tarea.getId());
+        copia.setUsuarioId(tarea.getUsuarioId());
+        copia.setNombre(tarea.getNombre());
+        copia.setFecha(tarea.getFecha());
+        copia.setDuracionMinutos(tarea.getDuracionMinutos());
+        copia.setHoraDeseada(tarea.getHoraDeseada());
+        copia.setPrioridad(tarea.getPrioridad());
+        copia.setEstado(tarea.getEstado());
+        copia.setDependeDeId(tarea.getDependeDeId());
+        copia.setClimaPermitido(tarea.getClimaPermitido());
+        copia.setNota(tarea.getNota());
+        copia.setVersion(tarea.getVersion());
+        return copia;
+    }
+
+    /** Último estado confirmado de una tarea, con su día para invalidar cachés. */
+    @lombok.Value
+    static class Pendiente {
+        Long id;
+        Long usuarioId;
+        LocalDate fecha;
+        Tarea.Estado estado;
+        /** La tarea con el cambio aplicado; no va al diario (null al recuperar). */
+        @lombok.EqualsAndHashCode.Exclude
+        @lombok.ToString.Exclude
+        Tarea tarea;
+
+        String linea() {
+            return id + ";" + usuarioId + ";" + fecha + ";" + estado.name();
+        }
+
+        static Pendiente leer(String linea) {
+            String[] partes = linea.split(";");
+            if (partes.length != 4) {
+                return null;
+            }
+            try {
+                return new Pendiente(Long.valueOf(partes[0]), Long.valueOf(partes[1]),
+                        LocalDate.parse(partes[2]), Tarea.Estado.valueOf(partes[3]), null);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
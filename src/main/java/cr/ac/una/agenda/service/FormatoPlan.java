@@ -0,0 +1,73 @@
+package cr.ac.una.agenda.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Codificación del intercambio con PrologAPI: JSON plano o Smile (JSON binario de Jackson),
+ * opcionalmente comprimido con gzip.
+ * Smile guarda cada nombre de campo una sola vez y, con valores compartidos, también los
+ * textos repetidos (nombres de tarea en tareasPlan y noProgramadas, climas).
+ */
+final class FormatoPlan {
+
+    static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    static final String GZIP = "gzip";
+
+    private final ObjectMapper json;
+    private final ObjectMapper smile;
+
+    /** Usa la configuración del mapper JSON (módulos, fechas) también para Smile. */
+    FormatoPlan(ObjectMapper json) {
+        this.json = json;
+        this.smile = json.copyWith(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build());
+    }
+
+    ObjectMapper smile() {
+        return smile;
+    }
+
+    MediaType tipo(boolean binario) {
+        return binario ? SMILE : MediaType.APPLICATION_JSON;
+    }
+
+    byte[] codificar(Object valor, boolean binario) {
+        try {
+            return (binario ? smile : json).writeValueAsBytes(valor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    <T> T decodificar(byte[] datos, Class<T> tipo, boolean binario, boolean comprimido) {
+        try (InputStream entrada = comprimido
+                ? new GZIPInputStream(new ByteArrayInputStream(datos))
+                : new ByteArrayInputStream(datos)) {
+            return (binario ? smile : json).readValue(entrada, tipo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] comprimir(byte[] datos) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, datos.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+package cr.ac.una.agenda.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Graba pares reales (PlanRequest, PlanResponse de PrologAPI) con el formato de los casos de
+ * src/test/resources/planes ({"request": ..., "respuesta": ...}), un archivo por llamada.
+ * Sirven para verificar la paridad del motor java: PlanificadorJavaTest -Dplanes.grabados=directorio.
+ * Desactivado si agenda.planificador.grabacion.directorio está vacío; se detiene al llegar al máximo.
+ */
+@Component
+public class GrabadorPlanes {
+
+    private final ObjectWriter escritor;
+    private final Path directorio;
+    private final int maximo;
+    private final long arranque = System.currentTimeMillis();
+    private final AtomicInteger grabados = new AtomicInteger();
+
+    public GrabadorPlanes(ObjectMapper mapper,
+                          @Value("${agenda.planificador.grabacion.directorio:}") String directorio,
+                          @Value("${agenda.planificador.grabacion.maximo:1000}") int maximo) {
+        this.escritor = mapper.writerWithDefaultPrettyPrinter();
+        this.directorio = directorio == null || directorio.isBlank() ? null : Paths.get(directorio);
+        this.maximo = maximo;
+    }
+
+    public boolean isActivo() {
+        return directorio != null && grabados.get() < maximo;
+    }
+
+    /**
+     * Escribe el par en un archivo nuevo (E/S bloqueante: llamar fuera del event loop).
+     * Un fallo al grabar no afecta la planificación; el par simplemente se pierde.
+     */
+    public void grabar(PlanRequest request, PlanResponse respuesta) {
+        int numero = grabados.incrementAndGet();
+        if (directorio == null || numero > maximo) {
+            return;
+        }
+        Map<String, Object> caso = new LinkedHashMap<>();
+        caso.put("request", request);
+        caso.put("respuesta", respuesta);
+        try {
+            Files.createDirectories(directorio);
+            Files.write(directorio.resolve(String.format("prolog-%d-%05d.json", arranque, numero)),
+                    escritor.writeValueAsBytes(caso));
+        } catch (IOException e) {
+            // Grabar es una ayuda de verificación: no se reintenta ni se propaga
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package cr.ac.una.agenda.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.AristaTarea;
+import cr.ac.una.agenda.repository.TareaRepository;
+import cr.ac.una.agenda.repository.VersionGrafoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Índice en memoria del grafo de dependencias (dependeDeId) de cada usuario.
+ * Se carga de forma perezosa la primera vez que se usa un usuario y se mantiene
+ * al día en cada escritura de esta instancia. Como mucho se guardan "maximo" usuarios y el
+ * grafo de un usuario que no se usa en "ttl" se desaloja (de todas formas se recargaría).
+ * Las escrituras hechas en otra instancia no llegan aquí, así que:
+ * <ul>
+ *   <li>cada cambio de aristas (alta con dependencia, cambio de dependeDeId o de usuario,
+ *       eliminación) sube, después de confirmarse, la versión del grafo del usuario en la
+ *       tabla version_grafo; los cambios de estado no la tocan.</li>
+ *   <li>detectar ciclos compara la versión del grafo cargado con esa fila (una lectura por
+ *       clave primaria) a lo sumo cada "verificacion", y también en cuanto la cadena llega a
+ *       una tarea que el grafo no conoce; recarga solo si la versión cambió. Tras una
+ *       escritura propia, si la versión quedó justo una por encima, nadie más escribió y el
+ *       grafo sigue vigente sin recargar.</li>
+ *   <li>ancestros y descendientes usan el grafo mientras no pase "ttl" desde su carga; el
+ *       ttl también acota cuánto dura un grafo viejo si una instancia cae antes de subir la versión.</li>
+ * </ul>
+ * Cada usuario tiene su propio candado de lectura/escritura, aparte del grafo: desalojar el
+ * grafo de un usuario no cambia el candado que otro hilo tiene tomado.
+ */
+@Component
+public class GrafoDependencias {
+
+    private final TareaRepository repo;
+    private final VersionGrafoRepository versiones;
+    private final long ttlNanos;
+    private final long verificacionNanos;
+    private final Cache<Long, GrafoUsuario> grafos;
+    // Con referencias débiles: el candado de un usuario dura mientras lo tenga un hilo o su grafo
+    private final Cache<Long, ReentrantReadWriteLock> candados = Caffeine.newBuilder().weakValues().build();
+
+    public GrafoDependencias(TareaRepository repo, VersionGrafoRepository versiones,
+                             @Value("${agenda.grafo.ttl:1m}") Duration ttl,
+                             @Value("${agenda.grafo.verificacion:1s}") Duration verificacion,
+                             @Value("${agenda.grafo.maximo:10000}") long maximo) {
+        this.repo = repo;
+        this.versiones = versiones;
+        this.ttlNanos = ttl.toNanos();
+        this.verificacionNanos = verificacion.toNanos();
+        this.grafos = Caffeine.newBuilder()
+                .maximumSize(maximo)
+                .expireAfterAccess(ttl)
+                .build();
+    }
+
+    /**
+     * Ejecuta la acción con el candado de escritura del usuario, para que validar
+     * y guardar una dependencia sea atómico frente a otras peticiones del mismo usuario.
+     */
+    public <T> T conBloqueo(Long usuarioId, Supplier<T> accion) {
+        ReentrantReadWriteLock candado = candado(usuarioId);
+        candado.writeLock().lock();
+        try {
+            return accion.get();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Como conBloqueo(usuarioId, accion), pero con los candados de los dos usuarios (la tarea
+     * cambia de dueño). Se toman siempre en orden ascendente de id: dos traslados cruzados
+     * (A a B y B a A) no pueden quedar esperándose.
+     */
+    public <T> T conBloqueo(Long usuarioId, Long otroUsuarioId, Supplier<T> accion) {
+        if (otroUsuarioId == null || otroUsuarioId.equals(usuarioId)) {
+            return conBloqueo(usuarioId, accion);
+        }
+        Long primero = usuarioId < otroUsuarioId ? usuarioId : otroUsuarioId;
+        Long segundo = usuarioId < otroUsuarioId ? otroUsuarioId : usuarioId;
+        return conBloqueo(primero, () -> conBloqueo(segundo, accion));
+    }
+
+    /**
+     * Indica si hacer que la tarea "id" dependa de "dependeDeId" formaría un ciclo.
+     * Si la cadena llega a una tarea que el grafo no conoce, el grafo se comprueba contra la
+     * versión de la BD (si no se acababa de hacer) y se recorre de nuevo; si aun así la cadena
+     * sale del grafo del usuario, se continúa consultando la base de datos.
+     */
+    public boolean creariaCiclo(Long usuarioId, Long id, Long dependeDeId) {
+        if (id == null || dependeDeId == null) {
+            return false;
+        }
+        long inicio = System.nanoTime();
+        GrafoUsuario g = vigente(usuarioId, false);
+        Boolean ciclo = recorrer(g, id, dependeDeId, false);
+        if (ciclo == null) {
+            if (g.verificadoEn - inicio < 0) {
+                g = vigente(usuarioId, true);
+            }
+            ciclo = recorrer(g, id, dependeDeId, true);
+        }
+        return ciclo;
+    }
+
+    /** Tareas de las que depende (directa o indirectamente) la tarea, de la más cercana a la raíz. */
+    public List<Long> ancestros(Long usuarioId, Long id) {
+        GrafoUsuario g = grafo(usuarioId);
+        g.candado.readLock().lock();
+        try {
+            Set<Long> ancestros = new LinkedHashSet<>();
+            Long actual = g.padre.get(id);
+            while (actual != null && !actual.equals(id) && ancestros.add(actual)) {
+                actual = g.padre.get(actual);
+            }
+            return new ArrayList<>(ancestros);
+        } finally {
+            g.candado.readLock().unlock();
+        }
+    }
+
+    /** Tareas que dependen (directa o indirectamente) de la tarea, en orden de anchura. */
+    public List<Long> descendientes(Long usuarioId, Long id) {
+        GrafoUsuario g = grafo(usuarioId);
+        g.candado.readLock().lock();
+        try {
+            Set<Long> descendientes = new LinkedHashSet<>();
+            Deque<Long> pendientes = new ArrayDeque<>(g.hijos.getOrDefault(id, Set.of()));
+            while (!pendientes.isEmpty()) {
+                Long actual = pendientes.poll();
+                if (!actual.equals(id) && descendientes.add(actual)) {
+                    pendientes.addAll(g.hijos.getOrDefault(actual, Set.of()));
+                }
+            }
+            return new ArrayList<>(descendientes);
+        } finally {
+            g.candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra una tarea recién guardada (usuarioAnterior y dependenciaAnterior null si es nueva).
+     * Si antes pertenecía a otro usuario se quita de su grafo. La versión del grafo solo sube
+     * si cambió la arista o el usuario.
+     * Se llama con el candado del usuario nuevo tomado; el del anterior solo se usa si este hilo
+     * ya lo tiene (conBloqueo con los dos usuarios); si no, ese grafo se descarta sin esperarlo.
+     */
+    public void registrar(Long usuarioAnterior, Long dependenciaAnterior, Tarea t) {
+        boolean otroUsuario = usuarioAnterior != null && !usuarioAnterior.equals(t.getUsuarioId());
+        if (otroUsuario) {
+            GrafoUsuario anterior = grafos.getIfPresent(usuarioAnterior);
+            if (anterior == null || anterior.candado.isWriteLockedByCurrentThread()) {
+                quitar(usuarioAnterior, List.of(t.getId()));
+            } else {
+                // Tomarlo aquí invertiría el orden de los candados: se recarga en el próximo uso
+                anterior.cargado = false;
+                versiones.incrementar(usuarioAnterior);
+            }
+        }
+        GrafoUsuario g = grafo(t.getUsuarioId());
+        g.candado.writeLock().lock();
+        try {
+            g.poner(t.getId(), t.getDependeDeId());
+            if (otroUsuario || !Objects.equals(dependenciaAnterior, t.getDependeDeId())) {
+                anotarCambio(g, t.getUsuarioId());
+            }
+        } finally {
+            g.candado.writeLock().unlock();
+        }
+    }
+
+    /** Registra tareas nuevas del usuario (importación), con una sola subida de versión. */
+    public void registrarNuevas(Long usuarioId, Collection<Tarea> tareas) {
+        GrafoUsuario g = grafo(usuarioId);
+        g.candado.writeLock().lock();
+        try {
+            boolean conAristas = false;
+            for (Tarea t : tareas) {
+                g.poner(t.getId(), t.getDependeDeId());
+                conAristas |= t.getDependeDeId() != null;
+            }
+            if (conAristas) {
+                anotarCambio(g, usuarioId);
+            }
+        } finally {
+            g.candado.writeLock().unlock();
+        }
+    }
+
+    /** Quita tareas eliminadas del grafo de su usuario y sube su versión (aunque no esté cargado aquí). */
+    public void quitar(Long usuarioId, Collection<Long> ids) {
+        GrafoUsuario g = grafos.getIfPresent(usuarioId);
+        if (g == null) {
+            versiones.incrementar(usuarioId);
+            return;
+        }
+        g.candado.writeLock().lock();
+        try {
+            ids.forEach(g::quitar);
+            anotarCambio(g, usuarioId);
+        } finally {
+            g.candado.writeLock().unlock();
+        }
+    }
+
+    /** Quita del grafo las tareas eliminadas, solo si la eliminación se confirmó. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiar(CambioAgendaEvent evento) {
+        if (evento.getTipo() == CambioAgendaEvent.Tipo.ELIMINADA) {
+            quitar(evento.getUsuarioId(), evento.getIds());
+        }
+    }
+
+    /** Vuelve a cargar desde la base de datos el grafo del usuario. */
+    public void reconstruir(Long usuarioId) {
+        GrafoUsuario g = entrada(usuarioId);
+        g.candado.writeLock().lock();
+        try {
+            cargar(g, usuarioId);
+        } finally {
+            g.candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compara el grafo en memoria con la base de datos y devuelve las diferencias encontradas.
+     * Si hay diferencias, el grafo se reconstruye.
+     */
+    public List<String> verificar(Long usuarioId) {
+        GrafoUsuario g = grafo(usuarioId);
+        g.candado.writeLock().lock();
+        try {
+            long inicio = System.nanoTime();
+            Long version = version(usuarioId);
+            Map<Long, Long> enBaseDeDatos = new HashMap<>();
+            for (AristaTarea a : repo.findAristasByUsuarioId(usuarioId)) {
+                enBaseDeDatos.put(a.getId(), a.getDependeDeId());
+            }
+            List<String> diferencias = new ArrayList<>();
+            for (Map.Entry<Long, Long> e : enBaseDeDatos.entrySet()) {
+                if (!g.padre.containsKey(e.getKey())) {
+                    diferencias.add("Falta la tarea " + e.getKey());
+                } else if (!Objects.equals(g.padre.get(e.getKey()), e.getValue())) {
+                    diferencias.add("La tarea " + e.getKey() + " depende de " + e.getValue()
+                            + " pero el índice dice " + g.padre.get(e.getKey()));
+                }
+            }
+            for (Long id : g.padre.keySet()) {
+                if (!enBaseDeDatos.containsKey(id)) {
+                    diferencias.add("La tarea " + id + " ya no existe");
+                }
+            }
+            if (!diferencias.isEmpty()) {
+                g.cargarDesde(enBaseDeDatos);
+            }
+            g.version = version;
+            g.verificadoEn = inicio;
+            return diferencias;
+        } finally {
+            g.candado.writeLock().unlock();
+        }
+    }
+
+    /** Grafo del usuario, cargándolo la primera vez o si pasó el ttl desde la última carga. */
+    private GrafoUsuario grafo(Long usuarioId) {
+        GrafoUsuario g = entrada(usuarioId);
+        if (!g.cargado || vencido(g)) {
+            g.candado.writeLock().lock();
+            try {
+                if (!g.cargado || vencido(g)) {
+                    cargar(g, usuarioId);
+                }
+            } finally {
+                g.candado.writeLock().unlock();
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Grafo del usuario recargado si su versión ya no es la de la BD (o pasó el ttl). La versión
+     * solo se lee si se pide ("forzar"), si la del grafo no se conoce o si la última comprobación
+     * tiene más de "verificacion".
+     */
+    private GrafoUsuario vigente(Long usuarioId, boolean forzar) {
+        GrafoUsuario g = entrada(usuarioId);
+        if (!forzar && g.cargado && !vencido(g) && g.version != null
+                && System.nanoTime() - g.verificadoEn <= verificacionNanos) {
+            return g;
+        }
+        long inicio = System.nanoTime();
+        Long version = version(usuarioId);
+        if (!g.cargado || vencido(g) || !version.equals(g.version)) {
+            g.candado.writeLock().lock();
+            try {
+                if (!g.cargado || vencido(g) || !version.equals(g.version)) {
+                    g.cargar(version, repo.findAristasByUsuarioId(usuarioId));
+                }
+            } finally {
+                g.candado.writeLock().unlock();
+            }
+        }
+        g.verificadoEn = inicio;
+        return g;
+    }
+
+    /**
+     * Sube por la cadena desde "dependeDeId": true si vuelve a "id", false si termina, y null si
+     * llega a una tarea que el grafo no conoce (salvo con "conBaseDeDatos", que la sigue en la BD).
+     */
+    private Boolean recorrer(GrafoUsuario g, Long id, Long dependeDeId, boolean conBaseDeDatos) {
+        g.candado.readLock().lock();
+        try {
+            Set<Long> visitados = new HashSet<>();
+            Long actual = dependeDeId;
+            while (actual != null && visitados.add(actual)) {
+                if (actual.equals(id)) {
+                    return true;
+                }
+                if (g.padre.containsKey(actual)) {
+                    actual = g.padre.get(actual);
+                } else if (conBaseDeDatos) {
+                    actual = padreEnBaseDeDatos(actual);
+                } else {
+                    return null;
+                }
+            }
+            return false;
+        } finally {
+            g.candado.readLock().unlock();
+        }
+    }
+
+    // La versión se lee antes que las aristas y se sube después de confirmar la escritura:
+    // si alguien escribe entre ambas lecturas, la siguiente validación ve otra versión y recarga
+    private void cargar(GrafoUsuario g, Long usuarioId) {
+        long inicio = System.nanoTime();
+        Long version = version(usuarioId);
+        g.cargar(version, repo.findAristasByUsuarioId(usuarioId));
+        g.verificadoEn = inicio;
+    }
+
+    // Con el candado de escritura tomado y el cambio ya aplicado en memoria: si la versión
+    // queda justo una por encima de la del grafo, no hubo escrituras ajenas en medio
+    private void anotarCambio(GrafoUsuario g, Long usuarioId) {
+        Long anterior = g.version;
+        versiones.incrementar(usuarioId);
+        long inicio = System.nanoTime();
+        Long actual = version(usuarioId);
+        g.version = anterior != null && actual == anterior + 1 ? actual : null;
+        g.verificadoEn = inicio;
+    }
+
+    private GrafoUsuario entrada(Long usuarioId) {
+        return grafos.get(usuarioId, u -> new GrafoUsuario(candado(u)));
+    }
+
+    private ReentrantReadWriteLock candado(Long usuarioId) {
+        return candados.get(usuarioId, u -> new ReentrantReadWriteLock());
+    }
+
+    private Long version(Long usuarioId) {
+        Long version = versiones.findVersionByUsuarioId(usuarioId);
+        return version != null ? version : 0L;
+    }
+
+    private boolean vencido(GrafoUsuario g) {
+        return System.nanoTime() - g.cargadoEn > ttlNanos;
+    }
+
+    private Long padreEnBaseDeDatos(Long id) {
+        return repo.findById(id).map(Tarea::getDependeDeId).orElse(null);
+    }
+
+    /**
+     * Grafo de un usuario: padre de cada tarea e hijos de cada tarea, con la versión de la BD
+     * a la que corresponde (null si no se sabe), el momento de la carga y el de la última vez
+     * que esa versión se comparó con la BD.
+     */
+    private static class GrafoUsuario {
+        private final ReentrantReadWriteLock candado;
+        private final Map<Long, Long> padre = new HashMap<>();
+        private final Map<Long, Set<Long>> hijos = new HashMap<>();
+        private volatile boolean cargado;
+        private volatile Long version;
+        private volatile long cargadoEn;
+        private volatile long verificadoEn;
+
+        private GrafoUsuario(ReentrantReadWriteLock candado) {
+            this.candado = candado;
+        }
+
+        private void cargar(Long version, List<AristaTarea> aristas) {
+            Map<Long, Long> mapa = new HashMap<>();
+            for (AristaTarea a : aristas) {
+                mapa.put(a.getId(), a.getDependeDeId());
+            }
+            cargarDesde(mapa);
+            this.version = version;
+        }
+
+        private void cargarDesde(Map<Long, Long> aristas) {
+            padre.clear();
+            hijos.clear();
+            aristas.forEach(this::poner);
+            cargadoEn = System.nanoTime();
+            cargado = true;
+        }
+
+        private void poner(Long id, Long dependeDeId) {
+            Long anterior = padre.get(id);
+            if (anterior != null) {
+                Set<Long> h = hijos.get(anterior);
+                if (h != null) {
+                    h.remove(id);
+                }
+            }
+            padre.put(id, dependeDeId);
+            if (dependeDeId != null) {
+                hijos.computeIfAbsent(dependeDeId, k -> new HashSet<>()).add(id);
+            }
+        }
+
+        private void quitar(Long id) {
+            Long anterior = padre.remove(id);
+            if (anterior != null) {
+                Set<Long> h = hijos.get(anterior);
+                if (h != null) {
+                    h.remove(id);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.ImportacionFila;
+import cr.ac.una.agenda.dto.ImportacionResultado;
+import cr.ac.una.agenda.dto.TareaImportada;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.DiaTarea;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importación masiva de tareas.
+ * <ul>
+ *   <li>Valida todo el lote en memoria: campos, referencias entre filas (ref/dependeDeRef),
+ *       dependencias hacia tareas existentes (una sola consulta) y ciclos dentro del lote.</li>
+ *   <li>Las filas con error se reportan sin detener las demás; las que dependen de una fila
+ *       fallida también se reportan.</li>
+ *   <li>Inserta con JDBC por lotes, en una transacción, por niveles de dependencia: cada nivel
+ *       usa los ids generados del anterior (la tabla usa IDENTITY, así que Hibernate no
+ *       podría agrupar los INSERT).</li>
+ * </ul>
+ */
+@Service
+public class ImportacionTareas {
+
+    private static final String INSERTAR = "insert into tareas (usuario_id, nombre, fecha, duracion_minutos, "
+            + "hora_deseada, prioridad, estado, depende_de_id, clima_permitido, nota, version) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private final TareaService tareaService;
+    private final TareaRepository repo;
+    private final GrafoDependencias grafo;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaccion;
+    private final ApplicationEventPublisher eventos;
+    private final int maximo;
+    private final int lote;
+
+    public ImportacionTareas(TareaService tareaService, TareaRepository repo, GrafoDependencias grafo,
+                             JdbcTemplate jdbc, PlatformTransactionManager transacciones,
+                             ApplicationEventPublisher eventos,
+                             @Value("${agenda.importacion.maximo:10000}") int maximo,
+                             @Value("${agenda.importacion.lote:500}") int lote) {
+        this.tareaService = tareaService;
+        this.repo = repo;
+        this.grafo = grafo;
+        this.jdbc = jdbc;
+        this.transaccion = new TransactionTemplate(transacciones);
+        this.eventos = eventos;
+        this.maximo = maximo;
+        this.lote = lote;
+    }
+
+    public ImportacionResultado importar(List<TareaImportada> filas) {
+        if (filas == null || filas.isEmpty()) {
+            throw new IllegalArgumentException("No hay filas para importar");
+        }
+        if (filas.size() > maximo) {
+            throw new IllegalArgumentException("Demasiadas filas (max " + maximo + ")");
+        }
+        int n = filas.size();
+        Tarea[] tareas = new Tarea[n];
+        String[] errores = new String[n];
+        Integer[] padre = new Integer[n];
+
+        validarFilas(filas, tareas, errores);
+        resolverReferencias(filas, tareas, errores, padre);
+        validarExistentes(tareas, errores);
+        List<List<Integer>> niveles = ordenarPorNiveles(padre, errores);
+
+        Long[] ids = new Long[n];
+        if (!niveles.isEmpty()) {
+            transaccion.executeWithoutResult(estado -> {
+                for (List<Integer> nivel : niveles) {
+                    for (int i : nivel) {
+                        if (padre[i] != null) {
+                            tareas[i].setDependeDeId(ids[padre[i]]);
+                        }
+                    }
+                    insertar(nivel, tareas, ids);
+                }
+            });
+            registrar(niveles, tareas, ids);
+        }
+        return resultado(filas, ids, errores);
+    }
+
+    /* ===== Validación ===== */
+
+    // Campos de cada fila y unicidad de "ref"
+    private void validarFilas(List<TareaImportada> filas, Tarea[] tareas, String[] errores) {
+        Set<String> refs = new HashSet<>();
+        for (int i = 0; i < filas.size(); i++) {
+            TareaImportada f = filas.get(i);
+            if (f == null) {
+                errores[i] = "Fila vacía";
+                continue;
+            }
+            if (StringUtils.hasText(f.getRef()) && !refs.add(f.getRef())) {
+                errores[i] = "ref repetida en el lote: " + f.getRef();
+                continue;
+            }
+            if (f.getErrorLectura() != null) {
+                errores[i] = f.getErrorLectura();
+                continue;
+            }
+            try {
+                Tarea t = aTarea(f);
+                tareaService.validarCampos(t);
+                if (t.getNota() != null && t.getNota().length() > 300) {
+                    throw new IllegalArgumentException("nota demasiado larga (max 300)");
+                }
+                if (f.getDependeDeId() != null && StringUtils.hasText(f.getDependeDeRef())) {
+                    throw new IllegalArgumentException("Use dependeDeId o dependeDeRef, no ambos");
+                }
+                tareas[i] = t;
+            } catch (IllegalArgumentException e) {
+                errores[i] = e.getMessage();
+            }
+        }
+    }
+
+    // dependeDeRef -> índice de la fila referida (debe ser del mismo usuario)
+    private void resolverReferencias(List<TareaImportada> filas, Tarea[] tareas, String[] errores, Integer[] padre) {
+        Map<String, Integer> porRef = new HashMap<>();
+        for (int i = 0; i < filas.size(); i++) {
+            TareaImportada f = filas.get(i);
+            if (f != null && StringUtils.hasText(f.getRef())) {
+                porRef.putIfAbsent(f.getRef(), i);
+            }
+        }
+        for (int i = 0; i < filas.size(); i++) {
+            if (errores[i] != null || !StringUtils.hasText(filas.get(i).getDependeDeRef())) {
+                continue;
+            }
+            Integer j = porRef.get(filas.get(i).getDependeDeRef());
+            if (j == null) {
+                errores[i] = "dependeDeRef no corresponde a ninguna fila: " + filas.get(i).getDependeDeRef();
+            } else if (j == i) {
+                errores[i] = "Una tarea no puede depender de sí misma";
+            } else if (tareas[j] != null && !tareas[j].getUsuarioId().equals(tareas[i].getUsuarioId())) {
+                errores[i] = "dependeDeRef apunta a una tarea de otro usuario";
+            } else {
+                padre[i] = j;
+            }
+        }
+    }
+
+    // Dependencias hacia tareas ya guardadas: deben existir y ser del mismo usuario (una consulta)
+    private void validarExistentes(Tarea[] tareas, String[] errores) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < tareas.length; i++) {
+            if (errores[i] == null && tareas[i].getDependeDeId() != null) {
+                ids.add(tareas[i].getDependeDeId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> usuarioDe = new HashMap<>();
+        for (DiaTarea d : repo.findDiasByIdIn(ids)) {
+            usuarioDe.put(d.getId(), d.getUsuarioId());
+        }
+        for (int i = 0; i < tareas.length; i++) {
+            if (errores[i] == null && tareas[i].getDependeDeId() != null
+                    && !tareas[i].getUsuarioId().equals(usuarioDe.get(tareas[i].getDependeDeId()))) {
+                errores[i] = "dependeDeId " + tareas[i].getDependeDeId() + " no existe o es de otro usuario";
+            }
+        }
+    }
+
+    /**
+     * Agrupa las filas válidas por nivel (0 = sin dependencia dentro del lote).
+     * Cada fila tiene como mucho un padre, así que un ciclo es un camino que vuelve sobre sí mismo.
+     * Marca con error las filas de un ciclo y las que dependen de una fila fallida.
+     */
+    static List<List<Integer>> ordenarPorNiveles(Integer[] padre, String[] errores) {
+        int n = padre.length;
+        int[] estado = new int[n]; // 0 sin visitar, 1 en el camino actual, 2 resuelta
+        int[] nivel = new int[n];
+        for (int i = 0; i < n; i++) {
+            List<Integer> camino = new ArrayList<>();
+            Integer actual = i;
+            while (actual != null && estado[actual] == 0) {
+                estado[actual] = 1;
+                camino.add(actual);
+                actual = errores[actual] == null ? padre[actual] : null;
+            }
+            if (actual != null && estado[actual] == 1) {
+                int desde = camino.indexOf(actual);
+                for (int k : camino.subList(desde, camino.size())) {
+                    errores[k] = "Dependencia circular entre filas del lote";
+                    estado[k] = 2;
+                }
+                camino = camino.subList(0, desde);
+            }
+            for (int k = camino.size() - 1; k >= 0; k--) {
+                int fila = camino.get(k);
+                estado[fila] = 2;
+                Integer p = padre[fila];
+                if (errores[fila] == null && p != null) {
+                    if (errores[p] != null) {
+                        errores[fila] = "Depende de la fila " + (p + 1) + ", que no se importó";
+                    } else {
+                        nivel[fila] = nivel[p] + 1;
+                    }
+                }
+            }
+        }
+
+        List<List<Integer>> niveles = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (errores[i] == null) {
+                while (niveles.size() <= nivel[i]) {
+                    niveles.add(new ArrayList<>());
+                }
+                niveles.get(nivel[i]).add(i);
+            }
+        }
+        return niveles;
+    }
+
+    /* ===== Escritura ===== */
+
+    // INSERT por lotes de "lote" filas, leyendo los ids generados en el mismo orden
+    private void insertar(List<Integer> filas, Tarea[] tareas, Long[] ids) {
+        jdbc.execute((ConnectionCallback<Void>) conexion -> {
+            try (PreparedStatement ps = conexion.prepareStatement(INSERTAR, Statement.RETURN_GENERATED_KEYS)) {
+                for (int desde = 0; desde < filas.size(); desde += lote) {
+                    List<Integer> grupo = filas.subList(desde, Math.min(desde + lote, filas.size()));
+                    for (int i : grupo) {
+                        asignar(ps, tareas[i]);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet claves = ps.getGeneratedKeys()) {
+                        for (int i : grupo) {
+                            if (!claves.next()) {
+                                throw new IllegalStateException("La BD no devolvió los ids generados");
+                            }
+                            ids[i] = claves.getLong(1);
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void asignar(PreparedStatement ps, Tarea t) throws SQLException {
+        ps.setLong(1, t.getUsuarioId());
+        ps.setString(2, t.getNombre());
+        ps.setObject(3, t.getFecha());
+        ps.setInt(4, t.getDuracionMinutos());
+        ps.setObject(5, t.getHoraDeseada(), Types.TIME);
+        ps.setString(6, t.getPrioridad().name());
+        ps.setString(7, t.getEstado().name());
+        ps.setObject(8, t.getDependeDeId(), Types.BIGINT);
+        ps.setString(9, t.getClimaPermitido() != null ? t.getClimaPermitido().name() : null);
+        ps.setString(10, t.getNota());
+    }
+
+    // Tras confirmar: índice de dependencias (una vez por usuario) y avisos a los cachés por día afectado
+    private void registrar(List<List<Integer>> niveles, Tarea[] tareas, Long[] ids) {
+        Map<Long, List<Tarea>> porUsuario = new LinkedHashMap<>();
+        Map<DiaAgenda, List<Long>> dias = new LinkedHashMap<>();
+        for (List<Integer> nivel : niveles) {
+            for (int i : nivel) {
+                tareas[i].setId(ids[i]);
+                porUsuario.computeIfAbsent(tareas[i].getUsuarioId(), u -> new ArrayList<>()).add(tareas[i]);
+                dias.computeIfAbsent(new DiaAgenda(tareas[i].getUsuarioId(), tareas[i].getFecha()),
+                        d -> new ArrayList<>()).add(ids[i]);
+            }
+        }
+        porUsuario.forEach(grafo::registrarNuevas);
+        dias.forEach((d, creadas) -> eventos.publishEvent(CambioAgendaEvent.deTareas(
+                CambioAgendaEvent.Tipo.CREADA, d.getUsuarioId(), d.getFecha(), creadas)));
+    }
+
+    /* ===== Ayudas ===== */
+
+    private static Tarea aTarea(TareaImportada f) {
+        Tarea t = new Tarea();
+        t.setUsuarioId(f.getUsuarioId());
+        t.setNombre(f.getNombre());
+        t.setFecha(f.getFecha());
+        t.setDuracionMinutos(f.getDuracionMinutos());
+        t.setHoraDeseada(f.getHoraDeseada());
+        // Mismos valores por defecto que la entidad
+        t.setPrioridad(f.getPrioridad() != null ? f.getPrioridad() : Tarea.Prioridad.MEDIA);
+        t.setEstado(f.getEstado() != null ? f.getEstado() : Tarea.Estado.PENDIENTE);
+        t.setDependeDeId(f.getDependeDeId());
+        t.setClimaPermitido(f.getClimaPermitido());
+        t.setNota(f.getNota());
+        return t;
+    }
+
+    private static ImportacionResultado resultado(List<TareaImportada> filas, Long[] ids, String[] errores) {
+        List<ImportacionFila> resultado = new ArrayList<>(filas.size());
+        int creadas = 0;
+        for (int i = 0; i < filas.size(); i++) {
+            String ref = filas.get(i) != null ? filas.get(i).getRef() : null;
+            if (errores[i] == null) {
+                resultado.add(ImportacionFila.exito(i + 1, ref, ids[i]));
+                creadas++;
+            } else {
+                resultado.add(ImportacionFila.fallo(i + 1, ref, errores[i]));
+            }
+        }
+        ImportacionResultado r = new ImportacionResultado();
+        r.setRecibidas(filas.size());
+        r.setCreadas(creadas);
+        r.setFallidas(filas.size() - creadas);
+        r.setFilas(resultado);
+        return r;
+    }
+}
@@ -0,0 +1,37 @@
+package cr.ac.una.agenda.service;
+
+import java.util.Arrays;
+
+/**
+ * Últimas latencias exitosas (en nanosegundos) en un búfer circular,
+ * para calcular percentiles recientes sin guardar historial.
+ */
+final class LatenciasRecientes {
+
+    private final long[] muestras;
+    private int siguiente;
+    private int cantidad;
+
+    LatenciasRecientes(int capacidad) {
+        this.muestras = new long[Math.max(capacidad, 1)];
+    }
+
+    synchronized void registrar(long nanos) {
+        muestras[siguiente] = nanos;
+        siguiente = (siguiente + 1) % muestras.length;
+        if (cantidad < muestras.length) {
+            cantidad++;
+        }
+    }
+
+    /** Percentil p (0..1) de las muestras, o null si hay menos de "minimo". */
+    synchronized Long percentil(double p, int minimo) {
+        if (cantidad == 0 || cantidad < minimo) {
+            return null;
+        }
+        long[] orden = Arrays.copyOf(muestras, cantidad);
+        Arrays.sort(orden);
+        int i = (int) Math.ceil(p * cantidad) - 1;
+        return orden[Math.min(Math.max(i, 0), cantidad - 1)];
+    }
+}
@@ -0,0 +1,125 @@
+package cr.ac.una.agenda.service;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Semáforo no bloqueante: como mucho "maximo" llamadas en curso y el resto espera
+ * en orden de llegada, sin ocupar hilos, hasta "esperaMaxima".
+ * El cupo se libera al terminar, fallar o cancelarse la llamada.
+ */
+final class LimiteConcurrencia {
+
+    private final int maximo;
+    private final Duration esperaMaxima;
+    private final ArrayDeque<Espera> cola = new ArrayDeque<>();
+    private int enUso;
+
+    /** maximo <= 0 desactiva el límite. */
+    LimiteConcurrencia(int maximo, Duration esperaMaxima) {
+        this.maximo = maximo;
+        this.esperaMaxima = esperaMaxima;
+    }
+
+    /**
+     * Suscribe la llamada cuando haya cupo. Si no se consigue dentro del plazo
+     * falla con PrologNoDisponibleException.
+     */
+    <T> Mono<T> ejecutar(Supplier<Mono<T>> llamada) {
+        if (maximo <= 0) {
+            return Mono.defer(llamada);
+        }
+        return Mono.usingWhen(adquirir(), permiso -> llamada.get(),
+                permiso -> Mono.fromRunnable(permiso::liberar));
+    }
+
+    synchronized int enUso() {
+        return enUso;
+    }
+
+    synchronized int enEspera() {
+        return cola.size();
+    }
+
+    private Mono<Permiso> adquirir() {
+        return Mono.<Permiso>create(sink -> {
+                    Espera espera;
+                    synchronized (this) {
+                        if (enUso < maximo) {
+                            enUso++;
+                            espera = null;
+                        } else {
+                            espera = new Espera(sink);
+                            cola.add(espera);
+                        }
+                    }
+                    if (espera == null) {
+                        sink.success(new Permiso());
+                    } else {
+                        sink.onCancel(() -> cancelar(espera));
+                    }
+                })
+                .timeout(esperaMaxima, Mono.error(() -> new SinCupoException(esperaMaxima)));
+    }
+
+    // El cupo pasa directamente al primero de la cola (sin bajar enUso)
+    private void devolverCupo() {
+        Espera siguiente;
+        synchronized (this) {
+            siguiente = cola.poll();
+            if (siguiente == null) {
+                enUso--;
+                return;
+            }
+            siguiente.permiso = new Permiso();
+        }
+        siguiente.sink.success(siguiente.permiso);
+    }
+
+    private void cancelar(Espera espera) {
+        Permiso asignado;
+        synchronized (this) {
+            if (cola.remove(espera)) {
+                return;
+            }
+            asignado = espera.permiso;
+        }
+        // Se canceló justo cuando recibía el cupo: devolverlo
+        if (asignado != null) {
+            asignado.liberar();
+        }
+    }
+
+    /** No se consiguió cupo dentro del plazo: la llamada ni siquiera se hizo. */
+    static final class SinCupoException extends PrologNoDisponibleException {
+
+        SinCupoException(Duration esperaMaxima) {
+            super("PrologAPI saturado: sin cupo tras " + esperaMaxima.toMillis() + " ms", null);
+        }
+    }
+
+    private static final class Espera {
+        private final MonoSink<Permiso> sink;
+        private Permiso permiso;
+
+        Espera(MonoSink<Permiso> sink) {
+            this.sink = sink;
+        }
+    }
+
+    /** Un cupo; liberarlo más de una vez no tiene efecto. */
+    private final class Permiso {
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        void liberar() {
+            if (liberado.compareAndSet(false, true)) {
+                devolverCupo();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.PlanResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Métricas de planificación (Micrometer, expuestas en /actuator/prometheus):
+ * <ul>
+ *   <li>agenda.plan: duración de cada operación (planificar, replanificar, ...) con histograma</li>
+ *   <li>agenda.planificador.llamada: duración de la llamada al motor (prolog/java)</li>
+ *   <li>agenda.planificador.en.curso: llamadas al motor en curso</li>
+ *   <li>agenda.plan.resultados: planes posibles e imposibles</li>
+ *   <li>agenda.plan.tareas y agenda.plan.no.programadas: tamaño de cada plan</li>
+ *   <li>agenda.plan.podadas: tareas que la poda previa no envió al motor, por motivo</li>
+ *   <li>agenda.plan.poda.ahorro: llamadas al motor que la poda evitó (count) y el tiempo
+ *       ahorrado estimado con la duración media de las llamadas exitosas a ese motor (total)</li>
+ * </ul>
+ */
+@Component
+public class MetricasPlan {
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> enCurso = new ConcurrentHashMap<>();
+    private final Counter posibles;
+    private final Counter imposibles;
+    private final DistributionSummary tareasPorPlan;
+    private final DistributionSummary noProgramadas;
+
+    public MetricasPlan(MeterRegistry registry) {
+        this.registry = registry;
+        this.posibles = Counter.builder("agenda.plan.resultados")
+                .description("Planes generados según si fueron posibles")
+                .tag("posible", "true")
+                .register(registry);
+        this.imposibles = Counter.builder("agenda.plan.resultados")
+                .description("Planes generados según si fueron posibles")
+                .tag("posible", "false")
+                .register(registry);
+        this.tareasPorPlan = DistributionSummary.builder("agenda.plan.tareas")
+                .description("Tareas dentro de cada plan generado")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.noProgramadas = DistributionSummary.builder("agenda.plan.no.programadas")
+                .description("Tareas que quedaron fuera de cada plan generado")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /** Mide una operación bloqueante de AgendaService. */
+    public <T> T medir(String operacion, Supplier<T> operacionPlan) {
+        Timer.Sample muestra = Timer.start(registry);
+        String resultado = "error";
+        try {
+            T valor = operacionPlan.get();
+            resultado = "exito";
+            return valor;
+        } finally {
+            muestra.stop(timerPlan(operacion, resultado));
+        }
+    }
+
+    /** Mide una operación reactiva de AgendaService desde la suscripción hasta su fin. */
+    public <T> Mono<T> medirReactivo(String operacion, Supplier<Mono<T>> operacionPlan) {
+        return Mono.defer(() -> {
+            Timer.Sample muestra = Timer.start(registry);
+            return operacionPlan.get()
+                    .doFinally(senal -> muestra.stop(timerPlan(operacion, resultado(senal))));
+        });
+    }
+
+    /** Mide una llamada bloqueante al motor y la cuenta como en curso mientras dura. */
+    public PlanResponse medirPlanificador(String motor, Supplier<PlanResponse> llamada) {
+        AtomicInteger activas = enCurso(motor);
+        Timer.Sample muestra = Timer.start(registry);
+        activas.incrementAndGet();
+        String resultado = "error";
+        try {
+            PlanResponse response = llamada.get();
+            resultado = "exito";
+            return response;
+        } finally {
+            activas.decrementAndGet();
+            muestra.stop(timerPlanificador(motor, resultado));
+        }
+    }
+
+    /** Igual que medirPlanificador para la llamada reactiva. */
+    public Mono<PlanResponse> medirPlanificadorReactivo(String motor, Supplier<Mono<PlanResponse>> llamada) {
+        return Mono.defer(() -> {
+            AtomicInteger activas = enCurso(motor);
+            Timer.Sample muestra = Timer.start(registry);
+            activas.incrementAndGet();
+            return llamada.get()
+                    .doFinally(senal -> {
+                        activas.decrementAndGet();
+                        muestra.stop(timerPlanificador(motor, resultado(senal)));
+                    });
+        });
+    }
+
+    /** Cuenta el resultado de un plan recién resuelto (no los que salen del caché). */
+    public void registrarPlan(PlanResponse response) {
+        (response.isPosible() ? posibles : imposibles).increment();
+        tareasPorPlan.record(response.getTareasPlan() != null ? response.getTareasPlan().size() : 0);
+        noProgramadas.record(response.getNoProgramadas() != null ? response.getNoProgramadas().size() : 0);
+    }
+
+    /**
+     * Cuenta las tareas podadas antes de llamar al motor y, si la poda no dejó nada que
+     * resolver, la llamada evitada con su duración estimada.
+     */
+    public void registrarPoda(String motor, Collection<String> motivos, boolean llamadaEvitada) {
+        for (String motivo : motivos) {
+            Counter.builder("agenda.plan.podadas")
+                    .description("Tareas que la poda previa no envió al motor")
+                    .tag("motivo", motivo)
+                    .register(registry)
+                    .increment();
+        }
+        if (llamadaEvitada) {
+            double media = timerPlanificador(motor, "exito").mean(TimeUnit.NANOSECONDS);
+            Timer.builder("agenda.plan.poda.ahorro")
+                    .description("Llamadas al motor evitadas por la poda y tiempo estimado ahorrado")
+                    .tag("motor", motor)
+                    .register(registry)
+                    .record((long) media, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timerPlan(String operacion, String resultado) {
+        return Timer.builder("agenda.plan")
+                .description("Duración de las operaciones de planificación")
+                .tag("operacion", operacion)
+                .tag("resultado", resultado)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Timer timerPlanificador(String motor, String resultado) {
+        return Timer.builder("agenda.planificador.llamada")
+                .description("Duración de la llamada al motor de planificación")
+                .tag("motor", motor)
+                .tag("resultado", resultado)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private AtomicInteger enCurso(String motor) {
+        return enCurso.computeIfAbsent(motor, m -> {
+            AtomicInteger activas = new AtomicInteger();
+            Gauge.builder("agenda.planificador.en.curso", activas, AtomicInteger::get)
+                    .description("Llamadas al motor de planificación en curso")
+                    .tag("motor", m)
+                    .register(registry);
+            return activas;
+        });
+    }
+
+    private static String resultado(SignalType senal) {
+        switch (senal) {
+            case ON_COMPLETE:
+                return "exito";
+            case CANCEL:
+                return "cancelado";
+            default:
+                return "error";
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package cr.ac.una.agenda.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Mochila 0/1 con restricciones de dependencia sobre un bosque:
+ * un elemento solo puede elegirse si su padre también fue elegido.
+ * Se resuelve en O(n * capacidad) recorriendo el bosque en preorden.
+ */
+final class MochilaDependencias {
+
+    private MochilaDependencias() {
+    }
+
+    /**
+     * Devuelve qué elementos forman el subconjunto de mayor valor cuyo peso
+     * total no supera la capacidad.
+     *
+     * @param peso      peso (minutos) de cada elemento, mayor o igual a 0
+     * @param valor     valor de cada elemento
+     * @param padre     índice del padre de cada elemento o -1 si no depende de otro;
+     *                  debe describir un bosque (sin ciclos)
+     * @param capacidad capacidad máxima de la mochila
+     */
+    static boolean[] resolver(int[] peso, long[] valor, int[] padre, int capacidad) {
+        int n = peso.length;
+        // La tabla es de n * (cap + 1): más capacidad que la suma de los pesos no cambia el resultado
+        long total = 0;
+        for (int pesoElemento : peso) {
+            total += pesoElemento;
+        }
+        int cap = (int) Math.min(Math.max(capacidad, 0), total);
+        boolean[] elegido = new boolean[n];
+        if (n == 0) {
+            return elegido;
+        }
+
+        // Hijos de cada nodo y raíces del bosque
+        List<List<Integer>> hijos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            hijos.add(new ArrayList<>());
+        }
+        List<Integer> raices = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (padre[i] < 0) {
+                raices.add(i);
+            } else {
+                hijos.get(padre[i]).add(i);
+            }
+        }
+
+        // Preorden iterativo (evita recursión profunda en cadenas largas)
+        int[] orden = new int[n];
+        int[] posicion = new int[n];
+        int p = 0;
+        Deque<Integer> pila = new ArrayDeque<>();
+        for (int r = raices.size() - 1; r >= 0; r--) {
+            pila.push(raices.get(r));
+        }
+        while (!pila.isEmpty()) {
+            int nodo = pila.pop();
+            posicion[nodo] = p;
+            orden[p++] = nodo;
+            List<Integer> h = hijos.get(nodo);
+            for (int k = h.size() - 1; k >= 0; k--) {
+                pila.push(h.get(k));
+            }
+        }
+        if (p != n) {
+            throw new IllegalArgumentException("Las dependencias deben formar un bosque sin ciclos");
+        }
+
+        // Tamaño del subárbol de cada posición del preorden
+        int[] tam = new int[n];
+        for (int q = n - 1; q >= 0; q--) {
+            int nodo = orden[q];
+            tam[q] += 1;
+            if (padre[nodo] >= 0) {
+                tam[posicion[padre[nodo]]] += tam[q];
+            }
+        }
+
+        // f[q][w]: mejor valor usando los nodos desde la posición q del preorden
+        long[][] f = new long[n + 1][cap + 1];
+        boolean[][] toma = new boolean[n][cap + 1];
+        for (int q = n - 1; q >= 0; q--) {
+            int nodo = orden[q];
+            long[] saltar = f[q + tam[q]];
+            long[] seguir = f[q + 1];
+            for (int w = 0; w <= cap; w++) {
+                long mejor = saltar[w];
+                if (peso[nodo] <= w) {
+                    long conNodo = seguir[w - peso[nodo]] + valor[nodo];
+                    if (conNodo > mejor) {
+                        mejor = conNodo;
+                        toma[q][w] = true;
+                    }
+                }
+                f[q][w] = mejor;
+            }
+        }
+
+        // Reconstrucción de la selección
+        int q = 0;
+        int w = cap;
+        while (q < n) {
+            if (toma[q][w]) {
+                int nodo = orden[q];
+                elegido[nodo] = true;
+                w -= peso[nodo];
+                q++;
+            } else {
+                q += tam[q];
+            }
+        }
+        return elegido;
+    }
+}
@@ -0,0 +1,277 @@
+package cr.ac.una.agenda.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import cr.ac.una.agenda.dto.DepDTO;
+import cr.ac.una.agenda.dto.DiagnosticoDTO;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.dto.SlotDTO;
+import cr.ac.una.agenda.dto.TaskDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché acotado (tamaño y TTL) de planes ya resueltos.
+ * La clave es el request normalizado: usuario, fecha, clima, minutos, hora de inicio,
+ * motor y una huella del conjunto de tareas y dependencias.
+ * Cualquier cambio de tareas o configuración, una vez confirmado, invalida las entradas del
+ * (usuarioId, fecha) afectado.
+ * Un índice por usuario y fecha guarda las claves de cada día, así invalidar no recorre el caché;
+ * guardar e invalidar se serializan por usuario sobre ese índice.
+ * Guarda y entrega copias del plan: quien lo recibe puede modificarlo sin alterar lo que
+ * verán los siguientes aciertos.
+ * Sus estadísticas se publican como métricas "cache.*" con cache=planes.
+ */
+@Component
+public class PlanCache implements MeterBinder {
+
+    private final Cache<ClavePlan, PlanResponse> cache;
+    private final Map<Long, Map<LocalDate, Set<ClavePlan>>> indice = new ConcurrentHashMap<>();
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    public PlanCache(@Value("${agenda.plan-cache.maximo:10000}") long maximo,
+                     @Value("${agenda.plan-cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximo)
+                .expireAfterWrite(ttl)
+                .removalListener((ClavePlan clave, PlanResponse plan, RemovalCause causa) -> {
+                    if (causa.wasEvicted()) {
+                        desindexar(clave);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public PlanResponse obtener(ClavePlan clave) {
+        return copiar(cache.getIfPresent(clave));
+    }
+
+    public void guardar(ClavePlan clave, PlanResponse response) {
+        indice.compute(clave.getUsuarioId(), (u, dias) -> {
+            Map<LocalDate, Set<ClavePlan>> porFecha = dias != null ? dias : new HashMap<>();
+            porFecha.computeIfAbsent(clave.getFecha(), f -> new HashSet<>()).add(clave);
+            cache.put(clave, copiar(response));
+            return porFecha;
+        });
+    }
+
+    /**
+     * Elimina los planes del usuario para la fecha indicada (o todas sus fechas si es null).
+     */
+    public void invalidar(Long usuarioId, LocalDate fecha) {
+        indice.computeIfPresent(usuarioId, (u, dias) -> {
+            if (fecha == null) {
+                dias.values().forEach(this::descartar);
+                return null;
+            }
+            Set<ClavePlan> claves = dias.remove(fecha);
+            if (claves != null) {
+                descartar(claves);
+            }
+            return dias.isEmpty() ? null : dias;
+        });
+    }
+
+    private void descartar(Collection<ClavePlan> claves) {
+        for (ClavePlan clave : claves) {
+            if (cache.asMap().remove(clave) != null) {
+                invalidaciones.incrementAndGet();
+            }
+        }
+    }
+
+    // Desalojada por tamaño o TTL (el aviso llega después): sale del índice salvo que se haya vuelto a guardar
+    private void desindexar(ClavePlan clave) {
+        indice.computeIfPresent(clave.getUsuarioId(), (u, dias) -> {
+            Set<ClavePlan> claves = dias.get(clave.getFecha());
+            if (claves != null && !cache.asMap().containsKey(clave)) {
+                claves.remove(clave);
+                if (claves.isEmpty()) {
+                    dias.remove(clave.getFecha());
+                }
+            }
+            return dias.isEmpty() ? null : dias;
+        });
+    }
+
+    private static PlanResponse copiar(PlanResponse plan) {
+        if (plan == null) {
+            return null;
+        }
+        PlanResponse copia = new PlanResponse();
+        copia.setPosible(plan.isPosible());
+        copia.setMinutosDisponibles(plan.getMinutosDisponibles());
+        copia.setMinutosUsados(plan.getMinutosUsados());
+        copia.setMinutosSobrantes(plan.getMinutosSobrantes());
+        copia.setSugerencias(plan.getSugerencias());
+        if (plan.getTareasPlan() != null) {
+            List<SlotDTO> slots = new ArrayList<>(plan.getTareasPlan().size());
+            for (SlotDTO slot : plan.getTareasPlan()) {
+                slots.add(copiar(slot));
+            }
+            copia.setTareasPlan(slots);
+        }
+        copia.setNoProgramadas(copiar(plan.getNoProgramadas()));
+        DiagnosticoDTO diagnostico = plan.getDiagnostico();
+        if (diagnostico != null) {
+            DiagnosticoDTO d = new DiagnosticoDTO();
+            d.setMinutosDisponibles(diagnostico.getMinutosDisponibles());
+            d.setMinutosRequeridos(diagnostico.getMinutosRequeridos());
+            d.setMinutosExcedidos(diagnostico.getMinutosExcedidos());
+            d.setPosponer(copiar(diagnostico.getPosponer()));
+            d.setPrioridadPerdida(diagnostico.getPrioridadPerdida());
+            d.setMinutosSobrantes(diagnostico.getMinutosSobrantes());
+            copia.setDiagnostico(d);
+        }
+        return copia;
+    }
+
+    private static SlotDTO copiar(SlotDTO slot) {
+        if (slot == null) {
+            return null;
+        }
+        SlotDTO copia = new SlotDTO();
+        copia.setId(slot.getId());
+        copia.setNombre(slot.getNombre());
+        copia.setInicio(slot.getInicio());
+        copia.setFin(slot.getFin());
+        return copia;
+    }
+
+    private static List<TaskDTO> copiar(List<TaskDTO> tareas) {
+        if (tareas == null) {
+            return null;
+        }
+        List<TaskDTO> copias = new ArrayList<>(tareas.size());
+        for (TaskDTO tarea : tareas) {
+            if (tarea == null) {
+                copias.add(null);
+                continue;
+            }
+            TaskDTO copia = new TaskDTO();
+            copia.setId(tarea.getId());
+            copia.setNombre(tarea.getNombre());
+            copia.setPrioridad(tarea.getPrioridad());
+            copia.setDur(tarea.getDur());
+            copia.setClimas(tarea.getClimas() != null ? new ArrayList<>(tarea.getClimas()) : null);
+            copia.setMotivo(tarea.getMotivo());
+            copias.add(copia);
+        }
+        return copias;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "planes");
+        FunctionCounter.builder("agenda.plan.cache.invalidaciones", invalidaciones, AtomicLong::get)
+                .description("Planes descartados por cambios en tareas o configuración")
+                .register(registry);
+    }
+
+    /**
+     * Después de confirmar la escritura: si se invalidara antes, un plan calculado entre la
+     * invalidación y el commit leería las filas viejas y volvería a quedar en el caché.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarAgenda(CambioAgendaEvent evento) {
+        invalidar(evento.getUsuarioId(), evento.getFecha());
+    }
+
+    /** Contadores de aciertos, fallos, desalojos (tamaño/TTL) e invalidaciones. */
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("entradas", cache.estimatedSize());
+        datos.put("aciertos", stats.hitCount());
+        datos.put("fallos", stats.missCount());
+        datos.put("tasaAciertos", stats.hitRate());
+        datos.put("desalojos", stats.evictionCount());
+        datos.put("invalidaciones", invalidaciones.get());
+        return datos;
+    }
+
+    /**
+     * Clave canónica de un PlanRequest ya completado (con tareas, dependencias y configuración).
+     */
+    @lombok.Value
+    public static class ClavePlan {
+        Long usuarioId;
+        LocalDate fecha;
+        String clima;
+        Integer minutos;
+        String horaInicio;
+        String motor;
+        String huellaTareas;
+
+        public static ClavePlan de(PlanRequest request, String motor) {
+            return new ClavePlan(
+                    request.getUsuarioId(),
+                    request.getFecha(),
+                    request.getClimaDia().trim().toLowerCase(Locale.ROOT),
+                    request.getMinutosDisponibles(),
+                    normalizarHora(request.getHoraInicio()),
+                    motor,
+                    huella(request.getTasks(), request.getDeps()));
+        }
+
+        private static String normalizarHora(String hora) {
+            try {
+                return LocalTime.parse(hora.trim()).toString();
+            } catch (DateTimeParseException e) {
+                return hora.trim();
+            }
+        }
+
+        /** SHA-256 del conjunto de tareas y dependencias ordenado por id. */
+        private static String huella(List<TaskDTO> tasks, List<DepDTO> deps) {
+            StringBuilder sb = new StringBuilder();
+            tasks.stream()
+                    .sorted(Comparator.comparing(TaskDTO::getId))
+                    .forEach(t -> sb.append(t.getId()).append('|')
+                            .append(t.getNombre()).append('|')
+                            .append(t.getPrioridad()).append('|')
+                            .append(t.getDur()).append('|')
+                            .append(t.getClimas()).append('\n'));
+            sb.append("--\n");
+            deps.stream()
+                    .sorted(Comparator.comparing(DepDTO::getTarea).thenComparing(DepDTO::getDependeDe))
+                    .forEach(d -> sb.append(d.getTarea()).append('>').append(d.getDependeDe()).append('\n'));
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                return HexFormat.of().formatHex(md.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package cr.ac.una.agenda.service;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Evento que se publica al resolver un plan nuevo (no al servirlo desde el caché),
+ * para avisar a los suscriptores del día.
+ */
+@Value
+public class PlanGeneradoEvent {
+    Long usuarioId;
+    LocalDate fecha;
+    /** PlanResponse, o ReplanIncrementalResponse en la replanificación incremental. */
+    Object plan;
+}
@@ -0,0 +1,35 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Motor capaz de resolver un PlanRequest (tareas, dependencias, clima,
+ * minutos disponibles y hora de inicio) y devolver el PlanResponse.
+ * Cada implementación se registra como bean y se elige por nombre.
+ */
+public interface Planificador {
+
+    /** Nombre con el que se selecciona el motor ("prolog", "java"). */
+    String getNombre();
+
+    /**
+     * Si el motor se puede elegir (por defecto o con PlanRequest.motor).
+     * Los motores experimentales solo se habilitan de forma explícita.
+     */
+    default boolean isHabilitado() {
+        return true;
+    }
+
+    /** Resuelve el plan del día para el request ya completado. */
+    PlanResponse planificar(PlanRequest request);
+
+    /**
+     * Variante no bloqueante. Por defecto envuelve planificar(); los motores
+     * con E/S propia (PrologAPI) la sobreescriben para no bloquear.
+     */
+    default Mono<PlanResponse> planificarReactivo(PlanRequest request) {
+        return Mono.fromCallable(() -> planificar(request));
+    }
+}
@@ -0,0 +1,241 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.DepDTO;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.dto.SlotDTO;
+import cr.ac.una.agenda.dto.TaskDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Planificador nativo en Java, pensado como equivalente al de PrologAPI y sin salto de red.
+ * Experimental, con la paridad pendiente: no hay todavía respuestas reales de PrologAPI en el
+ * repositorio, solo casos escritos a mano a partir de sus reglas, así que no se puede elegir
+ * salvo con agenda.planificador.java.habilitado=true. Para verificarla hay que grabar pares
+ * reales con GrabadorPlanes y pasarlos a PlanificadorJavaTest con -Dplanes.grabados.
+ * <ul>
+ *   <li>Filtra las tareas cuyo clima no coincide con el clima del día.</li>
+ *   <li>Elige el subconjunto de mayor prioridad que cabe en los minutos disponibles,
+ *       respetando que una tarea solo entra si entra la tarea de la que depende.</li>
+ *   <li>Ordena lo elegido respetando dependencias (primero mayor prioridad) y asigna horarios
+ *       consecutivos desde la hora de inicio.</li>
+ * </ul>
+ * Una dependencia hacia una tarea que no viene en el request se considera satisfecha
+ * (por ejemplo, una tarea ya COMPLETADA).
+ */
+@Component
+public class PlanificadorJava implements Planificador {
+
+    public static final String NOMBRE = "java";
+
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final boolean habilitado;
+
+    public PlanificadorJava(@Value("${agenda.planificador.java.habilitado:false}") boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    @Override
+    public String getNombre() {
+        return NOMBRE;
+    }
+
+    @Override
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    @Override
+    public PlanResponse planificar(PlanRequest request) {
+        List<TaskDTO> tasks = request.getTasks() != null ? request.getTasks() : List.of();
+        int disponibles = request.getMinutosDisponibles() != null ? request.getMinutosDisponibles() : 0;
+        int n = tasks.size();
+
+        Map<Long, Integer> indicePorId = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            indicePorId.put(tasks.get(i).getId(), i);
+        }
+
+        // Padre de cada tarea dentro del request (-1 si no depende de ninguna del request)
+        int[] padre = new int[n];
+        Arrays.fill(padre, -1);
+        if (request.getDeps() != null) {
+            for (DepDTO dep : request.getDeps()) {
+                Integer hija = indicePorId.get(dep.getTarea());
+                Integer madre = indicePorId.get(dep.getDependeDe());
+                if (hija != null && madre != null) {
+                    padre[hija] = madre;
+                }
+            }
+        }
+
+        boolean[] programable = calcularProgramables(tasks, padre, request.getClimaDia());
+
+        // Subproblema solo con las tareas programables
+        int[] indiceLocal = new int[n];
+        List<Integer> candidatas = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            indiceLocal[i] = -1;
+            if (programable[i]) {
+                indiceLocal[i] = candidatas.size();
+                candidatas.add(i);
+            }
+        }
+        int m = candidatas.size();
+        int[] peso = new int[m];
+        long[] valor = new long[m];
+        int[] padreLocal = new int[m];
+        for (int k = 0; k < m; k++) {
+            int i = candidatas.get(k);
+            peso[k] = Math.max(tasks.get(i).getDur(), 0);
+            // Se maximiza la suma de prioridades (varias tareas de prioridad baja pueden valer más
+            // que una alta); el +1 por tarea, que nunca suma n + 1, solo desempata a favor de más tareas
+            valor[k] = (long) tasks.get(i).getPrioridad() * (n + 1) + 1;
+            padreLocal[k] = padre[i] >= 0 ? indiceLocal[padre[i]] : -1;
+        }
+        boolean[] elegidoLocal = MochilaDependencias.resolver(peso, valor, padreLocal, disponibles);
+
+        boolean[] elegido = new boolean[n];
+        for (int k = 0; k < m; k++) {
+            elegido[candidatas.get(k)] = elegidoLocal[k];
+        }
+
+        List<SlotDTO> slots = ordenarYAsignarHorarios(tasks, padre, elegido, request.getHoraInicio());
+        List<TaskDTO> noProgramadas = new ArrayList<>();
+        int usados = 0;
+        for (int i = 0; i < n; i++) {
+            if (elegido[i]) {
+                usados += tasks.get(i).getDur();
+            } else {
+                noProgramadas.add(tasks.get(i));
+            }
+        }
+
+        PlanResponse response = new PlanResponse();
+        response.setPosible(noProgramadas.isEmpty());
+        response.setMinutosDisponibles(disponibles);
+        response.setMinutosUsados(usados);
+        response.setMinutosSobrantes(disponibles - usados);
+        response.setTareasPlan(slots);
+        response.setNoProgramadas(noProgramadas);
+        return response;
+    }
+
+    /**
+     * Una tarea es programable si su clima es compatible, no forma parte de un ciclo
+     * y la tarea de la que depende (si viene en el request) también es programable.
+     */
+    private boolean[] calcularProgramables(List<TaskDTO> tasks, int[] padre, String climaDia) {
+        int n = tasks.size();
+        String clima = climaDia != null ? climaDia.trim().toLowerCase(Locale.ROOT) : "";
+        // 0 = sin calcular, 1 = programable, 2 = no programable, 3 = en cálculo
+        int[] estado = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (estado[i] != 0) {
+                continue;
+            }
+            // Subir por la cadena hasta un nodo resuelto o una raíz
+            List<Integer> cadena = new ArrayList<>();
+            int actual = i;
+            while (actual >= 0 && estado[actual] == 0) {
+                estado[actual] = 3;
+                cadena.add(actual);
+                actual = padre[actual];
+            }
+            // Si se volvió a un nodo "en cálculo" hay un ciclo: nada de la cadena es programable
+            boolean base = actual < 0 || estado[actual] == 1;
+            if (actual >= 0 && estado[actual] == 3) {
+                base = false;
+            }
+            for (int k = cadena.size() - 1; k >= 0; k--) {
+                int nodo = cadena.get(k);
+                base = base && climaCompatible(tasks.get(nodo), clima);
+                estado[nodo] = base ? 1 : 2;
+            }
+        }
+        boolean[] programable = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            programable[i] = estado[i] == 1;
+        }
+        return programable;
+    }
+
+    private boolean climaCompatible(TaskDTO task, String clima) {
+        if (task.getClimas() == null || task.getClimas().isEmpty()) {
+            return true;
+        }
+        return task.getClimas().stream()
+                .anyMatch(c -> c != null && c.trim().toLowerCase(Locale.ROOT).equals(clima));
+    }
+
+    /**
+     * Orden topológico de las tareas elegidas: entre las disponibles va primero
+     * la de mayor prioridad, luego la más corta y por último la de menor id.
+     */
+    private List<SlotDTO> ordenarYAsignarHorarios(List<TaskDTO> tasks, int[] padre, boolean[] elegido,
+                                                  String horaInicio) {
+        int n = tasks.size();
+        List<List<Integer>> hijos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            hijos.add(new ArrayList<>());
+        }
+        PriorityQueue<Integer> disponibles = new PriorityQueue<>(Comparator
+                .comparingInt((Integer i) -> -tasks.get(i).getPrioridad())
+                .thenComparingInt(i -> tasks.get(i).getDur())
+                .thenComparing(i -> tasks.get(i).getId(), Comparator.nullsLast(Comparator.naturalOrder())));
+        for (int i = 0; i < n; i++) {
+            if (!elegido[i]) {
+                continue;
+            }
+            if (padre[i] >= 0 && elegido[padre[i]]) {
+                hijos.get(padre[i]).add(i);
+            } else {
+                disponibles.add(i);
+            }
+        }
+
+        LocalTime hora = parsearHora(horaInicio);
+        List<SlotDTO> slots = new ArrayList<>();
+        while (!disponibles.isEmpty()) {
+            int i = disponibles.poll();
+            TaskDTO task = tasks.get(i);
+            LocalTime fin = hora.plusMinutes(task.getDur());
+
+            SlotDTO slot = new SlotDTO();
+            slot.setId(task.getId());
+            slot.setNombre(task.getNombre());
+            slot.setInicio(hora.format(FORMATO_HORA));
+            slot.setFin(fin.format(FORMATO_HORA));
+            slots.add(slot);
+
+            hora = fin;
+            disponibles.addAll(hijos.get(i));
+        }
+        return slots;
+    }
+
+    private LocalTime parsearHora(String horaInicio) {
+        if (horaInicio == null || horaInicio.isBlank()) {
+            return LocalTime.of(8, 0);
+        }
+        try {
+            return LocalTime.parse(horaInicio.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Hora de inicio inválida: " + horaInicio);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package cr.ac.una.agenda.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cr.ac.una.agenda.configuration.PrologProperties;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Planificador que delega la resolución en el servicio PrologAPI (vía Eureka),
+ * protegido por ResilienciaProlog (plazos, reintentos, cortacircuito y cobertura).
+ * Si agenda.prolog.formato lo activa, el intercambio va en Smile y/o gzip; ante un 415
+ * se repite en JSON plano y se recuerda el rechazo durante un tiempo.
+ * Con agenda.planificador.grabacion.directorio, cada respuesta se graba con su request (GrabadorPlanes).
+ */
+@Component
+public class PlanificadorProlog implements Planificador {
+
+    public static final String NOMBRE = "prolog";
+
+    private final WebClient client;
+    private final ResilienciaProlog resiliencia;
+    private final PrologProperties.Formato config;
+    private final FormatoPlan formato;
+    private final GrabadorPlanes grabador;
+    /** Hasta cuándo (System.nanoTime) se usa JSON plano tras un 415; se compara por diferencia, sin desbordar. */
+    private volatile long compactoRechazadoHasta = System.nanoTime();
+
+    public PlanificadorProlog(WebClient.Builder builder, PrologProperties config, ResilienciaProlog resiliencia,
+                              ObjectMapper mapper, GrabadorPlanes grabador) {
+        this.formato = new FormatoPlan(mapper);
+        this.grabador = grabador;
+        // Por defecto "PROLOGAPI", el NOMBRE de la app registrada en Eureka
+        this.client = builder.clone()
+                .baseUrl(config.getUrl())
+                // Solo para Smile: sin tipos explícitos también reclamaría application/json
+                .codecs(c -> c.customCodecs().register(new Jackson2SmileDecoder(formato.smile(), FormatoPlan.SMILE)))
+                .build();
+        this.resiliencia = resiliencia;
+        this.config = config.getFormato();
+    }
+
+    @Override
+    public String getNombre() {
+        return NOMBRE;
+    }
+
+    /**
+     * Llama al endpoint /api/plan de PrologAPI.
+     * Lanza PrologNoDisponibleException (503) si PrologAPI no responde o el circuito está abierto.
+     */
+    @Override
+    public PlanResponse planificar(PlanRequest request) {
+        return planificarReactivo(request).block();
+    }
+
+    /**
+     * Misma llamada sin bloquear: el hilo queda libre mientras PrologAPI responde
+     */
+    @Override
+    public Mono<PlanResponse> planificarReactivo(PlanRequest request) {
+        return resiliencia.ejecutar(() -> llamar(request))
+                .doOnNext(respuesta -> {
+                    if (grabador.isActivo()) {
+                        Schedulers.boundedElastic().schedule(() -> grabador.grabar(request, respuesta));
+                    }
+                });
+    }
+
+    private Mono<PlanResponse> llamar(PlanRequest request) {
+        if (!compactoPermitido()) {
+            return enviar(request, false, false);
+        }
+        return enviar(request, config.isBinario(), config.isComprimir())
+                .onErrorResume(FormatoRechazado.class, e -> {
+                    compactoRechazadoHasta = System.nanoTime() + config.getReintentarNegociacion().toNanos();
+                    return enviar(request, false, false);
+                });
+    }
+
+    private boolean compactoPermitido() {
+        return (config.isBinario() || config.isComprimir()) && System.nanoTime() - compactoRechazadoHasta >= 0;
+    }
+
+    private Mono<PlanResponse> enviar(PlanRequest request, boolean binario, boolean comprimir) {
+        return Mono.fromCallable(() -> formato.codificar(request, binario)).flatMap(cuerpo -> {
+            boolean gzip = comprimir && cuerpo.length >= config.getComprimirDesde().toBytes();
+            byte[] datos = gzip ? FormatoPlan.comprimir(cuerpo) : cuerpo;
+            return client.post()
+                    .uri("/api/plan")
+                    .contentType(formato.tipo(binario))
+                    .accept(binario
+                            ? new MediaType[]{FormatoPlan.SMILE, MediaType.APPLICATION_JSON}
+                            : new MediaType[]{MediaType.APPLICATION_JSON})
+                    .headers(h -> {
+                        if (gzip) {
+                            h.set(HttpHeaders.CONTENT_ENCODING, FormatoPlan.GZIP);
+                        }
+                    })
+                    .bodyValue(datos)
+                    .exchangeToMono(respuesta -> {
+                        if (respuesta.statusCode().value() == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()
+                                && (binario || gzip)) {
+                            return respuesta.releaseBody().then(Mono.error(new FormatoRechazado()));
+                        }
+                        if (respuesta.statusCode().isError()) {
+                            return respuesta.createError();
+                        }
+                        return respuesta.bodyToMono(PlanResponse.class);
+                    });
+        });
+    }
+
+    /** PrologAPI no acepta el tipo de contenido o la compresión enviados. */
+    private static class FormatoRechazado extends RuntimeException {
+        FormatoRechazado() {
+            super("PrologAPI rechazó el formato compacto", null, false, false);
+        }
+    }
+}
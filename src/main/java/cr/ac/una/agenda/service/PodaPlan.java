@@ -0,0 +1,124 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.TareaPlanificable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Poda previa a la planificación: separa las tareas que ningún motor podría programar
+ * para no enviarlas a PrologAPI. Cada tarea podada lleva su motivo:
+ * <ul>
+ *   <li>clima: su clima permitido no es el del día.</li>
+ *   <li>dependencia: depende, directa o indirectamente, de una tarea podada, inexistente
+ *       o de un ciclo.</li>
+ *   <li>duracion: ella más la cadena de tareas de las que depende no caben en los minutos disponibles.</li>
+ * </ul>
+ * Una dependencia hacia una tarea que no viene en la lista pero existe (completada, o de
+ * otro día) se considera satisfecha, igual que en PlanificadorJava.
+ */
+final class PodaPlan {
+
+    static final String CLIMA = "clima";
+    static final String DEPENDENCIA = "dependencia";
+    static final String DURACION = "duracion";
+
+    private PodaPlan() {
+    }
+
+    /**
+     * @param tareas   tareas del día a planificar
+     * @param climaDia clima del día
+     * @param minutos  minutos disponibles
+     * @param estados  estado de las tareas de las que dependen las de la lista (las que no
+     *                 existen no están)
+     */
+    static Resultado podar(List<TareaPlanificable> tareas, String climaDia, int minutos,
+                           Map<Long, Tarea.Estado> estados) {
+        Map<Long, TareaPlanificable> porId = new HashMap<>();
+        for (TareaPlanificable t : tareas) {
+            porId.put(t.getId(), t);
+        }
+        String clima = climaDia != null ? climaDia.trim() : "";
+
+        Map<Long, String> motivos = new LinkedHashMap<>();
+        // Minutos de cada tarea que queda más los de su cadena de dependencias
+        Map<Long, Integer> cadenaMinutos = new HashMap<>();
+        for (TareaPlanificable t : tareas) {
+            if (resuelta(t, motivos, cadenaMinutos)) {
+                continue;
+            }
+            // Subir por la cadena hasta una tarea resuelta, una raíz o una tarea fuera de la lista
+            Deque<TareaPlanificable> cadena = new ArrayDeque<>();
+            Set<Long> vistas = new HashSet<>();
+            TareaPlanificable actual = t;
+            boolean ciclo = false;
+            while (actual != null && !resuelta(actual, motivos, cadenaMinutos)) {
+                if (!vistas.add(actual.getId())) {
+                    ciclo = true;
+                    break;
+                }
+                cadena.push(actual);
+                actual = actual.getDependeDeId() != null ? porId.get(actual.getDependeDeId()) : null;
+            }
+
+            // Resolver desde la más alta de la cadena hacia abajo
+            for (TareaPlanificable nodo : cadena) {
+                String motivo = null;
+                int previos = 0;
+                Long padre = nodo.getDependeDeId();
+                if (nodo.getClimaPermitido() != null && !nodo.getClimaPermitido().name().equalsIgnoreCase(clima)) {
+                    motivo = CLIMA;
+                } else if (ciclo) {
+                    motivo = DEPENDENCIA;
+                } else if (padre != null && porId.containsKey(padre)) {
+                    if (motivos.containsKey(padre)) {
+                        motivo = DEPENDENCIA;
+                    } else {
+                        previos = cadenaMinutos.get(padre);
+                    }
+                } else if (padre != null && !estados.containsKey(padre)) {
+                    motivo = DEPENDENCIA;
+                }
+                int total = previos + Math.max(nodo.getDuracionMinutos(), 0);
+                if (motivo == null && total > minutos) {
+                    motivo = DURACION;
+                }
+                if (motivo != null) {
+                    motivos.put(nodo.getId(), motivo);
+                } else {
+                    cadenaMinutos.put(nodo.getId(), total);
+                }
+            }
+        }
+
+        List<TareaPlanificable> candidatas = new ArrayList<>(tareas.size() - motivos.size());
+        for (TareaPlanificable t : tareas) {
+            if (!motivos.containsKey(t.getId())) {
+                candidatas.add(t);
+            }
+        }
+        return new Resultado(candidatas, motivos);
+    }
+
+    private static boolean resuelta(TareaPlanificable t, Map<Long, String> motivos, Map<Long, Integer> cadenaMinutos) {
+        return motivos.containsKey(t.getId()) || cadenaMinutos.containsKey(t.getId());
+    }
+
+    /**
+     * Tareas que siguen al planificador (en el orden original) y motivo de cada podada.
+     */
+    @lombok.Value
+    static class Resultado {
+        List<TareaPlanificable> candidatas;
+        Map<Long, String> motivos;
+    }
+}
@@ -0,0 +1,36 @@
+package cr.ac.una.agenda.service;
+
+/**
+ * Presupuesto de reintentos compartido: cada llamada deposita "proporcion" y cada
+ * reintento retira 1, con un saldo máximo acotado. Así los reintentos nunca superan
+ * una fracción fija del tráfico y no multiplican la carga cuando PrologAPI está caído.
+ */
+final class PresupuestoReintentos {
+
+    private final double proporcion;
+    private final double maximo;
+    private double saldo;
+
+    PresupuestoReintentos(double proporcion, int maximo) {
+        this.proporcion = Math.max(proporcion, 0);
+        this.maximo = Math.max(maximo, 0);
+        this.saldo = this.maximo;
+    }
+
+    synchronized void registrarLlamada() {
+        saldo = Math.min(maximo, saldo + proporcion);
+    }
+
+    /** Toma un reintento del presupuesto; false si no queda saldo. */
+    synchronized boolean retirar() {
+        if (saldo < 1.0) {
+            return false;
+        }
+        saldo -= 1.0;
+        return true;
+    }
+
+    synchronized double saldo() {
+        return saldo;
+    }
+}
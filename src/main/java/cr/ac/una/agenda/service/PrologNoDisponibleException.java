@@ -0,0 +1,16 @@
+package cr.ac.una.agenda.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * PrologAPI no respondió a tiempo, falló tras los reintentos o el circuito está abierto.
+ * Se responde 503 para que el cliente pueda reintentar más tarde.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PrologNoDisponibleException extends RuntimeException {
+
+    public PrologNoDisponibleException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
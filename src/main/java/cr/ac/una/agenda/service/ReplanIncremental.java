@@ -0,0 +1,155 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.ReplanIncrementalResponse;
+import cr.ac.una.agenda.dto.SlotDTO;
+import cr.ac.una.agenda.dto.SlotMovidoDTO;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utilidades de la replanificación incremental: horas en minutos, reubicación
+ * de los slots con la menor perturbación posible y diferencia entre dos planes.
+ */
+final class ReplanIncremental {
+
+    private static final DateTimeFormatter FORMATO_LECTURA = DateTimeFormatter.ofPattern("H:mm[:ss]");
+
+    private ReplanIncremental() {
+    }
+
+    /** Minutos desde la medianoche de una hora "H:mm" o "HH:mm". */
+    static int minutos(String hora) {
+        if (hora == null || hora.isBlank()) {
+            throw new IllegalArgumentException("La hora es obligatoria");
+        }
+        try {
+            LocalTime t = LocalTime.parse(hora.trim(), FORMATO_LECTURA);
+            return t.getHour() * 60 + t.getMinute();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Hora inválida: " + hora);
+        }
+    }
+
+    /** Hora "HH:mm" de un minuto del día. */
+    static String hora(int minutos) {
+        return String.format("%02d:%02d", minutos / 60, minutos % 60);
+    }
+
+    /**
+     * Reubica las tareas elegidas por el planificador moviendo lo menos posible:
+     * las que ya estaban en el plan anterior mantienen su orden y, si cabe, su hora;
+     * las nuevas van después. Si no cabe ni compactando, o el orden rompe una
+     * dependencia, se devuelven los slots del planificador tal cual.
+     *
+     * @param anteriores slots futuros del plan anterior, ordenados por inicio
+     * @param resueltos  slots devueltos por el planificador para la ventana
+     * @param duracion   duración en minutos de cada tarea
+     * @param padre      tarea de la que depende cada tarea (solo las que dependen)
+     * @param desde      inicio de la ventana en minutos del día
+     * @param hasta      fin de la ventana en minutos del día
+     */
+    static List<SlotDTO> estabilizar(List<SlotDTO> anteriores, List<SlotDTO> resueltos,
+                                     Map<Long, Integer> duracion, Map<Long, Long> padre,
+                                     int desde, int hasta) {
+        Map<Long, String> elegidos = new LinkedHashMap<>();
+        for (SlotDTO s : resueltos) {
+            elegidos.put(s.getId(), s.getNombre());
+        }
+
+        // Primero las que ya estaban planificadas (en su orden), luego las nuevas
+        List<Long> orden = new ArrayList<>();
+        Map<Long, Integer> inicioAnterior = new HashMap<>();
+        for (SlotDTO s : anteriores) {
+            if (elegidos.containsKey(s.getId()) && inicioAnterior.putIfAbsent(s.getId(), minutos(s.getInicio())) == null) {
+                orden.add(s.getId());
+            }
+        }
+        for (Long id : elegidos.keySet()) {
+            if (!inicioAnterior.containsKey(id)) {
+                orden.add(id);
+            }
+        }
+
+        List<SlotDTO> colocados = colocar(orden, elegidos, inicioAnterior, duracion, padre, desde, hasta);
+        if (colocados == null) {
+            colocados = colocar(orden, elegidos, Map.of(), duracion, padre, desde, hasta);
+        }
+        return colocados != null ? colocados : resueltos;
+    }
+
+    /**
+     * Asigna horas en el orden dado; cada tarea empieza en su hora anterior o al terminar
+     * la previa, lo que sea más tarde. Devuelve null si algo no cabe o rompe una dependencia.
+     */
+    private static List<SlotDTO> colocar(List<Long> orden, Map<Long, String> nombres,
+                                         Map<Long, Integer> inicioAnterior, Map<Long, Integer> duracion,
+                                         Map<Long, Long> padre, int desde, int hasta) {
+        List<SlotDTO> resultado = new ArrayList<>(orden.size());
+        Set<Long> colocadas = new HashSet<>();
+        int cursor = desde;
+        for (Long id : orden) {
+            Long p = padre.get(id);
+            if (p != null && nombres.containsKey(p) && !colocadas.contains(p)) {
+                return null;
+            }
+            Integer dur = duracion.get(id);
+            if (dur == null) {
+                return null;
+            }
+            int inicio = Math.max(cursor, inicioAnterior.getOrDefault(id, cursor));
+            int fin = inicio + dur;
+            if (fin > hasta) {
+                return null;
+            }
+            SlotDTO slot = new SlotDTO();
+            slot.setId(id);
+            slot.setNombre(nombres.get(id));
+            slot.setInicio(hora(inicio));
+            slot.setFin(hora(fin));
+            resultado.add(slot);
+            colocadas.add(id);
+            cursor = fin;
+        }
+        return resultado;
+    }
+
+    /**
+     * Llena en "destino" la diferencia entre los slots futuros del plan anterior
+     * y los nuevos: sin cambios, movidas, agregadas y eliminadas.
+     */
+    static void comparar(List<SlotDTO> anteriores, List<SlotDTO> nuevos, ReplanIncrementalResponse destino) {
+        Map<Long, SlotDTO> porId = new LinkedHashMap<>();
+        for (SlotDTO s : anteriores) {
+            porId.putIfAbsent(s.getId(), s);
+        }
+
+        for (SlotDTO nuevo : nuevos) {
+            SlotDTO anterior = porId.remove(nuevo.getId());
+            if (anterior == null) {
+                destino.getAgregadas().add(nuevo);
+            } else if (minutos(anterior.getInicio()) == minutos(nuevo.getInicio())
+                    && minutos(anterior.getFin()) == minutos(nuevo.getFin())) {
+                destino.setSinCambios(destino.getSinCambios() + 1);
+            } else {
+                SlotMovidoDTO movida = new SlotMovidoDTO();
+                movida.setId(nuevo.getId());
+                movida.setNombre(nuevo.getNombre());
+                movida.setInicioAnterior(anterior.getInicio());
+                movida.setFinAnterior(anterior.getFin());
+                movida.setInicio(nuevo.getInicio());
+                movida.setFin(nuevo.getFin());
+                destino.getMovidas().add(movida);
+            }
+        }
+        destino.getEliminadas().addAll(porId.values());
+    }
+}
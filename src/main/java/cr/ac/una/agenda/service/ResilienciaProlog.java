@@ -0,0 +1,222 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.configuration.PrologProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Capa de resiliencia para las llamadas a PrologAPI:
+ * plazo por intento y total, cortacircuito con sondas en semiabierto, reintentos con
+ * espera exponencial limitados por un presupuesto compartido y, opcionalmente, una
+ * segunda solicitud de cobertura cuando la primera supera el percentil de latencia
+ * reciente (el balanceador la envía a otra instancia).
+ * Un límite de concurrencia opcional acota las solicitudes simultáneas, necesario cuando
+ * las peticiones se atienden con hilos virtuales y ya no las limita el pool de Tomcat.
+ * Solo se reintentan errores de red, timeouts y 5xx; /api/plan no tiene efectos secundarios.
+ */
+@Component
+public class ResilienciaProlog implements MeterBinder {
+
+    private final PrologProperties config;
+    private final Cortacircuito circuito;
+    private final PresupuestoReintentos presupuesto;
+    private final LatenciasRecientes latencias = new LatenciasRecientes(256);
+    private final LimiteConcurrencia limite;
+
+    public ResilienciaProlog(PrologProperties config) {
+        PrologProperties.Circuito c = config.getCircuito();
+        this.config = config;
+        this.circuito = new Cortacircuito(c.getVentana(), c.getMinimoLlamadas(), c.getUmbralFallos(),
+                c.getAbierto().toNanos(), c.getSondas(), System::nanoTime);
+        this.presupuesto = new PresupuestoReintentos(config.getPresupuestoReintentos(),
+                config.getPresupuestoMaximo());
+        this.limite = new LimiteConcurrencia(config.getConcurrenciaMaxima(), config.getEsperaPermiso());
+    }
+
+    /**
+     * Ejecuta la llamada con todas las protecciones. Los errores de disponibilidad se
+     * traducen a PrologNoDisponibleException (503); los 4xx a RuntimeException.
+     */
+    public <T> Mono<T> ejecutar(Supplier<Mono<T>> llamada) {
+        return Mono.defer(() -> {
+                    presupuesto.registrarLlamada();
+                    // El presupuesto solo se consume si de verdad queda un reintento por hacer
+                    AtomicInteger reintentos = new AtomicInteger();
+                    return Mono.defer(() -> intento(llamada))
+                            .retryWhen(Retry.backoff(config.getReintentos(), config.getEsperaReintento())
+                                    .filter(e -> esReintentable(e)
+                                            && reintentos.get() < config.getReintentos()
+                                            && presupuesto.retirar())
+                                    .doBeforeRetry(senal -> reintentos.incrementAndGet())
+                                    .onRetryExhaustedThrow((spec, senal) -> senal.failure()));
+                })
+                .timeout(config.getPlazo())
+                .onErrorMap(this::traducir);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("agenda.prolog.circuito.abierto", circuito,
+                        c -> c.estado() == Cortacircuito.Estado.CERRADO ? 0 : 1)
+                .description("1 si el cortacircuito de PrologAPI está abierto o semiabierto")
+                .register(registry);
+        Gauge.builder("agenda.prolog.reintentos.disponibles", presupuesto, PresupuestoReintentos::saldo)
+                .description("Saldo del presupuesto de reintentos hacia PrologAPI")
+                .register(registry);
+        Gauge.builder("agenda.prolog.llamadas.en.curso", limite, LimiteConcurrencia::enUso)
+                .description("Solicitudes a PrologAPI en curso bajo el límite de concurrencia")
+                .register(registry);
+        Gauge.builder("agenda.prolog.llamadas.en.espera", limite, LimiteConcurrencia::enEspera)
+                .description("Solicitudes a PrologAPI esperando cupo")
+                .register(registry);
+    }
+
+    /** Estado del cortacircuito, saldo de reintentos, cupos y latencia reciente. */
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("circuito", circuito.estado().name());
+        datos.put("reintentosDisponibles", presupuesto.saldo());
+        if (config.getConcurrenciaMaxima() > 0) {
+            datos.put("concurrenciaMaxima", config.getConcurrenciaMaxima());
+            datos.put("llamadasEnCurso", limite.enUso());
+            datos.put("llamadasEnEspera", limite.enEspera());
+        }
+        Long p50 = latencias.percentil(0.5, 1);
+        Long p95 = latencias.percentil(0.95, 1);
+        datos.put("latenciaP50Ms", p50 != null ? p50 / 1_000_000 : null);
+        datos.put("latenciaP95Ms", p95 != null ? p95 / 1_000_000 : null);
+        return datos;
+    }
+
+    private <T> Mono<T> intento(Supplier<Mono<T>> llamada) {
+        if (!circuito.permitir()) {
+            return Mono.error(new PrologNoDisponibleException("PrologAPI no disponible: circuito abierto", null));
+        }
+        Duration espera = config.getCobertura().isActiva() ? esperaCobertura() : null;
+        return espera != null ? conCobertura(llamada, espera) : medido(llamada);
+    }
+
+    /** Percentil de latencia reciente (con piso), o null si aún no hay suficientes muestras. */
+    private Duration esperaCobertura() {
+        PrologProperties.Cobertura cobertura = config.getCobertura();
+        Long percentil = latencias.percentil(cobertura.getPercentil(), cobertura.getMuestrasMinimas());
+        return percentil != null ? Duration.ofNanos(Math.max(percentil, cobertura.getMinimo().toNanos())) : null;
+    }
+
+    /**
+     * Lanza la solicitud principal y, si no respondió tras "espera", una de cobertura.
+     * Gana la primera respuesta exitosa y la otra se cancela; falla solo si fallan las dos.
+     * La cobertura consume presupuesto de reintentos y respeta el cortacircuito.
+     */
+    private <T> Mono<T> conCobertura(Supplier<Mono<T>> llamada, Duration espera) {
+        return Mono.create(sink -> {
+            AtomicBoolean terminado = new AtomicBoolean();
+            AtomicInteger enCurso = new AtomicInteger(1);
+            Disposable.Composite suscripciones = Disposables.composite();
+            Consumer<T> alResponder = valor -> {
+                if (terminado.compareAndSet(false, true)) {
+                    sink.success(valor);
+                }
+            };
+            Consumer<Throwable> alFallar = error -> {
+                if (enCurso.decrementAndGet() == 0 && terminado.compareAndSet(false, true)) {
+                    sink.error(error);
+                }
+            };
+            sink.onDispose(suscripciones);
+
+            suscripciones.add(medido(llamada).subscribe(alResponder, alFallar));
+            suscripciones.add(Mono.delay(espera).subscribe(x -> {
+                if (terminado.get() || !circuito.permitir()) {
+                    return;
+                }
+                if (!presupuesto.retirar()) {
+                    circuito.descartar();
+                    return;
+                }
+                enCurso.incrementAndGet();
+                suscripciones.add(medido(llamada).subscribe(alResponder, alFallar));
+            }));
+        });
+    }
+
+    /**
+     * Un intento con su propio timeout; espera cupo antes de empezar a medir y registra la
+     * latencia si fue exitoso. El resultado se registra en el cortacircuito (una sola vez)
+     * sobre la espera y la llamada juntas, así que la sonda reservada por permitir() se
+     * libera también si vence la espera de cupo o si se cancela mientras está en cola.
+     */
+    private <T> Mono<T> medido(Supplier<Mono<T>> llamada) {
+        return Mono.defer(() -> {
+            AtomicBoolean registrado = new AtomicBoolean();
+            return limite.ejecutar(() -> Mono.defer(() -> {
+                        long inicio = System.nanoTime();
+                        return llamada.get()
+                                .timeout(config.getTimeoutIntento())
+                                .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                                        "PrologAPI respondió sin contenido")))
+                                .doOnNext(valor -> latencias.registrar(System.nanoTime() - inicio));
+                    }))
+                    .doOnNext(valor -> {
+                        if (registrado.compareAndSet(false, true)) {
+                            circuito.registrarExito();
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (registrado.compareAndSet(false, true)) {
+                            // Sin cupo no hubo llamada; un 4xx es un error del request:
+                            // ninguno dice nada de la salud de PrologAPI
+                            if (error instanceof LimiteConcurrencia.SinCupoException) {
+                                circuito.descartar();
+                            } else if (esErrorDelCliente(error)) {
+                                circuito.registrarExito();
+                            } else {
+                                circuito.registrarFallo();
+                            }
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (registrado.compareAndSet(false, true)) {
+                            circuito.descartar();
+                        }
+                    });
+        });
+    }
+
+    private boolean esReintentable(Throwable e) {
+        return !(e instanceof PrologNoDisponibleException) && !esErrorDelCliente(e);
+    }
+
+    private static boolean esErrorDelCliente(Throwable e) {
+        return e instanceof WebClientResponseException respuesta && respuesta.getStatusCode().is4xxClientError();
+    }
+
+    private Throwable traducir(Throwable e) {
+        if (e instanceof PrologNoDisponibleException) {
+            return e;
+        }
+        if (esErrorDelCliente(e)) {
+            return new RuntimeException("Error al llamar a PrologAPI: " + e.getMessage(), e);
+        }
+        String detalle = e instanceof TimeoutException
+                ? "sin respuesta dentro del plazo"
+                : e.getMessage();
+        return new PrologNoDisponibleException("PrologAPI no disponible: " + detalle, e);
+    }
+}
@@ -1,26 +1,73 @@
 package cr.ac.una.agenda.service;
 
+import cr.ac.una.agenda.dto.PaginaDTO;
+import cr.ac.una.agenda.dto.TareaParcial;
 import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.DiaTarea;
 import cr.ac.una.agenda.repository.TareaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class TareaService {
 
     private final TareaRepository repo;
+    private final ApplicationEventPublisher eventos;
+    private final GrafoDependencias grafo;
+    private final EstadosDiferidos estadosDiferidos;
+    private final TransactionTemplate transaccion;
 
-    public TareaService(TareaRepository repo) {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TareaService(TareaRepository repo, ApplicationEventPublisher eventos, GrafoDependencias grafo,
+                        EstadosDiferidos estadosDiferidos, PlatformTransactionManager transacciones) {
         this.repo = repo;
+        this.eventos = eventos;
+        this.grafo = grafo;
+        this.estadosDiferidos = estadosDiferidos;
+        this.transaccion = new TransactionTemplate(transacciones);
     }
 
     /* =======================
        VALIDACIONES BÁSICAS
        ======================= */
     private void validar(Tarea t) {
+        validarCampos(t);
+        validarDependencia(t);
+    }
+
+    private void validarDependencia(Tarea t) {
+        // Evitar auto-dependencia
+        if (t.getDependeDeId() != null && t.getId() != null && t.getDependeDeId().equals(t.getId()))
+            throw new IllegalArgumentException("Una tarea no puede depender de sí misma");
+        // Validar dependencias circulares
+        if (t.getDependeDeId() != null) {
+            validarDependenciaCircular(t);
+        }
+    }
+
+    /** Campos obligatorios y rangos, sin mirar dependencias (también lo usa la importación). */
+    void validarCampos(Tarea t) {
         if (t.getUsuarioId() == null) throw new IllegalArgumentException("usuarioId es obligatorio");
         if (!StringUtils.hasText(t.getNombre())) throw new IllegalArgumentException("nombre es obligatorio");
         if (t.getNombre().length() > 150) throw new IllegalArgumentException("nombre demasiado largo (max 150)");
@@ -29,55 +76,59 @@ public class TareaService {
             throw new IllegalArgumentException("duracionMinutos debe ser > 0");
         if (t.getPrioridad() == null) throw new IllegalArgumentException("prioridad es obligatoria");
         if (t.getEstado() == null) throw new IllegalArgumentException("estado es obligatorio");
-        // Evitar auto-dependencia
-        if (t.getDependeDeId() != null && t.getId() != null && t.getDependeDeId().equals(t.getId()))
-            throw new IllegalArgumentException("Una tarea no puede depender de sí misma");
-        // Validar dependencias circulares
-        if (t.getDependeDeId() != null) {
-            validarDependenciaCircular(t);
-        }
     }
 
     /**
-     * Valida que no existan dependencias circulares
+     * Valida que no existan dependencias circulares (consulta el índice en memoria, no la BD).
+     * Visible en el paquete para los benchmarks de src/jmh.
      */
-    private void validarDependenciaCircular(Tarea tarea) {
-        java.util.Set<Long> visitados = new java.util.HashSet<>();
-        Long actual = tarea.getDependeDeId();
-        
-        while (actual != null && !visitados.contains(actual)) {
-            if (actual.equals(tarea.getId())) {
-                throw new IllegalArgumentException("Dependencia circular detectada: la tarea eventualmente dependería de sí misma");
-            }
-            visitados.add(actual);
-            
-            Tarea padre = repo.findById(actual).orElse(null);
-            actual = padre != null ? padre.getDependeDeId() : null;
+    void validarDependenciaCircular(Tarea tarea) {
+        if (grafo.creariaCiclo(tarea.getUsuarioId(), tarea.getId(), tarea.getDependeDeId())) {
+            throw new IllegalArgumentException("Dependencia circular detectada: la tarea eventualmente dependería de sí misma");
         }
     }
 
     /* =======================
        CRUD
        ======================= */
-    public List<Tarea> listar() {
-        return repo.findAll();
-    }
-
     public Tarea obtener(Long id) {
-        return repo.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Tarea no encontrada"));
+        return conPendiente(repo.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Tarea no encontrada")));
     }
 
     public Tarea crear(Tarea t) {
-        validar(t);
-        // En creación, id debe ser null
-        t.setId(null);
-        return repo.save(t);
+        if (t.getUsuarioId() == null) throw new IllegalArgumentException("usuarioId es obligatorio");
+        // Validar y guardar con el grafo del usuario bloqueado (evita ciclos por escrituras en paralelo)
+        return grafo.conBloqueo(t.getUsuarioId(), () -> {
+            validar(t);
+            // En creación, id debe ser null
+            t.setId(null);
+            Tarea guardada = repo.save(t);
+            grafo.registrar(null, null, guardada);
+            notificarCambio(CambioAgendaEvent.deTarea(CambioAgendaEvent.Tipo.CREADA,
+                    guardada.getUsuarioId(), guardada.getFecha(), guardada));
+            return guardada;
+        });
     }
 
     public Tarea actualizar(Long id, Tarea t) {
+        if (t.getUsuarioId() == null) throw new IllegalArgumentException("usuarioId es obligatorio");
+        // El id de la ruta manda (el ciclo se detecta respecto a esta tarea)
+        t.setId(id);
+        // Si cambia de usuario se bloquean los grafos de ambos (en orden fijo, ver GrafoDependencias)
+        Long usuarioActual = repo.findById(id).map(Tarea::getUsuarioId).orElse(null);
+        return grafo.conBloqueo(t.getUsuarioId(), usuarioActual, () -> guardarActualizacion(id, t));
+    }
+
+    private Tarea guardarActualizacion(Long id, Tarea t) {
         validar(t);
+        // Un cambio de estado diferido de esta tarea no debe pisar lo que se guarda ahora
+        escribirEstadoPendiente(id);
         Tarea actual = obtener(id);
+        verificarVersion(actual, t.getVersion());
+        Long usuarioAnterior = actual.getUsuarioId();
+        LocalDate fechaAnterior = actual.getFecha();
+        Long dependenciaAnterior = actual.getDependeDeId();
 
         // Campos editables
         actual.setUsuarioId(t.getUsuarioId());
@@ -91,39 +142,275 @@ public class TareaService {
         actual.setClimaPermitido(t.getClimaPermitido());
         actual.setNota(t.getNota());
 
-        return repo.save(actual);
+        Tarea guardada = guardarConVersion(actual);
+        grafo.registrar(usuarioAnterior, dependenciaAnterior, guardada);
+        notificarActualizacion(usuarioAnterior, fechaAnterior, guardada);
+        return guardada;
     }
 
-    public void eliminar(Long id) {
-        // Eliminar recursivamente todas las tareas que dependen de esta
-        List<Tarea> hijas = repo.findByDependeDeId(id);
-        for (Tarea hija : hijas) {
-            eliminar(hija.getId());
+    /**
+     * Actualización parcial: solo cambian (y se escriben) los campos presentes con otro valor.
+     * Los campos se validan en memoria; el ciclo de dependencias solo se revisa, con el grafo
+     * del usuario bloqueado, si cambian dependeDeId o el usuario.
+     * Si la versión indicada no es la actual, o alguien escribe la tarea a la vez,
+     * lanza ConflictoVersionException (409).
+     */
+    public Tarea actualizarParcial(Long id, TareaParcial cambios) {
+        escribirEstadoPendiente(id);
+        Tarea actual = obtener(id);
+        verificarVersion(actual, cambios.getVersion());
+        Long usuarioAnterior = actual.getUsuarioId();
+        LocalDate fechaAnterior = actual.getFecha();
+        Long dependenciaAnterior = actual.getDependeDeId();
+
+        if (!aplicar(actual, cambios)) {
+            return actual;
+        }
+        validarCampos(actual);
+        if (usuarioAnterior.equals(actual.getUsuarioId())
+                && Objects.equals(dependenciaAnterior, actual.getDependeDeId())) {
+            Tarea guardada = guardarConVersion(actual);
+            notificarActualizacion(usuarioAnterior, fechaAnterior, guardada);
+            return guardada;
+        }
+        return grafo.conBloqueo(actual.getUsuarioId(), usuarioAnterior, () -> {
+            validarDependencia(actual);
+            Tarea guardada = guardarConVersion(actual);
+            grafo.registrar(usuarioAnterior, dependenciaAnterior, guardada);
+            notificarActualizacion(usuarioAnterior, fechaAnterior, guardada);
+            return guardada;
+        });
+    }
+
+    // Copia los campos presentes; devuelve si alguno cambió
+    private static boolean aplicar(Tarea t, TareaParcial c) {
+        boolean cambio = cambiar(c.tiene("usuarioId"), c.getUsuarioId(), t::getUsuarioId, t::setUsuarioId);
+        cambio |= cambiar(c.tiene("nombre"), c.getNombre(), t::getNombre, t::setNombre);
+        cambio |= cambiar(c.tiene("fecha"), c.getFecha(), t::getFecha, t::setFecha);
+        cambio |= cambiar(c.tiene("duracionMinutos"), c.getDuracionMinutos(), t::getDuracionMinutos, t::setDuracionMinutos);
+        cambio |= cambiar(c.tiene("horaDeseada"), c.getHoraDeseada(), t::getHoraDeseada, t::setHoraDeseada);
+        cambio |= cambiar(c.tiene("prioridad"), c.getPrioridad(), t::getPrioridad, t::setPrioridad);
+        cambio |= cambiar(c.tiene("estado"), c.getEstado(), t::getEstado, t::setEstado);
+        cambio |= cambiar(c.tiene("dependeDeId"), c.getDependeDeId(), t::getDependeDeId, t::setDependeDeId);
+        cambio |= cambiar(c.tiene("climaPermitido"), c.getClimaPermitido(), t::getClimaPermitido, t::setClimaPermitido);
+        cambio |= cambiar(c.tiene("nota"), c.getNota(), t::getNota, t::setNota);
+        return cambio;
+    }
+
+    private static <T> boolean cambiar(boolean presente, T nuevo, Supplier<T> actual, Consumer<T> asignar) {
+        if (!presente || Objects.equals(nuevo, actual.get())) {
+            return false;
+        }
+        asignar.accept(nuevo);
+        return true;
+    }
+
+    private static void verificarVersion(Tarea actual, Long esperada) {
+        if (esperada != null && !esperada.equals(actual.getVersion())) {
+            throw new ConflictoVersionException("La tarea " + actual.getId() + " cambió (versión "
+                    + actual.getVersion() + ", se esperaba " + esperada + "); vuelva a leerla", null);
+        }
+    }
+
+    // El UPDATE lleva "where version = ?": si otro escribió antes, falla en lugar de pisarlo
+    private Tarea guardarConVersion(Tarea t) {
+        try {
+            return repo.save(t);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ConflictoVersionException("La tarea " + t.getId() + " cambió mientras se guardaba; vuelva a leerla", e);
+        }
+    }
+
+    private void notificarActualizacion(Long usuarioAnterior, LocalDate fechaAnterior, Tarea guardada) {
+        // Si cambió de día, el día anterior recibe la tarea con su nueva fecha
+        if (!usuarioAnterior.equals(guardada.getUsuarioId()) || !fechaAnterior.equals(guardada.getFecha())) {
+            notificarCambio(CambioAgendaEvent.deTarea(CambioAgendaEvent.Tipo.ACTUALIZADA,
+                    usuarioAnterior, fechaAnterior, guardada));
+        }
+        notificarCambio(CambioAgendaEvent.deTarea(CambioAgendaEvent.Tipo.ACTUALIZADA,
+                guardada.getUsuarioId(), guardada.getFecha(), guardada));
+    }
+
+    /**
+     * Elimina la tarea y, en cascada, todas las que dependen de ella.
+     * El subárbol se resuelve con una sola consulta recursiva y se borra en un solo lote.
+     * El grafo del usuario queda bloqueado hasta confirmar, para que nadie cuelgue una
+     * dependencia de una tarea que se está borrando; el grafo se actualiza al confirmar
+     * (GrafoDependencias escucha el evento ELIMINADA).
+     * Devuelve los ids eliminados.
+     */
+    public List<Long> eliminar(Long id) {
+        List<DiaTarea> raiz = repo.findDiasByIdIn(List.of(id));
+        if (raiz.isEmpty()) {
+            return List.of();
         }
-        repo.deleteById(id);
+        return grafo.conBloqueo(raiz.get(0).getUsuarioId(), () -> transaccion.execute(estado -> eliminarSubarbol(id)));
+    }
+
+    private List<Long> eliminarSubarbol(Long id) {
+        List<Long> ids = repo.findIdsSubarbol(id);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        List<DiaTarea> dias = repo.findDiasByIdIn(ids);
+        repo.deleteAllByIdInBatch(ids);
+
+        Map<DiaAgenda, List<Long>> porDia = new LinkedHashMap<>();
+        for (DiaTarea d : dias) {
+            porDia.computeIfAbsent(new DiaAgenda(d.getUsuarioId(), d.getFecha()), k -> new ArrayList<>()).add(d.getId());
+        }
+        porDia.forEach((dia, eliminadas) -> notificarCambio(CambioAgendaEvent.deTareas(
+                CambioAgendaEvent.Tipo.ELIMINADA, dia.getUsuarioId(), dia.getFecha(), eliminadas)));
+        return ids;
     }
 
     /* =======================
        CONSULTAS ÚTILES
        ======================= */
     public List<Tarea> listarPorUsuarioYFecha(Long usuarioId, LocalDate fecha) {
-        return repo.findByUsuarioIdAndFecha(usuarioId, fecha);
+        return conPendientes(repo.findByUsuarioIdAndFecha(usuarioId, fecha));
     }
 
-    public List<Tarea> listarPorEstado(Tarea.Estado estado) {
-        return repo.findByEstado(estado);
+    /* =======================
+       PAGINACIÓN Y EXPORTACIÓN
+       ======================= */
+    public PaginaDTO<Tarea> listarPagina(Long despuesDe, Integer limite,
+                                         Tarea.Estado estado, Tarea.Prioridad prioridad) {
+        int tam = PaginaDTO.normalizarLimite(limite);
+        if (estado != null) {
+            estadosDiferidos.volcarTodo();
+        }
+        List<Tarea> filas = conPendientes(repo.findPagina(despuesDe != null ? despuesDe : 0L, estado, prioridad,
+                Limit.of(tam + 1)));
+        return PaginaDTO.de(filas, tam, Tarea::getId);
     }
 
-    public List<Tarea> listarPorPrioridad(Tarea.Prioridad prioridad) {
-        return repo.findByPrioridad(prioridad);
+    /**
+     * Entrega las tareas una por una al destino mientras se leen de la BD.
+     * Cada tarea se separa del contexto de persistencia apenas se entrega, así la memoria no crece.
+     */
+    @Transactional(readOnly = true)
+    public void exportar(Tarea.Estado estado, Tarea.Prioridad prioridad, Consumer<Tarea> destino) {
+        // Se escriben en su propia transacción, antes de empezar a leer
+        estadosDiferidos.volcarTodo();
+        try (Stream<Tarea> filas = repo.streamTodas(estado, prioridad)) {
+            filas.forEach(t -> {
+                destino.accept(t);
+                entityManager.detach(t);
+            });
+        }
+    }
+
+    /* =======================
+       GRAFO DE DEPENDENCIAS
+       ======================= */
+    public List<Long> dependientes(Long id) {
+        Tarea t = obtener(id);
+        return grafo.descendientes(t.getUsuarioId(), id);
+    }
+
+    public List<Long> dependeDe(Long id) {
+        Tarea t = obtener(id);
+        return grafo.ancestros(t.getUsuarioId(), id);
+    }
+
+    public void reconstruirGrafo(Long usuarioId) {
+        grafo.reconstruir(usuarioId);
+    }
+
+    public List<String> verificarGrafo(Long usuarioId) {
+        return grafo.verificar(usuarioId);
     }
 
     /* =======================
        AYUDAS
        ======================= */
     public Tarea cambiarEstado(Long id, Tarea.Estado nuevo) {
+        if (estadosDiferidos.isActivo()) {
+            return cambiarEstadoDiferido(id, nuevo);
+        }
         Tarea t = obtener(id);
         t.setEstado(nuevo);
-        return repo.save(t);
+        Tarea guardada = guardarConVersion(t);
+        notificarCambio(CambioAgendaEvent.deTarea(CambioAgendaEvent.Tipo.ESTADO,
+                guardada.getUsuarioId(), guardada.getFecha(), guardada));
+        return guardada;
+    }
+
+    // Se confirma al quedar en el diario; la BD se actualiza en el siguiente lote. Una tarea que
+    // ya tiene un cambio pendiente se toma del diferido, sin leer la BD
+    private Tarea cambiarEstadoDiferido(Long id, Tarea.Estado nuevo) {
+        Tarea t = estadosDiferidos.tarea(id);
+        if (t == null) {
+            t = obtener(id);
+            entityManager.detach(t);
+            if (estadosDiferidos.pendiente(id) == null) {
+                // El volcado sube la versión una vez por tarea
+                t.setVersion(t.getVersion() + 1);
+            }
+        }
+        t.setEstado(nuevo);
+        estadosDiferidos.registrar(t, nuevo);
+        notificarCambio(CambioAgendaEvent.deEstadoDiferido(t));
+        return t;
+    }
+
+    /**
+     * Pasa de "desde" a "hacia" todas las tareas indicadas del día (usuarioId, fecha) en una sola
+     * sentencia transaccional. Las que ya no estén en "desde" no se tocan.
+     * Devuelve la cantidad de tareas que cambiaron.
+     */
+    @Transactional
+    public int cambiarEstadoMasivo(Long usuarioId, LocalDate fecha, Collection<Long> ids,
+                                   Tarea.Estado desde, Tarea.Estado hacia) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        escribirEstadosPendientes(usuarioId);
+        int cambiadas = repo.actualizarEstado(usuarioId, fecha, ids, desde, hacia);
+        if (cambiadas > 0) {
+            // Se informan los ids pedidos; las que no estaban en "desde" siguen igual
+            notificarCambio(CambioAgendaEvent.deTareas(CambioAgendaEvent.Tipo.ESTADO, usuarioId, fecha, ids));
+        }
+        return cambiadas;
+    }
+
+    /**
+     * Escribe ya los cambios de estado diferidos del usuario, para que las lecturas
+     * directas de la BD (planificación) y las escrituras siguientes partan de ellos.
+     */
+    public void escribirEstadosPendientes(Long usuarioId) {
+        estadosDiferidos.volcar(usuarioId);
+    }
+
+    private void escribirEstadoPendiente(Long id) {
+        Long usuarioId = estadosDiferidos.usuarioPendiente(id);
+        if (usuarioId != null) {
+            estadosDiferidos.volcar(usuarioId);
+        }
+    }
+
+    // Lectura de lo propio: el estado diferido reemplaza al de la BD (sobre una copia separada),
+    // con la versión que tendrá tras el volcado
+    private Tarea conPendiente(Tarea t) {
+        Tarea.Estado pendiente = estadosDiferidos.pendiente(t.getId());
+        if (pendiente != null) {
+            entityManager.detach(t);
+            t.setEstado(pendiente);
+            t.setVersion(t.getVersion() + 1);
+        }
+        return t;
+    }
+
+    private List<Tarea> conPendientes(List<Tarea> tareas) {
+        if (estadosDiferidos.isActivo()) {
+            tareas.forEach(this::conPendiente);
+        }
+        return tareas;
+    }
+
+    /** Avisa a los cachés y suscriptores que el día (usuarioId, fecha) cambió. */
+    private void notificarCambio(CambioAgendaEvent evento) {
+        eventos.publishEvent(evento);
     }
 }
@@ -0,0 +1,76 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * ETags de las lecturas por día y de la configuración, para responder 304 sin leer
+ * ni serializar las filas.
+ * <ul>
+ *   <li>Día: versión en la tabla version_dia, que cambia en cada escritura (en la misma
+ *       transacción cuando la hay), más la huella de los cambios de estado diferidos.</li>
+ *   <li>Configuración: resumen de la copia en ConfiguracionCache, que ya se compara con la
+ *       versión de la fila antes de usarse; así no se agrega otra consulta a la lectura.</li>
+ * </ul>
+ */
+@Component
+public class VersionesAgenda {
+
+    /** La primera versión de un día es la hora actual, para no repetir ETags si la tabla se vacía. */
+    static final String INCREMENTAR = "insert into version_dia (usuario_id, fecha, version) values (?, ?, ?) "
+            + "on duplicate key update version = version + 1";
+    private static final String LEER = "select version from version_dia where usuario_id = ? and fecha = ?";
+
+    private final JdbcTemplate jdbc;
+    private final EstadosDiferidos estadosDiferidos;
+
+    public VersionesAgenda(JdbcTemplate jdbc, EstadosDiferidos estadosDiferidos) {
+        this.jdbc = jdbc;
+        this.estadosDiferidos = estadosDiferidos;
+    }
+
+    /** ETag fuerte de las tareas del día (usuarioId, fecha). */
+    public String etagDia(Long usuarioId, LocalDate fecha) {
+        // La huella va primero: un volcado sube la versión antes de quitar sus pendientes
+        String huella = estadosDiferidos.huella(usuarioId, fecha);
+        List<Long> version = jdbc.queryForList(LEER, Long.class, usuarioId, fecha);
+        return "\"d" + (version.isEmpty() ? 0 : version.get(0)) + (huella != null ? "." + huella : "") + "\"";
+    }
+
+    /** ETag fuerte de la configuración tal como se va a responder. */
+    public static String etagConfiguracion(ConfiguracionAgenda c) {
+        return "\"c" + resumen(c.getId() + "|" + c.getUsuarioId() + "|" + c.getHoraInicio() + "|"
+                + c.getMinutosDisponibles() + "|" + c.getNota()) + "\"";
+    }
+
+    /** Cambios de tareas: sube la versión del día. Los diferidos la suben al escribirse. */
+    @EventListener
+    public void alCambiarAgenda(CambioAgendaEvent evento) {
+        if (evento.getFecha() != null && !evento.isDiferido()) {
+            jdbc.update(INCREMENTAR, argumentos(evento.getUsuarioId(), evento.getFecha()));
+        }
+    }
+
+    static Object[] argumentos(Long usuarioId, LocalDate fecha) {
+        return new Object[]{usuarioId, fecha, System.currentTimeMillis()};
+    }
+
+    /** Primeros 16 dígitos hexadecimales del SHA-256 del texto. */
+    static String resumen(String texto) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(texto.getBytes(StandardCharsets.UTF_8)), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package cr.ac.una.agenda.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa llamadas concurrentes con la misma clave: la primera hace el cálculo y las que
+ * llegan mientras está en curso reciben su mismo resultado (o error).
+ * La clave se libera al terminar, así que no guarda resultados; eso lo hace PlanCache.
+ */
+final class VueloUnico<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> enCurso = new ConcurrentHashMap<>();
+
+    /** Variante bloqueante: el primero calcula en su hilo y los demás esperan. */
+    V ejecutar(K clave, Supplier<V> calculo) {
+        CompletableFuture<V> nuevo = new CompletableFuture<>();
+        CompletableFuture<V> existente = enCurso.putIfAbsent(clave, nuevo);
+        if (existente != null) {
+            return esperar(existente);
+        }
+        try {
+            V valor = calculo.get();
+            nuevo.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            nuevo.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, nuevo);
+        }
+    }
+
+    /**
+     * Variante reactiva: el cálculo se suscribe una sola vez y sigue aunque quien lo
+     * inició cancele, porque otros pueden estar esperando el mismo resultado.
+     */
+    Mono<V> compartir(K clave, Supplier<Mono<V>> calculo) {
+        return Mono.defer(() -> {
+            CompletableFuture<V> nuevo = new CompletableFuture<>();
+            CompletableFuture<V> existente = enCurso.putIfAbsent(clave, nuevo);
+            if (existente != null) {
+                return Mono.fromFuture(existente, true);
+            }
+            Mono.defer(calculo)
+                    .doFinally(senal -> enCurso.remove(clave, nuevo))
+                    .subscribe(nuevo::complete, nuevo::completeExceptionally, () -> nuevo.complete(null));
+            return Mono.fromFuture(nuevo, true);
+        });
+    }
+
+    /** Cantidad de cálculos en curso. */
+    int enCurso() {
+        return enCurso.size();
+    }
+
+    private static <V> V esperar(CompletableFuture<V> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cr.ac.una.agenda.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Lectura de CSV de la importación: comillas, comillas escapadas, saltos de línea dentro de
+ * un campo y registros con más o menos celdas que columnas.
+ */
+class CsvTest {
+
+    @Test
+    void leeCamposEntreComillasConComasComillasYSaltosDeLinea() {
+        String texto = "\uFEFFref,nombre,nota\r\n"
+                + "a,\"Leer, repasar\",\"Dijo \"\"hola\"\"\"\r\n"
+                + "b,Escribir,\"dos\nlíneas\"\n";
+
+        List<Map<String, String>> filas = Csv.leer(texto);
+
+        assertEquals(List.of(
+                Map.of("ref", "a", "nombre", "Leer, repasar", "nota", "Dijo \"hola\""),
+                Map.of("ref", "b", "nombre", "Escribir", "nota", "dos\nlíneas")), filas);
+    }
+
+    @Test
+    void omiteCeldasVaciasLineasEnBlancoYRegistrosSinValores() {
+        String texto = "ref , nombre,nota\n"
+                + "\n"
+                + ",,\n"
+                + " a , Leer ,\n";
+
+        assertEquals(List.of(Map.of("ref", "a", "nombre", "Leer")), Csv.leer(texto));
+    }
+
+    @Test
+    void ignoraLasCeldasDeMasYNoInventaLasQueFaltan() {
+        String texto = "ref,nombre\n"
+                + "a,Leer,sobra,otra\n"
+                + "b\n";
+
+        assertEquals(List.of(Map.of("ref", "a", "nombre", "Leer"), Map.of("ref", "b")), Csv.leer(texto));
+    }
+
+    @Test
+    void sinRegistrosDevuelveUnaListaVacia() {
+        assertEquals(List.of(), Csv.leer(""));
+        assertEquals(List.of(), Csv.leer("ref,nombre\n"));
+    }
+}
@@ -0,0 +1,216 @@
+package cr.ac.una.agenda.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cr.ac.una.agenda.dto.ImportacionFila;
+import cr.ac.una.agenda.dto.ImportacionResultado;
+import cr.ac.una.agenda.dto.TareaImportada;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.TareaRepository;
+import cr.ac.una.agenda.repository.VersionGrafoRepository;
+import cr.ac.una.agenda.service.CanalAgenda;
+import cr.ac.una.agenda.service.EstadosDiferidos;
+import cr.ac.una.agenda.service.GrafoDependencias;
+import cr.ac.una.agenda.service.ImportacionTareas;
+import cr.ac.una.agenda.service.TareaService;
+import cr.ac.una.agenda.service.VersionesAgenda;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Importación masiva contra H2, por los endpoints JSON y CSV: cada fila inválida se reporta
+ * sola, las dependencias se validan (dueño, existencia, ciclos) y los ids generados por el
+ * INSERT por lotes quedan en la fila correcta aunque el nivel ocupe varios lotes.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class ImportarTareasTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 10, 26);
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+    @Autowired
+    private TareaRepository tareas;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transacciones;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void preparar() {
+        ApplicationEventPublisher eventos = mock(ApplicationEventPublisher.class);
+        GrafoDependencias grafo = new GrafoDependencias(tareas, mock(VersionGrafoRepository.class),
+                Duration.ofMinutes(1), Duration.ofSeconds(1), 10_000);
+        TareaService service = new TareaService(tareas, eventos, grafo,
+                new EstadosDiferidos(null, null, false, Duration.ZERO, 1, ""), transacciones);
+        // Lotes de dos filas: el primer nivel necesita dos INSERT por lotes
+        ImportacionTareas importacion = new ImportacionTareas(service, tareas, grafo, new JdbcTemplate(dataSource),
+                transacciones, eventos, 100, 2);
+        mvc = MockMvcBuilders.standaloneSetup(new TareaController(service, importacion, mock(CanalAgenda.class),
+                mock(VersionesAgenda.class), mapper)).build();
+    }
+
+    @Test
+    void jsonCreaLasFilasValidasPorNivelesYReportaCadaFilaInvalida() throws Exception {
+        TareaImportada sinNombre = fila("x", 1L, null);
+        TareaImportada refInexistente = fila("y", 1L, "Huérfana");
+        refInexistente.setDependeDeRef("no-existe");
+        TareaImportada segunda = fila("b", 1L, "Segunda");
+        segunda.setDependeDeRef("a");
+        TareaImportada tercera = fila("c", 1L, "Tercera");
+        tercera.setDependeDeRef("b");
+
+        ImportacionResultado r = importarJson(List.of(
+                fila("a", 1L, "Primera"), sinNombre, segunda, fila("d", 1L, "Suelta 1"),
+                refInexistente, tercera, fila("e", 1L, "Suelta 2")));
+
+        assertEquals(7, r.getRecibidas());
+        assertEquals(5, r.getCreadas());
+        assertEquals(2, r.getFallidas());
+        assertEquals("nombre es obligatorio", r.getFilas().get(1).getError());
+        assertEquals("dependeDeRef no corresponde a ninguna fila: no-existe", r.getFilas().get(4).getError());
+
+        // Cada id corresponde a su fila y las dependencias usan los ids del nivel anterior
+        Tarea primera = guardada(r, 0, "Primera");
+        Tarea guardadaSegunda = guardada(r, 2, "Segunda");
+        Tarea guardadaTercera = guardada(r, 5, "Tercera");
+        guardada(r, 3, "Suelta 1");
+        guardada(r, 6, "Suelta 2");
+        assertNull(primera.getDependeDeId());
+        assertEquals(primera.getId(), guardadaSegunda.getDependeDeId());
+        assertEquals(guardadaSegunda.getId(), guardadaTercera.getDependeDeId());
+        assertEquals(0L, guardadaTercera.getVersion());
+        assertEquals(5, tareas.count());
+    }
+
+    @Test
+    void jsonRechazaDependenciasHaciaOtroUsuarioOInexistentes() throws Exception {
+        Tarea ajena = new Tarea();
+        ajena.setUsuarioId(2L);
+        ajena.setNombre("Ajena");
+        ajena.setFecha(FECHA);
+        ajena.setDuracionMinutos(30);
+        ajena = tareas.saveAndFlush(ajena);
+
+        TareaImportada haciaAjena = fila("a", 1L, "Hacia otra");
+        haciaAjena.setDependeDeId(ajena.getId());
+        TareaImportada delMismoDueno = fila("b", 2L, "Del mismo dueño");
+        delMismoDueno.setDependeDeId(ajena.getId());
+        TareaImportada refAOtroUsuario = fila("c", 1L, "Ref a otro usuario");
+        refAOtroUsuario.setDependeDeRef("b");
+        TareaImportada inexistente = fila("d", 1L, "Inexistente");
+        inexistente.setDependeDeId(ajena.getId() + 1000);
+        TareaImportada ambas = fila("e", 2L, "Ambas");
+        ambas.setDependeDeId(ajena.getId());
+        ambas.setDependeDeRef("b");
+
+        ImportacionResultado r = importarJson(List.of(haciaAjena, delMismoDueno, refAOtroUsuario, inexistente, ambas));
+
+        assertEquals(1, r.getCreadas());
+        assertEquals("dependeDeId " + ajena.getId() + " no existe o es de otro usuario", r.getFilas().get(0).getError());
+        assertEquals(ajena.getId(), guardada(r, 1, "Del mismo dueño").getDependeDeId());
+        assertEquals("dependeDeRef apunta a una tarea de otro usuario", r.getFilas().get(2).getError());
+        assertEquals("dependeDeId " + (ajena.getId() + 1000) + " no existe o es de otro usuario",
+                r.getFilas().get(3).getError());
+        assertEquals("Use dependeDeId o dependeDeRef, no ambos", r.getFilas().get(4).getError());
+    }
+
+    @Test
+    void jsonNoInsertaLasFilasDeUnCicloNiLasQueDependenDeEl() throws Exception {
+        TareaImportada a = fila("a", 1L, "A");
+        a.setDependeDeRef("b");
+        TareaImportada b = fila("b", 1L, "B");
+        b.setDependeDeRef("a");
+        TareaImportada c = fila("c", 1L, "C");
+        c.setDependeDeRef("a");
+        TareaImportada propia = fila("d", 1L, "D");
+        propia.setDependeDeRef("d");
+
+        ImportacionResultado r = importarJson(List.of(a, b, c, propia));
+
+        assertEquals(0, r.getCreadas());
+        assertEquals("Dependencia circular entre filas del lote", r.getFilas().get(0).getError());
+        assertEquals("Dependencia circular entre filas del lote", r.getFilas().get(1).getError());
+        assertEquals("Depende de la fila 1, que no se importó", r.getFilas().get(2).getError());
+        assertEquals("Una tarea no puede depender de sí misma", r.getFilas().get(3).getError());
+        assertEquals(0, tareas.count());
+    }
+
+    @Test
+    void csvLeeComillasYMarcaSoloLaFilaConUnValorInvalido() throws Exception {
+        String csv = "ref,usuarioId,nombre,fecha,duracionMinutos,dependeDeRef,nota\r\n"
+                + "a,1,\"Leer, repasar\",2025-10-26,30,,\"Dijo \"\"hola\"\"\r\ny se fue\"\r\n"
+                + "b,1,Escribir,2025-10-26,treinta,,\r\n"
+                + "c,1,Revisar,2025-10-26,20,a,\r\n";
+
+        ImportacionResultado r = mapper.readValue(mvc.perform(post("/api/tareas/importar")
+                        .contentType(Csv.MEDIA_TYPE)
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), ImportacionResultado.class);
+
+        assertEquals(3, r.getRecibidas());
+        assertEquals(2, r.getCreadas());
+        ImportacionFila invalida = r.getFilas().get(1);
+        assertFalse(invalida.isExito());
+        assertEquals("b", invalida.getRef());
+        assertTrue(invalida.getError().startsWith("Valor inválido en la fila"), invalida.getError());
+
+        Tarea leer = guardada(r, 0, "Leer, repasar");
+        assertEquals("Dijo \"hola\"\r\ny se fue", leer.getNota());
+        assertEquals(leer.getId(), guardada(r, 2, "Revisar").getDependeDeId());
+    }
+
+    private ImportacionResultado importarJson(List<TareaImportada> filas) throws Exception {
+        String cuerpo = mvc.perform(post("/api/tareas/importar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(filas)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(cuerpo, ImportacionResultado.class);
+    }
+
+    // La fila (base 0) se creó y su id apunta a la tarea con ese nombre
+    private Tarea guardada(ImportacionResultado r, int fila, String nombre) {
+        ImportacionFila resultado = r.getFilas().get(fila);
+        assertTrue(resultado.isExito(), "Fila " + (fila + 1) + ": " + resultado.getError());
+        assertEquals(fila + 1, resultado.getFila());
+        Tarea t = tareas.findById(resultado.getId()).orElseThrow();
+        assertEquals(nombre, t.getNombre());
+        return t;
+    }
+
+    private static TareaImportada fila(String ref, Long usuarioId, String nombre) {
+        TareaImportada f = new TareaImportada();
+        f.setRef(ref);
+        f.setUsuarioId(usuarioId);
+        f.setNombre(nombre);
+        f.setFecha(FECHA);
+        f.setDuracionMinutos(30);
+        return f;
+    }
+}
@@ -0,0 +1,112 @@
+package cr.ac.una.agenda.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cr.ac.una.agenda.dto.PaginaDTO;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.service.CanalAgenda;
+import cr.ac.una.agenda.service.ImportacionTareas;
+import cr.ac.una.agenda.service.TareaService;
+import cr.ac.una.agenda.service.VersionesAgenda;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Listados de tareas: los que no llevan cursor quedan acotados y apuntan a la API por cursor;
+ * la exportación escribe NDJSON, una tarea por línea.
+ */
+class ListadosTareaTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private final TareaService service = mock(TareaService.class);
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new TareaController(service,
+            mock(ImportacionTareas.class), mock(CanalAgenda.class), mock(VersionesAgenda.class), mapper)).build();
+
+    @Test
+    void listarSinCursorDevuelveUnaPaginaYEnlazaLaSiguiente() throws Exception {
+        when(service.listarPagina(isNull(), eq(PaginaDTO.LIMITE_MAXIMO), eq(Tarea.Estado.PENDIENTE), isNull()))
+                .thenReturn(pagina(List.of(tarea(1L), tarea(2L)), 2L));
+
+        mvc.perform(get("/api/tareas/por-estado").param("estado", "PENDIENTE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/api/tareas/pagina?limite="
+                        + PaginaDTO.LIMITE_MAXIMO + "&estado=PENDIENTE&despuesDe=2>; rel=\"next\""));
+    }
+
+    @Test
+    void siNoHayMasNoSeEnviaEnlace() throws Exception {
+        when(service.listarPagina(isNull(), eq(PaginaDTO.LIMITE_MAXIMO), isNull(), isNull()))
+                .thenReturn(pagina(List.of(tarea(1L)), null));
+
+        mvc.perform(get("/api/tareas"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    void exportarEscribeUnaTareaPorLinea() throws Exception {
+        doAnswer(inv -> {
+            Consumer<Tarea> destino = inv.getArgument(2);
+            destino.accept(tarea(1L));
+            destino.accept(tarea(2L));
+            return null;
+        }).when(service).exportar(isNull(), eq(Tarea.Prioridad.ALTA), any());
+
+        MvcResult inicio = mvc.perform(get("/api/tareas/stream").param("prioridad", "ALTA"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String cuerpo = mvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(Ndjson.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(2, lineas.length);
+        for (int i = 0; i < lineas.length; i++) {
+            JsonNode fila = mapper.readTree(lineas[i]);
+            assertEquals(i + 1, fila.get("id").asLong());
+            assertEquals("Tarea " + (i + 1), fila.get("nombre").asText());
+        }
+    }
+
+    private static PaginaDTO<Tarea> pagina(List<Tarea> items, Long siguienteCursor) {
+        PaginaDTO<Tarea> pagina = new PaginaDTO<>();
+        pagina.setItems(items);
+        pagina.setSiguienteCursor(siguienteCursor);
+        return pagina;
+    }
+
+    private static Tarea tarea(Long id) {
+        Tarea t = new Tarea();
+        t.setId(id);
+        t.setUsuarioId(1L);
+        t.setNombre("Tarea " + id);
+        t.setFecha(LocalDate.of(2025, 10, 26));
+        t.setDuracionMinutos(30);
+        return t;
+    }
+}
@@ -0,0 +1,111 @@
+package cr.ac.una.agenda.repository;
+
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import cr.ac.una.agenda.entity.Tarea;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Consultas de paginación por cursor (keyset) contra H2: cada página sigue a la anterior
+ * por id, sin repetir ni saltar filas, y los filtros se aplican en la BD.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class PaginacionRepositorioTest {
+
+    private static final int TAMANO = 4;
+
+    @Autowired
+    private TareaRepository tareas;
+
+    @Autowired
+    private ConfiguracionAgendaRepository configuraciones;
+
+    @Test
+    void findPaginaRecorreTodasLasTareasEnOrdenDeId() {
+        List<Long> guardadas = guardarTareas(10);
+
+        List<Long> recorridas = recorrer(despuesDe -> tareas.findPagina(despuesDe, null, null,
+                Limit.of(TAMANO + 1)), Tarea::getId);
+
+        assertEquals(guardadas, recorridas);
+    }
+
+    @Test
+    void findPaginaFiltraPorEstadoYPrioridad() {
+        guardarTareas(10);
+
+        List<Tarea> pendientesAltas = new ArrayList<>();
+        recorrer(despuesDe -> {
+            List<Tarea> filas = tareas.findPagina(despuesDe, Tarea.Estado.PENDIENTE, Tarea.Prioridad.ALTA,
+                    Limit.of(TAMANO + 1));
+            pendientesAltas.addAll(filas.subList(0, Math.min(TAMANO, filas.size())));
+            return filas;
+        }, Tarea::getId);
+
+        List<Tarea> esperadas = tareas.findAll().stream()
+                .filter(t -> t.getEstado() == Tarea.Estado.PENDIENTE && t.getPrioridad() == Tarea.Prioridad.ALTA)
+                .collect(Collectors.toList());
+        assertTrue(!esperadas.isEmpty());
+        assertEquals(ids(esperadas), ids(pendientesAltas));
+    }
+
+    @Test
+    void findByIdGreaterThanRecorreTodasLasConfiguraciones() {
+        List<Long> guardadas = new ArrayList<>();
+        for (long u = 1; u <= 9; u++) {
+            ConfiguracionAgenda c = new ConfiguracionAgenda();
+            c.setUsuarioId(u);
+            guardadas.add(configuraciones.save(c).getId());
+        }
+
+        List<Long> recorridas = recorrer(despuesDe -> configuraciones.findByIdGreaterThanOrderByIdAsc(despuesDe,
+                Limit.of(TAMANO + 1)), ConfiguracionAgenda::getId);
+
+        assertEquals(guardadas, recorridas);
+    }
+
+    // Pide páginas de TAMANO (+1 para saber si hay más) como PaginaDTO.de, hasta que no quede nada
+    private static <T> List<Long> recorrer(Function<Long, List<T>> pagina, Function<T, Long> id) {
+        List<Long> vistos = new ArrayList<>();
+        Long despuesDe = 0L;
+        while (despuesDe != null) {
+            List<T> filas = pagina.apply(despuesDe);
+            List<T> incluidas = filas.subList(0, Math.min(TAMANO, filas.size()));
+            incluidas.forEach(f -> vistos.add(id.apply(f)));
+            despuesDe = filas.size() > TAMANO ? id.apply(incluidas.get(TAMANO - 1)) : null;
+        }
+        return vistos;
+    }
+
+    private List<Long> guardarTareas(int n) {
+        Tarea.Estado[] estados = Tarea.Estado.values();
+        Tarea.Prioridad[] prioridades = Tarea.Prioridad.values();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Tarea t = new Tarea();
+            t.setUsuarioId(1L);
+            t.setNombre("Tarea " + i);
+            t.setFecha(LocalDate.of(2025, 10, 26));
+            t.setDuracionMinutos(30);
+            t.setEstado(estados[i % estados.length]);
+            t.setPrioridad(prioridades[i % prioridades.length]);
+            ids.add(tareas.save(t).getId());
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(List<Tarea> lista) {
+        return lista.stream().map(Tarea::getId).collect(Collectors.toList());
+    }
+}
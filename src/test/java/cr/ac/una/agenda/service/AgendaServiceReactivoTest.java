@@ -0,0 +1,172 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.configuration.PrologProperties;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
+import cr.ac.una.agenda.repository.TareaPlanificable;
+import cr.ac.una.agenda.repository.TareaRepository;
+import cr.ac.una.agenda.repository.VersionGrafoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba de carga: con un pool de "hilos del servidor" fijo y un planificador lento,
+ * la variante reactiva sostiene mucha más concurrencia que la bloqueante porque
+ * no retiene el hilo mientras el planificador responde.
+ */
+class AgendaServiceReactivoTest {
+
+    private static final int HILOS_SERVIDOR = 10;
+    private static final int PETICIONES = 100;
+    private static final Duration LATENCIA_PLANIFICADOR = Duration.ofMillis(100);
+    private static final SpelAwareProxyProjectionFactory PROYECCIONES = new SpelAwareProxyProjectionFactory();
+
+    private Scheduler jpaScheduler;
+    private ExecutorService servidor;
+    private AgendaService service;
+
+    @BeforeEach
+    void setUp() {
+        TareaRepository tareaRepository = mock(TareaRepository.class);
+        when(tareaRepository.findPlanificablesByUsuarioIdAndFechaAndEstadoIn(
+                anyLong(), any(LocalDate.class), anyCollection()))
+                .thenAnswer(inv -> List.of(PROYECCIONES.createProjection(
+                        TareaPlanificable.class, tarea(inv.getArgument(0)))));
+
+        jpaScheduler = Schedulers.newBoundedElastic(HILOS_SERVIDOR, 10_000, "test-jpa");
+        servidor = Executors.newFixedThreadPool(HILOS_SERVIDOR);
+        service = new AgendaService(
+                WebClient.builder(),
+                new ResilienciaProlog(new PrologProperties()),
+                tareaRepository,
+                new ConfiguracionCache(mock(ConfiguracionAgendaRepository.class),
+                        1000, Duration.ofMinutes(1), Duration.ofSeconds(1)),
+                new TareaService(tareaRepository, mock(ApplicationEventPublisher.class),
+                        new GrafoDependencias(tareaRepository, mock(VersionGrafoRepository.class), Duration.ofMinutes(1),
+                                Duration.ofSeconds(1), 10_000),
+                        EstadosDiferidos.desactivados(), mock(PlatformTransactionManager.class)),
+                new PlanCache(1000, Duration.ofMinutes(1)),
+                new MetricasPlan(new SimpleMeterRegistry()),
+                mock(ApplicationEventPublisher.class),
+                jpaScheduler,
+                List.of(new PlanificadorLento()),
+                "lento",
+                8,
+                500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.shutdownNow();
+        jpaScheduler.dispose();
+    }
+
+    @Test
+    void reactivoSostieneMasConcurrenciaQueBloqueante() throws Exception {
+        long bloqueante = medir(usuario -> CompletableFuture.supplyAsync(
+                () -> service.generarPlan(request(usuario)), servidor));
+
+        // El hilo del "servidor" solo arma la cadena y queda libre de inmediato
+        long reactivo = medir(usuario -> CompletableFuture.supplyAsync(
+                () -> service.generarPlanReactivo(request(usuario)), servidor)
+                .thenCompose(Mono::toFuture));
+
+        long minimoBloqueante = LATENCIA_PLANIFICADOR.toMillis() * PETICIONES / HILOS_SERVIDOR;
+        assertTrue(bloqueante >= minimoBloqueante, "bloqueante: " + bloqueante + " ms");
+        assertTrue(reactivo < bloqueante / 2,
+                "reactivo: " + reactivo + " ms vs bloqueante: " + bloqueante + " ms");
+    }
+
+    private long medir(LongFunction<CompletableFuture<PlanResponse>> llamada) throws Exception {
+        long inicio = System.nanoTime();
+        List<CompletableFuture<PlanResponse>> enCurso = new ArrayList<>();
+        for (long usuario = 1; usuario <= PETICIONES; usuario++) {
+            enCurso.add(llamada.apply(usuario));
+        }
+        CompletableFuture.allOf(enCurso.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+    }
+
+    private static PlanRequest request(long usuario) {
+        PlanRequest request = new PlanRequest();
+        request.setUsuarioId(usuario);
+        request.setFecha(LocalDate.of(2025, 10, 26));
+        request.setClimaDia("soleado");
+        request.setMinutosDisponibles(480);
+        request.setHoraInicio("08:00");
+        return request;
+    }
+
+    private static Tarea tarea(Long usuario) {
+        Tarea t = new Tarea();
+        t.setId(usuario * 10);
+        t.setUsuarioId(usuario);
+        t.setNombre("Tarea " + usuario);
+        t.setFecha(LocalDate.of(2025, 10, 26));
+        t.setDuracionMinutos(30);
+        t.setEstado(Tarea.Estado.PENDIENTE);
+        return t;
+    }
+
+    /**
+     * Planificador que tarda LATENCIA_PLANIFICADOR en responder, como un PrologAPI lento.
+     */
+    private static class PlanificadorLento implements Planificador {
+        @Override
+        public String getNombre() {
+            return "lento";
+        }
+
+        @Override
+        public PlanResponse planificar(PlanRequest request) {
+            try {
+                Thread.sleep(LATENCIA_PLANIFICADOR.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return respuesta();
+        }
+
+        @Override
+        public Mono<PlanResponse> planificarReactivo(PlanRequest request) {
+            return Mono.delay(LATENCIA_PLANIFICADOR).map(x -> respuesta());
+        }
+
+        // Plan no posible para no pasar por la actualización de estados
+        private static PlanResponse respuesta() {
+            PlanResponse response = new PlanResponse();
+            response.setPosible(false);
+            response.setTareasPlan(List.of());
+            response.setNoProgramadas(List.of());
+            return response;
+        }
+    }
+}
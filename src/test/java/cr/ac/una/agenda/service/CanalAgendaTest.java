@@ -0,0 +1,152 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.EventoAgenda;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Canal SSE por día: entrega, reanudación con Last-Event-ID y límite de conexiones.
+ */
+class CanalAgendaTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 10, 26);
+
+    private CanalAgenda canal;
+
+    @BeforeEach
+    void setUp() {
+        // Dos conexiones como máximo y dos eventos de historial por día
+        canal = new CanalAgenda(2, Duration.ofMinutes(1), 2, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        canal.detener();
+    }
+
+    @Test
+    void recibeSoloLosCambiosDeSuDia() {
+        List<ServerSentEvent<EventoAgenda>> recibidos = new CopyOnWriteArrayList<>();
+        Disposable suscripcion = canal.suscribir(1L, HOY, null).subscribe(recibidos::add);
+
+        canal.alCambiarAgenda(estado(1L, HOY, 5L));
+        canal.alCambiarAgenda(estado(1L, HOY.plusDays(1), 6L));
+        canal.alCambiarAgenda(estado(2L, HOY, 7L));
+        canal.alCambiarAgenda(CambioAgendaEvent.deConfiguracion(1L));
+
+        assertEquals(List.of("conectado", "estado", "configuracion"), tipos(recibidos));
+        assertEquals(List.of(5L), recibidos.get(1).data().getIds());
+
+        suscripcion.dispose();
+        assertEquals(0, canal.conexiones());
+    }
+
+    @Test
+    void alReconectarReenviaLoQueFalto() {
+        List<ServerSentEvent<EventoAgenda>> primera = new CopyOnWriteArrayList<>();
+        Disposable suscripcion = canal.suscribir(1L, HOY, null).subscribe(primera::add);
+        canal.alCambiarAgenda(estado(1L, HOY, 5L));
+        String ultimoId = primera.get(1).id();
+        suscripcion.dispose();
+
+        canal.alCambiarAgenda(estado(1L, HOY, 6L));
+        canal.alCambiarAgenda(estado(1L, HOY, 7L));
+
+        List<ServerSentEvent<EventoAgenda>> segunda = new CopyOnWriteArrayList<>();
+        canal.suscribir(1L, HOY, ultimoId).subscribe(segunda::add);
+        assertEquals(List.of("estado", "estado"), tipos(segunda));
+        assertEquals(List.of(6L), segunda.get(0).data().getIds());
+        assertEquals(List.of(7L), segunda.get(1).data().getIds());
+    }
+
+    @Test
+    void pideReiniciarSiElIdNoSePuedeReanudar() {
+        List<ServerSentEvent<EventoAgenda>> primera = new CopyOnWriteArrayList<>();
+        Disposable suscripcion = canal.suscribir(1L, HOY, null).subscribe(primera::add);
+        String ultimoId = primera.get(0).id();
+        suscripcion.dispose();
+        // Más eventos de los que guarda el historial
+        canal.alCambiarAgenda(estado(1L, HOY, 5L));
+        canal.alCambiarAgenda(estado(1L, HOY, 6L));
+        canal.alCambiarAgenda(estado(1L, HOY, 7L));
+
+        List<ServerSentEvent<EventoAgenda>> perdida = new CopyOnWriteArrayList<>();
+        canal.suscribir(1L, HOY, ultimoId).subscribe(perdida::add);
+        List<ServerSentEvent<EventoAgenda>> otroNodo = new CopyOnWriteArrayList<>();
+        canal.suscribir(1L, HOY, "otronodo-3").subscribe(otroNodo::add);
+
+        assertEquals(List.of("reiniciar"), tipos(perdida));
+        assertEquals(List.of("reiniciar"), tipos(otroNodo));
+    }
+
+    @Test
+    void rechazaConexionesPorEncimaDelMaximo() {
+        Disposable a = canal.suscribir(1L, HOY, null).subscribe();
+        canal.suscribir(2L, HOY, null).subscribe();
+
+        assertThrows(CanalSaturadoException.class, () -> canal.suscribir(3L, HOY, null));
+
+        a.dispose();
+        canal.suscribir(3L, HOY, null).subscribe();
+        assertEquals(2, canal.conexiones());
+    }
+
+    @Test
+    void cierraLaConexionQueNoConsumeSusEventos() {
+        AtomicBoolean completada = new AtomicBoolean();
+        AtomicInteger recibidos = new AtomicInteger();
+        // Pide solo el primer evento: el buffer de la conexión se llena
+        BaseSubscriber<ServerSentEvent<EventoAgenda>> lento = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(ServerSentEvent<EventoAgenda> evento) {
+                recibidos.incrementAndGet();
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                completada.set(true);
+            }
+        };
+        canal.suscribir(1L, HOY, null).subscribe(lento);
+
+        for (long id = 1; id <= 100; id++) {
+            canal.alCambiarAgenda(estado(1L, HOY, id));
+        }
+        // Al vaciar su buffer recibe el cierre y lo que no cupo ya no le llega
+        lento.requestUnbounded();
+
+        assertTrue(completada.get());
+        assertTrue(recibidos.get() < 101, "recibidos: " + recibidos.get());
+        assertEquals(0, canal.conexiones());
+    }
+
+    private static CambioAgendaEvent estado(Long usuarioId, LocalDate fecha, Long id) {
+        return CambioAgendaEvent.deTareas(CambioAgendaEvent.Tipo.ESTADO, usuarioId, fecha, List.of(id));
+    }
+
+    private static List<String> tipos(List<ServerSentEvent<EventoAgenda>> eventos) {
+        return eventos.stream().map(ServerSentEvent::event).collect(Collectors.toList());
+    }
+}
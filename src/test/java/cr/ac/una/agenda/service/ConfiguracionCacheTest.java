@@ -0,0 +1,193 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
+import cr.ac.una.agenda.repository.VersionConfiguracion;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Caché de configuraciones frente a una "BD" en un mapa que otra instancia también escribe:
+ * escritura inmediata, búsquedas sin resultado y copias que quedaron viejas.
+ */
+class ConfiguracionCacheTest {
+
+    private static final Long USUARIO = 7L;
+
+    private final Map<Long, ConfiguracionAgenda> bd = new HashMap<>();
+    private final ConfiguracionAgendaRepository repo = repositorio();
+    private final ConfiguracionCache cache = new ConfiguracionCache(repo, 1000, Duration.ofMinutes(30),
+            Duration.ofMinutes(1));
+
+    @Test
+    void laEscrituraDeEstaInstanciaSeVeSinReleerLaFila() {
+        ConfiguracionAgenda guardada = escribirEnBd(USUARIO, 300, 0L);
+        cache.guardar(guardada);
+
+        assertEquals(300, cache.obtener(USUARIO).orElseThrow().getMinutosDisponibles());
+        assertEquals(300, cache.obtener(USUARIO).orElseThrow().getMinutosDisponibles());
+        // Solo se valida la versión; la fila no se vuelve a leer
+        verify(repo, never()).findByUsuarioId(anyLong());
+        verify(repo, times(2)).findVersionByUsuarioId(USUARIO);
+    }
+
+    @Test
+    void laCopiaNoEsLaEntidadGuardada() {
+        ConfiguracionAgenda guardada = escribirEnBd(USUARIO, 300, 0L);
+        cache.guardar(guardada);
+
+        guardada.setMinutosDisponibles(10);
+
+        assertEquals(300, cache.obtener(USUARIO).orElseThrow().getMinutosDisponibles());
+    }
+
+    @Test
+    void unaEscrituraDeOtraInstanciaSeVeEnLaSiguienteLectura() {
+        escribirEnBd(USUARIO, 300, 0L);
+        assertEquals(300, cache.obtener(USUARIO).orElseThrow().getMinutosDisponibles());
+
+        // Otra instancia actualiza la fila sin pasar por este caché
+        escribirEnBd(USUARIO, 120, 1L);
+
+        assertEquals(120, cache.obtener(USUARIO).orElseThrow().getMinutosDisponibles());
+        verify(repo, times(2)).findByUsuarioId(USUARIO);
+    }
+
+    @Test
+    void unaEliminacionDeOtraInstanciaSeVeEnLaSiguienteLectura() {
+        escribirEnBd(USUARIO, 300, 0L);
+        assertTrue(cache.obtener(USUARIO).isPresent());
+
+        bd.remove(USUARIO);
+
+        assertFalse(cache.obtener(USUARIO).isPresent());
+    }
+
+    @Test
+    void unUsuarioSinConfiguracionSeRecuerdaHastaQueEstaInstanciaLaCrea() {
+        assertFalse(cache.obtener(USUARIO).isPresent());
+        assertFalse(cache.obtener(USUARIO).isPresent());
+        // La búsqueda sin resultado no se valida ni se repite mientras dure ttlNegativo
+        verify(repo, times(1)).findByUsuarioId(USUARIO);
+        verify(repo, never()).findVersionByUsuarioId(anyLong());
+
+        cache.guardar(escribirEnBd(USUARIO, 200, 0L));
+
+        assertEquals(200, cache.obtener(USUARIO).orElseThrow().getMinutosDisponibles());
+        verify(repo, times(1)).findByUsuarioId(USUARIO);
+    }
+
+    @Test
+    void laBusquedaSinResultadoVenceTrasTtlNegativo() {
+        ConfiguracionCache sinNegativos = new ConfiguracionCache(repo, 1000, Duration.ofMinutes(30), Duration.ZERO);
+        assertFalse(sinNegativos.obtener(USUARIO).isPresent());
+
+        // Creada en otra instancia
+        escribirEnBd(USUARIO, 200, 0L);
+
+        assertTrue(sinNegativos.obtener(USUARIO).isPresent());
+    }
+
+    @Test
+    void evictarObligaALeerDeNuevo() {
+        cache.guardar(escribirEnBd(USUARIO, 300, 0L));
+
+        cache.evictar(USUARIO);
+        bd.remove(USUARIO);
+
+        assertFalse(cache.obtener(USUARIO).isPresent());
+        verify(repo, times(1)).findByUsuarioId(USUARIO);
+    }
+
+    @Test
+    void obtenerTodasValidaLasCopiasEnUnaConsultaYCargaSoloLasVencidasOFaltantes() {
+        escribirEnBd(1L, 100, 0L);
+        escribirEnBd(2L, 200, 0L);
+        cache.obtenerTodas(List.of(1L, 2L));
+
+        // Otra instancia cambia la del usuario 2 y crea la del 3
+        escribirEnBd(2L, 250, 1L);
+        escribirEnBd(3L, 300, 0L);
+
+        Map<Long, ConfiguracionAgenda> todas = cache.obtenerTodas(List.of(1L, 2L, 3L, 4L));
+        assertEquals(Map.of(1L, 100, 2L, 250, 3L, 300), todas.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getMinutosDisponibles())));
+        verify(repo, times(1)).findVersionesByUsuarioIdIn(anyCollection());
+        verify(repo).findByUsuarioIdIn(Set.of(2L, 3L, 4L));
+    }
+
+    private ConfiguracionAgenda escribirEnBd(Long usuarioId, int minutos, Long version) {
+        ConfiguracionAgenda c = new ConfiguracionAgenda();
+        c.setId(usuarioId * 10);
+        c.setUsuarioId(usuarioId);
+        c.setHoraInicio(LocalTime.of(8, 0));
+        c.setMinutosDisponibles(minutos);
+        c.setVersion(version);
+        bd.put(usuarioId, c);
+        return c;
+    }
+
+    private static ConfiguracionAgenda copia(ConfiguracionAgenda c) {
+        ConfiguracionAgenda copia = new ConfiguracionAgenda();
+        copia.setId(c.getId());
+        copia.setUsuarioId(c.getUsuarioId());
+        copia.setHoraInicio(c.getHoraInicio());
+        copia.setMinutosDisponibles(c.getMinutosDisponibles());
+        copia.setVersion(c.getVersion());
+        return copia;
+    }
+
+    private ConfiguracionAgendaRepository repositorio() {
+        ConfiguracionAgendaRepository r = mock(ConfiguracionAgendaRepository.class);
+        when(r.findByUsuarioId(anyLong())).thenAnswer(inv ->
+                Optional.ofNullable(bd.get(inv.<Long>getArgument(0))).map(ConfiguracionCacheTest::copia));
+        when(r.findVersionByUsuarioId(anyLong())).thenAnswer(inv -> {
+            ConfiguracionAgenda c = bd.get(inv.<Long>getArgument(0));
+            return c != null ? c.getVersion() : null;
+        });
+        when(r.findByUsuarioIdIn(anyCollection())).thenAnswer(inv -> inv.<Collection<Long>>getArgument(0).stream()
+                .filter(bd::containsKey)
+                .map(id -> copia(bd.get(id)))
+                .collect(Collectors.toList()));
+        when(r.findVersionesByUsuarioIdIn(anyCollection())).thenAnswer(inv -> inv.<Collection<Long>>getArgument(0)
+                .stream()
+                .filter(bd::containsKey)
+                .map(id -> version(id, bd.get(id).getVersion()))
+                .collect(Collectors.toList()));
+        return r;
+    }
+
+    private static VersionConfiguracion version(Long usuarioId, Long version) {
+        return new VersionConfiguracion() {
+            @Override
+            public Long getUsuarioId() {
+                return usuarioId;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.DepDTO;
+import cr.ac.una.agenda.dto.DiagnosticoDTO;
+import cr.ac.una.agenda.dto.TaskDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Diagnóstico exacto: tareas a posponer con la menor pérdida de prioridad respetando dependencias.
+ */
+class DiagnosticoPlanTest {
+
+    @Test
+    void posponeLoDeMenorPrioridadSinRomperDependencias() {
+        List<TaskDTO> tasks = List.of(task(1L, 3, 60), task(2L, 1, 60), task(3L, 2, 60));
+        // Sin la dependencia convendría posponer la 2 (BAJA); pero la 3 no entra sin la 2
+        List<DepDTO> deps = List.of(dep(3L, 2L));
+
+        DiagnosticoDTO diagnostico = DiagnosticoPlan.diagnosticar(tasks, deps, 120);
+
+        assertEquals(List.of(3L), diagnostico.getPosponer().stream().map(TaskDTO::getId)
+                .collect(Collectors.toList()));
+        assertEquals(2, diagnostico.getPrioridadPerdida());
+        assertEquals(180, diagnostico.getMinutosRequeridos());
+        assertEquals(60, diagnostico.getMinutosExcedidos());
+        assertEquals(0, diagnostico.getMinutosSobrantes());
+    }
+
+    @Test
+    void siTodoCabeNoHayNadaQuePosponer() {
+        DiagnosticoDTO diagnostico = DiagnosticoPlan.diagnosticar(
+                List.of(task(1L, 3, 60), task(2L, 1, 30)), List.of(), 480);
+
+        assertTrue(diagnostico.getPosponer().isEmpty());
+        assertEquals(0, diagnostico.getMinutosExcedidos());
+        assertEquals(390, diagnostico.getMinutosSobrantes());
+    }
+
+    private static TaskDTO task(Long id, int prioridad, int dur) {
+        TaskDTO t = new TaskDTO();
+        t.setId(id);
+        t.setNombre("Tarea " + id);
+        t.setPrioridad(prioridad);
+        t.setDur(dur);
+        t.setClimas(List.of());
+        return t;
+    }
+
+    private static DepDTO dep(Long tarea, Long dependeDe) {
+        DepDTO d = new DepDTO();
+        d.setTarea(tarea);
+        d.setDependeDe(dependeDe);
+        return d;
+    }
+}
@@ -0,0 +1,116 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.repository.DiaTarea;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Eliminación en cascada: con el grafo del usuario bloqueado y sin tocar el grafo antes de confirmar.
+ */
+class EliminarTareaTest {
+
+    private static final LocalDate LUNES = LocalDate.of(2025, 10, 27);
+    private static final LocalDate MARTES = LocalDate.of(2025, 10, 28);
+
+    private final TareaRepository repo = mock(TareaRepository.class);
+    private final GrafoDependencias grafo = mock(GrafoDependencias.class);
+    private final ApplicationEventPublisher eventos = mock(ApplicationEventPublisher.class);
+    private final PlatformTransactionManager transacciones = mock(PlatformTransactionManager.class);
+    private final TareaService service = new TareaService(repo, eventos, grafo,
+            EstadosDiferidos.desactivados(), transacciones);
+    private boolean bloqueado;
+
+    @Test
+    void borraConElGrafoBloqueadoYAvisaUnaVezPorDia() {
+        preparar();
+        doAnswer(inv -> {
+            assertTrue(bloqueado, "El borrado debe ocurrir con el grafo del usuario bloqueado");
+            return null;
+        }).when(repo).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+
+        assertEquals(List.of(1L, 2L, 3L), service.eliminar(1L));
+
+        verify(eventos).publishEvent(CambioAgendaEvent.deTareas(CambioAgendaEvent.Tipo.ELIMINADA, 7L, LUNES, List.of(1L, 3L)));
+        verify(eventos).publishEvent(CambioAgendaEvent.deTareas(CambioAgendaEvent.Tipo.ELIMINADA, 7L, MARTES, List.of(2L)));
+        verify(transacciones).commit(any());
+        // El grafo se actualiza al confirmar, escuchando el evento
+        verify(grafo, never()).quitar(anyLong(), anyCollection());
+    }
+
+    @Test
+    void siElBorradoFallaNoSeAvisaNiSeConfirma() {
+        preparar();
+        doThrow(new IllegalStateException("BD no disponible")).when(repo).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+
+        assertThrows(IllegalStateException.class, () -> service.eliminar(1L));
+
+        verify(transacciones).rollback(any());
+        verify(transacciones, never()).commit(any());
+        verify(eventos, never()).publishEvent(any());
+        verify(grafo, never()).quitar(anyLong(), anyCollection());
+    }
+
+    @Test
+    void unaTareaInexistenteNoBloqueaNada() {
+        when(repo.findDiasByIdIn(List.of(9L))).thenReturn(List.of());
+
+        assertEquals(List.of(), service.eliminar(9L));
+
+        verify(grafo, never()).conBloqueo(anyLong(), any());
+        verify(repo, never()).deleteAllByIdInBatch(any());
+    }
+
+    private void preparar() {
+        when(repo.findDiasByIdIn(List.of(1L))).thenReturn(List.of(dia(1L, LUNES)));
+        when(repo.findIdsSubarbol(1L)).thenReturn(List.of(1L, 2L, 3L));
+        when(repo.findDiasByIdIn(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(dia(1L, LUNES), dia(2L, MARTES), dia(3L, LUNES)));
+        when(grafo.conBloqueo(eq(7L), any())).thenAnswer(inv -> {
+            bloqueado = true;
+            try {
+                return ((Supplier<?>) inv.getArgument(1)).get();
+            } finally {
+                bloqueado = false;
+            }
+        });
+    }
+
+    private static DiaTarea dia(Long id, LocalDate fecha) {
+        return new DiaTarea() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getUsuarioId() {
+                return 7L;
+            }
+
+            @Override
+            public LocalDate getFecha() {
+                return fecha;
+            }
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Cambio de estado masivo contra H2 (modo MySQL, como el perfil de carga): la sentencia con
+ * guarda solo toca las tareas del usuario y día que siguen en el estado esperado, sube su
+ * versión y devuelve cuántas cambiaron; antes escribe los estados diferidos del usuario.
+ * También el cambio de estado individual diferido, que no vuelve a leer una tarea pendiente.
+ * Sin transacción de prueba: el volcado diferido usa su propia transacción y debe ver las filas.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:estado-masivo;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "agenda.estados-diferidos.activo=true",
+        "agenda.estados-diferidos.intervalo=1h",
+        "agenda.estados-diferidos.diario=${java.io.tmpdir}/agenda-estado-masivo-${random.uuid}/estados.log"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TareaService.class, GrafoDependencias.class, EstadosDiferidos.class, EstadoMasivoTest.Jdbc.class})
+class EstadoMasivoTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 10, 26);
+
+    @Autowired
+    private TareaService service;
+
+    @MockitoSpyBean
+    private TareaRepository tareas;
+
+    @Autowired
+    private EstadosDiferidos estadosDiferidos;
+
+    @AfterEach
+    void limpiar() {
+        estadosDiferidos.volcarTodo();
+        tareas.deleteAll();
+    }
+
+    @Test
+    void soloCambiaLasDelUsuarioYDiaQueSiguenEnElEstadoEsperado() {
+        Long a = guardar(1L, HOY, Tarea.Estado.PENDIENTE);
+        Long b = guardar(1L, HOY, Tarea.Estado.PENDIENTE);
+        Long yaCompletada = guardar(1L, HOY, Tarea.Estado.COMPLETADA);
+        Long deOtroUsuario = guardar(2L, HOY, Tarea.Estado.PENDIENTE);
+        Long deOtroDia = guardar(1L, HOY.plusDays(1), Tarea.Estado.PENDIENTE);
+
+        int cambiadas = service.cambiarEstadoMasivo(1L, HOY, List.of(a, b, yaCompletada, deOtroUsuario, deOtroDia),
+                Tarea.Estado.PENDIENTE, Tarea.Estado.PLANIFICADA);
+
+        assertEquals(2, cambiadas);
+        assertEstado(a, Tarea.Estado.PLANIFICADA, 1L);
+        assertEstado(b, Tarea.Estado.PLANIFICADA, 1L);
+        assertEstado(yaCompletada, Tarea.Estado.COMPLETADA, 0L);
+        assertEstado(deOtroUsuario, Tarea.Estado.PENDIENTE, 0L);
+        assertEstado(deOtroDia, Tarea.Estado.PENDIENTE, 0L);
+    }
+
+    @Test
+    void repetirElCambioOPasarSinIdsNoTocaNada() {
+        Long a = guardar(1L, HOY, Tarea.Estado.PENDIENTE);
+        assertEquals(1, service.cambiarEstadoMasivo(1L, HOY, List.of(a), Tarea.Estado.PENDIENTE,
+                Tarea.Estado.PLANIFICADA));
+
+        assertEquals(0, service.cambiarEstadoMasivo(1L, HOY, List.of(a), Tarea.Estado.PENDIENTE,
+                Tarea.Estado.PLANIFICADA));
+        assertEquals(0, service.cambiarEstadoMasivo(1L, HOY, List.of(), Tarea.Estado.PENDIENTE,
+                Tarea.Estado.PLANIFICADA));
+        assertEstado(a, Tarea.Estado.PLANIFICADA, 1L);
+    }
+
+    @Test
+    void parteDeLosEstadosDiferidosYConservaLaVersionQueSeLeyo() {
+        Long vuelveAPendiente = guardar(1L, HOY, Tarea.Estado.COMPLETADA);
+        Long seCompleta = guardar(1L, HOY, Tarea.Estado.PENDIENTE);
+        service.cambiarEstado(vuelveAPendiente, Tarea.Estado.PENDIENTE);
+        service.cambiarEstado(seCompleta, Tarea.Estado.COMPLETADA);
+        // Con el cambio aún en el diario se lee con la versión que tendrá tras el volcado
+        assertEquals(1L, service.obtener(vuelveAPendiente).getVersion());
+        assertEquals(Tarea.Estado.PENDIENTE, tareas.findById(seCompleta).orElseThrow().getEstado());
+
+        int cambiadas = service.cambiarEstadoMasivo(1L, HOY, List.of(vuelveAPendiente, seCompleta),
+                Tarea.Estado.PENDIENTE, Tarea.Estado.PLANIFICADA);
+
+        // El volcado va primero: la que volvió a PENDIENTE entra, la completada ya no
+        assertEquals(1, cambiadas);
+        assertEstado(vuelveAPendiente, Tarea.Estado.PLANIFICADA, 2L);
+        assertEstado(seCompleta, Tarea.Estado.COMPLETADA, 1L);
+        assertEquals(2L, service.obtener(vuelveAPendiente).getVersion());
+    }
+
+    @Test
+    void elCambioSobreUnaTareaYaPendienteNoLeeLaBd() {
+        Long id = guardar(1L, HOY, Tarea.Estado.PENDIENTE);
+        clearInvocations(tareas);
+
+        service.cambiarEstado(id, Tarea.Estado.PLANIFICADA);
+        Tarea t = service.cambiarEstado(id, Tarea.Estado.COMPLETADA);
+
+        verify(tareas, times(1)).findById(id);
+        assertEquals(Tarea.Estado.COMPLETADA, t.getEstado());
+        assertEquals("Tarea", t.getNombre());
+        // Un solo volcado: la versión sube una vez
+        assertEquals(1L, t.getVersion());
+        estadosDiferidos.volcarTodo();
+        assertEstado(id, Tarea.Estado.COMPLETADA, 1L);
+    }
+
+    private void assertEstado(Long id, Tarea.Estado estado, Long version) {
+        Tarea t = tareas.findById(id).orElseThrow();
+        assertEquals(estado, t.getEstado(), "Estado de la tarea " + id);
+        assertEquals(version, t.getVersion(), "Versión de la tarea " + id);
+    }
+
+    private Long guardar(Long usuarioId, LocalDate fecha, Tarea.Estado estado) {
+        Tarea t = new Tarea();
+        t.setUsuarioId(usuarioId);
+        t.setNombre("Tarea");
+        t.setFecha(fecha);
+        t.setDuracionMinutos(30);
+        t.setEstado(estado);
+        return tareas.save(t).getId();
+    }
+
+    @TestConfiguration
+    static class Jdbc {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.Tarea;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Escritura diferida de estados: combinación, volcado por lotes y recuperación del diario.
+ */
+class EstadosDiferidosTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 10, 26);
+
+    @TempDir
+    Path carpeta;
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void combinaLosCambiosDeLaMismaTareaYVaciaElDiarioAlVolcar() throws Exception {
+        EstadosDiferidos estados = nuevos();
+        estados.registrar(tarea(1L, 7L), Tarea.Estado.PLANIFICADA);
+        estados.registrar(tarea(1L, 7L), Tarea.Estado.COMPLETADA);
+        estados.registrar(tarea(2L, 8L), Tarea.Estado.COMPLETADA);
+        assertEquals(Tarea.Estado.COMPLETADA, estados.pendiente(1L));
+        assertNotNull(estados.huella(7L, FECHA));
+
+        // Solo se vuelca el usuario pedido, junto con la versión de su día
+        estados.volcar(7L);
+        ArgumentCaptor<Collection<EstadosDiferidos.Pendiente>> lote = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbc).batchUpdate(anyString(), lote.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        List<EstadosDiferidos.Pendiente> escritos = new ArrayList<>(lote.getValue());
+        assertEquals(1, escritos.size());
+        assertEquals(Tarea.Estado.COMPLETADA, escritos.get(0).getEstado());
+        assertNull(estados.pendiente(1L));
+        assertNull(estados.huella(7L, FECHA));
+        verify(jdbc).batchUpdate(eq(VersionesAgenda.INCREMENTAR), anyList());
+        assertEquals(Tarea.Estado.COMPLETADA, estados.pendiente(2L));
+
+        estados.volcarTodo();
+        assertEquals(0, Files.size(carpeta.resolve("estados.log")));
+        estados.detener();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recuperaDelDiarioLoConfirmadoAunqueLaUltimaLineaQuedeIncompleta() throws Exception {
+        EstadosDiferidos antes = nuevos();
+        antes.registrar(tarea(1L, 7L), Tarea.Estado.COMPLETADA);
+        antes.registrar(tarea(2L, 7L), Tarea.Estado.PLANIFICADA);
+        // Caída a mitad de una escritura
+        Files.write(carpeta.resolve("estados.log"), "3;7;2025-10".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        EstadosDiferidos despues = nuevos();
+        assertEquals(Tarea.Estado.COMPLETADA, despues.pendiente(1L));
+        assertEquals(Tarea.Estado.PLANIFICADA, despues.pendiente(2L));
+        assertNull(despues.pendiente(3L));
+
+        // Lo nuevo no queda pegado a la línea incompleta
+        despues.registrar(tarea(4L, 7L), Tarea.Estado.COMPLETADA);
+        assertEquals(3, Files.readAllLines(carpeta.resolve("estados.log")).size());
+        verify(jdbc, never()).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        despues.detener();
+    }
+
+    @Test
+    void trasUnaCaidaSoloRecuperaLoQueNoSeHabiaVolcado() throws Exception {
+        EstadosDiferidos antes = nuevos();
+        antes.registrar(tarea(1L, 7L), Tarea.Estado.COMPLETADA);
+        antes.registrar(tarea(2L, 8L), Tarea.Estado.PLANIFICADA);
+        antes.registrar(tarea(3L, 7L), Tarea.Estado.PLANIFICADA);
+        antes.volcar(7L);
+        // Con tráfico constante el diario nunca queda vacío: lo volcado igual debe salir de él
+        antes.registrar(tarea(4L, 7L), Tarea.Estado.COMPLETADA);
+        assertEquals(List.of("2;8;2025-10-26;PLANIFICADA", "4;7;2025-10-26;COMPLETADA"),
+                Files.readAllLines(carpeta.resolve("estados.log")));
+
+        // Caída sin detener(): el siguiente arranque lee el mismo diario
+        EstadosDiferidos despues = nuevos();
+        assertNull(despues.pendiente(1L));
+        assertNull(despues.pendiente(3L));
+        assertEquals(Tarea.Estado.PLANIFICADA, despues.pendiente(2L));
+        assertEquals(Tarea.Estado.COMPLETADA, despues.pendiente(4L));
+        despues.detener();
+    }
+
+    @Test
+    void losEscritoresConcurrentesCompartenElFsync() throws Exception {
+        EstadosDiferidos estados = nuevos();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        estados.bindTo(registry);
+        int hilos = 16;
+        int porHilo = 25;
+        CyclicBarrier salida = new CyclicBarrier(hilos);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> escritores = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                long primero = (long) h * porHilo;
+                escritores.add(ejecutor.submit(() -> {
+                    salida.await();
+                    for (long id = primero; id < primero + porHilo; id++) {
+                        estados.registrar(tarea(id, 7L), Tarea.Estado.COMPLETADA);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> escritor : escritores) {
+                escritor.get();
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        // Cada cambio volvió con su línea en el diario, pero con menos fsync que cambios
+        assertEquals(hilos * porHilo, Files.readAllLines(carpeta.resolve("estados.log")).size());
+        double fsyncs = registry.get("agenda.estados.diferidos.fsyncs").functionCounter().count();
+        assertTrue(fsyncs >= 1 && fsyncs < hilos * porHilo, "fsyncs: " + fsyncs);
+        estados.detener();
+    }
+
+    @Test
+    void guardaUnaCopiaDeLaTareaMientrasElCambioEstePendiente() throws Exception {
+        EstadosDiferidos estados = nuevos();
+        Tarea original = tarea(1L, 7L);
+        original.setNombre("Estudiar");
+        original.setVersion(3L);
+        estados.registrar(original, Tarea.Estado.COMPLETADA);
+        original.setNombre("Otra cosa");
+
+        Tarea pendiente = estados.tarea(1L);
+        assertEquals("Estudiar", pendiente.getNombre());
+        assertEquals(Tarea.Estado.COMPLETADA, pendiente.getEstado());
+        assertEquals(3L, pendiente.getVersion());
+        pendiente.setEstado(Tarea.Estado.PENDIENTE);
+        assertEquals(Tarea.Estado.COMPLETADA, estados.tarea(1L).getEstado());
+        assertNull(estados.tarea(2L));
+
+        estados.volcar(7L);
+        assertNull(estados.tarea(1L));
+
+        // Lo recuperado del diario tras una caída solo trae el estado
+        estados.registrar(tarea(2L, 8L), Tarea.Estado.PLANIFICADA);
+        EstadosDiferidos recuperados = nuevos();
+        assertEquals(Tarea.Estado.PLANIFICADA, recuperados.pendiente(2L));
+        assertNull(recuperados.tarea(2L));
+        recuperados.detener();
+    }
+
+    private EstadosDiferidos nuevos() {
+        return new EstadosDiferidos(jdbc, mock(PlatformTransactionManager.class), true,
+                Duration.ofMinutes(1), 1000, carpeta.resolve("estados.log").toString());
+    }
+
+    private static Tarea tarea(Long id, Long usuarioId) {
+        Tarea t = new Tarea();
+        t.setId(id);
+        t.setUsuarioId(usuarioId);
+        t.setFecha(FECHA);
+        return t;
+    }
+}
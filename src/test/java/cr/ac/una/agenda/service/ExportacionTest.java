@@ -0,0 +1,99 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exportaciones por cursor contra H2 (modo MySQL, como el perfil de carga), con un fetch size
+ * menor que el resultado para que el cursor lea en varios bloques.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:exportacion;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "agenda.exportacion.fetch-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TareaService.class, GrafoDependencias.class, EstadosDiferidos.class, ExportacionTest.Jdbc.class})
+class ExportacionTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 10, 26);
+
+    @Autowired
+    private TareaService service;
+
+    @Autowired
+    private TareaRepository tareas;
+
+    @Autowired
+    private ConfiguracionAgendaRepository configuraciones;
+
+    @Test
+    void exportaLasTareasEnOrdenYConFiltros() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(guardar(i % 2 == 0 ? Tarea.Prioridad.ALTA : Tarea.Prioridad.BAJA));
+        }
+
+        List<Long> todas = new ArrayList<>();
+        service.exportar(null, null, t -> todas.add(t.getId()));
+        List<Long> altas = new ArrayList<>();
+        service.exportar(Tarea.Estado.PENDIENTE, Tarea.Prioridad.ALTA, t -> altas.add(t.getId()));
+
+        assertEquals(ids, todas);
+        assertEquals(List.of(ids.get(0), ids.get(2), ids.get(4)), altas);
+    }
+
+    @Test
+    void recorreLasConfiguracionesEnOrden() {
+        List<Long> ids = new ArrayList<>();
+        for (long usuario = 1; usuario <= 3; usuario++) {
+            ConfiguracionAgenda c = new ConfiguracionAgenda();
+            c.setUsuarioId(usuario);
+            ids.add(configuraciones.save(c).getId());
+        }
+
+        try (Stream<ConfiguracionAgenda> filas = configuraciones.streamTodas()) {
+            assertEquals(ids, filas.map(ConfiguracionAgenda::getId).collect(Collectors.toList()));
+        }
+    }
+
+    private Long guardar(Tarea.Prioridad prioridad) {
+        Tarea t = new Tarea();
+        t.setUsuarioId(1L);
+        t.setNombre("Tarea");
+        t.setFecha(HOY);
+        t.setDuracionMinutos(30);
+        t.setPrioridad(prioridad);
+        return tareas.save(t).getId();
+    }
+
+    @TestConfiguration
+    static class Jdbc {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+}
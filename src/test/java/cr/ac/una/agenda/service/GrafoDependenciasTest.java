@@ -0,0 +1,448 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.AristaTarea;
+import cr.ac.una.agenda.repository.TareaRepository;
+import cr.ac.una.agenda.repository.VersionGrafoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Grafo de dependencias en memoria frente a una "BD" en un mapa (con su version_grafo)
+ * que otra instancia también puede escribir.
+ */
+class GrafoDependenciasTest {
+
+    private static final Long USUARIO = 1L;
+    private static final Long OTRO_USUARIO = 2L;
+
+    private final Map<Long, Tarea> bd = new ConcurrentHashMap<>();
+    private final AtomicLong versionBd = new AtomicLong();
+    private final AtomicLong siguienteId = new AtomicLong(100);
+    private final TareaRepository repo = repositorio();
+    private final VersionGrafoRepository versiones = versiones();
+    // La versión solo se vuelve a comparar por tiempo pasado un minuto: en estas pruebas, nunca
+    private final GrafoDependencias grafo = new GrafoDependencias(repo, versiones, Duration.ofMinutes(1),
+            Duration.ofMinutes(1), 10_000);
+
+    @Test
+    void ancestrosYDescendientes() {
+        // 1 <- 2 <- 3 y 2 <- 4
+        guardarEnBd(1L, null);
+        guardarEnBd(2L, 1L);
+        guardarEnBd(3L, 2L);
+        guardarEnBd(4L, 2L);
+
+        assertEquals(List.of(2L, 1L), grafo.ancestros(USUARIO, 3L));
+        assertEquals(List.of(), grafo.ancestros(USUARIO, 1L));
+        List<Long> descendientes = grafo.descendientes(USUARIO, 1L);
+        assertEquals(2L, descendientes.get(0));
+        assertEquals(Set.of(2L, 3L, 4L), new HashSet<>(descendientes));
+        assertEquals(List.of(), grafo.descendientes(USUARIO, 3L));
+    }
+
+    @Test
+    void creariaCicloSoloSiLaCadenaVuelveALaTarea() {
+        guardarEnBd(1L, null);
+        guardarEnBd(2L, 1L);
+        guardarEnBd(3L, 2L);
+
+        assertTrue(grafo.creariaCiclo(USUARIO, 1L, 3L));
+        assertFalse(grafo.creariaCiclo(USUARIO, 5L, 3L));
+        assertFalse(grafo.creariaCiclo(USUARIO, 3L, null));
+    }
+
+    @Test
+    void creariaCicloVeLoQueEscribioOtraInstancia() {
+        GrafoDependencias siempre = new GrafoDependencias(repo, versiones, Duration.ofMinutes(1), Duration.ZERO,
+                10_000);
+        guardarEnBd(1L, null);
+        guardarEnBd(2L, null);
+        assertFalse(siempre.creariaCiclo(USUARIO, 1L, 2L));
+
+        // Otra instancia hace que 2 dependa de 1 sin pasar por este grafo
+        escribirDesdeOtraInstancia(2L, 1L);
+
+        assertTrue(siempre.creariaCiclo(USUARIO, 1L, 2L));
+    }
+
+    @Test
+    void dentroDeLaVerificacionLasValidacionesNoLeenLaBd() throws InterruptedException {
+        GrafoDependencias cada = new GrafoDependencias(repo, versiones, Duration.ofMinutes(1),
+                Duration.ofMillis(100), 10_000);
+        guardarEnBd(1L, null);
+        guardarEnBd(2L, 1L);
+        guardarEnBd(3L, 2L);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(cada.creariaCiclo(USUARIO, 1L, 3L));
+        }
+        verify(versiones, times(1)).findVersionByUsuarioId(USUARIO);
+        verify(repo, times(1)).findAristasByUsuarioId(USUARIO);
+
+        // Pasada la verificación, la escritura de otra instancia se ve
+        escribirDesdeOtraInstancia(2L, null);
+        Thread.sleep(150);
+
+        assertFalse(cada.creariaCiclo(USUARIO, 1L, 3L));
+        verify(versiones, times(2)).findVersionByUsuarioId(USUARIO);
+        verify(repo, never()).findById(anyLong());
+    }
+
+    @Test
+    void unaTareaQueElGrafoNoConoceObligaAComprobarLaVersion() {
+        guardarEnBd(1L, null);
+        guardarEnBd(2L, 1L);
+        assertFalse(grafo.creariaCiclo(USUARIO, 2L, 1L));
+
+        // Otra instancia crea 5 -> 2; validar 1 -> 5 llega a una tarea desconocida
+        guardarEnBd(5L, 2L);
+        versionBd.incrementAndGet();
+
+        assertTrue(grafo.creariaCiclo(USUARIO, 1L, 5L));
+        verify(versiones, times(2)).findVersionByUsuarioId(USUARIO);
+        verify(repo, times(2)).findAristasByUsuarioId(USUARIO);
+        verify(repo, never()).findById(anyLong());
+    }
+
+    @Test
+    void unaCadenaQueSaleDelGrafoDelUsuarioSigueEnLaBd() {
+        guardarEnBd(1L, null);
+        Tarea ajena = guardarEnBd(9L, 1L);
+        ajena.setUsuarioId(OTRO_USUARIO);
+
+        // 1 -> 9 cerraría 1 <- 9 <- 1 a través de una tarea de otro usuario
+        assertTrue(grafo.creariaCiclo(USUARIO, 1L, 9L));
+        verify(repo).findById(9L);
+    }
+
+    @Test
+    void desalojarElGrafoNoSueltaElCandadoDelUsuario() throws Exception {
+        // Con ttl cero cada grafo se desaloja en cuanto se usa
+        GrafoDependencias sinTtl = new GrafoDependencias(repo, versiones, Duration.ZERO, Duration.ZERO, 10_000);
+        guardarEnBd(1L, null);
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        AtomicBoolean ambosDentro = new AtomicBoolean();
+        AtomicBoolean primeroDentro = new AtomicBoolean();
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> primero = hilos.submit(() -> sinTtl.conBloqueo(USUARIO, () -> {
+                primeroDentro.set(true);
+                sinTtl.descendientes(USUARIO, 1L);
+                dentro.countDown();
+                try {
+                    soltar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                primeroDentro.set(false);
+                return null;
+            }));
+            dentro.await();
+            Future<?> segundo = hilos.submit(() -> sinTtl.conBloqueo(USUARIO, () -> {
+                ambosDentro.set(primeroDentro.get());
+                return sinTtl.descendientes(USUARIO, 1L);
+            }));
+            Thread.sleep(100);
+            assertFalse(segundo.isDone());
+
+            soltar.countDown();
+            primero.get(5, TimeUnit.SECONDS);
+            segundo.get(5, TimeUnit.SECONDS);
+        } finally {
+            hilos.shutdownNow();
+        }
+        assertFalse(ambosDentro.get());
+    }
+
+    @Test
+    void altasSeguidasConDependenciaNoRecarganElGrafo() {
+        TareaService service = new TareaService(repo, mock(ApplicationEventPublisher.class), grafo,
+                EstadosDiferidos.desactivados(), mock(PlatformTransactionManager.class));
+        Long anterior = service.crear(nueva(null)).getId();
+        for (int i = 0; i < 50; i++) {
+            anterior = service.crear(nueva(anterior)).getId();
+        }
+
+        // Una sola carga; por alta con dependencia solo se sube la versión y se relee
+        // (una tarea nueva no puede cerrar un ciclo, así que no se valida contra la BD)
+        verify(repo, times(1)).findAristasByUsuarioId(USUARIO);
+        verify(repo, never()).findById(anyLong());
+        verify(versiones, times(50)).incrementar(USUARIO);
+        verify(versiones, times(1 + 50)).findVersionByUsuarioId(USUARIO);
+        assertEquals(50, grafo.ancestros(USUARIO, anterior).size());
+        assertEquals(List.of(), grafo.verificar(USUARIO));
+    }
+
+    @Test
+    void losCambiosDeEstadoNoSubenLaVersion() {
+        TareaService service = new TareaService(repo, mock(ApplicationEventPublisher.class), grafo,
+                EstadosDiferidos.desactivados(), mock(PlatformTransactionManager.class));
+        Long id = service.crear(nueva(null)).getId();
+
+        service.cambiarEstado(id, Tarea.Estado.COMPLETADA);
+
+        verify(versiones, never()).incrementar(anyLong());
+    }
+
+    @Test
+    void unaEscrituraAjenaEnMedioObligaARecargarTrasLaPropia() {
+        guardarEnBd(1L, null);
+        guardarEnBd(2L, null);
+        guardarEnBd(3L, null);
+        assertFalse(grafo.creariaCiclo(USUARIO, 3L, 1L));
+
+        // Esta instancia valida 3 -> 1 y, antes de que lo guarde, otra escribe 1 -> 2
+        grafo.conBloqueo(USUARIO, () -> {
+            assertFalse(grafo.creariaCiclo(USUARIO, 3L, 1L));
+            escribirDesdeOtraInstancia(1L, 2L);
+            Tarea tres = bd.get(3L);
+            tres.setDependeDeId(1L);
+            grafo.registrar(USUARIO, null, tres);
+            return null;
+        });
+
+        // 2 -> 3 cerraría 2 <- 1 <- 3 <- 2
+        assertTrue(grafo.creariaCiclo(USUARIO, 2L, 3L));
+        verify(repo, times(2)).findAristasByUsuarioId(USUARIO);
+    }
+
+    @Test
+    void lasConsultasRecarganPasadoElTtl() {
+        GrafoDependencias sinTtl = new GrafoDependencias(repo, versiones, Duration.ZERO, Duration.ZERO, 10_000);
+        guardarEnBd(1L, null);
+        assertEquals(List.of(), sinTtl.descendientes(USUARIO, 1L));
+
+        guardarEnBd(2L, 1L);
+
+        assertEquals(List.of(2L), sinTtl.descendientes(USUARIO, 1L));
+    }
+
+    @Test
+    void verificarInformaYCorrigeLasDiferencias() {
+        guardarEnBd(1L, null);
+        guardarEnBd(2L, 1L);
+        assertEquals(List.of(), grafo.verificar(USUARIO));
+
+        bd.get(2L).setDependeDeId(null);
+        guardarEnBd(3L, 1L);
+        bd.remove(1L);
+
+        List<String> diferencias = grafo.verificar(USUARIO);
+        assertEquals(Set.of(
+                "La tarea 2 depende de null pero el índice dice 1",
+                "Falta la tarea 3",
+                "La tarea 1 ya no existe"), new HashSet<>(diferencias));
+        assertEquals(List.of(), grafo.verificar(USUARIO));
+        assertEquals(List.of(), grafo.ancestros(USUARIO, 2L));
+    }
+
+    @Test
+    void unaEliminacionConfirmadaSaleDelGrafo() {
+        guardarEnBd(1L, null);
+        guardarEnBd(2L, 1L);
+        guardarEnBd(3L, 2L);
+        assertEquals(List.of(2L, 3L), grafo.descendientes(USUARIO, 1L));
+
+        bd.remove(2L);
+        bd.remove(3L);
+        grafo.alCambiar(CambioAgendaEvent.deTareas(CambioAgendaEvent.Tipo.ELIMINADA, USUARIO, null, List.of(2L, 3L)));
+
+        assertEquals(List.of(), grafo.descendientes(USUARIO, 1L));
+        assertEquals(List.of(), grafo.verificar(USUARIO));
+    }
+
+    @Test
+    void escriturasEnParaleloNoDejanCiclosNiDiferencias() throws Exception {
+        // Pares de tareas sueltas; por cada par, dos hilos intentan a la vez a -> b y b -> a
+        List<Long[]> pares = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Long a = crear(null);
+            Long b = crear(null);
+            pares.add(new Long[]{a, b});
+        }
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (Long[] par : pares) {
+                tareas.add(hilos.submit(() -> enlazar(par[0], par[1])));
+                tareas.add(hilos.submit(() -> enlazar(par[1], par[0])));
+                // Además, altas nuevas que dependen de la primera del par
+                tareas.add(hilos.submit(() -> grafo.conBloqueo(USUARIO, () -> crear(par[0]))));
+            }
+            for (Future<?> f : tareas) {
+                f.get();
+            }
+        } finally {
+            hilos.shutdown();
+        }
+
+        for (Long[] par : pares) {
+            Long padreA = bd.get(par[0]).getDependeDeId();
+            Long padreB = bd.get(par[1]).getDependeDeId();
+            assertFalse(par[1].equals(padreA) && par[0].equals(padreB),
+                    "Ciclo entre " + par[0] + " y " + par[1]);
+            assertTrue(par[1].equals(padreA) || par[0].equals(padreB), "Ninguno de los enlaces se guardó");
+        }
+        assertEquals(List.of(), grafo.verificar(USUARIO));
+    }
+
+    @Test
+    void trasladosCruzadosEntreDosUsuariosNoSeBloquean() throws Exception {
+        TareaService service = new TareaService(repo, mock(ApplicationEventPublisher.class), grafo,
+                EstadosDiferidos.desactivados(), mock(PlatformTransactionManager.class));
+        Long x = service.crear(nueva(null)).getId();
+        Tarea deOtro = nueva(null);
+        deOtro.setUsuarioId(OTRO_USUARIO);
+        Long y = service.crear(deOtro).getId();
+
+        // X va y vuelve de USUARIO a OTRO_USUARIO mientras Y hace el camino inverso
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> moverX = hilos.submit(() -> trasladar(service, x, OTRO_USUARIO, USUARIO));
+            Future<?> moverY = hilos.submit(() -> trasladar(service, y, USUARIO, OTRO_USUARIO));
+            moverX.get(30, TimeUnit.SECONDS);
+            moverY.get(30, TimeUnit.SECONDS);
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertEquals(List.of(), grafo.verificar(USUARIO));
+        assertEquals(List.of(), grafo.verificar(OTRO_USUARIO));
+    }
+
+    private void trasladar(TareaService service, Long id, Long ida, Long vuelta) {
+        for (int i = 0; i < 500; i++) {
+            Tarea t = nueva(null);
+            t.setUsuarioId(i % 2 == 0 ? ida : vuelta);
+            service.actualizar(id, t);
+        }
+    }
+
+    // Lo que hace TareaService al actualizar dependeDeId: validar y guardar con el grafo bloqueado
+    private void enlazar(Long id, Long dependeDe) {
+        grafo.conBloqueo(USUARIO, () -> {
+            if (!grafo.creariaCiclo(USUARIO, id, dependeDe)) {
+                Tarea t = bd.get(id);
+                Long anterior = t.getDependeDeId();
+                t.setDependeDeId(dependeDe);
+                t.setVersion(t.getVersion() + 1);
+                grafo.registrar(USUARIO, anterior, t);
+            }
+            return null;
+        });
+    }
+
+    private Long crear(Long dependeDe) {
+        Tarea t = guardarEnBd(siguienteId.incrementAndGet(), dependeDe);
+        grafo.registrar(null, null, t);
+        return t.getId();
+    }
+
+    private void escribirDesdeOtraInstancia(Long id, Long dependeDe) {
+        Tarea t = bd.get(id);
+        t.setDependeDeId(dependeDe);
+        t.setVersion(t.getVersion() + 1);
+        versionBd.incrementAndGet();
+    }
+
+    private static Tarea nueva(Long dependeDe) {
+        Tarea t = new Tarea();
+        t.setUsuarioId(USUARIO);
+        t.setNombre("Nueva");
+        t.setFecha(LocalDate.of(2025, 10, 26));
+        t.setDuracionMinutos(30);
+        t.setDependeDeId(dependeDe);
+        return t;
+    }
+
+    private Tarea guardarEnBd(Long id, Long dependeDe) {
+        Tarea t = new Tarea();
+        t.setId(id);
+        t.setUsuarioId(USUARIO);
+        t.setNombre("Tarea " + id);
+        t.setDependeDeId(dependeDe);
+        t.setVersion(0L);
+        bd.put(id, t);
+        return t;
+    }
+
+    private TareaRepository repositorio() {
+        TareaRepository r = mock(TareaRepository.class);
+        when(r.findById(anyLong())).thenAnswer(inv -> Optional.ofNullable(bd.get(inv.<Long>getArgument(0))));
+        when(r.findAristasByUsuarioId(anyLong())).thenAnswer(inv -> delUsuario(inv.getArgument(0)).stream()
+                .map(t -> arista(t.getId(), t.getDependeDeId()))
+                .collect(Collectors.toList()));
+        when(r.save(any(Tarea.class))).thenAnswer(inv -> {
+            Tarea t = inv.getArgument(0);
+            if (t.getId() == null) {
+                t.setId(siguienteId.incrementAndGet());
+                t.setVersion(0L);
+            } else {
+                t.setVersion(t.getVersion() + 1);
+            }
+            bd.put(t.getId(), t);
+            return t;
+        });
+        return r;
+    }
+
+    private VersionGrafoRepository versiones() {
+        VersionGrafoRepository v = mock(VersionGrafoRepository.class);
+        when(v.findVersionByUsuarioId(anyLong())).thenAnswer(inv -> versionBd.get() == 0 ? null : versionBd.get());
+        when(v.incrementar(anyLong())).thenAnswer(inv -> {
+            versionBd.incrementAndGet();
+            return 1;
+        });
+        return v;
+    }
+
+    private List<Tarea> delUsuario(Long usuarioId) {
+        return bd.values().stream().filter(t -> t.getUsuarioId().equals(usuarioId)).collect(Collectors.toList());
+    }
+
+    private static AristaTarea arista(Long id, Long dependeDeId) {
+        return new AristaTarea() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getDependeDeId() {
+                return dependeDeId;
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package cr.ac.una.agenda.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Orden de inserción por niveles de dependencia dentro del lote importado.
+ */
+class ImportacionTareasTest {
+
+    @Test
+    void agrupaLasFilasPorNivelDeDependencia() {
+        // 0 <- 1 <- 2, 3 sin dependencia, 4 <- 0
+        Integer[] padre = {null, 0, 1, null, 0};
+        String[] errores = new String[5];
+
+        List<List<Integer>> niveles = ImportacionTareas.ordenarPorNiveles(padre, errores);
+
+        assertEquals(List.of(List.of(0, 3), List.of(1, 4), List.of(2)), niveles);
+    }
+
+    @Test
+    void marcaLosCiclosYLoQueDependeDeFilasFallidas() {
+        // 0 <-> 1 forman un ciclo, 2 depende del ciclo, 3 depende de una fila ya inválida, 4 es válida
+        Integer[] padre = {1, 0, 1, 5, null, null};
+        String[] errores = new String[6];
+        errores[5] = "nombre es obligatorio";
+
+        List<List<Integer>> niveles = ImportacionTareas.ordenarPorNiveles(padre, errores);
+
+        assertEquals(List.of(List.of(4)), niveles);
+        assertEquals("Dependencia circular entre filas del lote", errores[0]);
+        assertEquals("Dependencia circular entre filas del lote", errores[1]);
+        assertEquals("Depende de la fila 2, que no se importó", errores[2]);
+        assertEquals("Depende de la fila 6, que no se importó", errores[3]);
+        assertNull(errores[4]);
+        assertNotNull(errores[5]);
+    }
+}
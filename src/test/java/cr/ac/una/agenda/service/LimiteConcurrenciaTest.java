@@ -0,0 +1,75 @@
+package cr.ac.una.agenda.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Límite de llamadas simultáneas hacia PrologAPI.
+ */
+class LimiteConcurrenciaTest {
+
+    @Test
+    void laTerceraLlamadaEsperaHastaQueTermineUna() {
+        LimiteConcurrencia limite = new LimiteConcurrencia(2, Duration.ofSeconds(5));
+        Sinks.One<String> primera = Sinks.one();
+        AtomicInteger iniciadas = new AtomicInteger();
+
+        Disposable a = limite.ejecutar(() -> {
+            iniciadas.incrementAndGet();
+            return primera.asMono();
+        }).subscribe();
+        Disposable b = limite.ejecutar(() -> {
+            iniciadas.incrementAndGet();
+            return Mono.<String>never();
+        }).subscribe();
+        Mono<String> tercera = limite.ejecutar(() -> {
+            iniciadas.incrementAndGet();
+            return Mono.just("ok");
+        }).cache();
+        Disposable c = tercera.subscribe();
+
+        assertEquals(2, iniciadas.get());
+        assertEquals(1, limite.enEspera());
+
+        primera.tryEmitValue("listo");
+        assertEquals("ok", tercera.block(Duration.ofSeconds(1)));
+        assertEquals(3, iniciadas.get());
+        assertEquals(1, limite.enUso());
+
+        // Cancelar devuelve el cupo
+        b.dispose();
+        assertEquals(0, limite.enUso());
+        a.dispose();
+        c.dispose();
+    }
+
+    @Test
+    void sinCupoDentroDelPlazoFallaCon503() {
+        LimiteConcurrencia limite = new LimiteConcurrencia(1, Duration.ofMillis(50));
+        Disposable ocupada = limite.ejecutar(Mono::never).subscribe();
+
+        Mono<String> esperando = limite.ejecutar(() -> Mono.just("no"));
+        assertThrows(PrologNoDisponibleException.class, () -> esperando.block(Duration.ofSeconds(1)));
+        assertEquals(0, limite.enEspera());
+
+        ocupada.dispose();
+        assertEquals(0, limite.enUso());
+    }
+
+    @Test
+    void sinLimiteNoEspera() {
+        LimiteConcurrencia limite = new LimiteConcurrencia(0, Duration.ZERO);
+        for (int i = 0; i < 100; i++) {
+            limite.ejecutar(Mono::never).subscribe();
+        }
+        assertEquals("ok", limite.ejecutar(() -> Mono.just("ok")).block(Duration.ofSeconds(1)));
+    }
+}
@@ -0,0 +1,117 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.PlanResponse;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Medidores de planificación sobre un SimpleMeterRegistry con reloj simulado: etiquetas de
+ * resultado de cada operación y llamada al motor, llamadas en curso y ahorro de la poda.
+ */
+class MetricasPlanTest {
+
+    private final MockClock reloj = new MockClock();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, reloj);
+    private final MetricasPlan metricas = new MetricasPlan(registry);
+
+    @Test
+    void medirEtiquetaLaOperacionSegunTermine() {
+        assertEquals("ok", metricas.medir("planificar", () -> "ok"));
+        assertThrows(IllegalStateException.class, () -> metricas.medir("planificar", () -> {
+            throw new IllegalStateException("falla");
+        }));
+
+        assertEquals(1, timerPlan("planificar", "exito").count());
+        assertEquals(1, timerPlan("planificar", "error").count());
+    }
+
+    @Test
+    void medirReactivoEtiquetaExitoErrorYCancelacion() {
+        assertEquals("ok", metricas.medirReactivo("replanificar", () -> Mono.just("ok")).block());
+        assertThrows(IllegalStateException.class, () -> metricas.medirReactivo("replanificar",
+                () -> Mono.error(new IllegalStateException("falla"))).block());
+        metricas.medirReactivo("replanificar", Mono::never).subscribe().dispose();
+
+        assertEquals(1, timerPlan("replanificar", "exito").count());
+        assertEquals(1, timerPlan("replanificar", "error").count());
+        assertEquals(1, timerPlan("replanificar", "cancelado").count());
+    }
+
+    @Test
+    void laLlamadaAlMotorQueFallaDejaEnCursoEnCero() {
+        assertThrows(IllegalStateException.class, () -> metricas.medirPlanificador("prolog", () -> {
+            assertEquals(1.0, enCurso("prolog"));
+            throw new IllegalStateException("falla");
+        }));
+
+        assertEquals(0.0, enCurso("prolog"));
+        assertEquals(1, timerPlanificador("prolog", "error").count());
+        assertNull(registry.find("agenda.planificador.llamada").tags("motor", "prolog", "resultado", "exito")
+                .timer());
+    }
+
+    @Test
+    void laLlamadaReactivaAlMotorEtiquetaExitoErrorYCancelacionYLiberaEnCurso() {
+        PlanResponse plan = new PlanResponse();
+        assertEquals(plan, metricas.medirPlanificadorReactivo("prolog", () -> Mono.just(plan)).block());
+        assertThrows(IllegalStateException.class, () -> metricas.medirPlanificadorReactivo("prolog",
+                () -> Mono.error(new IllegalStateException("falla"))).block());
+        assertEquals(0.0, enCurso("prolog"));
+
+        Disposable suscripcion = metricas.medirPlanificadorReactivo("prolog", Mono::never).subscribe();
+        assertEquals(1.0, enCurso("prolog"));
+        suscripcion.dispose();
+
+        assertEquals(0.0, enCurso("prolog"));
+        assertEquals(1, timerPlanificador("prolog", "exito").count());
+        assertEquals(1, timerPlanificador("prolog", "error").count());
+        assertEquals(1, timerPlanificador("prolog", "cancelado").count());
+    }
+
+    @Test
+    void laPodaSoloRegistraAhorroCuandoEvitaLaLlamada() {
+        metricas.medirPlanificador("prolog", () -> {
+            reloj.add(Duration.ofMillis(40));
+            return new PlanResponse();
+        });
+
+        metricas.registrarPoda("prolog", List.of("dependencia", "dependencia", "clima"), false);
+
+        assertEquals(2.0, registry.get("agenda.plan.podadas").tag("motivo", "dependencia").counter().count());
+        assertEquals(1.0, registry.get("agenda.plan.podadas").tag("motivo", "clima").counter().count());
+        assertNull(registry.find("agenda.plan.poda.ahorro").timer());
+
+        metricas.registrarPoda("prolog", List.of("dependencia"), true);
+
+        Timer ahorro = registry.get("agenda.plan.poda.ahorro").tag("motor", "prolog").timer();
+        assertEquals(1, ahorro.count());
+        // Estimado con la duración media de las llamadas exitosas al motor
+        assertEquals(40.0, ahorro.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(3.0, registry.get("agenda.plan.podadas").tag("motivo", "dependencia").counter().count());
+    }
+
+    private Timer timerPlan(String operacion, String resultado) {
+        return registry.get("agenda.plan").tags("operacion", operacion, "resultado", resultado).timer();
+    }
+
+    private Timer timerPlanificador(String motor, String resultado) {
+        return registry.get("agenda.planificador.llamada").tags("motor", motor, "resultado", resultado).timer();
+    }
+
+    private double enCurso(String motor) {
+        return registry.get("agenda.planificador.en.curso").tag("motor", motor).gauge().value();
+    }
+}
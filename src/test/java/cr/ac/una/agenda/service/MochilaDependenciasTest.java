@@ -0,0 +1,43 @@
+package cr.ac.una.agenda.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mochila con dependencias: la tabla se dimensiona por lo que realmente pesan los elementos.
+ */
+class MochilaDependenciasTest {
+
+    @Test
+    void capacidadEnormeNoDimensionaLaTablaPorElla() {
+        int n = 300;
+        int[] peso = new int[n];
+        long[] valor = new long[n];
+        int[] padre = new int[n];
+        Arrays.fill(peso, 30);
+        Arrays.fill(valor, 1);
+        Arrays.fill(padre, -1);
+
+        boolean[] elegido = MochilaDependencias.resolver(peso, valor, padre, Integer.MAX_VALUE);
+
+        boolean[] todos = new boolean[n];
+        Arrays.fill(todos, true);
+        assertArrayEquals(todos, elegido);
+    }
+
+    @Test
+    void unaHijaSoloEntraConSuMadre() {
+        // 0 <- 1; 2 suelta. Caben 90 minutos: la hija vale más que la suelta, pero arrastra a la madre
+        boolean[] elegido = MochilaDependencias.resolver(
+                new int[]{60, 30, 30}, new long[]{1, 5, 2}, new int[]{-1, 0, -1}, 90);
+
+        assertTrue(elegido[0]);
+        assertTrue(elegido[1]);
+        assertFalse(elegido[2]);
+    }
+}
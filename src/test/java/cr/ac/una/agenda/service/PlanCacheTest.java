@@ -0,0 +1,200 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.DiagnosticoDTO;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.dto.SlotDTO;
+import cr.ac.una.agenda.dto.TaskDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Invalidación del caché de planes por (usuarioId, fecha) a través del índice por día,
+ * solo cuando la escritura que la motiva se confirma.
+ */
+class PlanCacheTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 10, 26);
+    private static final LocalDate MANANA = HOY.plusDays(1);
+
+    @Test
+    void invalidaSoloLosPlanesDelDiaIndicado() {
+        PlanCache cache = new PlanCache(100, Duration.ofMinutes(1));
+        PlanCache.ClavePlan soleado = clave(1L, HOY, "soleado");
+        PlanCache.ClavePlan lluvioso = clave(1L, HOY, "lluvioso");
+        PlanCache.ClavePlan otroDia = clave(1L, MANANA, "soleado");
+        PlanCache.ClavePlan otroUsuario = clave(2L, HOY, "soleado");
+        for (PlanCache.ClavePlan clave : new PlanCache.ClavePlan[]{soleado, lluvioso, otroDia, otroUsuario}) {
+            cache.guardar(clave, new PlanResponse());
+        }
+
+        cache.invalidar(1L, HOY);
+
+        assertNull(cache.obtener(soleado));
+        assertNull(cache.obtener(lluvioso));
+        assertNotNull(cache.obtener(otroDia));
+        assertNotNull(cache.obtener(otroUsuario));
+        assertEquals(2L, cache.estadisticas().get("invalidaciones"));
+    }
+
+    @Test
+    void sinFechaInvalidaTodosLosDiasDelUsuario() {
+        PlanCache cache = new PlanCache(100, Duration.ofMinutes(1));
+        PlanCache.ClavePlan hoy = clave(1L, HOY, "soleado");
+        PlanCache.ClavePlan manana = clave(1L, MANANA, "soleado");
+        PlanCache.ClavePlan otroUsuario = clave(2L, HOY, "soleado");
+        cache.guardar(hoy, new PlanResponse());
+        cache.guardar(manana, new PlanResponse());
+        cache.guardar(otroUsuario, new PlanResponse());
+
+        cache.invalidar(1L, null);
+
+        assertNull(cache.obtener(hoy));
+        assertNull(cache.obtener(manana));
+        assertNotNull(cache.obtener(otroUsuario));
+        assertEquals(2L, cache.estadisticas().get("invalidaciones"));
+    }
+
+    @Test
+    void volverAGuardarTrasInvalidarVuelveAIndexar() {
+        PlanCache cache = new PlanCache(100, Duration.ofMinutes(1));
+        PlanCache.ClavePlan clave = clave(1L, HOY, "soleado");
+        cache.guardar(clave, new PlanResponse());
+        cache.invalidar(1L, HOY);
+        // Un día sin planes no cuenta invalidaciones
+        cache.invalidar(1L, HOY);
+
+        cache.guardar(clave, new PlanResponse());
+        assertNotNull(cache.obtener(clave));
+        cache.invalidar(1L, HOY);
+
+        assertNull(cache.obtener(clave));
+        assertEquals(2L, cache.estadisticas().get("invalidaciones"));
+    }
+
+    @Test
+    void invalidaRecienAlConfirmarseLaEscritura() {
+        try (AnnotationConfigApplicationContext contexto = new AnnotationConfigApplicationContext(ConEventos.class)) {
+            PlanCache cache = contexto.getBean(PlanCache.class);
+            PlanCache.ClavePlan clave = clave(1L, HOY, "soleado");
+            cache.guardar(clave, new PlanResponse());
+
+            new TransactionTemplate(new TransaccionesEnMemoria()).executeWithoutResult(estado -> {
+                contexto.publishEvent(CambioAgendaEvent.deConfiguracion(1L));
+                // Antes del commit la BD sigue con las filas viejas: un plan guardado ahora quedaría viejo
+                assertNotNull(cache.obtener(clave));
+            });
+
+            assertNull(cache.obtener(clave));
+        }
+    }
+
+    @Test
+    void unaEscrituraRevertidaNoInvalida() {
+        try (AnnotationConfigApplicationContext contexto = new AnnotationConfigApplicationContext(ConEventos.class)) {
+            PlanCache cache = contexto.getBean(PlanCache.class);
+            PlanCache.ClavePlan clave = clave(1L, HOY, "soleado");
+            cache.guardar(clave, new PlanResponse());
+
+            new TransactionTemplate(new TransaccionesEnMemoria()).executeWithoutResult(estado -> {
+                contexto.publishEvent(CambioAgendaEvent.deConfiguracion(1L));
+                estado.setRollbackOnly();
+            });
+
+            assertNotNull(cache.obtener(clave));
+            // Sin transacción el aviso se atiende en el acto
+            contexto.publishEvent(CambioAgendaEvent.deConfiguracion(1L));
+            assertNull(cache.obtener(clave));
+        }
+    }
+
+    @Test
+    void modificarUnPlanEntregadoNoAlteraElCache() {
+        PlanCache cache = new PlanCache(100, Duration.ofMinutes(1));
+        PlanCache.ClavePlan clave = clave(1L, HOY, "soleado");
+        PlanResponse plan = plan();
+        cache.guardar(clave, plan);
+        // Quien lo calculó sigue con su instancia (evento, respuesta)
+        plan.getTareasPlan().get(0).setInicio("10:00");
+        plan.getNoProgramadas().clear();
+
+        PlanResponse acierto = cache.obtener(clave);
+        assertEquals("08:00", acierto.getTareasPlan().get(0).getInicio());
+        acierto.setPosible(true);
+        acierto.getTareasPlan().clear();
+        acierto.getNoProgramadas().get(0).getClimas().add("lluvioso");
+        acierto.getDiagnostico().getPosponer().clear();
+
+        PlanResponse otro = cache.obtener(clave);
+        assertEquals(plan(), otro);
+    }
+
+    private static PlanResponse plan() {
+        SlotDTO slot = new SlotDTO();
+        slot.setId(1L);
+        slot.setNombre("Estudiar");
+        slot.setInicio("08:00");
+        slot.setFin("09:00");
+        TaskDTO pendiente = new TaskDTO();
+        pendiente.setId(2L);
+        pendiente.setNombre("Correr");
+        pendiente.setPrioridad(1);
+        pendiente.setDur(30);
+        pendiente.setClimas(new ArrayList<>(List.of("soleado")));
+        DiagnosticoDTO diagnostico = new DiagnosticoDTO();
+        diagnostico.setPosponer(new ArrayList<>(List.of(pendiente)));
+        PlanResponse plan = new PlanResponse();
+        plan.setTareasPlan(new ArrayList<>(List.of(slot)));
+        plan.setNoProgramadas(new ArrayList<>(List.of(pendiente)));
+        plan.setDiagnostico(diagnostico);
+        return plan;
+    }
+
+    private static PlanCache.ClavePlan clave(Long usuarioId, LocalDate fecha, String clima) {
+        return new PlanCache.ClavePlan(usuarioId, fecha, clima, 480, "08:00", PlanificadorJava.NOMBRE, "huella");
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class ConEventos {
+        @Bean
+        PlanCache planCache() {
+            return new PlanCache(100, Duration.ofMinutes(1));
+        }
+    }
+
+    // Transacciones sin recurso: solo las sincronizaciones (avisos antes y después del commit)
+    private static class TransaccionesEnMemoria extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaccion, TransactionDefinition definicion) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus estado) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus estado) {
+        }
+    }
+}
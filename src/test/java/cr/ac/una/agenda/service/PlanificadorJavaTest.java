@@ -0,0 +1,101 @@
+package cr.ac.una.agenda.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cr.ac.una.agenda.dto.DepDTO;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import cr.ac.una.agenda.dto.SlotDTO;
+import cr.ac.una.agenda.dto.TaskDTO;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Planificador nativo contra casos escritos a mano en src/test/resources/planes (cada archivo
+ * tiene un "request" y la "respuesta" que se dedujo de las reglas del planificador Prolog, no
+ * una respuesta real de PrologAPI) y, si se indica -Dplanes.grabados=directorio, contra los
+ * pares reales que dejó GrabadorPlanes (agenda.planificador.grabacion.directorio). Todavía no
+ * hay grabaciones en el repositorio: la paridad con el motor real está pendiente y el motor
+ * java sigue detrás de agenda.planificador.java.habilitado.
+ * Se compara lo que el frontend usa: si el plan es posible, los minutos, qué tareas
+ * quedan dentro/fuera del plan y que el orden respete las dependencias.
+ */
+class PlanificadorJavaTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    private final PlanificadorJava planificador = new PlanificadorJava(true);
+
+    static Stream<Arguments> casosEsperados() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        List<Arguments> casos = new ArrayList<>();
+        agregarCasos(casos, "", resolver.getResources("classpath:planes/*.json"));
+        String grabados = System.getProperty("planes.grabados");
+        if (grabados != null && !grabados.isBlank()) {
+            Resource[] archivos = resolver.getResources("file:" + Paths.get(grabados).toAbsolutePath() + "/*.json");
+            assertTrue(archivos.length > 0, "Sin grabaciones en " + grabados);
+            agregarCasos(casos, "grabado/", archivos);
+        }
+        return casos.stream();
+    }
+
+    private static void agregarCasos(List<Arguments> casos, String prefijo, Resource[] archivos) throws IOException {
+        for (Resource archivo : archivos) {
+            try (InputStream in = archivo.getInputStream()) {
+                JsonNode caso = MAPPER.readTree(in);
+                casos.add(Arguments.of(
+                        prefijo + archivo.getFilename(),
+                        MAPPER.treeToValue(caso.get("request"), PlanRequest.class),
+                        MAPPER.treeToValue(caso.get("respuesta"), PlanResponse.class)));
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("casosEsperados")
+    void coincideConLaRespuestaEsperada(String caso, PlanRequest request, PlanResponse esperada) {
+        PlanResponse obtenida = planificador.planificar(request);
+
+        assertEquals(esperada.isPosible(), obtenida.isPosible(), "posible");
+        assertEquals(esperada.getMinutosDisponibles(), obtenida.getMinutosDisponibles(), "minutosDisponibles");
+        assertEquals(esperada.getMinutosUsados(), obtenida.getMinutosUsados(), "minutosUsados");
+        assertEquals(esperada.getMinutosSobrantes(), obtenida.getMinutosSobrantes(), "minutosSobrantes");
+        assertEquals(idsSlots(esperada.getTareasPlan()), idsSlots(obtenida.getTareasPlan()), "tareasPlan");
+        assertEquals(idsTasks(esperada.getNoProgramadas()), idsTasks(obtenida.getNoProgramadas()), "noProgramadas");
+        assertRespetaDependencias(request, obtenida);
+    }
+
+    private void assertRespetaDependencias(PlanRequest request, PlanResponse plan) {
+        List<Long> orden = plan.getTareasPlan().stream().map(SlotDTO::getId).collect(Collectors.toList());
+        for (DepDTO dep : request.getDeps()) {
+            int hija = orden.indexOf(dep.getTarea());
+            int madre = orden.indexOf(dep.getDependeDe());
+            if (hija >= 0 && madre >= 0) {
+                assertTrue(madre < hija, "La tarea " + dep.getTarea() + " se programó antes que " + dep.getDependeDe());
+            }
+        }
+    }
+
+    private Set<Long> idsSlots(List<SlotDTO> slots) {
+        return slots.stream().map(SlotDTO::getId).collect(Collectors.toSet());
+    }
+
+    private Set<Long> idsTasks(List<TaskDTO> tasks) {
+        return tasks.stream().map(TaskDTO::getId).collect(Collectors.toSet());
+    }
+}
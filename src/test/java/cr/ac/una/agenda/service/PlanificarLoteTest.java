@@ -0,0 +1,118 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.configuration.PrologProperties;
+import cr.ac.una.agenda.dto.PlanLoteItem;
+import cr.ac.una.agenda.dto.PlanLoteResultado;
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
+import cr.ac.una.agenda.repository.TareaPlanificable;
+import cr.ac.una.agenda.repository.TareaRepository;
+import cr.ac.una.agenda.repository.VersionGrafoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Planificación por lote: un grupo cuya consulta falla no detiene a los grupos siguientes.
+ */
+class PlanificarLoteTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 10, 26);
+    private static final SpelAwareProxyProjectionFactory PROYECCIONES = new SpelAwareProxyProjectionFactory();
+
+    @Test
+    void unGrupoQueFallaSeReportaItemPorItemYElLoteSigue() {
+        TareaRepository tareas = mock(TareaRepository.class);
+        // Primer grupo: la consulta de tareas falla; segundo grupo: responde
+        when(tareas.findPlanificablesByUsuarioIdInAndFechaInAndEstadoIn(anyCollection(), anyCollection(),
+                anyCollection()))
+                .thenThrow(new IllegalStateException("BD no disponible"))
+                .thenAnswer(inv -> List.of(tarea(inv.<Collection<Long>>getArgument(0).iterator().next())));
+        ConfiguracionAgendaRepository configuraciones = mock(ConfiguracionAgendaRepository.class);
+        when(configuraciones.findByUsuarioIdIn(anyCollection())).thenAnswer(inv ->
+                inv.<Collection<Long>>getArgument(0).stream()
+                        .map(PlanificarLoteTest::configuracion)
+                        .collect(Collectors.toList()));
+
+        // Grupos de dos ítems
+        AgendaService service = new AgendaService(
+                WebClient.builder(),
+                new ResilienciaProlog(new PrologProperties()),
+                tareas,
+                new ConfiguracionCache(configuraciones, 1000, Duration.ofMinutes(1), Duration.ofSeconds(1)),
+                new TareaService(tareas, mock(ApplicationEventPublisher.class),
+                        new GrafoDependencias(tareas, mock(VersionGrafoRepository.class), Duration.ofMinutes(1),
+                                Duration.ofSeconds(1), 10_000),
+                        EstadosDiferidos.desactivados(), mock(PlatformTransactionManager.class)),
+                new PlanCache(1000, Duration.ofMinutes(1)),
+                new MetricasPlan(new SimpleMeterRegistry()),
+                mock(ApplicationEventPublisher.class),
+                Schedulers.immediate(),
+                List.of(new PlanificadorJava(true)),
+                PlanificadorJava.NOMBRE,
+                2,
+                2);
+
+        List<PlanLoteResultado> resultados = service.planificarLote(
+                        List.of(item(1L), item(2L), item(3L)))
+                .collectList()
+                .block();
+
+        assertEquals(3, resultados.size());
+        PlanLoteResultado uno = porUsuario(resultados, 1L);
+        PlanLoteResultado dos = porUsuario(resultados, 2L);
+        PlanLoteResultado tres = porUsuario(resultados, 3L);
+        assertFalse(uno.isExito());
+        assertEquals("BD no disponible", uno.getError());
+        assertFalse(dos.isExito());
+        assertTrue(tres.isExito());
+        assertEquals(1, tres.getPlan().getTareasPlan().size());
+    }
+
+    private static PlanLoteResultado porUsuario(List<PlanLoteResultado> resultados, Long usuarioId) {
+        return resultados.stream().filter(r -> r.getUsuarioId().equals(usuarioId)).findFirst().orElseThrow();
+    }
+
+    private static PlanLoteItem item(Long usuarioId) {
+        PlanLoteItem item = new PlanLoteItem();
+        item.setUsuarioId(usuarioId);
+        item.setFecha(HOY);
+        item.setClimaDia("soleado");
+        return item;
+    }
+
+    private static ConfiguracionAgenda configuracion(Long usuarioId) {
+        ConfiguracionAgenda c = new ConfiguracionAgenda();
+        c.setUsuarioId(usuarioId);
+        return c;
+    }
+
+    private static TareaPlanificable tarea(Long usuarioId) {
+        Tarea t = new Tarea();
+        t.setId(usuarioId * 10);
+        t.setUsuarioId(usuarioId);
+        t.setNombre("Tarea " + usuarioId);
+        t.setFecha(HOY);
+        t.setDuracionMinutos(30);
+        t.setEstado(Tarea.Estado.PENDIENTE);
+        return PROYECCIONES.createProjection(TareaPlanificable.class, t);
+    }
+}
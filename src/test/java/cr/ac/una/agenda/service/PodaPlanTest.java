@@ -0,0 +1,83 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.TareaPlanificable;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Poda previa a la planificación: tareas que ningún motor podría programar y su motivo.
+ */
+class PodaPlanTest {
+
+    private static final SpelAwareProxyProjectionFactory PROYECCIONES = new SpelAwareProxyProjectionFactory();
+
+    @Test
+    void podaPorClimaYPorDependenciaTransitiva() {
+        List<TareaPlanificable> tareas = List.of(
+                tarea(1L, 30, Tarea.Clima.LLUVIOSO, null),
+                tarea(2L, 30, null, 1L),
+                tarea(3L, 30, null, 2L),
+                tarea(4L, 30, null, null));
+
+        PodaPlan.Resultado poda = PodaPlan.podar(tareas, "Soleado", 480, Map.of());
+
+        assertEquals(List.of(4L), ids(poda.getCandidatas()));
+        assertEquals(Map.of(1L, PodaPlan.CLIMA, 2L, PodaPlan.DEPENDENCIA, 3L, PodaPlan.DEPENDENCIA),
+                poda.getMotivos());
+    }
+
+    @Test
+    void podaPorDuracionContandoLaCadenaDeLaQueDepende() {
+        List<TareaPlanificable> tareas = List.of(
+                // La hija cabe sola, pero no junto con su madre
+                tarea(2L, 60, null, 1L),
+                tarea(1L, 90, null, null),
+                tarea(3L, 150, null, null));
+
+        PodaPlan.Resultado poda = PodaPlan.podar(tareas, "soleado", 120, Map.of());
+
+        assertEquals(List.of(1L), ids(poda.getCandidatas()));
+        assertEquals(Map.of(2L, PodaPlan.DURACION, 3L, PodaPlan.DURACION), poda.getMotivos());
+    }
+
+    @Test
+    void dependenciaFueraDeLaListaSoloPodaSiLaTareaNoExiste() {
+        List<TareaPlanificable> tareas = List.of(
+                tarea(1L, 30, null, 10L),
+                tarea(2L, 30, null, 11L),
+                // Ciclo entre 3 y 4
+                tarea(3L, 30, null, 4L),
+                tarea(4L, 30, null, 3L));
+
+        // 10 existe (completada u otro día); 11 no
+        PodaPlan.Resultado poda = PodaPlan.podar(tareas, "soleado", 480,
+                Map.of(10L, Tarea.Estado.COMPLETADA));
+
+        assertEquals(List.of(1L), ids(poda.getCandidatas()));
+        assertEquals(Map.of(2L, PodaPlan.DEPENDENCIA, 3L, PodaPlan.DEPENDENCIA, 4L, PodaPlan.DEPENDENCIA),
+                poda.getMotivos());
+    }
+
+    private static List<Long> ids(List<TareaPlanificable> tareas) {
+        return tareas.stream().map(TareaPlanificable::getId).collect(Collectors.toList());
+    }
+
+    private static TareaPlanificable tarea(Long id, int duracion, Tarea.Clima clima, Long dependeDe) {
+        Tarea t = new Tarea();
+        t.setId(id);
+        t.setUsuarioId(1L);
+        t.setNombre("Tarea " + id);
+        t.setDuracionMinutos(duracion);
+        t.setClimaPermitido(clima);
+        t.setDependeDeId(dependeDe);
+        t.setEstado(Tarea.Estado.PENDIENTE);
+        return PROYECCIONES.createProjection(TareaPlanificable.class, t);
+    }
+}
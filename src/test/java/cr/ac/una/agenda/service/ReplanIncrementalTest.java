@@ -0,0 +1,86 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.ReplanIncrementalResponse;
+import cr.ac.una.agenda.dto.SlotDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Reubicación con mínima perturbación y diferencia entre planes de la replanificación incremental.
+ */
+class ReplanIncrementalTest {
+
+    @Test
+    void conservaLaHoraDeLasTareasQueYaEstabanYAgregaLasNuevasAlFinal() {
+        List<SlotDTO> anteriores = List.of(slot(1L, "10:00", "11:00"), slot(2L, "11:00", "11:30"));
+        // El planificador empaqueta desde las 09:30 y pone la tarea nueva primero
+        List<SlotDTO> resueltos = List.of(slot(3L, "09:30", "10:00"), slot(1L, "10:00", "11:00"),
+                slot(2L, "11:00", "11:30"));
+
+        List<SlotDTO> nuevas = ReplanIncremental.estabilizar(anteriores, resueltos,
+                Map.of(1L, 60, 2L, 30, 3L, 30), Map.of(), 9 * 60 + 30, 17 * 60);
+
+        assertEquals(List.of(slot(1L, "10:00", "11:00"), slot(2L, "11:00", "11:30"),
+                slot(3L, "11:30", "12:00")), nuevas);
+
+        ReplanIncrementalResponse diff = new ReplanIncrementalResponse();
+        ReplanIncremental.comparar(anteriores, nuevas, diff);
+        assertEquals(2, diff.getSinCambios());
+        assertEquals(List.of(slot(3L, "11:30", "12:00")), diff.getAgregadas());
+        assertEquals(0, diff.getMovidas().size());
+        assertEquals(0, diff.getEliminadas().size());
+    }
+
+    @Test
+    void compactaSiLasHorasAnterioresYaNoCaben() {
+        List<SlotDTO> anteriores = List.of(slot(1L, "15:00", "16:00"));
+        List<SlotDTO> resueltos = List.of(slot(2L, "14:00", "15:30"), slot(1L, "15:30", "16:30"));
+
+        List<SlotDTO> nuevas = ReplanIncremental.estabilizar(anteriores, resueltos,
+                Map.of(1L, 60, 2L, 90), Map.of(), 14 * 60, 16 * 60 + 30);
+
+        assertEquals(List.of(slot(1L, "14:00", "15:00"), slot(2L, "15:00", "16:30")), nuevas);
+
+        ReplanIncrementalResponse diff = new ReplanIncrementalResponse();
+        ReplanIncremental.comparar(anteriores, nuevas, diff);
+        assertEquals(1, diff.getMovidas().size());
+        assertEquals("15:00", diff.getMovidas().get(0).getInicioAnterior());
+        assertEquals("14:00", diff.getMovidas().get(0).getInicio());
+    }
+
+    @Test
+    void usaElOrdenDelPlanificadorSiElAnteriorRompeUnaDependencia() {
+        // La tarea 1 (ya planificada) ahora depende de la 2, que es nueva
+        List<SlotDTO> anteriores = List.of(slot(1L, "10:00", "11:00"));
+        List<SlotDTO> resueltos = List.of(slot(2L, "09:00", "09:30"), slot(1L, "09:30", "10:30"));
+
+        List<SlotDTO> nuevas = ReplanIncremental.estabilizar(anteriores, resueltos,
+                Map.of(1L, 60, 2L, 30), Map.of(1L, 2L), 9 * 60, 17 * 60);
+
+        assertSame(resueltos, nuevas);
+    }
+
+    @Test
+    void reportaLasTareasQueSalenDelPlan() {
+        ReplanIncrementalResponse diff = new ReplanIncrementalResponse();
+        ReplanIncremental.comparar(List.of(slot(1L, "10:00", "11:00"), slot(2L, "11:00", "12:00")),
+                List.of(slot(1L, "10:00", "11:00")), diff);
+
+        assertEquals(1, diff.getSinCambios());
+        assertEquals(List.of(slot(2L, "11:00", "12:00")), diff.getEliminadas());
+    }
+
+    private static SlotDTO slot(Long id, String inicio, String fin) {
+        SlotDTO s = new SlotDTO();
+        s.setId(id);
+        s.setNombre("Tarea " + id);
+        s.setInicio(inicio);
+        s.setFin(fin);
+        return s;
+    }
+}
@@ -0,0 +1,167 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.configuration.PrologProperties;
+import cr.ac.una.agenda.dto.ReplanIncrementalRequest;
+import cr.ac.una.agenda.dto.ReplanIncrementalResponse;
+import cr.ac.una.agenda.dto.SlotDTO;
+import cr.ac.una.agenda.dto.SlotMovidoDTO;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.ConfiguracionAgendaRepository;
+import cr.ac.una.agenda.repository.TareaPlanificable;
+import cr.ac.una.agenda.repository.TareaRepository;
+import cr.ac.una.agenda.repository.VersionGrafoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replanificación incremental a media mañana (09:30, día de 08:00 a 16:00): qué slots del plan
+ * anterior se conservan, cuáles vuelven a planificarse y desde cuándo empieza la ventana.
+ */
+class ReplanificarIncrementalTest {
+
+    private static final Long USUARIO = 1L;
+    private static final LocalDate HOY = LocalDate.of(2025, 10, 26);
+    private static final SpelAwareProxyProjectionFactory PROYECCIONES = new SpelAwareProxyProjectionFactory();
+
+    private final TareaRepository tareas = mock(TareaRepository.class);
+
+    @Test
+    void conservaLoCompletadoYLoEnCursoYReplanificaLoQueYaPaso() {
+        enBd(tarea(1L, 30, Tarea.Estado.COMPLETADA),
+                tarea(2L, 60, Tarea.Estado.PLANIFICADA),
+                tarea(3L, 30, Tarea.Estado.PLANIFICADA),
+                tarea(5L, 30, Tarea.Estado.PLANIFICADA));
+
+        ReplanIncrementalResponse respuesta = servicio().replanificarIncremental(entrada(
+                slot(1L, "08:00", "08:30"),
+                // Ya pasó sin completarse
+                slot(3L, "08:30", "09:00"),
+                // En curso
+                slot(2L, "09:00", "10:00"),
+                slot(5L, "10:00", "10:30")));
+
+        assertEquals(List.of(1L, 2L), ids(respuesta.getConservadas()));
+        assertEquals("10:00", respuesta.getDesde());
+        assertEquals(6 * 60, respuesta.getMinutosRestantes());
+        assertTrue(respuesta.isResuelto());
+        assertTrue(respuesta.isPosible());
+        assertEquals(List.of(), respuesta.getNoProgramadas());
+        // La que se pasó vuelve al inicio de la ventana y empuja a la siguiente
+        List<SlotMovidoDTO> movidas = respuesta.getMovidas();
+        assertEquals(List.of(3L, 5L), movidas.stream().map(SlotMovidoDTO::getId).collect(Collectors.toList()));
+        assertEquals("10:00", movidas.get(0).getInicio());
+        assertEquals("10:30", movidas.get(1).getInicio());
+        assertEquals(List.of(), respuesta.getEliminadas());
+    }
+
+    @Test
+    void losSlotsDeTareasEliminadasNoOcupanLaVentana() {
+        enBd(tarea(2L, 30, Tarea.Estado.PLANIFICADA));
+
+        ReplanIncrementalResponse respuesta = servicio().replanificarIncremental(entrada(
+                // La tarea 9 se eliminó mientras su slot estaba en curso
+                slot(9L, "09:00", "10:30"),
+                slot(2L, "10:30", "11:00")));
+
+        assertEquals(List.of(), respuesta.getConservadas());
+        assertEquals("09:30", respuesta.getDesde());
+        assertEquals(List.of(9L), ids(respuesta.getEliminadas()));
+        assertEquals(1, respuesta.getSinCambios());
+        assertTrue(respuesta.isPosible());
+    }
+
+    @Test
+    void siNadaPasoNiSeEliminoElPlanSigueValido() {
+        enBd(tarea(1L, 30, Tarea.Estado.COMPLETADA), tarea(2L, 30, Tarea.Estado.PLANIFICADA));
+
+        ReplanIncrementalResponse respuesta = servicio().replanificarIncremental(entrada(
+                slot(1L, "08:00", "08:30"),
+                slot(2L, "10:00", "10:30")));
+
+        assertEquals(List.of(1L), ids(respuesta.getConservadas()));
+        assertEquals("09:30", respuesta.getDesde());
+        assertEquals(1, respuesta.getSinCambios());
+        assertFalse(respuesta.isResuelto());
+    }
+
+    private AgendaService servicio() {
+        return new AgendaService(
+                WebClient.builder(),
+                new ResilienciaProlog(new PrologProperties()),
+                tareas,
+                new ConfiguracionCache(mock(ConfiguracionAgendaRepository.class),
+                        1000, Duration.ofMinutes(1), Duration.ofSeconds(1)),
+                new TareaService(tareas, mock(ApplicationEventPublisher.class),
+                        new GrafoDependencias(tareas, mock(VersionGrafoRepository.class), Duration.ofMinutes(1),
+                                Duration.ofSeconds(1), 10_000),
+                        EstadosDiferidos.desactivados(), mock(PlatformTransactionManager.class)),
+                new PlanCache(1000, Duration.ofMinutes(1)),
+                new MetricasPlan(new SimpleMeterRegistry()),
+                mock(ApplicationEventPublisher.class),
+                Schedulers.immediate(),
+                List.of(new PlanificadorJava(true)),
+                PlanificadorJava.NOMBRE,
+                2,
+                2);
+    }
+
+    private void enBd(TareaPlanificable... filas) {
+        when(tareas.findPlanificablesByUsuarioIdAndFechaAndEstadoIn(eq(USUARIO), any(LocalDate.class),
+                anyCollection())).thenReturn(List.of(filas));
+    }
+
+    private static ReplanIncrementalRequest entrada(SlotDTO... plan) {
+        ReplanIncrementalRequest entrada = new ReplanIncrementalRequest();
+        entrada.setUsuarioId(USUARIO);
+        entrada.setFecha(HOY);
+        entrada.setClimaDia("soleado");
+        entrada.setHoraInicio("08:00");
+        entrada.setMinutosDisponibles(8 * 60);
+        entrada.setHoraActual("09:30");
+        entrada.setPlanAnterior(List.of(plan));
+        return entrada;
+    }
+
+    private static List<Long> ids(List<SlotDTO> slots) {
+        return slots.stream().map(SlotDTO::getId).collect(Collectors.toList());
+    }
+
+    private static SlotDTO slot(Long id, String inicio, String fin) {
+        SlotDTO s = new SlotDTO();
+        s.setId(id);
+        s.setNombre("Tarea " + id);
+        s.setInicio(inicio);
+        s.setFin(fin);
+        return s;
+    }
+
+    private static TareaPlanificable tarea(Long id, int duracion, Tarea.Estado estado) {
+        Tarea t = new Tarea();
+        t.setId(id);
+        t.setUsuarioId(USUARIO);
+        t.setNombre("Tarea " + id);
+        t.setFecha(HOY);
+        t.setDuracionMinutos(duracion);
+        t.setEstado(estado);
+        return PROYECCIONES.createProjection(TareaPlanificable.class, t);
+    }
+}
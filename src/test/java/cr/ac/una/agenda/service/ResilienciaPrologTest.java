@@ -0,0 +1,370 @@
+package cr.ac.una.agenda.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import cr.ac.una.agenda.configuration.PrologProperties;
+import cr.ac.una.agenda.dto.PlanRequest;
+import cr.ac.una.agenda.dto.PlanResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PlanificadorProlog contra un PrologAPI falso (HttpServer del JDK) que inyecta
+ * demoras y errores según el número de llamada.
+ */
+class ResilienciaPrologTest {
+
+    private static final byte[] PLAN = ("{\"posible\":true,\"minutosDisponibles\":60,\"minutosUsados\":0,"
+            + "\"minutosSobrantes\":60,\"tareasPlan\":[],\"noProgramadas\":[]}").getBytes(StandardCharsets.UTF_8);
+
+    /** Estado HTTP y demora de la respuesta a una llamada. */
+    private record Respuesta(int estado, long demoraMs) {
+    }
+
+    private HttpServer servidor;
+    private ExecutorService hilos;
+    private final AtomicInteger llamadas = new AtomicInteger();
+    private volatile IntFunction<Respuesta> guion = n -> new Respuesta(200, 0);
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private final FormatoPlan formato = new FormatoPlan(mapper);
+    /** Si es falso, el servidor responde 415 a las solicitudes en Smile. */
+    private volatile boolean aceptaSmile = true;
+    /** Si es verdadero, el servidor responde en JSON aunque la solicitud venga en Smile. */
+    private volatile boolean respondeJson;
+    /** Content-Type (y "+gzip" si venía comprimido) de cada solicitud recibida. */
+    private final List<String> tipos = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        hilos = Executors.newCachedThreadPool();
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.setExecutor(hilos);
+        servidor.createContext("/api/plan", exchange -> {
+            Respuesta r = guion.apply(llamadas.incrementAndGet());
+            try {
+                byte[] recibido = exchange.getRequestBody().readAllBytes();
+                String tipo = exchange.getRequestHeaders().getFirst("Content-Type");
+                boolean smile = tipo != null && tipo.startsWith(FormatoPlan.SMILE.toString());
+                boolean gzip = FormatoPlan.GZIP.equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+                tipos.add(tipo + (gzip ? "+gzip" : ""));
+                if (smile && !aceptaSmile) {
+                    exchange.sendResponseHeaders(415, -1);
+                    return;
+                }
+                formato.decodificar(recibido, PlanRequest.class, smile, gzip);
+                Thread.sleep(r.demoraMs());
+                boolean smileRespuesta = smile && !respondeJson;
+                byte[] cuerpo = r.estado() != 200 ? "{}".getBytes(StandardCharsets.UTF_8)
+                        : smileRespuesta ? formato.codificar(mapper.readValue(PLAN, PlanResponse.class), true) : PLAN;
+                exchange.getResponseHeaders().add("Content-Type",
+                        smileRespuesta ? FormatoPlan.SMILE.toString() : "application/json");
+                exchange.sendResponseHeaders(r.estado(), cuerpo.length);
+                exchange.getResponseBody().write(cuerpo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // El cliente ya canceló (timeout o cobertura ganadora)
+            } finally {
+                exchange.close();
+            }
+        });
+        servidor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.stop(0);
+        hilos.shutdownNow();
+    }
+
+    @Test
+    void reintentaErroresDelServidorHastaResponder() {
+        guion = n -> new Respuesta(n <= 2 ? 503 : 200, 0);
+
+        PlanResponse plan = planificador(config()).planificar(new PlanRequest());
+
+        assertTrue(plan.isPosible());
+        assertEquals(3, llamadas.get());
+    }
+
+    @Test
+    void noReintentaErroresDelCliente() {
+        guion = n -> new Respuesta(400, 0);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> planificador(config()).planificar(new PlanRequest()));
+
+        assertFalse(e instanceof PrologNoDisponibleException);
+        assertEquals(1, llamadas.get());
+    }
+
+    @Test
+    void grabaLaRespuestaRealConSuRequestHastaElMaximo(@TempDir Path directorio) throws Exception {
+        GrabadorPlanes grabador = new GrabadorPlanes(mapper, directorio.toString(), 2);
+        PlanificadorProlog planificador = planificador(config(), grabador);
+        PlanRequest request = new PlanRequest();
+        request.setClimaDia("soleado");
+        request.setMinutosDisponibles(60);
+
+        for (int i = 0; i < 3; i++) {
+            planificador.planificar(request);
+        }
+
+        // La escritura va en segundo plano, fuera del hilo que recibe la respuesta
+        List<Path> archivos = List.of();
+        for (int i = 0; i < 100 && archivos.size() < 2; i++) {
+            Thread.sleep(20);
+            try (Stream<Path> listado = Files.list(directorio)) {
+                archivos = listado.collect(Collectors.toList());
+            }
+        }
+        assertEquals(2, archivos.size());
+        assertFalse(grabador.isActivo());
+        JsonNode caso = mapper.readTree(archivos.get(0).toFile());
+        assertEquals(request, mapper.treeToValue(caso.get("request"), PlanRequest.class));
+        assertEquals(mapper.readValue(PLAN, PlanResponse.class),
+                mapper.treeToValue(caso.get("respuesta"), PlanResponse.class));
+    }
+
+    @Test
+    void cortaElIntentoQueExcedeSuPlazo() {
+        guion = n -> new Respuesta(200, 2000);
+        PrologProperties config = config();
+        config.setTimeoutIntento(Duration.ofMillis(100));
+        config.setReintentos(0);
+
+        long inicio = System.nanoTime();
+        assertThrows(PrologNoDisponibleException.class,
+                () -> planificador(config).planificar(new PlanRequest()));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - inicio).toMillis() < 1500);
+    }
+
+    @Test
+    void sinPresupuestoNoReintenta() {
+        guion = n -> new Respuesta(503, 0);
+        PrologProperties config = config();
+        config.setPresupuestoReintentos(0);
+        config.setPresupuestoMaximo(0);
+
+        assertThrows(PrologNoDisponibleException.class,
+                () -> planificador(config).planificar(new PlanRequest()));
+
+        assertEquals(1, llamadas.get());
+    }
+
+    @Test
+    void elCircuitoSeAbreYSeCierraConUnaSondaExitosa() throws InterruptedException {
+        guion = n -> new Respuesta(500, 0);
+        PrologProperties config = config();
+        config.setReintentos(0);
+        config.getCircuito().setVentana(4);
+        config.getCircuito().setMinimoLlamadas(4);
+        config.getCircuito().setAbierto(Duration.ofMillis(200));
+        config.getCircuito().setSondas(1);
+        PlanificadorProlog planificador = planificador(config);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(PrologNoDisponibleException.class, () -> planificador.planificar(new PlanRequest()));
+        }
+        // Abierto: falla sin llegar al servidor
+        assertThrows(PrologNoDisponibleException.class, () -> planificador.planificar(new PlanRequest()));
+        assertEquals(4, llamadas.get());
+
+        // Semiabierto: la sonda llega, sale bien y cierra el circuito
+        guion = n -> new Respuesta(200, 0);
+        Thread.sleep(250);
+        assertTrue(planificador.planificar(new PlanRequest()).isPosible());
+        assertTrue(planificador.planificar(new PlanRequest()).isPosible());
+        assertEquals(6, llamadas.get());
+    }
+
+    @Test
+    void laSondaQueNoConsigueCupoNoDejaElCircuitoSemiabierto() throws Exception {
+        PrologProperties config = config();
+        config.setReintentos(0);
+        config.setConcurrenciaMaxima(2);
+        config.setEsperaPermiso(Duration.ofMillis(300));
+        config.getCircuito().setVentana(1);
+        config.getCircuito().setMinimoLlamadas(1);
+        config.getCircuito().setAbierto(Duration.ofMillis(100));
+        config.getCircuito().setSondas(1);
+        ResilienciaProlog resiliencia = new ResilienciaProlog(config);
+        List<Disposable> ocupadas = ocuparCuposConElCircuitoAbierto(resiliencia);
+        Thread.sleep(150);
+
+        // Semiabierto y sin cupo: la sonda espera y vence sin llegar a llamar
+        PrologNoDisponibleException e = assertThrows(PrologNoDisponibleException.class,
+                () -> resiliencia.ejecutar(() -> Mono.just("ok")).block());
+        assertTrue(e.getMessage().contains("sin cupo"), e.getMessage());
+
+        assertLasSiguientesSondasCierranElCircuito(resiliencia, 1, ocupadas);
+    }
+
+    @Test
+    void laSondaQueVencePorPlazoMientrasEsperaCupoSeLibera() throws Exception {
+        // Como el perfil virtual: esperar cupo es lo normal y la espera supera el plazo
+        PrologProperties config = config();
+        config.setReintentos(0);
+        config.setConcurrenciaMaxima(2);
+        config.setEsperaPermiso(Duration.ofSeconds(2));
+        config.getCircuito().setVentana(1);
+        config.getCircuito().setMinimoLlamadas(1);
+        config.getCircuito().setAbierto(Duration.ofMillis(100));
+        config.getCircuito().setSondas(2);
+        ResilienciaProlog resiliencia = new ResilienciaProlog(config);
+        List<Disposable> ocupadas = ocuparCuposConElCircuitoAbierto(resiliencia);
+        Thread.sleep(150);
+
+        // Todas las sondas quedan en cola y el plazo total las cancela antes del cupo
+        config.setPlazo(Duration.ofMillis(150));
+        for (int i = 0; i < 2; i++) {
+            PrologNoDisponibleException e = assertThrows(PrologNoDisponibleException.class,
+                    () -> resiliencia.ejecutar(() -> Mono.just("ok")).block());
+            assertTrue(e.getMessage().contains("dentro del plazo"), e.getMessage());
+        }
+        config.setPlazo(Duration.ofSeconds(10));
+
+        assertLasSiguientesSondasCierranElCircuito(resiliencia, 2, ocupadas);
+    }
+
+    @Test
+    void laSolicitudDeCoberturaGanaCuandoLaPrimeraSeDemora() {
+        PrologProperties config = config();
+        config.getCobertura().setActiva(true);
+        config.getCobertura().setMuestrasMinimas(1);
+        config.getCobertura().setMinimo(Duration.ofMillis(50));
+        PlanificadorProlog planificador = planificador(config);
+
+        // Primera llamada rápida para tener una latencia de referencia
+        planificador.planificar(new PlanRequest());
+        guion = n -> new Respuesta(200, n == 2 ? 3000 : 0);
+
+        long inicio = System.nanoTime();
+        assertTrue(planificador.planificar(new PlanRequest()).isPosible());
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - inicio).toMillis() < 1500);
+        assertEquals(3, llamadas.get());
+    }
+
+    @Test
+    void intercambiaSmileComprimidoCuandoPrologApiLoAcepta() {
+        PrologProperties config = config();
+        config.getFormato().setBinario(true);
+        config.getFormato().setComprimir(true);
+        config.getFormato().setComprimirDesde(DataSize.ofBytes(0));
+
+        assertTrue(planificador(config).planificar(new PlanRequest()).isPosible());
+
+        assertEquals(List.of(FormatoPlan.SMILE + "+gzip"), tipos);
+    }
+
+    @Test
+    void leeRespuestasJsonConSmileActivado() {
+        respondeJson = true;
+        PrologProperties config = config();
+        config.getFormato().setBinario(true);
+
+        assertTrue(planificador(config).planificar(new PlanRequest()).isPosible());
+
+        assertEquals(List.of(FormatoPlan.SMILE.toString()), tipos);
+    }
+
+    @Test
+    void vuelveAJsonPlanoSiPrologApiRechazaSmile() {
+        aceptaSmile = false;
+        PrologProperties config = config();
+        config.getFormato().setBinario(true);
+        PlanificadorProlog planificador = planificador(config);
+
+        assertTrue(planificador.planificar(new PlanRequest()).isPosible());
+        // El rechazo se recuerda: la siguiente llamada ya va en JSON
+        assertTrue(planificador.planificar(new PlanRequest()).isPosible());
+
+        assertEquals(List.of(FormatoPlan.SMILE.toString(), "application/json", "application/json"), tipos);
+    }
+
+    /**
+     * Abre el circuito con una falla mientras dos llamadas lentas, que empezaron con el
+     * circuito cerrado, ocupan los dos cupos (la segunda entra cuando termina la que falla).
+     */
+    private static List<Disposable> ocuparCuposConElCircuitoAbierto(ResilienciaProlog resiliencia)
+            throws InterruptedException {
+        Disposable primera = resiliencia.ejecutar(Mono::<String>never).subscribe();
+        resiliencia.ejecutar(() -> Mono.delay(Duration.ofMillis(30))
+                        .then(Mono.<String>error(new IllegalStateException("caído"))))
+                .subscribe(valor -> { }, error -> { });
+        Disposable segunda = resiliencia.ejecutar(Mono::<String>never).subscribe();
+        esperarHasta(() -> "ABIERTO".equals(resiliencia.estadisticas().get("circuito"))
+                && Integer.valueOf(0).equals(resiliencia.estadisticas().get("llamadasEnEspera")));
+        return List.of(primera, segunda);
+    }
+
+    // Las sondas que no llegaron a llamar se liberaron: la siguiente puede reservar una,
+    // entra al soltarse un cupo y, con las demás sondas exitosas, cierra el circuito
+    private static void assertLasSiguientesSondasCierranElCircuito(ResilienciaProlog resiliencia, int sondas,
+                                                                   List<Disposable> ocupadas) throws Exception {
+        CompletableFuture<String> sonda = resiliencia.ejecutar(() -> Mono.just("ok")).toFuture();
+        ocupadas.get(1).dispose();
+        assertEquals("ok", sonda.get(2, TimeUnit.SECONDS));
+        for (int i = 1; i < sondas; i++) {
+            assertEquals("ok", resiliencia.ejecutar(() -> Mono.just("ok")).block());
+        }
+        assertEquals("CERRADO", resiliencia.estadisticas().get("circuito"));
+        ocupadas.get(0).dispose();
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        for (int i = 0; i < 200 && !condicion.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condicion.getAsBoolean());
+    }
+
+    private PrologProperties config() {
+        PrologProperties config = new PrologProperties();
+        config.setUrl("http://127.0.0.1:" + servidor.getAddress().getPort());
+        config.setEsperaReintento(Duration.ofMillis(10));
+        config.setTimeoutIntento(Duration.ofSeconds(5));
+        config.setPlazo(Duration.ofSeconds(10));
+        return config;
+    }
+
+    private PlanificadorProlog planificador(PrologProperties config) {
+        return planificador(config, new GrabadorPlanes(mapper, "", 0));
+    }
+
+    private PlanificadorProlog planificador(PrologProperties config, GrabadorPlanes grabador) {
+        return new PlanificadorProlog(WebClient.builder(), config, new ResilienciaProlog(config), mapper, grabador);
+    }
+}
@@ -0,0 +1,105 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.dto.TareaParcial;
+import cr.ac.una.agenda.entity.Tarea;
+import cr.ac.una.agenda.repository.TareaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Actualización parcial (PATCH) con bloqueo optimista.
+ */
+class TareaParcialTest {
+
+    private final TareaRepository repo = mock(TareaRepository.class);
+    private final GrafoDependencias grafo = mock(GrafoDependencias.class);
+    private final TareaService service = new TareaService(repo, mock(ApplicationEventPublisher.class), grafo,
+            EstadosDiferidos.desactivados(), mock(PlatformTransactionManager.class));
+    private Tarea actual;
+
+    @BeforeEach
+    void setUp() {
+        actual = new Tarea();
+        actual.setId(1L);
+        actual.setUsuarioId(7L);
+        actual.setNombre("Estudiar");
+        actual.setFecha(LocalDate.of(2025, 10, 26));
+        actual.setDuracionMinutos(60);
+        actual.setDependeDeId(2L);
+        actual.setNota("capítulo 3");
+        actual.setVersion(4L);
+        when(repo.findById(1L)).thenReturn(Optional.of(actual));
+        when(repo.save(any(Tarea.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    void cambiaSoloLosCamposEnviadosSinRevisarDependencias() {
+        TareaParcial cambios = new TareaParcial();
+        cambios.setVersion(4L);
+        cambios.setDuracionMinutos(90);
+        cambios.getCampos().add("version");
+        cambios.getCampos().add("duracionMinutos");
+        // Presente con null: borra la nota
+        cambios.getCampos().add("nota");
+
+        Tarea guardada = service.actualizarParcial(1L, cambios);
+
+        assertEquals(90, guardada.getDuracionMinutos());
+        assertEquals("Estudiar", guardada.getNombre());
+        assertEquals(2L, guardada.getDependeDeId());
+        assertNull(guardada.getNota());
+        verifyNoInteractions(grafo);
+    }
+
+    @Test
+    void conUnaVersionViejaRespondeConflictoSinEscribir() {
+        TareaParcial cambios = new TareaParcial();
+        cambios.setVersion(3L);
+        cambios.setNombre("Repasar");
+        cambios.getCampos().add("version");
+        cambios.getCampos().add("nombre");
+
+        assertThrows(ConflictoVersionException.class, () -> service.actualizarParcial(1L, cambios));
+        verify(repo, never()).save(any(Tarea.class));
+    }
+
+    @Test
+    void unaEscrituraConcurrenteTambienEsConflicto() {
+        when(repo.save(any(Tarea.class))).thenThrow(new ObjectOptimisticLockingFailureException(Tarea.class, 1L));
+        TareaParcial cambios = new TareaParcial();
+        cambios.setNombre("Repasar");
+        cambios.getCampos().add("nombre");
+
+        assertThrows(ConflictoVersionException.class, () -> service.actualizarParcial(1L, cambios));
+    }
+
+    @Test
+    void siCambiaLaDependenciaSeValidaElCiclo() {
+        when(grafo.conBloqueo(anyLong(), anyLong(), any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(2)).get());
+        when(grafo.creariaCiclo(7L, 1L, 3L)).thenReturn(true);
+        TareaParcial cambios = new TareaParcial();
+        cambios.setDependeDeId(3L);
+        cambios.getCampos().add("dependeDeId");
+
+        assertThrows(IllegalArgumentException.class, () -> service.actualizarParcial(1L, cambios));
+        verify(repo, never()).save(any(Tarea.class));
+    }
+}
@@ -0,0 +1,66 @@
+package cr.ac.una.agenda.service;
+
+import cr.ac.una.agenda.entity.ConfiguracionAgenda;
+import cr.ac.una.agenda.entity.Tarea;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ETags por día y por configuración.
+ */
+class VersionesAgendaTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 10, 26);
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final VersionesAgenda versiones = new VersionesAgenda(jdbc, EstadosDiferidos.desactivados());
+
+    @Test
+    void elEtagDelDiaSaleDeSuVersion() {
+        when(jdbc.queryForList(anyString(), eq(Long.class), eq(7L), eq(FECHA))).thenReturn(List.of(42L));
+        when(jdbc.queryForList(anyString(), eq(Long.class), eq(8L), eq(FECHA))).thenReturn(List.of());
+
+        assertEquals("\"d42\"", versiones.etagDia(7L, FECHA));
+        assertEquals("\"d0\"", versiones.etagDia(8L, FECHA));
+    }
+
+    @Test
+    void soloLasEscriturasDeTareasEnLaBdSubenLaVersion() {
+        Tarea tarea = new Tarea();
+        tarea.setId(1L);
+        tarea.setUsuarioId(7L);
+        tarea.setFecha(FECHA);
+
+        versiones.alCambiarAgenda(CambioAgendaEvent.deConfiguracion(7L));
+        versiones.alCambiarAgenda(CambioAgendaEvent.deEstadoDiferido(tarea));
+        verify(jdbc, never()).update(anyString(), any(Object[].class));
+
+        versiones.alCambiarAgenda(CambioAgendaEvent.deTarea(CambioAgendaEvent.Tipo.CREADA, 7L, FECHA, tarea));
+        verify(jdbc).update(eq(VersionesAgenda.INCREMENTAR), any(Object[].class));
+    }
+
+    @Test
+    void elEtagDeLaConfiguracionCambiaConSuContenido() {
+        ConfiguracionAgenda config = new ConfiguracionAgenda();
+        config.setId(1L);
+        config.setUsuarioId(7L);
+        String antes = VersionesAgenda.etagConfiguracion(config);
+
+        config.setMinutosDisponibles(300);
+
+        assertNotEquals(antes, VersionesAgenda.etagConfiguracion(config));
+    }
+}
@@ -0,0 +1,86 @@
+package cr.ac.una.agenda.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Agrupación de llamadas concurrentes con la misma clave.
+ */
+class VueloUnicoTest {
+
+    private final VueloUnico<String, Object> vuelos = new VueloUnico<>();
+
+    @Test
+    void lasLlamadasConcurrentesCompartenUnSoloCalculo() throws Exception {
+        AtomicInteger calculos = new AtomicInteger();
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Object>> llamadas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                llamadas.add(CompletableFuture.supplyAsync(() -> vuelos.ejecutar("u1|2025-10-26", () -> {
+                    calculos.incrementAndGet();
+                    esperar(liberar);
+                    return new Object();
+                }), hilos));
+            }
+            // Dar tiempo a que todas lleguen mientras la primera sigue calculando
+            Thread.sleep(200);
+            liberar.countDown();
+
+            Object primero = llamadas.get(0).get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<Object> llamada : llamadas) {
+                assertSame(primero, llamada.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calculos.get());
+            assertEquals(0, vuelos.enCurso());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void elErrorLlegaATodosYLaClaveSeLibera() {
+        assertThrows(IllegalArgumentException.class, () -> vuelos.ejecutar("u1", () -> {
+            throw new IllegalArgumentException("fecha obligatoria");
+        }));
+
+        assertEquals("ok", vuelos.ejecutar("u1", () -> "ok"));
+    }
+
+    @Test
+    void laVarianteReactivaSuscribeUnaSolaVez() {
+        AtomicInteger suscripciones = new AtomicInteger();
+        Mono<Object> calculo = Mono.delay(Duration.ofMillis(200))
+                .map(x -> (Object) ("plan " + suscripciones.incrementAndGet()));
+
+        Mono<Object> a = vuelos.compartir("u1", () -> calculo);
+        Mono<Object> b = vuelos.compartir("u1", () -> calculo);
+        List<Object> resultados = Mono.zip(a, b, List::of).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("plan 1", "plan 1"), resultados);
+        assertEquals(1, suscripciones.get());
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}